@@ -43,6 +43,7 @@ import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.action.Action;
 import io.cdap.cdap.etl.api.action.ActionContext;
 import io.cdap.plugin.gcp.bigquery.sink.BigQuerySinkUtils;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryJobPoller;
 import io.cdap.plugin.gcp.bigquery.util.BigQueryUtil;
 import io.cdap.plugin.gcp.common.CmekUtils;
 import io.cdap.plugin.gcp.common.GCPConfig;
@@ -130,9 +131,12 @@ public final class BigQueryExecute extends AbstractBigQueryAction {
     LOG.debug("The BigQuery SQL is {}", config.getSql());
 
     // Wait for the query to complete
-    queryJob.waitFor();
+    queryJob = BigQueryJobPoller.getInstance().waitFor(queryJob);
 
     // Check for errors
+    if (queryJob == null) {
+      throw new RuntimeException(String.format("BigQuery job '%s' not found.", jobId.getJob()));
+    }
     if (queryJob.getStatus().getError() != null) {
       // You can also look at queryJob.getStatus().getExecutionErrors() for all
       // errors, not just the latest one.
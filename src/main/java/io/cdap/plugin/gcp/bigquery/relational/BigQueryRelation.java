@@ -7,6 +7,7 @@ import io.cdap.cdap.etl.api.engine.sql.SQLEngineException;
 import io.cdap.cdap.etl.api.relational.Expression;
 import io.cdap.cdap.etl.api.relational.InvalidRelation;
 import io.cdap.cdap.etl.api.relational.Relation;
+import io.cdap.plugin.gcp.bigquery.sqlengine.BigQueryDeferredSelectDataset;
 import io.cdap.plugin.gcp.bigquery.sqlengine.BigQuerySQLDataset;
 import io.cdap.plugin.gcp.bigquery.sqlengine.builder.BigQueryDeduplicateSQLBuilder;
 import io.cdap.plugin.gcp.bigquery.sqlengine.builder.BigQueryGroupBySQLBuilder;
@@ -65,6 +66,12 @@ public class BigQueryRelation implements Relation {
 
       // Build selected columns for this dataset based on initial columns present in relation.
       Map<String, Expression> selectedColumns = getSelectedColumns(columns);
+      // Select from the statement of a dataset which was not executed yet, so both run as a single statement.
+      if (sourceDataset instanceof BigQueryDeferredSelectDataset
+        && !((BigQueryDeferredSelectDataset) sourceDataset).isExecuted()) {
+        return buildNestedSelect(selectedColumns, ((BigQueryDeferredSelectDataset) sourceDataset).getSelectQuery(),
+                                 datasetName, null);
+      }
       // Build source table identifier using the Project, Dataset and Table
       String sourceTable = String.format("%s.%s.%s",
                                          sourceDataset.getBigQueryProject(),
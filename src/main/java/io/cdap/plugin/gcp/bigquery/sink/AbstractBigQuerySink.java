@@ -42,6 +42,7 @@ import io.cdap.cdap.etl.api.validation.ValidationFailure;
 import io.cdap.plugin.common.LineageRecorder;
 import io.cdap.plugin.gcp.bigquery.sqlengine.BigQuerySQLEngine;
 import io.cdap.plugin.gcp.bigquery.util.BigQueryConstants;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryMetadataCache;
 import io.cdap.plugin.gcp.bigquery.util.BigQueryTypeSize;
 import io.cdap.plugin.gcp.bigquery.util.BigQueryUtil;
 import io.cdap.plugin.gcp.common.CmekUtils;
@@ -223,6 +224,17 @@ public abstract class AbstractBigQuerySink extends BatchSink<StructuredRecord, S
       gcsChunkSize = config.getGcsChunkSize();
     }
     baseConfiguration.set("fs.gs.outputstream.upload.chunk.size", gcsChunkSize);
+    if (config.getLoadJobParallelism() != null) {
+      baseConfiguration.setInt(BigQueryConstants.CONFIG_LOAD_JOB_PARALLELISM, config.getLoadJobParallelism());
+    }
+    if (config.getStagingFileTargetSizeMB() != null) {
+      baseConfiguration.setLong(BigQueryConstants.CONFIG_STAGING_FILE_TARGET_SIZE,
+                                config.getStagingFileTargetSizeMB() * 1024L * 1024L);
+    }
+    if (config.getStagingCoalesceSizeMB() != null) {
+      baseConfiguration.setLong(BigQueryConstants.CONFIG_STAGING_COALESCE_SIZE,
+                                config.getStagingCoalesceSizeMB() * 1024L * 1024L);
+    }
     return baseConfiguration;
   }
 
@@ -422,6 +434,16 @@ public abstract class AbstractBigQuerySink extends BatchSink<StructuredRecord, S
     collector.getOrThrowException();
   }
 
+  /**
+   * Returns the metadata cache which table lookups of this sink go through.
+   *
+   * @return the cache, or null if tables are always fetched
+   */
+  @Nullable
+  protected BigQueryMetadataCache getMetadataCache() {
+    return null;
+  }
+
   /**
    * Generates Big Query field instances based on given CDAP table schema after schema validation.
    *
@@ -441,8 +463,10 @@ public abstract class AbstractBigQuerySink extends BatchSink<StructuredRecord, S
     }
 
     TableId tableId = TableId.of(getConfig().getDatasetProject(), getConfig().getDataset(), tableName);
+    BigQueryMetadataCache metadataCache = getMetadataCache();
     try {
-      Table table = bigQuery.getTable(tableId);
+      Table table = metadataCache == null ?
+        bigQuery.getTable(tableId) : metadataCache.getTable(tableId, () -> bigQuery.getTable(tableId));
       // if table is null that mean it does not exist. So there is no need to perform validation
       if (table != null) {
         com.google.cloud.bigquery.Schema bqSchema = table.getDefinition().getSchema();
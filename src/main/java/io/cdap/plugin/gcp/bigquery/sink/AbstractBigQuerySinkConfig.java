@@ -48,6 +48,9 @@ public abstract class AbstractBigQuerySinkConfig extends BigQueryBaseConfig {
   public static final String NAME_LOCATION = "location";
   private static final String NAME_GCS_CHUNK_SIZE = "gcsChunkSize";
   protected static final String NAME_UPDATE_SCHEMA = "allowSchemaRelaxation";
+  private static final String NAME_LOAD_JOB_PARALLELISM = "loadJobParallelism";
+  private static final String NAME_STAGING_FILE_TARGET_SIZE_MB = "stagingFileTargetSizeMB";
+  private static final String NAME_STAGING_COALESCE_SIZE_MB = "stagingCoalesceSizeMB";
   private static final String SCHEME = "gs://";
 
   @Name(Constants.Reference.REFERENCE_NAME)
@@ -81,6 +84,29 @@ public abstract class AbstractBigQuerySinkConfig extends BigQueryBaseConfig {
     "This value is ignored if the dataset or temporary bucket already exist.")
   protected String location;
 
+  @Name(NAME_LOAD_JOB_PARALLELISM)
+  @Macro
+  @Nullable
+  @Description("Maximum number of BigQuery load jobs that are run at the same time when the staged files of a table " +
+    "are loaded in several batches. Defaults to 4.")
+  protected Integer loadJobParallelism;
+
+  @Name(NAME_STAGING_FILE_TARGET_SIZE_MB)
+  @Macro
+  @Nullable
+  @Description("Size, in megabytes, at which every task rolls over to a new staging file. Smaller files spread the " +
+    "load more evenly across load jobs. If not set or 0, every task stages a single file.")
+  protected Integer stagingFileTargetSizeMB;
+
+  @Name(NAME_STAGING_COALESCE_SIZE_MB)
+  @Macro
+  @Nullable
+  @Description("If set, staged newline delimited JSON files smaller than this size, in megabytes, are concatenated " +
+    "into fewer files before they are loaded, and empty staged files are skipped. Newline delimited JSON is staged " +
+    "when the schema contains a DATETIME field. Avro and Parquet files are never concatenated. If not set or 0, " +
+    "all staged files are loaded as they are.")
+  protected Integer stagingCoalesceSizeMB;
+
   public AbstractBigQuerySinkConfig(BigQueryConnectorConfig connection, String dataset, String cmekKey, String bucket) {
     super(connection, dataset, cmekKey, bucket);
   }
@@ -104,6 +130,21 @@ public abstract class AbstractBigQuerySinkConfig extends BigQueryBaseConfig {
     return gcsChunkSize;
   }
 
+  @Nullable
+  public Integer getLoadJobParallelism() {
+    return loadJobParallelism;
+  }
+
+  @Nullable
+  public Integer getStagingFileTargetSizeMB() {
+    return stagingFileTargetSizeMB;
+  }
+
+  @Nullable
+  public Integer getStagingCoalesceSizeMB() {
+    return stagingCoalesceSizeMB;
+  }
+
   public boolean isAllowSchemaRelaxation() {
     return allowSchemaRelaxation == null ? false : allowSchemaRelaxation;
   }
@@ -137,6 +178,22 @@ public abstract class AbstractBigQuerySinkConfig extends BigQueryBaseConfig {
     if (!containsMacro(NAME_CMEK_KEY)) {
       validateCmekKey(collector, arguments);
     }
+    if (!containsMacro(NAME_LOAD_JOB_PARALLELISM) && loadJobParallelism != null && loadJobParallelism < 1) {
+      collector.addFailure(String.format("Invalid load job parallelism '%d'.", loadJobParallelism),
+                           "Load job parallelism must be at least 1.")
+        .withConfigProperty(NAME_LOAD_JOB_PARALLELISM);
+    }
+    if (!containsMacro(NAME_STAGING_FILE_TARGET_SIZE_MB) && stagingFileTargetSizeMB != null
+      && stagingFileTargetSizeMB < 0) {
+      collector.addFailure(String.format("Invalid staging file target size '%d'.", stagingFileTargetSizeMB),
+                           "Staging file target size must not be negative.")
+        .withConfigProperty(NAME_STAGING_FILE_TARGET_SIZE_MB);
+    }
+    if (!containsMacro(NAME_STAGING_COALESCE_SIZE_MB) && stagingCoalesceSizeMB != null && stagingCoalesceSizeMB < 0) {
+      collector.addFailure(String.format("Invalid staging coalesce size '%d'.", stagingCoalesceSizeMB),
+                           "Staging coalesce size must not be negative.")
+        .withConfigProperty(NAME_STAGING_COALESCE_SIZE_MB);
+    }
   }
 
   void validateCmekKey(FailureCollector failureCollector, Map<String, String> arguments) {
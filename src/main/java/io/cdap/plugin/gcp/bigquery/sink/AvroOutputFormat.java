@@ -16,6 +16,7 @@
 
 package io.cdap.plugin.gcp.bigquery.sink;
 
+import io.cdap.plugin.gcp.bigquery.util.BigQueryConstants;
 import org.apache.avro.Schema;
 import org.apache.avro.file.CodecFactory;
 import org.apache.avro.generic.GenericData;
@@ -65,8 +66,22 @@ public class AvroOutputFormat extends AvroKeyOutputFormat<GenericRecord> {
     }
 
     GenericData dataModel = AvroSerialization.createDataModel(conf);
-    return create(writerSchema, dataModel, getCompressionCodec(context),
-                  getAvroFileOutputStream(context), getSyncInterval(context));
+    String codecName = conf.get(BigQueryConstants.CONFIG_AVRO_COMPRESSION_CODEC);
+    if (codecName == null) {
+      return create(writerSchema, dataModel, getCompressionCodec(context),
+                    getAvroFileOutputStream(context), getSyncInterval(context));
+    }
+
+    ParallelAvroFileWriter.BlockCodec codec;
+    try {
+      codec = ParallelAvroFileWriter.BlockCodec.of(
+        codecName, conf.getInt(BigQueryConstants.CONFIG_AVRO_DEFLATE_LEVEL, CodecFactory.DEFAULT_DEFLATE_LEVEL));
+    } catch (IllegalArgumentException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+    return new AvroRecordWriter(writerSchema, dataModel, codec, getAvroFileOutputStream(context),
+                                getSyncInterval(context),
+                                conf.getInt(BigQueryConstants.CONFIG_AVRO_COMPRESSION_THREADS, 0));
   }
 
   /**
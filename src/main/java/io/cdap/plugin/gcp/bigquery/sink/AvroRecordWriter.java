@@ -16,6 +16,8 @@
 
 package io.cdap.plugin.gcp.bigquery.sink;
 
+import com.google.common.io.CountingOutputStream;
+import io.cdap.cdap.api.data.format.StructuredRecord;
 import org.apache.avro.Schema;
 import org.apache.avro.file.CodecFactory;
 import org.apache.avro.file.DataFileConstants;
@@ -37,11 +39,17 @@ import java.io.OutputStream;
 public class AvroRecordWriter extends RecordWriter<AvroKey<GenericRecord>, NullWritable> implements Syncable {
   /** A writer for the Avro container file. */
   private DataFileWriter<GenericRecord> mAvroFileWriter;
+  /** A writer for the Avro container file when records are encoded with a {@link StructuredRecordDatumWriter}. */
+  private DataFileWriter<StructuredRecord> structuredFileWriter;
   private Schema prevSchema;
   private GenericData dataModel;
   private CodecFactory compressionCodec;
-  private OutputStream outputStream;
+  private CountingOutputStream outputStream;
   private int syncInterval;
+  /** Codec of blocks compressed by a {@link ParallelAvroFileWriter}, or null if blocks are compressed inline. */
+  private ParallelAvroFileWriter.BlockCodec parallelCodec;
+  private int compressionThreads;
+  private ParallelAvroFileWriter<StructuredRecord> parallelFileWriter;
 
   /**
    * Constructor.
@@ -56,9 +64,30 @@ public class AvroRecordWriter extends RecordWriter<AvroKey<GenericRecord>, NullW
                           OutputStream outputStream, int syncInterval) throws IOException {
     this.dataModel = dataModel;
     this.compressionCodec = compressionCodec;
-    this.outputStream = outputStream;
+    this.outputStream = new CountingOutputStream(outputStream);
     this.syncInterval = syncInterval;
   }
+
+  /**
+   * Constructor.
+   *
+   * @param writerSchema The writer schema for the records in the Avro container file.
+   * @param codec The codec of the data blocks in the Avro container file.
+   * @param outputStream The output stream to write the Avro container file to.
+   * @param syncInterval The sync interval for the Avro container file.
+   * @param compressionThreads The number of threads which compress blocks of records written with a
+   *                           {@link StructuredRecordDatumWriter}, or 0 to compress them on the writing thread.
+   * @throws IOException If the record writer cannot be opened.
+   */
+  public AvroRecordWriter(Schema writerSchema, GenericData dataModel, ParallelAvroFileWriter.BlockCodec codec,
+                          OutputStream outputStream, int syncInterval, int compressionThreads) throws IOException {
+    this(writerSchema, dataModel, codec.getCodecFactory(), outputStream, syncInterval);
+    if (codec.isCompressed() && compressionThreads > 0) {
+      this.parallelCodec = codec;
+      this.compressionThreads = compressionThreads;
+    }
+  }
+
   /**
    * Constructor.
    *
@@ -90,6 +119,38 @@ public class AvroRecordWriter extends RecordWriter<AvroKey<GenericRecord>, NullW
     mAvroFileWriter.append(record.datum());
   }
 
+  /**
+   * Writes a record with a pre-compiled datum writer, without converting it to a {@link GenericRecord} first.
+   * A record writer must not mix this method with {@link #write(AvroKey, NullWritable)}.
+   *
+   * @param record the record to write
+   * @param datumWriter datum writer compiled for the output schema
+   * @throws IOException if the record cannot be written
+   */
+  public void write(StructuredRecord record, StructuredRecordDatumWriter datumWriter) throws IOException {
+    if (parallelCodec != null) {
+      if (parallelFileWriter == null) {
+        if (mAvroFileWriter != null) {
+          throw new IllegalStateException("Records have already been written as GenericRecords.");
+        }
+        parallelFileWriter = new ParallelAvroFileWriter<>(datumWriter.getAvroSchema(), datumWriter, parallelCodec,
+                                                          outputStream, syncInterval, compressionThreads);
+      }
+      parallelFileWriter.append(record);
+      return;
+    }
+    if (structuredFileWriter == null) {
+      if (mAvroFileWriter != null) {
+        throw new IllegalStateException("Records have already been written as GenericRecords.");
+      }
+      structuredFileWriter = new DataFileWriter<>(datumWriter);
+      structuredFileWriter.setCodec(compressionCodec);
+      structuredFileWriter.setSyncInterval(syncInterval);
+      structuredFileWriter.create(datumWriter.getAvroSchema(), outputStream);
+    }
+    structuredFileWriter.append(record);
+  }
+
   private void createFileWriter(Schema writerSchema) throws IOException {
     mAvroFileWriter = new DataFileWriter<GenericRecord>(dataModel.createDatumWriter(writerSchema));
     mAvroFileWriter.setCodec(compressionCodec);
@@ -98,12 +159,26 @@ public class AvroRecordWriter extends RecordWriter<AvroKey<GenericRecord>, NullW
     prevSchema = writerSchema;
   }
 
+  /**
+   * Returns the number of bytes flushed to the Avro container file. Records of the current block are only counted
+   * once the block is flushed, which happens every sync interval.
+   */
+  public long getBytesWritten() {
+    return outputStream.getCount();
+  }
+
   /** {@inheritDoc} */
   @Override
   public void close(TaskAttemptContext context) throws IOException {
     if (mAvroFileWriter != null) {
       mAvroFileWriter.close();
     }
+    if (structuredFileWriter != null) {
+      structuredFileWriter.close();
+    }
+    if (parallelFileWriter != null) {
+      parallelFileWriter.close();
+    }
   }
 
   /** {@inheritDoc} */
@@ -112,6 +187,13 @@ public class AvroRecordWriter extends RecordWriter<AvroKey<GenericRecord>, NullW
     if (mAvroFileWriter != null) {
       return mAvroFileWriter.sync();
     }
+    if (structuredFileWriter != null) {
+      return structuredFileWriter.sync();
+    }
+    if (parallelFileWriter != null) {
+      parallelFileWriter.flush();
+      return outputStream.getCount();
+    }
     return 0;
   }
 }
@@ -143,12 +143,14 @@ public class BigQueryMultiSink extends AbstractBigQuerySink {
   protected void configureSchemalessOutput(BatchSinkContext context,
                                            String bucket) throws IOException {
     Configuration conf = getOutputConfiguration();
+    conf.setInt(BigQueryConstants.CONFIG_MULTI_SINK_COMMIT_PARALLELISM, config.getCommitParallelism());
     String splitField = config.getSplitField();
     String projectName = config.getDatasetProject();
     String datasetName = config.getDataset();
     context.addOutput(Output.of(config.getReferenceName(),
                                 new DelegatingMultiSinkOutputFormatProvider(conf, splitField, bucket,
-                                                                            projectName, datasetName)));
+                                                                            projectName, datasetName,
+                                                                            config.getMaxOpenWriters())));
   }
 
   /**
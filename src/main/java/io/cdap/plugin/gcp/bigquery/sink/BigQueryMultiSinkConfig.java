@@ -19,8 +19,10 @@ import com.google.common.base.Strings;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.plugin.gcp.bigquery.connector.BigQueryConnectorConfig;
 
+import java.util.Map;
 import javax.annotation.Nullable;
 
 /**
@@ -30,6 +32,9 @@ public class BigQueryMultiSinkConfig extends AbstractBigQuerySinkConfig {
 
   private static final String SPLIT_FIELD_DEFAULT = "tablename";
   private static final String NAME_ALLOW_FLEXIBLE_SCHEMA = "allowFlexibleSchema";
+  private static final String NAME_MAX_OPEN_WRITERS = "maxOpenWriters";
+  private static final int MAX_OPEN_WRITERS_DEFAULT = 100;
+  private static final String NAME_COMMIT_PARALLELISM = "commitParallelism";
 
   @Macro
   @Nullable
@@ -43,6 +48,21 @@ public class BigQueryMultiSinkConfig extends AbstractBigQuerySinkConfig {
     "arguments will be processed. If enabled, all records will be written as-is.")
   private Boolean allowFlexibleSchema;
 
+  @Name(NAME_MAX_OPEN_WRITERS)
+  @Macro
+  @Nullable
+  @Description("Maximum number of tables each task keeps an open writer for when flexible schemas are allowed. " +
+    "When the limit is reached, the least recently used writer is closed and a new file is started if more " +
+    "records arrive for its table. Defaults to 100.")
+  private Integer maxOpenWriters;
+
+  @Name(NAME_COMMIT_PARALLELISM)
+  @Macro
+  @Nullable
+  @Description("Maximum number of tables that are committed at the same time when flexible schemas are allowed. " +
+    "Defaults to 10.")
+  private Integer commitParallelism;
+
   private BigQueryMultiSinkConfig(BigQueryConnectorConfig connection, String dataset, String cmekKey, String bucket) {
     super(connection, dataset, cmekKey, bucket);
   }
@@ -59,6 +79,30 @@ public class BigQueryMultiSinkConfig extends AbstractBigQuerySinkConfig {
     return allowFlexibleSchema != null ? allowFlexibleSchema : false;
   }
 
+  public int getMaxOpenWriters() {
+    return maxOpenWriters != null ? maxOpenWriters : MAX_OPEN_WRITERS_DEFAULT;
+  }
+
+  public int getCommitParallelism() {
+    return commitParallelism != null ?
+      commitParallelism : DelegatingMultiSinkOutputCommitter.DEFAULT_COMMIT_PARALLELISM;
+  }
+
+  @Override
+  public void validate(FailureCollector collector, Map<String, String> arguments) {
+    super.validate(collector, arguments);
+    if (!containsMacro(NAME_MAX_OPEN_WRITERS) && maxOpenWriters != null && maxOpenWriters < 1) {
+      collector.addFailure(String.format("Invalid maximum number of open writers '%d'.", maxOpenWriters),
+                           "Maximum number of open writers must be at least 1.")
+        .withConfigProperty(NAME_MAX_OPEN_WRITERS);
+    }
+    if (!containsMacro(NAME_COMMIT_PARALLELISM) && commitParallelism != null && commitParallelism < 1) {
+      collector.addFailure(String.format("Invalid commit parallelism '%d'.", commitParallelism),
+                           "Commit parallelism must be at least 1.")
+        .withConfigProperty(NAME_COMMIT_PARALLELISM);
+    }
+  }
+
   /**
    * BigQuery MultiSink configuration builder.
    */
@@ -16,11 +16,10 @@
 
 package io.cdap.plugin.gcp.bigquery.sink;
 
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpStatusCodes;
 import com.google.api.client.json.JsonParser;
 import com.google.api.client.json.jackson2.JacksonFactory;
-import com.google.api.client.util.BackOff;
-import com.google.api.client.util.ExponentialBackOff;
-import com.google.api.client.util.Sleeper;
 import com.google.api.services.bigquery.Bigquery;
 import com.google.api.services.bigquery.model.Clustering;
 import com.google.api.services.bigquery.model.Dataset;
@@ -29,8 +28,10 @@ import com.google.api.services.bigquery.model.ErrorProto;
 import com.google.api.services.bigquery.model.Job;
 import com.google.api.services.bigquery.model.JobConfiguration;
 import com.google.api.services.bigquery.model.JobConfigurationLoad;
+import com.google.api.services.bigquery.model.JobConfigurationQuery;
 import com.google.api.services.bigquery.model.JobConfigurationTableCopy;
 import com.google.api.services.bigquery.model.JobReference;
+import com.google.api.services.bigquery.model.ParquetOptions;
 import com.google.api.services.bigquery.model.RangePartitioning;
 import com.google.api.services.bigquery.model.RangePartitioning.Range;
 import com.google.api.services.bigquery.model.Table;
@@ -44,11 +45,13 @@ import com.google.cloud.bigquery.BigQueryException;
 import com.google.cloud.bigquery.BigQueryOptions;
 import com.google.cloud.bigquery.Field;
 import com.google.cloud.bigquery.FieldList;
+import com.google.cloud.bigquery.FieldValueList;
 import com.google.cloud.bigquery.JobId;
 import com.google.cloud.bigquery.JobInfo;
 import com.google.cloud.bigquery.QueryJobConfiguration;
 import com.google.cloud.bigquery.Schema;
 import com.google.cloud.bigquery.TableId;
+import com.google.cloud.bigquery.TableResult;
 import com.google.cloud.hadoop.io.bigquery.BigQueryConfiguration;
 import com.google.cloud.hadoop.io.bigquery.BigQueryFactory;
 import com.google.cloud.hadoop.io.bigquery.BigQueryFileFormat;
@@ -59,21 +62,29 @@ import com.google.cloud.hadoop.io.bigquery.output.BigQueryOutputConfiguration;
 import com.google.cloud.hadoop.io.bigquery.output.ForwardingBigQueryFileOutputCommitter;
 import com.google.cloud.hadoop.io.bigquery.output.ForwardingBigQueryFileOutputFormat;
 import com.google.cloud.hadoop.util.ConfigurationUtil;
-import com.google.cloud.hadoop.util.ResilientOperation;
 import com.google.cloud.hadoop.util.RetryDeterminer;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.plugin.gcp.bigquery.util.BigQueryConstants;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryJobPoller;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryMetadataCache;
 import io.cdap.plugin.gcp.common.GCPUtils;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.JobStatus;
 import org.apache.hadoop.mapreduce.OutputCommitter;
 import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
-import org.apache.hadoop.util.Progressable;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputCommitter;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -86,7 +97,15 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -97,6 +116,8 @@ import javax.annotation.Nullable;
  */
 public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<StructuredRecord, NullWritable> {
   private static final Logger LOG = LoggerFactory.getLogger(BigQueryOutputFormat.class);
+  // Same as FileOutputFormat.BASE_OUTPUT_NAME, which is not accessible from here.
+  private static final String BASE_OUTPUT_NAME = "mapreduce.output.basename";
 
   @Override
   public RecordWriter<StructuredRecord, NullWritable> getRecordWriter(TaskAttemptContext taskAttemptContext)
@@ -116,10 +137,32 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
   public RecordWriter<StructuredRecord, NullWritable> getRecordWriter(TaskAttemptContext taskAttemptContext,
                                                                       io.cdap.cdap.api.data.schema.Schema schema)
     throws IOException, InterruptedException {
-    Configuration configuration = taskAttemptContext.getConfiguration();
-    return new BigQueryRecordWriter(getDelegate(configuration).getRecordWriter(taskAttemptContext),
-                                    BigQueryOutputConfiguration.getFileFormat(configuration),
-                                    schema);
+    long targetFileSize = taskAttemptContext.getConfiguration()
+      .getLong(BigQueryConstants.CONFIG_STAGING_FILE_TARGET_SIZE, 0L);
+    // Files are opened on their first record, when the multi sink may have configured the output of another table.
+    TaskAttemptContext context = new TaskAttemptContextImpl(new Configuration(taskAttemptContext.getConfiguration()),
+                                                            taskAttemptContext.getTaskAttemptID());
+    Configuration configuration = context.getConfiguration();
+    BigQueryRollingRecordWriter.WriterFactory fileWriterFactory = baseName -> {
+      configuration.set(BASE_OUTPUT_NAME, baseName);
+      return new BigQueryRecordWriter(getDelegate(configuration).getRecordWriter(context),
+                                      BigQueryOutputConfiguration.getFileFormat(configuration),
+                                      schema);
+    };
+    BigQueryPartitionedRecordWriter.WriterFactory writerFactory =
+      baseName -> new BigQueryRollingRecordWriter(baseName, targetFileSize, context, fileWriterFactory);
+
+    if (configuration.getBoolean(BigQueryConstants.CONFIG_LOAD_INTO_PARTITIONS, false)) {
+      // Every partition is staged in its own file, named after the partition.
+      return new BigQueryPartitionedRecordWriter(
+        configuration.get(BigQueryConstants.CONFIG_PARTITION_BY_FIELD),
+        configuration.getInt(BigQueryConstants.CONFIG_PARTITION_LOAD_MAX_WRITERS,
+                             BigQueryPartitionedRecordWriter.DEFAULT_MAX_PARTITION_WRITERS),
+        writerFactory);
+    }
+    // The multi sink sets its own base name, so that every writer of a table stages a different file.
+    return writerFactory.create(
+      configuration.get(BASE_OUTPUT_NAME, BigQueryPartitionedRecordWriter.DEFAULT_OUTPUT_NAME));
   }
 
   private io.cdap.cdap.api.data.schema.Schema getOutputSchema(Configuration configuration) throws IOException {
@@ -149,11 +192,20 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
     private List<String> orderedByList;
     private List<String> tableFieldsList;
     private String partitionFilter;
+    private List<String> rangeFilterColumns;
+    private BigQueryMetadataCache metadataCache;
+    // Jobs which were submitted and have not been seen to complete, so that they can be cancelled on failure.
+    private final Set<JobReference> runningJobs = ConcurrentHashMap.newKeySet();
 
     private boolean allowSchemaRelaxation;
     private boolean allowSchemaRelaxationOnEmptyOutput;
 
     private static final int BQ_IMPORT_MAX_BATCH_SIZE = 10000;
+    private static final int BQ_IMPORT_DEFAULT_PARALLELISM = 4;
+    // Cloud Storage composes at most 32 objects at once, the target included.
+    private static final int MAX_COMPOSE_SOURCES = 32;
+    // Time the threads of concurrent load jobs are given to stop after a failure, before the jobs are cancelled.
+    private static final long LOAD_THREADS_STOP_TIMEOUT_SECONDS = 60;
 
     BigQueryOutputCommitter(TaskAttemptContext context, OutputCommitter delegate) throws IOException {
       super(context, delegate);
@@ -173,13 +225,14 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
 
       // Get the destination configuration information.
       Configuration conf = jobContext.getConfiguration();
+      metadataCache = BigQueryMetadataCache.forJob(getMetadataCacheId(jobContext));
       TableReference destTable = getTableReference(conf);
       String destProjectId = BigQueryOutputConfiguration.getJobProjectId(conf);
       String writeDisposition = BigQueryOutputConfiguration.getWriteDisposition(conf);
       Optional<TableSchema> destSchema = getTableSchema(conf);
       String kmsKeyName = BigQueryOutputConfiguration.getKmsKeyName(conf);
       BigQueryFileFormat outputFileFormat = BigQueryOutputConfiguration.getFileFormat(conf);
-      List<String> sourceUris = getOutputFileURIs();
+      List<String> sourceUris = getSourceUris(conf, outputFileFormat);
 
       allowSchemaRelaxation = conf.getBoolean(BigQueryConstants.CONFIG_ALLOW_SCHEMA_RELAXATION, false);
       allowSchemaRelaxationOnEmptyOutput =
@@ -209,6 +262,8 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
       partitionFilter = conf.get(BigQueryConstants.CONFIG_PARTITION_FILTER, null);
       LOG.debug("Partition filter: '{}'", partitionFilter);
       boolean tableExists = conf.getBoolean(BigQueryConstants.CONFIG_DESTINATION_TABLE_EXISTS, false);
+      rangeFilterColumns = getRangeFilterColumns(partitionType, partitionByField, clusteringOrderList);
+      LOG.debug("Range filter columns: '{}'", rangeFilterColumns);
 
       try {
         importFromGcs(destProjectId, destTable, destSchema.orElse(null), kmsKeyName, outputFileFormat,
@@ -221,6 +276,90 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
       cleanup(jobContext);
     }
 
+    /**
+     * Returns the staged files to load. If {@link BigQueryConstants#CONFIG_STAGING_COALESCE_SIZE} is set, empty files
+     * are skipped, and newline delimited JSON files smaller than that size are concatenated into fewer files. Avro and
+     * Parquet files can not be concatenated, since every file has its own header.
+     */
+    private List<String> getSourceUris(Configuration conf, BigQueryFileFormat fileFormat) throws IOException {
+      long coalesceSize = conf.getLong(BigQueryConstants.CONFIG_STAGING_COALESCE_SIZE, 0L);
+      if (coalesceSize <= 0) {
+        return getOutputFileURIs();
+      }
+      Path outputPath = BigQueryOutputConfiguration.getGcsOutputPath(conf);
+      FileSystem fs = outputPath.getFileSystem(conf);
+      List<String> sourceUris = new ArrayList<>();
+      // Files of different partitions have to stay apart, so that they can still be loaded into their partition.
+      Map<String, List<FileStatus>> smallFiles = new HashMap<>();
+      for (FileStatus status : fs.listStatus(outputPath)) {
+        String name = status.getPath().getName();
+        if (status.isDirectory() || name.equals(FileOutputCommitter.SUCCEEDED_FILE_NAME) || status.getLen() == 0) {
+          continue;
+        }
+        if (fileFormat == BigQueryFileFormat.NEWLINE_DELIMITED_JSON && status.getLen() < coalesceSize) {
+          String partition = BigQueryPartitionedRecordWriter.getPartitionFromPath(name);
+          smallFiles.computeIfAbsent(partition == null ? "" : partition, p -> new ArrayList<>()).add(status);
+        } else {
+          sourceUris.add(status.getPath().toString());
+        }
+      }
+      for (List<FileStatus> files : smallFiles.values()) {
+        sourceUris.addAll(coalesce(fs, files, coalesceSize));
+      }
+      LOG.debug("Coalesced staged files in '{}' into {} files.", outputPath, sourceUris.size());
+      return sourceUris;
+    }
+
+    /**
+     * Concatenates files into groups of up to the given size, and returns the files which are left.
+     */
+    private List<String> coalesce(FileSystem fs, List<FileStatus> files, long coalesceSize) throws IOException {
+      List<String> coalesced = new ArrayList<>();
+      List<Path> group = new ArrayList<>();
+      long groupSize = 0L;
+      for (FileStatus file : files) {
+        if (!group.isEmpty() && (groupSize + file.getLen() > coalesceSize || group.size() == MAX_COMPOSE_SOURCES)) {
+          coalesced.add(concat(fs, group));
+          group.clear();
+          groupSize = 0L;
+        }
+        group.add(file.getPath());
+        groupSize += file.getLen();
+      }
+      if (!group.isEmpty()) {
+        coalesced.add(concat(fs, group));
+      }
+      return coalesced;
+    }
+
+    private String concat(FileSystem fs, List<Path> group) throws IOException {
+      Path target = group.get(0);
+      if (group.size() > 1) {
+        // The sources are appended to the first file and deleted.
+        fs.concat(target, group.subList(1, group.size()).toArray(new Path[0]));
+      }
+      return target.toString();
+    }
+
+    /**
+     * Returns the table key columns which partition or cluster the destination table. Rows matched by an update or
+     * upsert share their key, so restricting the destination to the range of these columns in the staged data does
+     * not change the result, but lets BigQuery skip the partitions and blocks outside of it.
+     */
+    private List<String> getRangeFilterColumns(PartitionType partitionType, @Nullable String partitionByField,
+                                               List<String> clusteringOrderList) {
+      List<String> columns = new ArrayList<>();
+      if (partitionType != PartitionType.NONE && partitionByField != null && tableKeyList.contains(partitionByField)) {
+        columns.add(partitionByField);
+      }
+      for (String column : clusteringOrderList) {
+        if (tableKeyList.contains(column) && !columns.contains(column)) {
+          columns.add(column);
+        }
+      }
+      return columns;
+    }
+
     private String getJobIdForImportGCS(Configuration conf) {
       //If the operation is not INSERT then this is a write to a temporary table. No need to use saved JobId here.
       // Return a random UUID
@@ -266,32 +405,46 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
 
       String jobId = getJobIdForImportGCS(conf);
       if (gcsPaths.isEmpty()) {
-        if (!bigQueryHelper.tableExists(tableRef)) {
+        Table existingTable = getTable(tableRef);
+        if (existingTable == null) {
           // If gcsPaths empty and destination table not exist - creating empty destination table.
           Table table = new Table();
           table.setSchema(schema);
           table.setTableReference(tableRef);
           bigQueryHelper.getRawBigquery().tables().insert(tableRef.getProjectId(), tableRef.getDatasetId(), table)
             .execute();
-        } else if (allowSchemaRelaxationOnEmptyOutput) {
-          // If the table requires a schema update, apply if even when there are no records to write.
-          Table table = bigQueryHelper.getTable(tableRef);
-          table.setSchema(schema);
-          bigQueryHelper.getRawBigquery().tables()
-            .update(tableRef.getProjectId(), tableRef.getDatasetId(), tableRef.getTableId(), table)
-            .execute();
+        } else {
+          if (allowSchemaRelaxationOnEmptyOutput) {
+            // If the table requires a schema update, apply if even when there are no records to write.
+            existingTable.setSchema(schema);
+            bigQueryHelper.getRawBigquery().tables()
+              .update(tableRef.getProjectId(), tableRef.getDatasetId(), tableRef.getTableId(), existingTable)
+              .execute();
+          }
+          // Without staged files there is nothing to load with WRITE_TRUNCATE, so the table is emptied explicitly.
+          // Loads into partitions only replace the partitions present in the output, which are none.
+          if (Operation.INSERT.equals(operation)
+            && JobInfo.WriteDisposition.WRITE_TRUNCATE.equals(JobInfo.WriteDisposition.valueOf(writeDisposition))
+            && !conf.getBoolean(BigQueryConstants.CONFIG_LOAD_INTO_PARTITIONS, false)) {
+            truncateTable(tableRef, projectId, jobId);
+          }
         }
+        metadataCache.invalidateTable(tableRef);
         return;
       }
       // Create load conf with minimal requirements.
       JobConfigurationLoad loadConfig = new JobConfigurationLoad();
       loadConfig.setSourceFormat(sourceFormat.getFormatIdentifier());
       loadConfig.setUseAvroLogicalTypes(true);
+      if (sourceFormat == BigQueryFileFormat.PARQUET) {
+        // Arrays are staged with the Parquet LIST layout, which is only loaded as a repeated field with list inference.
+        loadConfig.setParquetOptions(new ParquetOptions().setEnableListInference(true));
+      }
 
       // If schema change is not allowed and if the destination table already exists, use the destination table schema
       // See PLUGIN-395
       if (!allowSchemaRelaxation && tableExists) {
-        loadConfig.setSchema(bigQueryHelper.getTable(tableRef).getSchema());
+        loadConfig.setSchema(getTable(tableRef).getSchema());
       } else {
         loadConfig.setSchema(schema);
       }
@@ -299,7 +452,7 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
       Map<String, String> fieldDescriptions = new HashMap<>();
       if (JobInfo.WriteDisposition.WRITE_TRUNCATE
         .equals(JobInfo.WriteDisposition.valueOf(writeDisposition)) && tableExists) {
-          List<TableFieldSchema> tableFieldSchemas = Optional.ofNullable(bigQueryHelper.getTable(tableRef))
+          List<TableFieldSchema> tableFieldSchemas = Optional.ofNullable(getTable(tableRef))
             .map(it -> it.getSchema())
             .map(it -> it.getFields())
             .orElse(Collections.emptyList());
@@ -366,12 +519,19 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
       }
 
       // Get the dataset to determine the location
-      Dataset dataset =
-        bigQueryHelper.getRawBigquery().datasets().get(tableRef.getProjectId(), tableRef.getDatasetId()).execute();
+      Dataset dataset = metadataCache.getDataset(
+        tableRef.getProjectId(), tableRef.getDatasetId(),
+        () -> bigQueryHelper.getRawBigquery().datasets().get(tableRef.getProjectId(), tableRef.getDatasetId())
+          .execute());
 
       //Depending on Operation type and no of gcs paths present , trigger suitable BQ job.
       temporaryTableReference = null;
-      if (operation.equals(Operation.INSERT) &&  gcsPaths.size() <= BQ_IMPORT_MAX_BATCH_SIZE) {
+      Map<String, List<String>> partitionPaths = getPartitionPaths(tableRef, loadConfig, gcsPaths, partitionByField,
+                                                                   tableExists, conf);
+      if (partitionPaths != null) {
+        loadIntoPartitions(tableRef, loadConfig, partitionPaths, writeDisposition, projectId, jobId, dataset,
+                           tableExists, conf);
+      } else if (operation.equals(Operation.INSERT) &&  gcsPaths.size() <= BQ_IMPORT_MAX_BATCH_SIZE) {
         // Directly load data into destination table when total no of input paths is loadable into BQ
         loadConfig.setSourceUris(gcsPaths);
         loadConfig.setWriteDisposition(writeDisposition);
@@ -382,7 +542,7 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
         triggerBigqueryJob(projectId, jobId , dataset, config);
       } else {
         // First load the data in a temp table.
-        loadInBatchesInTempTable(tableRef, loadConfig, gcsPaths, projectId, jobId, dataset);
+        loadInBatchesInTempTable(tableRef, loadConfig, gcsPaths, projectId, jobId, dataset, conf);
 
         if (operation.equals(Operation.INSERT)) { // For the case when gcs paths is more than 10000
           handleInsertOperation(tableRef, writeDisposition, loadConfig.getDestinationEncryptionConfiguration(),
@@ -392,6 +552,8 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
         }
       }
 
+      // The load, copy or query job may have created the destination table or changed its schema.
+      metadataCache.invalidateTable(tableRef);
       setTemporaryTableExpiration();
       updateFieldDescriptions(writeDisposition, tableRef, fieldDescriptions);
 
@@ -399,6 +561,23 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
                BigQueryStrings.toString(tableRef), gcsPaths.size(), gcsPaths.isEmpty() ? "(empty)" : gcsPaths.get(0));
     }
 
+    /**
+     * Deletes all rows of a table, keeping its schema, partitioning and other options.
+     */
+    private void truncateTable(TableReference tableRef, String projectId, String jobId)
+      throws IOException, InterruptedException {
+      LOG.info("No records to load, truncating table '{}'.", BigQueryStrings.toString(tableRef));
+      Dataset dataset = metadataCache.getDataset(
+        tableRef.getProjectId(), tableRef.getDatasetId(),
+        () -> bigQueryHelper.getRawBigquery().datasets().get(tableRef.getProjectId(), tableRef.getDatasetId())
+          .execute());
+      String query = String.format("TRUNCATE TABLE `%s.%s.%s`", tableRef.getProjectId(), tableRef.getDatasetId(),
+                                   tableRef.getTableId());
+      JobConfiguration config = new JobConfiguration();
+      config.setQuery(new JobConfigurationQuery().setQuery(query).setUseLegacySql(false));
+      triggerBigqueryJob(projectId, jobId, dataset, config);
+    }
+
     private void triggerBigqueryJob(String projectId, String jobId, Dataset dataset, JobConfiguration jobConfiguration)
       throws IOException, InterruptedException {
 
@@ -410,15 +589,17 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
       Job job = new Job();
       job.setConfiguration(jobConfiguration);
       job.setJobReference(jobReference);
+      runningJobs.add(jobReference);
       // Insert and run job.
       bigQueryHelper.insertJobOrFetchDuplicate(projectId, job);
       // Poll until job is complete.
       waitForJobCompletion(bigQueryHelper.getRawBigquery(), projectId, jobReference);
+      runningJobs.remove(jobReference);
     }
 
     private void loadInBatchesInTempTable(TableReference tableRef, JobConfigurationLoad loadConfig,
-                                          List<String> gcsPaths, String projectId, String jobId, Dataset dataset)
-      throws IOException, InterruptedException {
+                                          List<String> gcsPaths, String projectId, String jobId, Dataset dataset,
+                                          Configuration conf) throws IOException, InterruptedException {
 
       LOG.info(" Importing into a temporary table first in batches of 10000");
 
@@ -435,98 +616,327 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
       // Split the list of files in batches 10000 (current bq load job limit) and import /append onto a temp table
       List<List<String>> gcsPathsInBatches = Lists.partition(gcsPaths, BQ_IMPORT_MAX_BATCH_SIZE);
 
-      int jobcount = 1;
-      for (List<String> gcsPathBatch :  gcsPathsInBatches) {
-        LOG.debug(" Running for Batch {} with number of gcs paths : {}", jobcount, gcsPathBatch.size());
-        loadConfig.setSourceUris(gcsPathBatch);
-        JobConfiguration config = new JobConfiguration();
-        config.setLoad(loadConfig);
+      // Batches are appended to the temp table concurrently. The temp table has to exist before that, otherwise
+      // concurrent jobs would race to create it. When the schema is auto detected, the first batch creates the table.
+      int firstConcurrentBatch = 0;
+      if (loadConfig.getSchema() != null) {
+        createTable(temporaryTableReference, loadConfig);
+      } else {
+        loadBatch(loadConfig, gcsPathsInBatches.get(0), projectId, jobId, 1, dataset);
+        firstConcurrentBatch = 1;
+      }
+
+      List<Callable<Void>> loads = new ArrayList<>();
+      for (int i = firstConcurrentBatch; i < gcsPathsInBatches.size(); i++) {
+        List<String> gcsPathBatch = gcsPathsInBatches.get(i);
+        int jobcount = i + 1;
+        loads.add(() -> {
+          loadBatch(loadConfig, gcsPathBatch, projectId, jobId, jobcount, dataset);
+          return null;
+        });
+      }
+      runLoadJobs(loads, jobId, conf, "Failed to load data into temporary table.", this::cancelRunningJobs);
+    }
+
+    /**
+     * Runs load jobs concurrently. Commit time is bound by the slowest job, and the first failure fails the commit. The
+     * jobs which are still running or waiting to run are then cancelled, and the commit only fails once they stopped,
+     * so that no job writes to a table after it was cleaned up.
+     */
+    @VisibleForTesting
+    static void runLoadJobs(List<Callable<Void>> loads, String jobId, Configuration conf, String errorMessage,
+                            JobCanceller jobCanceller) throws IOException, InterruptedException {
+      if (loads.isEmpty()) {
+        return;
+      }
+      int parallelism = Math.max(1, Math.min(loads.size(), conf.getInt(
+        BigQueryConstants.CONFIG_LOAD_JOB_PARALLELISM, BQ_IMPORT_DEFAULT_PARALLELISM)));
+      ExecutorService executor = Executors.newFixedThreadPool(
+        parallelism, new ThreadFactoryBuilder().setNameFormat("bigquery-load-" + jobId + "-%d").setDaemon(true)
+          .build());
+      boolean succeeded = false;
+      try {
+        CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+        for (Callable<Void> load : loads) {
+          completionService.submit(load);
+        }
+        // Jobs are awaited in the order they complete, so that a failure is not hidden behind slower jobs.
+        for (int i = 0; i < loads.size(); i++) {
+          try {
+            completionService.take().get();
+          } catch (ExecutionException e) {
+            Throwables.propagateIfPossible(e.getCause(), IOException.class, InterruptedException.class);
+            throw new IOException(errorMessage, e.getCause());
+          }
+        }
+        succeeded = true;
+      } finally {
+        executor.shutdownNow();
+        if (!succeeded) {
+          stopLoadJobs(executor, jobId, jobCanceller);
+        }
+      }
+    }
+
+    /**
+     * Stops the load jobs of a failed commit. Interrupting the threads which run them only stops submitting and
+     * polling jobs, the jobs which were already submitted keep running in BigQuery until they are cancelled. Errors
+     * are logged, so that they do not hide the failure of the commit.
+     */
+    private static void stopLoadJobs(ExecutorService executor, String jobId, JobCanceller jobCanceller) {
+      try {
+        // Once the threads stopped, no further job can be submitted.
+        if (!executor.awaitTermination(LOAD_THREADS_STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+          LOG.warn("Load job threads of job '{}' did not stop within {} seconds.", jobId,
+                   LOAD_THREADS_STOP_TIMEOUT_SECONDS);
+        }
+        jobCanceller.cancelRunningJobs();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        LOG.warn("Interrupted while cancelling the load jobs of job '{}'.", jobId, e);
+      } catch (IOException e) {
+        LOG.warn("Failed to cancel the load jobs of job '{}'.", jobId, e);
+      }
+    }
+
+    /**
+     * Cancels the jobs which were submitted and have not completed yet, and waits until they stopped.
+     */
+    private void cancelRunningJobs() throws IOException, InterruptedException {
+      Bigquery bigquery = bigQueryHelper.getRawBigquery();
+      List<JobReference> jobs = new ArrayList<>(runningJobs);
+      for (JobReference job : jobs) {
+        try {
+          bigquery.jobs().cancel(job.getProjectId(), job.getJobId()).setLocation(job.getLocation()).execute();
+        } catch (GoogleJsonResponseException e) {
+          // The thread submitting the job may have been interrupted before the job was created.
+          if (e.getStatusCode() != HttpStatusCodes.STATUS_CODE_NOT_FOUND) {
+            throw e;
+          }
+          runningJobs.remove(job);
+        }
+      }
+      for (JobReference job : jobs) {
+        if (runningJobs.remove(job)) {
+          pollUntilDone(bigquery, job.getProjectId(), job);
+        }
+      }
+      if (!jobs.isEmpty()) {
+        LOG.info("Cancelled {} BigQuery job(s) after a failed load.", jobs.size());
+      }
+    }
+
+    /**
+     * Cancels the BigQuery jobs of a commit which were submitted but have not completed.
+     */
+    @VisibleForTesting
+    interface JobCanceller {
+      void cancelRunningJobs() throws IOException, InterruptedException;
+    }
 
-        triggerBigqueryJob(projectId, jobId + "_" + jobcount, dataset, config);
-        jobcount++;
+    /**
+     * Groups the staged files by the partition they were written for. Returns null if the files can not be loaded
+     * into partitions, in which case they are loaded into the whole table.
+     */
+    @Nullable
+    private Map<String, List<String>> getPartitionPaths(TableReference tableRef, JobConfigurationLoad loadConfig,
+                                                        List<String> gcsPaths, @Nullable String partitionByField,
+                                                        boolean tableExists, Configuration conf) throws IOException {
+      if (!conf.getBoolean(BigQueryConstants.CONFIG_LOAD_INTO_PARTITIONS, false)
+        || !Operation.INSERT.equals(operation)) {
+        return null;
       }
+      Map<String, List<String>> partitionPaths = new HashMap<>();
+      for (String path : gcsPaths) {
+        String partition = BigQueryPartitionedRecordWriter.getPartitionFromPath(path);
+        if (partition == null) {
+          LOG.info("Staged file '{}' is not split by partition, loading into the whole table.", path);
+          return null;
+        }
+        List<String> paths = partitionPaths.computeIfAbsent(partition, p -> new ArrayList<>());
+        paths.add(path);
+        if (paths.size() > BQ_IMPORT_MAX_BATCH_SIZE) {
+          LOG.info("Partition '{}' has more than {} staged files, loading into the whole table.",
+                   partition, BQ_IMPORT_MAX_BATCH_SIZE);
+          return null;
+        }
+      }
+
+      // Partition decorators only match the staged files if the table is partitioned daily on the same field.
+      if (!tableExists && loadConfig.getSchema() == null) {
+        LOG.info("Destination table can not be created before the load without a schema, " +
+                   "loading into the whole table.");
+        return null;
+      }
+      TimePartitioning timePartitioning = tableExists ?
+        getTable(tableRef).getTimePartitioning() : loadConfig.getTimePartitioning();
+      if (timePartitioning == null || !"DAY".equals(timePartitioning.getType())
+        || partitionByField == null || !partitionByField.equals(timePartitioning.getField())) {
+        LOG.info("Table '{}' is not partitioned daily by field '{}', loading into the whole table.",
+                 BigQueryStrings.toString(tableRef), partitionByField);
+        return null;
+      }
+      return partitionPaths;
+    }
+
+    /**
+     * Loads the staged files of every partition into the partition using a partition decorator. With WRITE_TRUNCATE
+     * only the partitions present in the output are replaced.
+     */
+    private void loadIntoPartitions(TableReference tableRef, JobConfigurationLoad loadConfig,
+                                    Map<String, List<String>> partitionPaths, String writeDisposition,
+                                    String projectId, String jobId, Dataset dataset, boolean tableExists,
+                                    Configuration conf) throws IOException, InterruptedException {
+      LOG.info("Importing into {} partitions of table '{}'", partitionPaths.size(),
+               BigQueryStrings.toString(tableRef));
+
+      // Partition loads run concurrently, so the table has to exist before that.
+      if (!tableExists && getTable(tableRef) == null) {
+        createTable(tableRef, loadConfig);
+      }
+      JobConfigurationLoad partitionLoadConfig = loadConfig.clone()
+        .setTimePartitioning(null)
+        .setClustering(null)
+        .setWriteDisposition(writeDisposition);
+      // Unlike loads into the whole table, loads into a partition allow schema updates with WRITE_TRUNCATE.
+      if (allowSchemaRelaxation) {
+        partitionLoadConfig.setSchemaUpdateOptions(Arrays.asList(
+          JobInfo.SchemaUpdateOption.ALLOW_FIELD_ADDITION.name(),
+          JobInfo.SchemaUpdateOption.ALLOW_FIELD_RELAXATION.name()));
+      }
+
+      List<Callable<Void>> loads = new ArrayList<>();
+      for (Map.Entry<String, List<String>> entry : partitionPaths.entrySet()) {
+        String partition = entry.getKey();
+        TableReference partitionRef = tableRef.clone().setTableId(tableRef.getTableId() + "$" + partition);
+        JobConfiguration config = new JobConfiguration();
+        config.setLoad(partitionLoadConfig.clone().setSourceUris(entry.getValue()).setDestinationTable(partitionRef));
+        loads.add(() -> {
+          LOG.debug("Loading {} paths into partition '{}'", entry.getValue().size(), partition);
+          triggerBigqueryJob(projectId, jobId + "_" + partition, dataset, config);
+          return null;
+        });
+      }
+      runLoadJobs(loads, jobId, conf, "Failed to load data into table partitions.", this::cancelRunningJobs);
+    }
+
+    private void loadBatch(JobConfigurationLoad loadConfig, List<String> gcsPathBatch, String projectId,
+                           String jobId, int jobcount, Dataset dataset) throws IOException, InterruptedException {
+      LOG.debug(" Running for Batch {} with number of gcs paths : {}", jobcount, gcsPathBatch.size());
+      JobConfigurationLoad batchLoadConfig = loadConfig.clone();
+      batchLoadConfig.setSourceUris(gcsPathBatch);
+      JobConfiguration config = new JobConfiguration();
+      config.setLoad(batchLoadConfig);
+
+      triggerBigqueryJob(projectId, jobId + "_" + jobcount, dataset, config);
+    }
+
+    private void createTable(TableReference tableRef, JobConfigurationLoad loadConfig) throws IOException {
+      Table table = new Table()
+        .setTableReference(tableRef)
+        .setSchema(loadConfig.getSchema())
+        .setTimePartitioning(loadConfig.getTimePartitioning())
+        .setRangePartitioning(loadConfig.getRangePartitioning())
+        .setClustering(loadConfig.getClustering())
+        .setEncryptionConfiguration(loadConfig.getDestinationEncryptionConfiguration());
+      bigQueryHelper.getRawBigquery().tables()
+        .insert(tableRef.getProjectId(), tableRef.getDatasetId(), table)
+        .execute();
+      metadataCache.invalidateTable(tableRef);
     }
 
     private void setTemporaryTableExpiration() throws IOException {
-      if (temporaryTableReference != null && bigQueryHelper.tableExists(temporaryTableReference)) {
+      Table table = temporaryTableReference == null ? null : getTable(temporaryTableReference);
+      if (table != null) {
         long expirationMillis = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
-        Table table = bigQueryHelper.getTable(temporaryTableReference).setExpirationTime(expirationMillis);
+        table.setExpirationTime(expirationMillis);
         bigQueryHelper.getRawBigquery().tables().update(temporaryTableReference.getProjectId(),
                                                         temporaryTableReference.getDatasetId(),
                                                         temporaryTableReference.getTableId(), table).execute();
+        metadataCache.invalidateTable(temporaryTableReference);
+      }
+    }
+
+    /**
+     * Returns the table through the metadata cache of the job.
+     *
+     * @return the table, or null if it does not exist
+     */
+    @Nullable
+    private Table getTable(TableReference tableRef) throws IOException {
+      return metadataCache.getTable(tableRef, () -> {
+        try {
+          return bigQueryHelper.getTable(tableRef);
+        } catch (GoogleJsonResponseException e) {
+          if (e.getStatusCode() == HttpStatusCodes.STATUS_CODE_NOT_FOUND) {
+            return null;
+          }
+          throw e;
+        }
+      });
+    }
+
+    /**
+     * Returns true if an error fetching the state of a job is transient, such as a rate limit or a server error.
+     */
+    private static boolean isRetryablePollError(Throwable t) {
+      if (!(t instanceof IOException)) {
+        return false;
       }
+      if (RetryDeterminer.RATE_LIMIT_ERRORS.shouldRetry((IOException) t)) {
+        return true;
+      }
+      return t instanceof GoogleJsonResponseException
+        && ((GoogleJsonResponseException) t).getStatusCode() >= HttpStatusCodes.STATUS_CODE_SERVER_ERROR;
     }
 
     /**
-     * This method is copied from BigQueryUtils#waitForJobCompletion for getting useful error message.
+     * This method is adapted from BigQueryUtils#waitForJobCompletion for getting useful error message.
+     * The job is polled by the shared {@link BigQueryJobPoller} instead of sleeping in this thread.
      */
     private static void waitForJobCompletion(Bigquery bigquery, String projectId,
                                              JobReference jobReference) throws IOException, InterruptedException {
+      Job pollJob = pollUntilDone(bigquery, projectId, jobReference);
+
+      if (pollJob.getStatus().getErrorResult() != null) {
+        List<ErrorProto> errors = pollJob.getStatus().getErrors();
+        int numOfErrors;
+        String errorMessage;
+        if (errors == null || errors.isEmpty()) {
+          errorMessage = pollJob.getStatus().getErrorResult().getMessage();
+          numOfErrors = 1;
+        } else {
+          errorMessage = errors.get(errors.size() - 1).getMessage();
+          numOfErrors = errors.size();
+        }
+        // Only add first error message in the exception. For other errors user should look at BigQuery job logs.
+        throw new IOException(String.format("Error occurred while importing data to BigQuery '%s'." +
+                                              " There are total %s error(s) for BigQuery job %s. Please look at " +
+                                              "BigQuery job logs for more information.",
+                                            errorMessage, numOfErrors, jobReference.getJobId()));
+      }
+    }
 
-      Sleeper sleeper = Sleeper.DEFAULT;
-      BackOff pollBackOff =
-        new ExponentialBackOff.Builder()
-          .setMaxIntervalMillis(BigQueryUtils.POLL_WAIT_INTERVAL_MAX_MILLIS)
-          .setInitialIntervalMillis(BigQueryUtils.POLL_WAIT_INITIAL_MILLIS)
-          .setMaxElapsedTimeMillis(BigQueryUtils.POLL_WAIT_MAX_ELAPSED_MILLIS)
-          .build();
-
-      // Get starting time.
+    /**
+     * Polls a job until it is done, whether it succeeded, failed or was cancelled.
+     */
+    private static Job pollUntilDone(Bigquery bigquery, String projectId,
+                                     JobReference jobReference) throws IOException, InterruptedException {
       long startTime = System.currentTimeMillis();
-      long elapsedTime;
-      boolean notDone = true;
+      // A single request per poll. Rate limit and server errors are retried by the poller after backing off.
+      Callable<Job> getJob = () -> {
+        Job pollJob = bigquery.jobs().get(projectId, jobReference.getJobId())
+          .setLocation(jobReference.getLocation())
+          .execute();
+        LOG.debug("Job status ({} ms) {}: {}", System.currentTimeMillis() - startTime, jobReference.getJobId(),
+                  pollJob.getStatus().getState());
+        return pollJob;
+      };
 
       // While job is incomplete continue to poll.
-      while (notDone) {
-        BackOff operationBackOff = new ExponentialBackOff.Builder().build();
-        Bigquery.Jobs.Get get = bigquery.jobs().get(projectId, jobReference.getJobId())
-          .setLocation(jobReference.getLocation());
-
-        Job pollJob = ResilientOperation.retry(
-          ResilientOperation.getGoogleRequestCallable(get),
-          operationBackOff,
-          RetryDeterminer.RATE_LIMIT_ERRORS,
-          IOException.class,
-          sleeper);
-
-        elapsedTime = System.currentTimeMillis() - startTime;
-        LOG.debug("Job status ({} ms) {}: {}", elapsedTime, jobReference.getJobId(),
-                  pollJob.getStatus().getState());
-        if (pollJob.getStatus().getState().equals("DONE")) {
-          notDone = false;
-          if (pollJob.getStatus().getErrorResult() != null) {
-            List<ErrorProto> errors = pollJob.getStatus().getErrors();
-            int numOfErrors;
-            String errorMessage;
-            if (errors == null || errors.isEmpty()) {
-              errorMessage = pollJob.getStatus().getErrorResult().getMessage();
-              numOfErrors = 1;
-            } else {
-              errorMessage = errors.get(errors.size() - 1).getMessage();
-              numOfErrors = errors.size();
-            }
-            // Only add first error message in the exception. For other errors user should look at BigQuery job logs.
-            throw new IOException(String.format("Error occurred while importing data to BigQuery '%s'." +
-                                                  " There are total %s error(s) for BigQuery job %s. Please look at " +
-                                                  "BigQuery job logs for more information.",
-                                                errorMessage, numOfErrors, jobReference.getJobId()));
-          }
-        } else {
-          long millisToWait = pollBackOff.nextBackOffMillis();
-          if (millisToWait == BackOff.STOP) {
-            throw new IOException(
-              String.format(
-                "Job %s failed to complete after %s millis.",
-                jobReference.getJobId(),
-                elapsedTime));
-          }
-          // Pause execution for the configured duration before polling job status again.
-          Thread.sleep(millisToWait);
-          // Call progress to ensure task doesn't time out.
-          Progressable progressable = () -> { };
-          progressable.progress();
-        }
-      }
+      return BigQueryJobPoller.await(BigQueryJobPoller.getInstance().poll(
+        jobReference.getJobId(), getJob, job -> job.getStatus().getState().equals("DONE"),
+        BigQueryOutputCommitter::isRetryablePollError, BigQueryUtils.POLL_WAIT_MAX_ELAPSED_MILLIS));
     }
 
     /**
@@ -589,17 +999,18 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
       TableId destinationTableId = TableId.of(tableRef.getProjectId(),
                                               tableRef.getDatasetId(),
                                               tableRef.getTableId());
+      BigQuery bigquery = getBigQuery(config);
+      String rangeFilter = getRangeFilter(bigquery, sourceTableId);
       String query = BigQuerySinkUtils.generateUpdateUpsertQuery(operation,
                                                                  sourceTableId,
                                                                  destinationTableId,
                                                                  tableFieldsList,
                                                                  tableKeyList,
                                                                  orderedByList,
-                                                                 partitionFilter);
+                                                                 partitionFilter,
+                                                                 rangeFilter);
       LOG.info("Update/Upsert query: " + query);
 
-      BigQuery bigquery = getBigQuery(config);
-
       QueryJobConfiguration queryConfig =
         QueryJobConfiguration.newBuilder(query)
           .setUseLegacySql(false)
@@ -611,9 +1022,9 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
         com.google.cloud.bigquery.Job queryJob = bigquery.create(JobInfo.newBuilder(queryConfig)
                                                                    .setJobId(jobId).build());
         // Wait for the query to complete.
-        queryJob.waitFor();
+        BigQueryJobPoller.getInstance().waitFor(queryJob);
       } catch (BigQueryException e) {
-        if (Operation.UPDATE.equals(operation) && !bigQueryHelper.tableExists(tableRef)) {
+        if (Operation.UPDATE.equals(operation) && getTable(tableRef) == null) {
           // ignore the exception. This is because we do not want to fail the pipeline as per below discussion
           // https://github.com/data-integrations/google-cloud/pull/290#discussion_r472405882
           LOG.warn("BigQuery Table {} does not exist. The operation update will not write any records to the table."
@@ -624,6 +1035,27 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
       }
     }
 
+    /**
+     * Reads the range of the range filter columns from the staged data in the temporary table. The query only scans
+     * these columns of the temporary table. Failing to compute the range only disables the pruning.
+     */
+    @Nullable
+    private String getRangeFilter(BigQuery bigquery, TableId sourceTableId) throws InterruptedException {
+      if (rangeFilterColumns == null || rangeFilterColumns.isEmpty()) {
+        return null;
+      }
+      String query = BigQuerySinkUtils.generateRangeQuery(sourceTableId, rangeFilterColumns);
+      try {
+        TableResult result = bigquery.query(QueryJobConfiguration.newBuilder(query).setUseLegacySql(false).build());
+        FieldValueList row = result.iterateAll().iterator().next();
+        return BigQuerySinkUtils.generateRangeFilter(rangeFilterColumns, result.getSchema().getFields(), row);
+      } catch (BigQueryException e) {
+        LOG.warn("Unable to determine the range of columns {} in the staged data, the {} query will not be pruned: {}",
+                 rangeFilterColumns, operation, e.getMessage());
+        return null;
+      }
+    }
+
     private void updateTableSchema(TableReference tableRef) {
       LOG.debug("Update/Upsert table schema update");
       BigQuery bigquery = BigQueryOptions.getDefaultInstance().getService();
@@ -638,6 +1070,7 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
       tableFieldsList = sourceFields.stream().map(Field::getName).collect(Collectors.toList());
 
       BigQuerySinkUtils.relaxTableSchema(bigquery, sourceTable, destinationTable);
+      metadataCache.invalidateTable(tableRef);
     }
 
     private static TableSchema createTableSchemaFromFields(String fieldsJson) throws IOException {
@@ -652,7 +1085,7 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
       if (JobInfo.WriteDisposition.WRITE_TRUNCATE
         .equals(JobInfo.WriteDisposition.valueOf(writeDisposition))) {
 
-        Table table = bigQueryHelper.getTable(tableRef);
+        Table table = getTable(tableRef);
         List<TableFieldSchema> tableFieldSchemas = Optional.ofNullable(table)
           .map(Table::getSchema)
           .map(TableSchema::getFields)
@@ -671,18 +1104,20 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
                   tableRef.getDatasetId(),
                   tableRef.getTableId(), table)
           .execute();
+        metadataCache.invalidateTable(tableRef);
       }
     }
 
     @Override
     protected void cleanup(JobContext context) throws IOException {
       super.cleanup(context);
-      if (temporaryTableReference != null && bigQueryHelper.tableExists(temporaryTableReference)) {
+      if (temporaryTableReference != null && getTable(temporaryTableReference) != null) {
         bigQueryHelper.getRawBigquery().tables()
           .delete(temporaryTableReference.getProjectId(),
                   temporaryTableReference.getDatasetId(),
                   temporaryTableReference.getTableId())
           .execute();
+        metadataCache.invalidateTable(temporaryTableReference);
       }
     }
 
@@ -720,6 +1155,7 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
       bigQueryHelper.getRawBigquery().tables()
         .insert(tableRef.getProjectId(), tableRef.getDatasetId(), table)
         .execute();
+      metadataCache.invalidateTable(tableRef);
     }
 
     private RangePartitioning createRangePartitioning(@Nullable String partitionByField, @Nullable Range range) {
@@ -732,8 +1168,33 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
     }
   }
 
+  /**
+   * Returns the id under which the metadata cache of a job is shared. The single table sink shares it with its
+   * prepareRun through the BigQuery job id, the tables of a multi sink share it through the job id of the context.
+   */
+  @Nullable
+  static String getMetadataCacheId(JobContext context) {
+    Configuration conf = context.getConfiguration();
+    String jobId = conf == null ? null : conf.get(BigQueryConstants.CONFIG_JOB_ID);
+    if (!Strings.isNullOrEmpty(jobId)) {
+      return jobId;
+    }
+    return context.getJobID() == null ? null : context.getJobID().toString();
+  }
+
   private static BigQuery getBigQuery(Configuration config) throws IOException {
     String projectId = ConfigurationUtil.getMandatoryConfig(config, BigQueryConfiguration.PROJECT_ID_KEY);
+    return GCPUtils.getBigQuery(projectId, getCredentials(config));
+  }
+
+  /**
+   * Loads the service account credentials stored in the Hadoop configuration.
+   *
+   * @param config Hadoop configuration
+   * @return credentials, or null if the default credentials should be used
+   */
+  @Nullable
+  static Credentials getCredentials(Configuration config) throws IOException {
     String serviceAccount;
     boolean isServiceAccountFile = GCPUtils.SERVICE_ACCOUNT_TYPE_FILE_PATH
       .equals(config.get(GCPUtils.SERVICE_ACCOUNT_TYPE));
@@ -743,8 +1204,7 @@ public class BigQueryOutputFormat extends ForwardingBigQueryFileOutputFormat<Str
       serviceAccount = config.get(String.format("%s.%s", GCPUtils.CLOUD_JSON_KEYFILE_PREFIX,
                                                 GCPUtils.CLOUD_ACCOUNT_JSON_SUFFIX));
     }
-    Credentials credentials = serviceAccount == null ? null :
+    return serviceAccount == null ? null :
       GCPUtils.loadServiceAccountCredentials(serviceAccount, isServiceAccountFile);
-    return GCPUtils.getBigQuery(projectId, credentials);
   }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.gcp.bigquery.sink;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Record writer which stages records in one file per daily partition of the destination table.
+ *
+ * The partition of a record is derived from the partition field and encoded in the name of the staged file, so the
+ * output committer can load every file into its partition using a {@code table$YYYYMMDD} decorator. Once a task has
+ * seen more than the configured number of partitions, records of new partitions are written to a regular staging
+ * file, and the committer falls back to loading into the whole table.
+ */
+public class BigQueryPartitionedRecordWriter extends RecordWriter<StructuredRecord, NullWritable> {
+  private static final Logger LOG = LoggerFactory.getLogger(BigQueryPartitionedRecordWriter.class);
+
+  static final int DEFAULT_MAX_PARTITION_WRITERS = 20;
+  static final String PARTITION_FILE_PREFIX = "partition=";
+  static final String DEFAULT_OUTPUT_NAME = "part";
+  static final String NULL_PARTITION = "__NULL__";
+  static final String UNPARTITIONED = "__UNPARTITIONED__";
+  // Rows outside of this range are stored in the __UNPARTITIONED__ partition by BigQuery.
+  private static final LocalDate MIN_PARTITION_DATE = LocalDate.of(1960, 1, 1);
+  private static final LocalDate MAX_PARTITION_DATE = LocalDate.of(2159, 12, 31);
+
+  private final String partitionField;
+  private final int maxPartitionWriters;
+  private final WriterFactory writerFactory;
+  private final Map<String, RecordWriter<StructuredRecord, NullWritable>> partitionWriters;
+  private RecordWriter<StructuredRecord, NullWritable> overflowWriter;
+
+  public BigQueryPartitionedRecordWriter(String partitionField, int maxPartitionWriters, WriterFactory writerFactory) {
+    this.partitionField = partitionField;
+    this.maxPartitionWriters = maxPartitionWriters;
+    this.writerFactory = writerFactory;
+    this.partitionWriters = new HashMap<>();
+  }
+
+  @Override
+  public void write(StructuredRecord record, NullWritable nullWritable) throws IOException, InterruptedException {
+    String partition = getPartition(record, partitionField);
+    RecordWriter<StructuredRecord, NullWritable> writer = partitionWriters.get(partition);
+    if (writer == null) {
+      if (partitionWriters.size() < maxPartitionWriters) {
+        writer = writerFactory.create(PARTITION_FILE_PREFIX + partition);
+        partitionWriters.put(partition, writer);
+      } else {
+        if (overflowWriter == null) {
+          LOG.info("Records span more than {} partitions, the output will be loaded into the whole table.",
+                   maxPartitionWriters);
+          overflowWriter = writerFactory.create(DEFAULT_OUTPUT_NAME);
+        }
+        writer = overflowWriter;
+      }
+    }
+    writer.write(record, nullWritable);
+  }
+
+  @Override
+  public void close(TaskAttemptContext context) throws IOException, InterruptedException {
+    IOException failure = null;
+    if (overflowWriter != null) {
+      partitionWriters.put(DEFAULT_OUTPUT_NAME, overflowWriter);
+    }
+    for (Map.Entry<String, RecordWriter<StructuredRecord, NullWritable>> entry : partitionWriters.entrySet()) {
+      try {
+        entry.getValue().close(context);
+      } catch (IOException e) {
+        if (failure == null) {
+          failure = new IOException(String.format("Failed to close writer for partition '%s'.", entry.getKey()), e);
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Returns the partition decorator of the daily partition which stores the given record.
+   *
+   * @throws IllegalArgumentException if the partition field is not a date, timestamp or datetime field
+   */
+  static String getPartition(StructuredRecord record, String partitionField) {
+    Schema.Field field = record.getSchema().getField(partitionField);
+    if (field == null || record.get(partitionField) == null) {
+      return NULL_PARTITION;
+    }
+    Schema schema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+    Schema.LogicalType logicalType = schema.getLogicalType();
+    if (logicalType == null) {
+      throw new IllegalArgumentException(
+        String.format("Partition field '%s' of type '%s' cannot be used to load into time partitions.",
+                      partitionField, schema.getType()));
+    }
+    LocalDate date;
+    switch (logicalType) {
+      case DATE:
+        date = record.getDate(partitionField);
+        break;
+      case TIMESTAMP_MICROS:
+      case TIMESTAMP_MILLIS:
+        date = record.getTimestamp(partitionField, ZoneOffset.UTC).toLocalDate();
+        break;
+      case DATETIME:
+        date = record.getDateTime(partitionField).toLocalDate();
+        break;
+      default:
+        throw new IllegalArgumentException(
+          String.format("Partition field '%s' of type '%s' cannot be used to load into time partitions.",
+                        partitionField, logicalType.getToken()));
+    }
+    if (date.isBefore(MIN_PARTITION_DATE) || date.isAfter(MAX_PARTITION_DATE)) {
+      return UNPARTITIONED;
+    }
+    return date.format(DateTimeFormatter.BASIC_ISO_DATE);
+  }
+
+  /**
+   * Returns the partition decorator encoded in the name of a staged file.
+   *
+   * @param path path of a file written by this writer
+   * @return the partition decorator, or null if the file holds records of any partition
+   */
+  @Nullable
+  static String getPartitionFromPath(String path) {
+    String name = path.substring(path.lastIndexOf('/') + 1);
+    if (!name.startsWith(PARTITION_FILE_PREFIX)) {
+      return null;
+    }
+    // FileOutputFormat appends the task type and id to the base name, separated by '-'.
+    int end = name.indexOf('-', PARTITION_FILE_PREFIX.length());
+    return end < 0 ? null : name.substring(PARTITION_FILE_PREFIX.length(), end);
+  }
+
+  /**
+   * Creates the writer for a staged file with the given base name.
+   */
+  public interface WriterFactory {
+    RecordWriter<StructuredRecord, NullWritable> create(String baseName) throws IOException, InterruptedException;
+  }
+}
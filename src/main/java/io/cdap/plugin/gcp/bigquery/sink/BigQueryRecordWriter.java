@@ -20,8 +20,11 @@ import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.common.RecordConverter;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import javax.annotation.Nullable;
@@ -30,11 +33,15 @@ import javax.annotation.Nullable;
  * BigQueryRecordWriter picks the  {@link RecordConverter} based on output file format
  */
 public class BigQueryRecordWriter extends RecordWriter<StructuredRecord, NullWritable> {
+  private static final Logger LOG = LoggerFactory.getLogger(BigQueryRecordWriter.class);
 
   private final RecordWriter delegate;
   private final BigQueryFileFormat fileFormat;
   private final Schema outputSchema;
   private RecordConverter recordConverter;
+  private StructuredRecordDatumWriter datumWriter;
+  private StructuredRecordJsonWriter jsonWriter;
+  private long jsonBytesWritten;
 
   public BigQueryRecordWriter(RecordWriter delegate, BigQueryFileFormat fileFormat, @Nullable Schema outputSchema) {
     this.delegate = delegate;
@@ -48,16 +55,62 @@ public class BigQueryRecordWriter extends RecordWriter<StructuredRecord, NullWri
       recordConverter = new BigQueryJsonConverter();
       return;
     }
+    if (this.fileFormat == BigQueryFileFormat.PARQUET) {
+      // Parquet staging files are always written straight from the StructuredRecord.
+      return;
+    }
     recordConverter = new BigQueryAvroConverter();
+    // Avro staging files are encoded directly from the StructuredRecord when the output schema is known upfront.
+    if (outputSchema != null && delegate instanceof AvroRecordWriter) {
+      try {
+        datumWriter = new StructuredRecordDatumWriter(outputSchema);
+      } catch (UnsupportedOperationException e) {
+        LOG.debug("Falling back to GenericRecord conversion: {}", e.getMessage());
+      }
+    }
   }
 
   @Override
   @SuppressWarnings("unchecked")
   public void write(StructuredRecord structuredRecord, NullWritable nullWriter) throws IOException,
     InterruptedException {
+    if (datumWriter != null) {
+      ((AvroRecordWriter) delegate).write(structuredRecord, datumWriter);
+      return;
+    }
+    if (fileFormat == BigQueryFileFormat.PARQUET) {
+      ((ParquetRecordWriter) delegate).write(structuredRecord, outputSchema);
+      return;
+    }
+    if (fileFormat == BigQueryFileFormat.NEWLINE_DELIMITED_JSON) {
+      // JSON lines are rendered straight into Text, with a writer compiled for the schema of the incoming records.
+      Schema recordSchema = structuredRecord.getSchema();
+      if (jsonWriter == null || !jsonWriter.isCompiledFor(recordSchema)) {
+        jsonWriter = new StructuredRecordJsonWriter(recordSchema, outputSchema);
+      }
+      Text line = jsonWriter.write(structuredRecord);
+      delegate.write(line, nullWriter);
+      // Every line is followed by a newline.
+      jsonBytesWritten += line.getLength() + 1;
+      return;
+    }
     delegate.write(recordConverter.transform(structuredRecord, outputSchema), nullWriter);
   }
 
+  /**
+   * Returns the approximate number of bytes written to the staged file so far. Avro and Parquet writers buffer
+   * encoded records, so buffered records are either not counted yet or counted by their uncompressed size.
+   */
+  public long getBytesWritten() {
+    if (delegate instanceof AvroRecordWriter) {
+      return ((AvroRecordWriter) delegate).getBytesWritten();
+    }
+    if (delegate instanceof ParquetRecordWriter) {
+      return ((ParquetRecordWriter) delegate).getBytesWritten();
+    }
+    return jsonBytesWritten;
+  }
+
   @Override
   public void close(TaskAttemptContext taskAttemptContext) throws IOException, InterruptedException {
     delegate.close(taskAttemptContext);
@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sink;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * Record writer which rolls over to a new staged file once the current one reaches a target size.
+ *
+ * Without rolling, a task stages all of its records in a single file, so skewed tasks produce a few very large files.
+ * Rolled files are named after the base name of the first file followed by {@code -1}, {@code -2} and so on, which
+ * keeps the partition encoded by {@link BigQueryPartitionedRecordWriter} intact. Without a target size, all records are
+ * written into a single file. Either way, a file is only opened once the first record for it arrives, so that tasks
+ * without records do not stage empty files.
+ */
+public class BigQueryRollingRecordWriter extends RecordWriter<StructuredRecord, NullWritable> {
+  private static final Logger LOG = LoggerFactory.getLogger(BigQueryRollingRecordWriter.class);
+
+  private final String baseName;
+  private final long targetFileSize;
+  private final TaskAttemptContext context;
+  private final WriterFactory writerFactory;
+  private BigQueryRecordWriter writer;
+  private int rolled;
+
+  /**
+   * @param baseName base name of the first staged file
+   * @param targetFileSize size in bytes after which a new file is started, or 0 to never start a new file
+   * @param context context used to close the files which are rolled over
+   * @param writerFactory creates the writer of a staged file with the given base name
+   */
+  public BigQueryRollingRecordWriter(String baseName, long targetFileSize, TaskAttemptContext context,
+                                     WriterFactory writerFactory) {
+    this.baseName = baseName;
+    this.targetFileSize = targetFileSize;
+    this.context = context;
+    this.writerFactory = writerFactory;
+  }
+
+  @Override
+  public void write(StructuredRecord record, NullWritable nullWritable) throws IOException, InterruptedException {
+    if (writer == null) {
+      writer = writerFactory.create(rolled == 0 ? baseName : baseName + "-" + rolled);
+    }
+    writer.write(record, nullWritable);
+    if (targetFileSize > 0 && writer.getBytesWritten() >= targetFileSize) {
+      LOG.debug("Staged file {} of '{}' reached {} bytes, starting a new file.", rolled, baseName,
+                writer.getBytesWritten());
+      writer.close(context);
+      writer = null;
+      rolled++;
+    }
+  }
+
+  @Override
+  public void close(TaskAttemptContext taskAttemptContext) throws IOException, InterruptedException {
+    if (writer != null) {
+      writer.close(taskAttemptContext);
+    }
+  }
+
+  /**
+   * Creates the writer for a staged file with the given base name.
+   */
+  public interface WriterFactory {
+    BigQueryRecordWriter create(String baseName) throws IOException, InterruptedException;
+  }
+}
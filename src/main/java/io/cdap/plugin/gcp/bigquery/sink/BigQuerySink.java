@@ -16,13 +16,24 @@
 package io.cdap.plugin.gcp.bigquery.sink;
 
 import com.google.cloud.bigquery.BigQuery;
+import com.google.cloud.bigquery.BigQueryException;
+import com.google.cloud.bigquery.Clustering;
+import com.google.cloud.bigquery.EncryptionConfiguration;
 import com.google.cloud.bigquery.Field;
 import com.google.cloud.bigquery.Job;
 import com.google.cloud.bigquery.JobConfiguration;
 import com.google.cloud.bigquery.JobId;
 import com.google.cloud.bigquery.JobStatistics;
+import com.google.cloud.bigquery.JobStatus;
+import com.google.cloud.bigquery.RangePartitioning;
+import com.google.cloud.bigquery.StandardTableDefinition;
 import com.google.cloud.bigquery.Table;
+import com.google.cloud.bigquery.TableId;
+import com.google.cloud.bigquery.TableInfo;
+import com.google.cloud.bigquery.TimePartitioning;
+import com.google.cloud.hadoop.io.bigquery.BigQueryConfiguration;
 import com.google.cloud.hadoop.io.bigquery.output.BigQueryTableFieldSchema;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import com.google.gson.Gson;
 import io.cdap.cdap.api.annotation.Description;
@@ -43,16 +54,20 @@ import io.cdap.plugin.gcp.bigquery.connector.BigQueryConnector;
 import io.cdap.plugin.gcp.bigquery.sqlengine.BigQuerySQLEngine;
 import io.cdap.plugin.gcp.bigquery.sqlengine.BigQueryWrite;
 import io.cdap.plugin.gcp.bigquery.util.BigQueryConstants;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryMetadataCache;
 import io.cdap.plugin.gcp.bigquery.util.BigQueryUtil;
 import org.apache.hadoop.conf.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
@@ -125,6 +140,9 @@ public final class BigQuerySink extends AbstractBigQuerySink {
 
     configureTable(outputSchema);
     configureBigQuerySink();
+    if (config.shouldUseStorageWriteAPI() && !context.isPreviewEnabled()) {
+      prepareStorageWriteTable(bigQuery, outputSchema);
+    }
     initOutput(context, bigQuery, config.getReferenceName(), config.getTable(), outputSchema, bucket, collector);
     initSQLEngineOutput(context, bigQuery, config.getReferenceName(), context.getStageName(), config.getTable(),
                         outputSchema, collector);
@@ -133,6 +151,7 @@ public final class BigQuerySink extends AbstractBigQuerySink {
   @Override
   public void onRunFinish(boolean succeeded, BatchSinkContext context) {
     super.onRunFinish(succeeded, context);
+    BigQueryMetadataCache.release(jobId);
 
     try {
       recordMetric(succeeded, context);
@@ -181,16 +200,25 @@ public final class BigQuerySink extends AbstractBigQuerySink {
   }
 
   void recordMetric(boolean succeeded, BatchSinkContext context) {
-    if (!succeeded) {
+    if (!succeeded || config.shouldUseStorageWriteAPI()) {
+      // Storage Write API commits do not run a BigQuery job, so there are no job statistics to report.
       return;
     }
+    long totalRows;
     Job queryJob = bigQuery.getJob(getJobId());
-    if (queryJob == null) {
-      LOG.warn("Unable to find BigQuery job. No metric will be emitted for the number of affected rows.");
-      return;
+    if (queryJob != null) {
+      totalRows = getTotalRows(queryJob);
+      LOG.info("Job {} affected {} rows", queryJob.getJobId(), totalRows);
+    } else {
+      // Loads into partitions run one job per partition, named after the job id and the partition.
+      List<Job> partitionJobs = getPartitionJobs(context.getLogicalStartTime());
+      if (partitionJobs.isEmpty()) {
+        LOG.warn("Unable to find BigQuery job. No metric will be emitted for the number of affected rows.");
+        return;
+      }
+      totalRows = partitionJobs.stream().mapToLong(this::getTotalRows).sum();
+      LOG.info("{} partition load jobs of job {} affected {} rows", partitionJobs.size(), jobId, totalRows);
     }
-    long totalRows = getTotalRows(queryJob);
-    LOG.info("Job {} affected {} rows", queryJob.getJobId(), totalRows);
     //work around since StageMetrics count() only takes int as of now
     int cap = 10000; // so the loop will not cause significant delays
     long count = totalRows / Integer.MAX_VALUE;
@@ -210,6 +238,24 @@ public final class BigQuerySink extends AbstractBigQuerySink {
     return JobId.newBuilder().setLocation(location).setJob(jobId).build();
   }
 
+  /**
+   * Returns the jobs which loaded the output into single partitions, which are named after the job id followed by the
+   * yyyyMMdd partition id.
+   *
+   * @param minCreationTime time in milliseconds before which none of the jobs was created
+   */
+  private List<Job> getPartitionJobs(long minCreationTime) {
+    Pattern partitionJobPattern = Pattern.compile(Pattern.quote(jobId) + "_\\d{8}");
+    List<Job> partitionJobs = new ArrayList<>();
+    for (Job job : bigQuery.listJobs(BigQuery.JobListOption.minCreationTime(minCreationTime),
+                                     BigQuery.JobListOption.stateFilter(JobStatus.State.DONE)).iterateAll()) {
+      if (partitionJobPattern.matcher(job.getJobId().getJob()).matches()) {
+        partitionJobs.add(job);
+      }
+    }
+    return partitionJobs;
+  }
+
   private long getTotalRows(Job queryJob) {
     JobConfiguration.Type type = queryJob.getConfiguration().getType();
     if (type == JobConfiguration.Type.LOAD) {
@@ -221,13 +267,93 @@ public final class BigQuerySink extends AbstractBigQuerySink {
     return 0;
   }
 
+  /**
+   * Table and dataset lookups made while preparing the run are cached under the job id, so that each of them only
+   * reaches BigQuery once. The output committer caches its own lookups under the same id, but through the REST API
+   * model, so they are not shared with the client library lookups made here.
+   */
+  @Override
+  protected BigQueryMetadataCache getMetadataCache() {
+    return BigQueryMetadataCache.forJob(jobId);
+  }
+
   @Override
   protected OutputFormatProvider getOutputFormatProvider(Configuration configuration,
                                                          String tableName,
                                                          Schema tableSchema) {
+    if (config.shouldUseStorageWriteAPI()) {
+      return new BigQueryStorageWriteOutputFormatProvider(configuration, tableSchema);
+    }
     return new BigQueryOutputFormatProvider(configuration, tableSchema);
   }
 
+  /**
+   * The Storage Write API can only write into existing tables, so the destination table is created up front
+   * instead of by the load job. If the table exists and schema relaxation is enabled, the table schema is relaxed
+   * to match the output schema before any stream is opened.
+   */
+  private void prepareStorageWriteTable(BigQuery bigQuery, @Nullable Schema schema) throws IOException {
+    TableId tableId = TableId.of(config.getDatasetProject(), config.getDataset(), config.getTable());
+    Table table = getMetadataCache().getTable(tableId, () -> bigQuery.getTable(tableId));
+    if (schema == null) {
+      if (table == null) {
+        throw new IOException(String.format("Unable to create table '%s' for the Storage Write API " +
+                                              "without an output schema.", config.getTable()));
+      }
+      return;
+    }
+    com.google.cloud.bigquery.Schema bqSchema = BigQuerySinkUtils.convertCdapSchemaToBigQuerySchema(schema);
+    if (table != null) {
+      if (config.isAllowSchemaRelaxation()) {
+        BigQuerySinkUtils.relaxTableSchema(bigQuery, table, bqSchema.getFields(),
+                                           table.getDefinition().getSchema().getFields());
+      }
+      return;
+    }
+
+    StandardTableDefinition.Builder definition = StandardTableDefinition.newBuilder().setSchema(bqSchema);
+    PartitionType partitionType = config.getPartitioningType();
+    if (partitionType == PartitionType.TIME) {
+      definition.setTimePartitioning(TimePartitioning.newBuilder(TimePartitioning.Type.DAY)
+                                       .setField(config.getPartitionByField())
+                                       .setRequirePartitionFilter(config.isPartitionFilterRequired())
+                                       .build());
+    } else if (partitionType == PartitionType.INTEGER) {
+      definition.setRangePartitioning(RangePartitioning.newBuilder()
+                                        .setField(config.getPartitionByField())
+                                        .setRange(RangePartitioning.Range.newBuilder()
+                                                    .setStart(config.getRangeStart())
+                                                    .setEnd(config.getRangeEnd())
+                                                    .setInterval(config.getRangeInterval())
+                                                    .build())
+                                        .build());
+    }
+    if (partitionType != PartitionType.NONE && config.getClusteringOrder() != null) {
+      definition.setClustering(Clustering.newBuilder()
+                                 .setFields(Arrays.stream(config.getClusteringOrder().split(","))
+                                              .map(String::trim).collect(Collectors.toList()))
+                                 .build());
+    }
+
+    TableInfo.Builder tableInfo = TableInfo.newBuilder(tableId, definition.build());
+    String kmsKeyName = baseConfiguration.get(BigQueryConfiguration.OUTPUT_TABLE_KMS_KEY_NAME_KEY);
+    if (!Strings.isNullOrEmpty(kmsKeyName)) {
+      tableInfo.setEncryptionConfiguration(EncryptionConfiguration.newBuilder().setKmsKeyName(kmsKeyName).build());
+    }
+    if (partitionType == PartitionType.INTEGER && config.isPartitionFilterRequired()) {
+      tableInfo.setRequirePartitionFilter(true);
+    }
+    try {
+      bigQuery.create(tableInfo.build());
+    } catch (BigQueryException e) {
+      // A conflict means another stage created the table in the meantime.
+      if (e.getCode() != 409) {
+        throw new IOException(String.format("Unable to create BigQuery table '%s'.", config.getTable()), e);
+      }
+    }
+    getMetadataCache().invalidateTable(tableId);
+  }
+
   /**
    * Sets addition configuration for the AbstractBigQuerySink's Hadoop configuration
    */
@@ -254,6 +380,31 @@ public final class BigQuerySink extends AbstractBigQuerySink {
 
     PartitionType partitioningType = getConfig().getPartitioningType();
     baseConfiguration.setEnum(BigQueryConstants.CONFIG_PARTITION_TYPE, partitioningType);
+    baseConfiguration.setBoolean(BigQueryConstants.CONFIG_LOAD_INTO_PARTITIONS,
+                                 getConfig().shouldLoadIntoPartitions());
+    baseConfiguration.set(BigQueryConstants.CONFIG_STAGING_FILE_FORMAT, getConfig().getStagingFileFormat().name());
+    StagingCompression stagingCompression = getConfig().getStagingCompression();
+    if (stagingCompression != null) {
+      baseConfiguration.set(BigQueryConstants.CONFIG_AVRO_COMPRESSION_CODEC, stagingCompression.getAvroCodec());
+      baseConfiguration.setInt(BigQueryConstants.CONFIG_AVRO_DEFLATE_LEVEL, getConfig().getStagingCompressionLevel());
+      baseConfiguration.set(BigQueryConstants.CONFIG_PARQUET_COMPRESSION, stagingCompression.getParquetCodec().name());
+    }
+    if (getConfig().getStagingCompressionThreads() != null) {
+      baseConfiguration.setInt(BigQueryConstants.CONFIG_AVRO_COMPRESSION_THREADS,
+                               getConfig().getStagingCompressionThreads());
+    }
+    if (getConfig().getStagingParquetCompression() != null) {
+      baseConfiguration.set(BigQueryConstants.CONFIG_PARQUET_COMPRESSION,
+                            getConfig().getStagingParquetCompression().name());
+    }
+    if (getConfig().getStagingParquetRowGroupSizeMB() != null) {
+      // Parquet takes the row group size as an int, so it is capped below 2GB.
+      baseConfiguration.setInt(BigQueryConstants.CONFIG_PARQUET_ROW_GROUP_SIZE,
+                               (int) Math.min(Integer.MAX_VALUE,
+                                              getConfig().getStagingParquetRowGroupSizeMB() * 1024L * 1024L));
+    }
+    baseConfiguration.setBoolean(BigQueryConstants.CONFIG_PARQUET_ENABLE_DICTIONARY,
+                                 getConfig().isStagingParquetDictionaryEnabled());
 
     if (config.getRangeStart() != null) {
       baseConfiguration.setLong(BigQueryConstants.CONFIG_PARTITION_INTEGER_RANGE_START, config.getRangeStart());
@@ -274,7 +425,8 @@ public final class BigQuerySink extends AbstractBigQuerySink {
     Table table = BigQueryUtil.getBigQueryTable(config.getDatasetProject(), config.getDataset(),
                                                 config.getTable(),
                                                 config.getServiceAccount(),
-                                                config.isServiceAccountFilePath());
+                                                config.isServiceAccountFilePath(),
+                                                getMetadataCache());
     baseConfiguration.setBoolean(BigQueryConstants.CONFIG_DESTINATION_TABLE_EXISTS, table != null);
     List<String> tableFieldsNames = null;
     if (table != null) {
@@ -21,6 +21,7 @@ import com.google.cloud.bigquery.RangePartitioning;
 import com.google.cloud.bigquery.StandardTableDefinition;
 import com.google.cloud.bigquery.Table;
 import com.google.cloud.bigquery.TimePartitioning;
+import com.google.cloud.hadoop.io.bigquery.BigQueryFileFormat;
 import com.google.cloud.kms.v1.CryptoKeyName;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
@@ -35,6 +36,7 @@ import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.plugin.gcp.bigquery.connector.BigQueryConnectorConfig;
 import io.cdap.plugin.gcp.bigquery.util.BigQueryUtil;
 import io.cdap.plugin.gcp.common.CmekUtils;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,6 +60,12 @@ public final class BigQuerySinkConfig extends AbstractBigQuerySinkConfig {
   private static final String WHERE = "WHERE";
   public static final Set<Schema.Type> SUPPORTED_CLUSTERING_TYPES =
     ImmutableSet.of(Schema.Type.INT, Schema.Type.LONG, Schema.Type.STRING, Schema.Type.BOOLEAN, Schema.Type.BYTES);
+  private static final Set<String> SUPPORTED_STAGING_FILE_FORMATS =
+    ImmutableSet.of(BigQueryFileFormat.AVRO.name(), BigQueryFileFormat.PARQUET.name());
+  // BigQuery loads Parquet files compressed with any of these codecs.
+  private static final Set<String> SUPPORTED_STAGING_PARQUET_COMPRESSIONS =
+    ImmutableSet.of(StagingCompression.NONE.name(), CompressionCodecName.SNAPPY.name(),
+                    CompressionCodecName.GZIP.name(), CompressionCodecName.ZSTD.name());
   private static final Pattern FIELD_PATTERN = Pattern.compile("[a-zA-Z0-9_]+");
 
   public static final String NAME_TABLE = "table";
@@ -72,8 +80,18 @@ public final class BigQuerySinkConfig extends AbstractBigQuerySinkConfig {
   public static final String NAME_RANGE_START = "rangeStart";
   public static final String NAME_RANGE_END = "rangeEnd";
   public static final String NAME_RANGE_INTERVAL = "rangeInterval";
+  public static final String NAME_USE_STORAGE_WRITE_API = "useStorageWriteAPI";
+  public static final String NAME_LOAD_INTO_PARTITIONS = "loadIntoPartitions";
+  public static final String NAME_STAGING_FILE_FORMAT = "stagingFileFormat";
+  public static final String NAME_STAGING_COMPRESSION = "stagingCompression";
+  public static final String NAME_STAGING_COMPRESSION_LEVEL = "stagingCompressionLevel";
+  public static final String NAME_STAGING_COMPRESSION_THREADS = "stagingCompressionThreads";
+  public static final String NAME_STAGING_PARQUET_COMPRESSION = "stagingParquetCompression";
+  public static final String NAME_STAGING_PARQUET_ROW_GROUP_SIZE_MB = "stagingParquetRowGroupSizeMB";
+  public static final String NAME_STAGING_PARQUET_DICTIONARY = "stagingParquetDictionary";
 
   public static final int MAX_NUMBER_OF_COLUMNS = 4;
+  public static final int DEFAULT_STAGING_COMPRESSION_LEVEL = 6;
 
   @Name(NAME_TABLE)
   @Macro
@@ -170,6 +188,75 @@ public final class BigQuerySinkConfig extends AbstractBigQuerySinkConfig {
     "This value is ignored if operation is not UPDATE or UPSERT.")
   protected String partitionFilter;
 
+  @Name(NAME_USE_STORAGE_WRITE_API)
+  @Macro
+  @Nullable
+  @Description("Whether to write records directly into BigQuery using the Storage Write API instead of staging " +
+    "them in Google Cloud Storage and running a load job. Records are committed atomically when the pipeline " +
+    "succeeds. Can only be used with the Insert operation and when Truncate Table is disabled.")
+  protected Boolean useStorageWriteAPI;
+
+  @Name(NAME_LOAD_INTO_PARTITIONS)
+  @Macro
+  @Nullable
+  @Description("Whether to load the output into the daily partitions of a time partitioned table, instead of into " +
+    "the whole table. Every partition is loaded by its own load job, so with Truncate Table only the partitions " +
+    "present in the output are replaced. Can only be used with the Insert operation and time partitioning on a " +
+    "partition field.")
+  protected Boolean loadIntoPartitions;
+
+  @Name(NAME_STAGING_FILE_FORMAT)
+  @Macro
+  @Nullable
+  @Description("Format of the files which stage the output in Google Cloud Storage before it is loaded into " +
+    "BigQuery. Parquet files are compressed by column and are usually smaller than Avro files. Tables with " +
+    "datetime fields are always staged as JSON. Defaults to Avro.")
+  protected String stagingFileFormat;
+
+  @Name(NAME_STAGING_COMPRESSION)
+  @Macro
+  @Nullable
+  @Description("Compression codec of the staged Avro and Parquet files: None, Snappy or Deflate. Compressed files " +
+    "take less time to upload to Google Cloud Storage. Deflate files are smaller than Snappy files but take longer " +
+    "to compress. If not set, Avro files are not compressed and Parquet files are compressed with Snappy.")
+  protected String stagingCompression;
+
+  @Name(NAME_STAGING_COMPRESSION_LEVEL)
+  @Macro
+  @Nullable
+  @Description("Compression level of the Deflate codec, from 1 (fastest) to 9 (smallest). Defaults to 6.")
+  protected Integer stagingCompressionLevel;
+
+  @Name(NAME_STAGING_COMPRESSION_THREADS)
+  @Macro
+  @Nullable
+  @Description("Number of threads which compress the staged Avro files of each task, while further records are " +
+    "written. Only used with the Snappy or Deflate staging compression. If not set or 0, records are compressed " +
+    "by the thread which writes them.")
+  protected Integer stagingCompressionThreads;
+
+  @Name(NAME_STAGING_PARQUET_COMPRESSION)
+  @Macro
+  @Nullable
+  @Description("Compression codec of the staged Parquet files: None, Snappy, Gzip or Zstd. Zstd files are about as " +
+    "small as Gzip files and are faster to compress, but need the Hadoop native library with Zstandard support. " +
+    "If not set, the Staging Compression is used.")
+  protected String stagingParquetCompression;
+
+  @Name(NAME_STAGING_PARQUET_ROW_GROUP_SIZE_MB)
+  @Macro
+  @Nullable
+  @Description("Size of the row groups of the staged Parquet files, in MB. Row groups are buffered in memory " +
+    "before they are written, so larger row groups need more memory. Defaults to 32.")
+  protected Integer stagingParquetRowGroupSizeMB;
+
+  @Name(NAME_STAGING_PARQUET_DICTIONARY)
+  @Macro
+  @Nullable
+  @Description("Whether the columns of the staged Parquet files are dictionary encoded. Dictionary encoding makes " +
+    "files with repeated values smaller. Defaults to true.")
+  protected Boolean stagingParquetDictionary;
+
   @VisibleForTesting
   public BigQuerySinkConfig(String referenceName, String dataset, String table,
                             @Nullable String bucket, @Nullable String schema, @Nullable String partitioningType,
@@ -261,6 +348,63 @@ public final class BigQuerySinkConfig extends AbstractBigQuerySinkConfig {
     return rangeInterval;
   }
 
+  public boolean shouldUseStorageWriteAPI() {
+    return useStorageWriteAPI != null && useStorageWriteAPI;
+  }
+
+  public boolean shouldLoadIntoPartitions() {
+    return loadIntoPartitions != null && loadIntoPartitions;
+  }
+
+  /**
+   * @return the format of the staged files if the table has no datetime fields
+   */
+  public BigQueryFileFormat getStagingFileFormat() {
+    if (Strings.isNullOrEmpty(stagingFileFormat)) {
+      return BigQueryFileFormat.AVRO;
+    }
+    return BigQueryFileFormat.valueOf(stagingFileFormat.toUpperCase());
+  }
+
+  /**
+   * @return the compression codec of the staged files, or null if every format uses its own default
+   */
+  @Nullable
+  public StagingCompression getStagingCompression() {
+    return Strings.isNullOrEmpty(stagingCompression) ? null :
+      StagingCompression.valueOf(stagingCompression.toUpperCase());
+  }
+
+  public int getStagingCompressionLevel() {
+    return stagingCompressionLevel == null ? DEFAULT_STAGING_COMPRESSION_LEVEL : stagingCompressionLevel;
+  }
+
+  @Nullable
+  public Integer getStagingCompressionThreads() {
+    return stagingCompressionThreads;
+  }
+
+  /**
+   * @return the compression codec of the staged Parquet files, or null if the staging compression is used
+   */
+  @Nullable
+  public CompressionCodecName getStagingParquetCompression() {
+    if (Strings.isNullOrEmpty(stagingParquetCompression)) {
+      return null;
+    }
+    return StagingCompression.NONE.name().equalsIgnoreCase(stagingParquetCompression) ?
+      CompressionCodecName.UNCOMPRESSED : CompressionCodecName.valueOf(stagingParquetCompression.toUpperCase());
+  }
+
+  @Nullable
+  public Integer getStagingParquetRowGroupSizeMB() {
+    return stagingParquetRowGroupSizeMB;
+  }
+
+  public boolean isStagingParquetDictionaryEnabled() {
+    return stagingParquetDictionary == null || stagingParquetDictionary;
+  }
+
   public PartitionType getPartitioningType() {
     if (createPartitionedTable != null && createPartitionedTable) {
       return PartitionType.TIME;
@@ -300,6 +444,81 @@ public final class BigQuerySinkConfig extends AbstractBigQuerySinkConfig {
                            "Set Truncate to false, or change the Operation to 'Insert'.")
         .withConfigProperty(NAME_TRUNCATE_TABLE).withConfigProperty(NAME_OPERATION);
     }
+
+    if (shouldUseStorageWriteAPI()) {
+      if (!getOperation().equals(Operation.INSERT)) {
+        collector.addFailure("Storage Write API can only be used with operation 'Insert'.",
+                             "Disable the Storage Write API, or change the Operation to 'Insert'.")
+          .withConfigProperty(NAME_USE_STORAGE_WRITE_API).withConfigProperty(NAME_OPERATION);
+      }
+      if (isTruncateTableSet()) {
+        collector.addFailure("Storage Write API cannot be used together with Truncate Table.",
+                             "Disable the Storage Write API, or set Truncate Table to false.")
+          .withConfigProperty(NAME_USE_STORAGE_WRITE_API).withConfigProperty(NAME_TRUNCATE_TABLE);
+      }
+    }
+
+    if (shouldLoadIntoPartitions()) {
+      if (!getOperation().equals(Operation.INSERT)) {
+        collector.addFailure("Loading into partitions can only be used with operation 'Insert'.",
+                             "Disable loading into partitions, or change the Operation to 'Insert'.")
+          .withConfigProperty(NAME_LOAD_INTO_PARTITIONS).withConfigProperty(NAME_OPERATION);
+      }
+      if (!containsMacro(NAME_PARTITIONING_TYPE) && getPartitioningType() != PartitionType.TIME) {
+        collector.addFailure("Loading into partitions can only be used with time partitioning.",
+                             "Disable loading into partitions, or change the Partitioning Type to 'Time'.")
+          .withConfigProperty(NAME_LOAD_INTO_PARTITIONS).withConfigProperty(NAME_PARTITIONING_TYPE);
+      }
+      if (!containsMacro(NAME_PARTITION_BY_FIELD) && Strings.isNullOrEmpty(partitionByField)) {
+        collector.addFailure("Loading into partitions requires a partition field.",
+                             "Set the Partition Field, or disable loading into partitions.")
+          .withConfigProperty(NAME_LOAD_INTO_PARTITIONS).withConfigProperty(NAME_PARTITION_BY_FIELD);
+      }
+      if (shouldUseStorageWriteAPI()) {
+        collector.addFailure("Loading into partitions cannot be used together with the Storage Write API.",
+                             "Disable either loading into partitions or the Storage Write API.")
+          .withConfigProperty(NAME_LOAD_INTO_PARTITIONS).withConfigProperty(NAME_USE_STORAGE_WRITE_API);
+      }
+    }
+
+    if (!containsMacro(NAME_STAGING_FILE_FORMAT) && !Strings.isNullOrEmpty(stagingFileFormat)
+      && !SUPPORTED_STAGING_FILE_FORMATS.contains(stagingFileFormat.toUpperCase())) {
+      collector.addFailure(String.format("Staging file format '%s' is not supported.", stagingFileFormat),
+                           "Set the Staging File Format to 'Avro' or 'Parquet'.")
+        .withConfigProperty(NAME_STAGING_FILE_FORMAT);
+    }
+
+    if (!containsMacro(NAME_STAGING_COMPRESSION) && !Strings.isNullOrEmpty(stagingCompression)
+      && Arrays.stream(StagingCompression.values()).noneMatch(c -> c.name().equalsIgnoreCase(stagingCompression))) {
+      collector.addFailure(String.format("Staging compression codec '%s' is not supported.", stagingCompression),
+                           "Set the Staging Compression to 'None', 'Snappy' or 'Deflate'.")
+        .withConfigProperty(NAME_STAGING_COMPRESSION);
+    }
+    if (!containsMacro(NAME_STAGING_COMPRESSION_LEVEL) && stagingCompressionLevel != null
+      && (stagingCompressionLevel < 1 || stagingCompressionLevel > 9)) {
+      collector.addFailure(String.format("Staging compression level %d is not between 1 and 9.",
+                                         stagingCompressionLevel), "Set the level to a value from 1 to 9.")
+        .withConfigProperty(NAME_STAGING_COMPRESSION_LEVEL);
+    }
+    if (!containsMacro(NAME_STAGING_COMPRESSION_THREADS) && stagingCompressionThreads != null
+      && stagingCompressionThreads < 0) {
+      collector.addFailure(String.format("Invalid staging compression threads '%d'.", stagingCompressionThreads),
+                           "Staging compression threads must be 0 or greater.")
+        .withConfigProperty(NAME_STAGING_COMPRESSION_THREADS);
+    }
+    if (!containsMacro(NAME_STAGING_PARQUET_COMPRESSION) && !Strings.isNullOrEmpty(stagingParquetCompression)
+      && !SUPPORTED_STAGING_PARQUET_COMPRESSIONS.contains(stagingParquetCompression.toUpperCase())) {
+      collector.addFailure(String.format("Staging Parquet compression codec '%s' is not supported.",
+                                         stagingParquetCompression),
+                           "Set the Staging Parquet Compression to 'None', 'Snappy', 'Gzip' or 'Zstd'.")
+        .withConfigProperty(NAME_STAGING_PARQUET_COMPRESSION);
+    }
+    if (!containsMacro(NAME_STAGING_PARQUET_ROW_GROUP_SIZE_MB) && stagingParquetRowGroupSizeMB != null
+      && stagingParquetRowGroupSizeMB < 1) {
+      collector.addFailure(String.format("Invalid staging Parquet row group size '%d'.", stagingParquetRowGroupSizeMB),
+                           "Staging Parquet row group size must be at least 1.")
+        .withConfigProperty(NAME_STAGING_PARQUET_ROW_GROUP_SIZE_MB);
+    }
   }
 
   /**
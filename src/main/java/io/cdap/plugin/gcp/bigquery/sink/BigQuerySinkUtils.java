@@ -24,6 +24,8 @@ import com.google.cloud.bigquery.DatasetInfo;
 import com.google.cloud.bigquery.EncryptionConfiguration;
 import com.google.cloud.bigquery.Field;
 import com.google.cloud.bigquery.FieldList;
+import com.google.cloud.bigquery.FieldValue;
+import com.google.cloud.bigquery.FieldValueList;
 import com.google.cloud.bigquery.LegacySQLTypeName;
 import com.google.cloud.bigquery.Table;
 import com.google.cloud.bigquery.TableId;
@@ -39,6 +41,7 @@ import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.gcp.bigquery.util.BigQueryConstants;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryMetadataCache;
 import io.cdap.plugin.gcp.bigquery.util.BigQueryTypeSize.Numeric;
 import io.cdap.plugin.gcp.bigquery.util.BigQueryUtil;
 import io.cdap.plugin.gcp.common.GCPUtils;
@@ -79,6 +82,8 @@ public final class BigQuerySinkUtils {
   private static final String UPDATE_QUERY = "UPDATE %s T SET %s FROM %s S WHERE %s";
   private static final String UPSERT_QUERY = "MERGE %s T USING %s S ON %s WHEN MATCHED THEN UPDATE SET %s " +
     "WHEN NOT MATCHED THEN INSERT (%s) VALUES(%s)";
+  private static final String RANGE_TEMPLATE = "T.%s BETWEEN %s AND %s";
+  private static final String RANGE_QUERY = "SELECT %s FROM %s";
   private static final List<String> COMPARISON_OPERATORS =
     Arrays.asList("=", "<", ">", "<=", ">=", "!=", "<>",
                   "LIKE", "NOT LIKE", "BETWEEN", "NOT BETWEEN", "IN", "NOT IN", "IS NULL", "IS NOT NULL",
@@ -221,7 +226,8 @@ public final class BigQuerySinkUtils {
   }
 
   /**
-   * Configures output for Sink
+   * Configures output for Sink. Records are staged as JSON if the table has datetime fields, and otherwise in the
+   * format set in {@link BigQueryConstants#CONFIG_STAGING_FILE_FORMAT}, which defaults to Avro.
    *
    * @param configuration Hadoop configuration instance
    * @param datasetId id of the dataset to use
@@ -243,6 +249,10 @@ public final class BigQuerySinkUtils {
     }
 
     BigQueryFileFormat fileFormat = getFileFormat(fields);
+    if (fileFormat == BigQueryFileFormat.AVRO && BigQueryFileFormat.PARQUET.name().equals(
+      configuration.get(BigQueryConstants.CONFIG_STAGING_FILE_FORMAT))) {
+      fileFormat = BigQueryFileFormat.PARQUET;
+    }
     BigQueryOutputConfiguration.configure(
       configuration,
       String.format("%s:%s.%s", datasetId.getProject(), datasetId.getDataset(), tableName),
@@ -335,6 +345,7 @@ public final class BigQuerySinkUtils {
         destinationTable.getDefinition().toBuilder().setSchema(newSchema).build()
       ).build()
     );
+    BigQueryMetadataCache.invalidateTableForAllJobs(destinationTable.getTableId());
   }
 
   private static BigQueryTableFieldSchema generateTableFieldSchema(Schema.Field field) {
@@ -501,6 +512,9 @@ public final class BigQuerySinkUtils {
     if (fileFormat == BigQueryFileFormat.NEWLINE_DELIMITED_JSON) {
       return TextOutputFormat.class;
     }
+    if (fileFormat == BigQueryFileFormat.PARQUET) {
+      return ParquetOutputFormat.class;
+    }
     return AvroOutputFormat.class;
   }
 
@@ -511,6 +525,24 @@ public final class BigQuerySinkUtils {
                                                  List<String> tableKeyList,
                                                  List<String> orderedByList,
                                                  String partitionFilter) {
+    return generateUpdateUpsertQuery(operation, sourceTableId, destinationTableId, tableFieldsList, tableKeyList,
+                                     orderedByList, partitionFilter, null);
+  }
+
+  /**
+   * Generates the update/upsert query.
+   *
+   * @param partitionFilter filter on the destination table supplied by the user
+   * @param rangeFilter filter on the destination table generated by {@link #generateRangeFilter}
+   */
+  public static String generateUpdateUpsertQuery(Operation operation,
+                                                 TableId sourceTableId,
+                                                 TableId destinationTableId,
+                                                 List<String> tableFieldsList,
+                                                 List<String> tableKeyList,
+                                                 List<String> orderedByList,
+                                                 @Nullable String partitionFilter,
+                                                 @Nullable String rangeFilter) {
 
     String source = String.format("`%s.%s.%s`",
                                   sourceTableId.getProject(),
@@ -525,6 +557,7 @@ public final class BigQuerySinkUtils {
       .collect(Collectors.joining(" AND "));
     criteria = partitionFilter != null ? String.format("(%s) AND %s",
                                                        formatPartitionFilter(partitionFilter), criteria) : criteria;
+    criteria = rangeFilter != null ? String.format("%s AND %s", rangeFilter, criteria) : criteria;
     String fieldsForUpdate = tableFieldsList.stream().filter(s -> !tableKeyList.contains(s))
       .map(s -> String.format(CRITERIA_TEMPLATE, s, s)).collect(Collectors.joining(", "));
     String orderedBy = orderedByList.isEmpty() ? "" : " ORDER BY " + String.join(", ", orderedByList);
@@ -541,6 +574,73 @@ public final class BigQuerySinkUtils {
     }
   }
 
+  /**
+   * Generates a query which returns the minimum and maximum value of every column in the source table, as
+   * min_i and max_i for the i-th column.
+   */
+  public static String generateRangeQuery(TableId sourceTableId, List<String> columns) {
+    List<String> aggregates = new ArrayList<>();
+    for (int i = 0; i < columns.size(); i++) {
+      aggregates.add(String.format("MIN(%s) AS min_%d", columns.get(i), i));
+      aggregates.add(String.format("MAX(%s) AS max_%d", columns.get(i), i));
+    }
+    String source = String.format("`%s.%s.%s`",
+                                  sourceTableId.getProject(),
+                                  sourceTableId.getDataset(),
+                                  sourceTableId.getTable());
+    return String.format(RANGE_QUERY, String.join(", ", aggregates), source);
+  }
+
+  /**
+   * Generates a filter which restricts the destination table of an update/upsert query to the range of values found
+   * by the query from {@link #generateRangeQuery}. Literal values let BigQuery prune partitions and clustered
+   * blocks, which it does not do for subqueries.
+   *
+   * @param columns columns the range query was generated for
+   * @param fields fields of the range query result
+   * @param row the single row returned by the range query
+   * @return the filter, or null if none of the columns has a usable range
+   */
+  @Nullable
+  public static String generateRangeFilter(List<String> columns, FieldList fields, FieldValueList row) {
+    List<String> filters = new ArrayList<>();
+    for (int i = 0; i < columns.size(); i++) {
+      String min = formatLiteral(fields.get(2 * i), row.get(2 * i));
+      String max = formatLiteral(fields.get(2 * i + 1), row.get(2 * i + 1));
+      if (min != null && max != null) {
+        filters.add(String.format(RANGE_TEMPLATE, columns.get(i), min, max));
+      }
+    }
+    return filters.isEmpty() ? null : String.join(" AND ", filters);
+  }
+
+  @Nullable
+  private static String formatLiteral(Field field, FieldValue value) {
+    if (value.isNull()) {
+      return null;
+    }
+    switch (field.getType().getStandardType()) {
+      case INT64:
+        return Long.toString(value.getLongValue());
+      case NUMERIC:
+        return String.format("NUMERIC '%s'", value.getNumericValue().toPlainString());
+      case BIGNUMERIC:
+        return String.format("BIGNUMERIC '%s'", value.getNumericValue().toPlainString());
+      case DATE:
+        return String.format("DATE '%s'", value.getStringValue());
+      case DATETIME:
+        return String.format("DATETIME '%s'", value.getStringValue());
+      case TIMESTAMP:
+        return String.format("TIMESTAMP_MICROS(%d)", value.getTimestampValue());
+      case STRING:
+        return String.format("'%s'", value.getStringValue().replace("\\", "\\\\").replace("'", "\\'")
+          .replace("\n", "\\n").replace("\r", "\\r"));
+      default:
+        // Other types are rarely used for partitioning or clustering, so they are not worth a range.
+        return null;
+    }
+  }
+
   private static String formatPartitionFilter(String partitionFilter) {
     String[] queryWords = partitionFilter.split(" ");
     int index = 0;
@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.gcp.bigquery.sink;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.common.RecordConverter;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryUtil;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * BigQueryStorageWriteConverter converts a {@link StructuredRecord} to the {@link JSONObject} representation
+ * expected by the Storage Write API JSON writer.
+ *
+ * Values are first rendered through {@link BigQueryJsonConverter}, so the same validation rules apply as for the
+ * NEWLINE_DELIMITED_JSON staging files. Timestamps are then rewritten as epoch microseconds, since this is the
+ * representation the Storage Write API uses for TIMESTAMP columns.
+ */
+public class BigQueryStorageWriteConverter extends RecordConverter<StructuredRecord, JSONObject> {
+
+  private final BigQueryJsonConverter jsonConverter = new BigQueryJsonConverter();
+
+  @Override
+  public JSONObject transform(StructuredRecord input, @Nullable Schema schema) throws IOException {
+    JsonObject json = jsonConverter.transform(input, schema);
+    return toJSONObject(json, Objects.requireNonNull(input.getSchema()), input);
+  }
+
+  private JSONObject toJSONObject(JsonObject json, Schema recordSchema, StructuredRecord record) {
+    JSONObject result = new JSONObject();
+    for (Map.Entry<String, JsonElement> entry : json.entrySet()) {
+      String name = entry.getKey();
+      Schema.Field field = recordSchema.getField(name);
+      Schema fieldSchema = field == null ? null : BigQueryUtil.getNonNullableSchema(field.getSchema());
+      Object value = record.get(name);
+      result.put(name, toJSONValue(entry.getValue(), fieldSchema, value));
+    }
+    return result;
+  }
+
+  private Object toJSONValue(JsonElement element, @Nullable Schema schema, @Nullable Object value) {
+    if (element.isJsonNull() || value == null) {
+      return JSONObject.NULL;
+    }
+    if (schema != null && schema.getLogicalType() == Schema.LogicalType.TIMESTAMP_MICROS) {
+      return value;
+    }
+    if (schema != null && schema.getLogicalType() == Schema.LogicalType.TIMESTAMP_MILLIS) {
+      return TimeUnit.MILLISECONDS.toMicros((Long) value);
+    }
+    if (element.isJsonObject()) {
+      StructuredRecord nested = (StructuredRecord) value;
+      return toJSONObject(element.getAsJsonObject(), Objects.requireNonNull(nested.getSchema()), nested);
+    }
+    if (element.isJsonArray()) {
+      JsonArray array = element.getAsJsonArray();
+      Schema componentSchema = schema == null || schema.getComponentSchema() == null ? null :
+        BigQueryUtil.getNonNullableSchema(schema.getComponentSchema());
+      Object[] items = value instanceof Iterable ? toArray((Iterable<?>) value) : (Object[]) value;
+      JSONArray result = new JSONArray();
+      for (int i = 0; i < array.size(); i++) {
+        result.put(toJSONValue(array.get(i), componentSchema, items[i]));
+      }
+      return result;
+    }
+    JsonPrimitive primitive = element.getAsJsonPrimitive();
+    if (primitive.isBoolean()) {
+      return primitive.getAsBoolean();
+    }
+    if (primitive.isNumber()) {
+      return value;
+    }
+    return primitive.getAsString();
+  }
+
+  private static Object[] toArray(Iterable<?> iterable) {
+    if (iterable instanceof Collection) {
+      return ((Collection<?>) iterable).toArray();
+    }
+    List<Object> list = new ArrayList<>();
+    iterable.forEach(list::add);
+    return list.toArray();
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sink;
+
+import com.google.api.gax.core.FixedCredentialsProvider;
+import com.google.auth.Credentials;
+import com.google.cloud.bigquery.storage.v1.BatchCommitWriteStreamsRequest;
+import com.google.cloud.bigquery.storage.v1.BatchCommitWriteStreamsResponse;
+import com.google.cloud.bigquery.storage.v1.BigQueryWriteClient;
+import com.google.cloud.bigquery.storage.v1.BigQueryWriteSettings;
+import com.google.cloud.bigquery.storage.v1.StorageError;
+import com.google.cloud.bigquery.storage.v1.TableName;
+import com.google.cloud.hadoop.io.bigquery.BigQueryConfiguration;
+import com.google.cloud.hadoop.io.bigquery.output.BigQueryOutputConfiguration;
+import com.google.cloud.hadoop.util.ConfigurationUtil;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryConstants;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.JobStatus;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputCommitter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * An Output Format which writes records directly into BigQuery using the Storage Write API.
+ *
+ * Every task writes into its own PENDING write stream. When the task completes, the stream is finalized and its name
+ * is recorded in a small marker file under the task attempt directory. The marker files of successful attempts are
+ * promoted by the {@link FileOutputCommitter}, and {@link BigQueryStorageWriteOutputCommitter#commitJob} commits all
+ * promoted streams atomically with a single BatchCommitWriteStreams call. No record data is staged in GCS.
+ */
+public class BigQueryStorageWriteOutputFormat extends OutputFormat<StructuredRecord, NullWritable> {
+  private static final String STREAMS_DIR = "_streams";
+
+  @Override
+  public RecordWriter<StructuredRecord, NullWritable> getRecordWriter(TaskAttemptContext taskAttemptContext)
+    throws IOException {
+    Configuration conf = taskAttemptContext.getConfiguration();
+    FileOutputCommitter committer = (FileOutputCommitter) getOutputCommitter(taskAttemptContext);
+    Path markerPath = new Path(committer.getWorkPath(), taskAttemptContext.getTaskAttemptID().toString());
+    return new BigQueryStorageWriteRecordWriter(getTableName(conf), createWriteClient(conf), markerPath,
+                                                getOutputSchema(conf),
+                                                conf.getInt(BigQueryConstants.CONFIG_STORAGE_WRITE_BATCH_SIZE,
+                                                            BigQueryStorageWriteRecordWriter.DEFAULT_BATCH_SIZE));
+  }
+
+  @Override
+  public void checkOutputSpecs(JobContext jobContext) {
+    // The destination table is created and validated by the sink during prepareRun.
+  }
+
+  @Override
+  public OutputCommitter getOutputCommitter(TaskAttemptContext context) throws IOException {
+    return new BigQueryStorageWriteOutputCommitter(getStreamsPath(context.getConfiguration()), context);
+  }
+
+  @Nullable
+  private static io.cdap.cdap.api.data.schema.Schema getOutputSchema(Configuration configuration) throws IOException {
+    String schemaJson = configuration.get(BigQueryConstants.CDAP_BQ_SINK_OUTPUT_SCHEMA);
+    if (schemaJson == null) {
+      return null;
+    }
+    return io.cdap.cdap.api.data.schema.Schema.parseJson(schemaJson);
+  }
+
+  private static Path getStreamsPath(Configuration conf) throws IOException {
+    return new Path(BigQueryOutputConfiguration.getGcsOutputPath(conf), STREAMS_DIR);
+  }
+
+  /**
+   * Returns the fully qualified Storage API name of the destination table.
+   */
+  static TableName getTableName(Configuration conf) throws IOException {
+    String projectId = BigQueryOutputConfiguration.getProjectId(conf);
+    String datasetId = ConfigurationUtil.getMandatoryConfig(conf, BigQueryConfiguration.OUTPUT_DATASET_ID_KEY);
+    String tableId = ConfigurationUtil.getMandatoryConfig(conf, BigQueryConfiguration.OUTPUT_TABLE_ID_KEY);
+    return TableName.of(projectId, datasetId, tableId);
+  }
+
+  /**
+   * Creates a Storage Write API client using the credentials stored in the Hadoop configuration.
+   */
+  static BigQueryWriteClient createWriteClient(Configuration conf) throws IOException {
+    BigQueryWriteSettings.Builder settings = BigQueryWriteSettings.newBuilder();
+    Credentials credentials = BigQueryOutputFormat.getCredentials(conf);
+    if (credentials != null) {
+      settings.setCredentialsProvider(FixedCredentialsProvider.create(credentials));
+    }
+    return BigQueryWriteClient.create(settings.build());
+  }
+
+  /**
+   * Output committer which commits all finalized write streams once every task has completed.
+   */
+  public static class BigQueryStorageWriteOutputCommitter extends FileOutputCommitter {
+    private static final Logger LOG = LoggerFactory.getLogger(BigQueryStorageWriteOutputCommitter.class);
+
+    private final Path streamsPath;
+
+    BigQueryStorageWriteOutputCommitter(Path streamsPath, TaskAttemptContext context) throws IOException {
+      super(streamsPath, context);
+      this.streamsPath = streamsPath;
+    }
+
+    @Override
+    public void commitJob(JobContext jobContext) throws IOException {
+      super.commitJob(jobContext);
+      Configuration conf = jobContext.getConfiguration();
+      TableName tableName = getTableName(conf);
+      List<String> streams = readStreamNames(streamsPath.getFileSystem(conf));
+      try {
+        if (streams.isEmpty()) {
+          LOG.info("No write streams to commit into table '{}'.", tableName);
+          return;
+        }
+        try (BigQueryWriteClient client = createWriteClient(conf)) {
+          BatchCommitWriteStreamsRequest request = BatchCommitWriteStreamsRequest.newBuilder()
+            .setParent(tableName.toString())
+            .addAllWriteStreams(streams)
+            .build();
+          BatchCommitWriteStreamsResponse response = client.batchCommitWriteStreams(request);
+          if (!response.hasCommitTime()) {
+            List<StorageError> errors = response.getStreamErrorsList();
+            throw new IOException(String.format(
+              "Failed to commit %d write streams into BigQuery table '%s'. There are total %s error(s): %s",
+              streams.size(), tableName, errors.size(), errors.isEmpty() ? "" : errors.get(0).getErrorMessage()));
+          }
+          LOG.info("Committed {} write streams into table '{}'.", streams.size(), tableName);
+        }
+      } finally {
+        cleanupStreamsPath(conf);
+      }
+    }
+
+    @Override
+    public void abortJob(JobContext context, JobStatus.State state) throws IOException {
+      // Pending streams that are never committed are garbage collected by BigQuery.
+      super.abortJob(context, state);
+      cleanupStreamsPath(context.getConfiguration());
+    }
+
+    private List<String> readStreamNames(FileSystem fs) throws IOException {
+      List<String> streams = new ArrayList<>();
+      if (!fs.exists(streamsPath)) {
+        return streams;
+      }
+      for (FileStatus status : fs.listStatus(streamsPath)) {
+        if (!status.isFile() || status.getPath().getName().startsWith("_")) {
+          continue;
+        }
+        byte[] content = new byte[(int) status.getLen()];
+        try (FSDataInputStream in = fs.open(status.getPath())) {
+          in.readFully(content);
+        }
+        streams.add(new String(content, StandardCharsets.UTF_8));
+      }
+      return streams;
+    }
+
+    private void cleanupStreamsPath(Configuration conf) throws IOException {
+      FileSystem fs = streamsPath.getFileSystem(conf);
+      if (fs.exists(streamsPath)) {
+        fs.delete(streamsPath, true);
+      }
+    }
+  }
+}
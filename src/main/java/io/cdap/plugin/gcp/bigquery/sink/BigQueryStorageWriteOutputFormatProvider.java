@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sink;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Output Format provider for writing to BigQuery through the Storage Write API.
+ */
+public class BigQueryStorageWriteOutputFormatProvider extends BigQueryOutputFormatProvider {
+
+  /**
+   * This constructor is only used when Spark serializes this class.
+   */
+  protected BigQueryStorageWriteOutputFormatProvider() {
+    // no-op
+  }
+
+  /**
+   * @param configuration Hadoop Configuration object, must be set up by using {@link BigQuerySinkUtils#configureOutput}
+   * @param tableSchema CDAP Schema for the output table.
+   */
+  public BigQueryStorageWriteOutputFormatProvider(Configuration configuration, Schema tableSchema) {
+    super(configuration, tableSchema);
+  }
+
+  @Override
+  public String getOutputFormatClassName() {
+    return BigQueryStorageWriteOutputFormat.class.getName();
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.gcp.bigquery.sink;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.bigquery.storage.v1.AppendRowsResponse;
+import com.google.cloud.bigquery.storage.v1.BigQueryWriteClient;
+import com.google.cloud.bigquery.storage.v1.CreateWriteStreamRequest;
+import com.google.cloud.bigquery.storage.v1.FinalizeWriteStreamResponse;
+import com.google.cloud.bigquery.storage.v1.JsonStreamWriter;
+import com.google.cloud.bigquery.storage.v1.TableName;
+import com.google.cloud.bigquery.storage.v1.WriteStream;
+import com.google.protobuf.Descriptors;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.json.JSONArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import javax.annotation.Nullable;
+
+/**
+ * Record writer which appends records to a PENDING Storage Write API stream.
+ *
+ * Records are appended in batches, and a bounded number of appends is kept in flight so that serialization of the
+ * next batch overlaps with the network round trip of the previous one.
+ */
+public class BigQueryStorageWriteRecordWriter extends RecordWriter<StructuredRecord, NullWritable> {
+  private static final Logger LOG = LoggerFactory.getLogger(BigQueryStorageWriteRecordWriter.class);
+
+  static final int DEFAULT_BATCH_SIZE = 500;
+  private static final int MAX_IN_FLIGHT_APPENDS = 8;
+
+  private final BigQueryWriteClient client;
+  private final Path markerPath;
+  private final Schema outputSchema;
+  private final int batchSize;
+  private final BigQueryStorageWriteConverter converter;
+  private final Deque<ApiFuture<AppendRowsResponse>> inFlight;
+  private final WriteStream writeStream;
+  private final JsonStreamWriter streamWriter;
+  private JSONArray batch;
+  private long offset;
+
+  public BigQueryStorageWriteRecordWriter(TableName tableName, BigQueryWriteClient client, Path markerPath,
+                                          @Nullable Schema outputSchema, int batchSize) throws IOException {
+    this.client = client;
+    this.markerPath = markerPath;
+    this.outputSchema = outputSchema;
+    this.batchSize = batchSize;
+    this.converter = new BigQueryStorageWriteConverter();
+    this.inFlight = new ArrayDeque<>();
+    this.batch = new JSONArray();
+
+    CreateWriteStreamRequest request = CreateWriteStreamRequest.newBuilder()
+      .setParent(tableName.toString())
+      .setWriteStream(WriteStream.newBuilder().setType(WriteStream.Type.PENDING).build())
+      .build();
+    this.writeStream = client.createWriteStream(request);
+    try {
+      this.streamWriter = JsonStreamWriter.newBuilder(writeStream.getName(), writeStream.getTableSchema(), client)
+        .build();
+    } catch (Descriptors.DescriptorValidationException | InterruptedException e) {
+      throw new IOException(String.format("Unable to create writer for stream '%s'.", writeStream.getName()), e);
+    }
+  }
+
+  @Override
+  public void write(StructuredRecord record, NullWritable nullWritable) throws IOException {
+    batch.put(converter.transform(record, outputSchema));
+    if (batch.length() >= batchSize) {
+      flush();
+    }
+  }
+
+  @Override
+  public void close(TaskAttemptContext context) throws IOException {
+    try {
+      flush();
+      while (!inFlight.isEmpty()) {
+        awaitAppend(inFlight.poll());
+      }
+      streamWriter.close();
+      FinalizeWriteStreamResponse response = client.finalizeWriteStream(writeStream.getName());
+      LOG.debug("Finalized write stream '{}' with {} rows.", writeStream.getName(), response.getRowCount());
+      try (FSDataOutputStream out = markerPath.getFileSystem(context.getConfiguration()).create(markerPath)) {
+        out.write(writeStream.getName().getBytes(StandardCharsets.UTF_8));
+      }
+    } finally {
+      client.close();
+    }
+  }
+
+  private void flush() throws IOException {
+    if (batch.length() == 0) {
+      return;
+    }
+    if (inFlight.size() >= MAX_IN_FLIGHT_APPENDS) {
+      awaitAppend(inFlight.poll());
+    }
+    try {
+      // Explicit offsets make retried appends idempotent within the stream.
+      inFlight.add(streamWriter.append(batch, offset));
+    } catch (Descriptors.DescriptorValidationException e) {
+      throw new IOException(String.format("Records do not match the schema of stream '%s'.", writeStream.getName()),
+                            e);
+    }
+    offset += batch.length();
+    batch = new JSONArray();
+  }
+
+  private void awaitAppend(ApiFuture<AppendRowsResponse> future) throws IOException {
+    try {
+      AppendRowsResponse response = future.get();
+      if (response.hasError()) {
+        throw new IOException(String.format("Error occurred while appending rows to stream '%s': %s",
+                                            writeStream.getName(), response.getError().getMessage()));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while appending rows to stream " + writeStream.getName(), e);
+    } catch (ExecutionException e) {
+      throw new IOException("Error occurred while appending rows to stream " + writeStream.getName(), e.getCause());
+    }
+  }
+}
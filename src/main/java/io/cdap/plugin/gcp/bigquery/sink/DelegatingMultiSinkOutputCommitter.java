@@ -18,38 +18,68 @@ package io.cdap.plugin.gcp.bigquery.sink;
 
 import com.google.cloud.bigquery.DatasetId;
 import com.google.cloud.hadoop.io.bigquery.output.BigQueryTableFieldSchema;
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryMetadataCache;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.JobStatus;
 import org.apache.hadoop.mapreduce.OutputCommitter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.task.JobContextImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Output Committer which creates and delegates operations to other Bigquery Output Committer instances.
  * <p>
  * Delegated instances are supplied along with a schema, which is used to configure the commit operation.
+ * <p>
+ * Jobs are committed concurrently, since every table commit mostly waits on its own BigQuery load job. Each table is
+ * committed with its own copy of the configuration.
  */
 public class DelegatingMultiSinkOutputCommitter extends OutputCommitter {
+  private static final Logger LOG = LoggerFactory.getLogger(DelegatingMultiSinkOutputCommitter.class);
+  static final int DEFAULT_COMMIT_PARALLELISM = 10;
+
   private final Map<String, OutputCommitter> committerMap;
   private final Map<String, Schema> schemaMap;
   private final String projectName;
   private final String datasetName;
   private final String bucketName;
   private final String bucketPathUniqueId;
+  private final int commitParallelism;
 
   public DelegatingMultiSinkOutputCommitter(String projectName,
                                             String datasetName,
                                             String bucketName,
                                             String bucketPathUniqueId) {
+    this(projectName, datasetName, bucketName, bucketPathUniqueId, DEFAULT_COMMIT_PARALLELISM);
+  }
+
+  public DelegatingMultiSinkOutputCommitter(String projectName,
+                                            String datasetName,
+                                            String bucketName,
+                                            String bucketPathUniqueId,
+                                            int commitParallelism) {
     this.projectName = projectName;
     this.datasetName = datasetName;
     this.bucketName = bucketName;
     this.bucketPathUniqueId = bucketPathUniqueId;
+    this.commitParallelism = Math.max(1, commitParallelism);
     this.committerMap = new HashMap<>();
     this.schemaMap = new HashMap<>();
   }
@@ -107,11 +137,46 @@ public class DelegatingMultiSinkOutputCommitter extends OutputCommitter {
 
   @Override
   public void commitJob(JobContext jobContext) throws IOException {
-    for (String tableName : committerMap.keySet()) {
-      configureContext(jobContext, tableName);
-
-      committerMap.get(tableName).commitJob(jobContext);
+    if (committerMap.isEmpty()) {
+      return;
+    }
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    int parallelism = Math.min(committerMap.size(), commitParallelism);
+    ExecutorService executor = Executors.newFixedThreadPool(
+      parallelism, new ThreadFactoryBuilder().setNameFormat("bigquery-multi-commit-%d").setDaemon(true).build());
+    try {
+      // Contexts are created upfront, since configuring them is not thread safe.
+      CompletionService<String> completionService = new ExecutorCompletionService<>(executor);
+      for (Map.Entry<String, OutputCommitter> entry : committerMap.entrySet()) {
+        String tableName = entry.getKey();
+        OutputCommitter committer = entry.getValue();
+        JobContext tableContext = getTableContext(jobContext, tableName);
+        completionService.submit(() -> {
+          Stopwatch tableStopwatch = Stopwatch.createStarted();
+          committer.commitJob(tableContext);
+          LOG.info("Committed table '{}' in {} ms.", tableName, tableStopwatch.elapsed(TimeUnit.MILLISECONDS));
+          return tableName;
+        });
+      }
+      // Fail on the first table that can not be committed, the remaining commits are cancelled.
+      for (int i = 0; i < committerMap.size(); i++) {
+        try {
+          completionService.take().get();
+        } catch (ExecutionException e) {
+          Throwables.propagateIfPossible(e.getCause(), IOException.class);
+          throw new IOException("Failed to commit table.", e.getCause());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while committing tables.", e);
+    } finally {
+      executor.shutdownNow();
+      // Table committers share the metadata cache of the job, it is no longer needed once all tables are committed.
+      BigQueryMetadataCache.release(BigQueryOutputFormat.getMetadataCacheId(jobContext));
     }
+    LOG.info("Committed {} table(s) in {} ms using {} thread(s).", committerMap.size(),
+             stopwatch.elapsed(TimeUnit.MILLISECONDS), parallelism);
   }
 
   @Override
@@ -151,11 +216,21 @@ public class DelegatingMultiSinkOutputCommitter extends OutputCommitter {
       }
     }
 
+    BigQueryMetadataCache.release(BigQueryOutputFormat.getMetadataCacheId(jobContext));
     if (ioe != null) {
       throw ioe;
     }
   }
 
+  /**
+   * Returns a job context with a copy of the configuration, configured for the supplied table.
+   */
+  JobContext getTableContext(JobContext context, String tableName) throws IOException {
+    JobContext tableContext = new JobContextImpl(new Configuration(context.getConfiguration()), context.getJobID());
+    configureContext(tableContext, tableName);
+    return tableContext;
+  }
+
   public void configureContext(JobContext context, String tableName) throws IOException {
     Schema schema = schemaMap.get(tableName);
     List<BigQueryTableFieldSchema> fields = BigQuerySinkUtils.getBigQueryTableFieldsFromSchema(schema);
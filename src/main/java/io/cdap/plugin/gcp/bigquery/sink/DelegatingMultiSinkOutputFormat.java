@@ -18,6 +18,7 @@ package io.cdap.plugin.gcp.bigquery.sink;
 
 import com.google.cloud.bigquery.DatasetId;
 import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryConstants;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.JobContext;
@@ -38,6 +39,7 @@ public class DelegatingMultiSinkOutputFormat extends OutputFormat<StructuredReco
   private static final String BUCKET_PATH_UNIQUE_ID = "bq.delegating.multi.bucket.path.uuid";
   private static final String PROJECT_NAME = "bq.delegating.multi.project";
   private static final String DATASET_NAME = "bq.delegating.multi.dataset";
+  private static final String MAX_OPEN_WRITERS = "bq.delegating.multi.max.open.writers";
 
   private DelegatingMultiSinkOutputCommitter delegatingMultiSinkOutputCommitter = null;
 
@@ -45,12 +47,14 @@ public class DelegatingMultiSinkOutputFormat extends OutputFormat<StructuredReco
                                String filterField,
                                String bucketName,
                                String projectName,
-                               String datasetName) {
+                               String datasetName,
+                               int maxOpenWriters) {
     conf.set(TABLENAME_FIELD, filterField);
     conf.set(BUCKET_NAME, bucketName);
     conf.set(BUCKET_PATH_UNIQUE_ID, UUID.randomUUID().toString());
     conf.set(PROJECT_NAME, projectName);
     conf.set(DATASET_NAME, datasetName);
+    conf.setInt(MAX_OPEN_WRITERS, maxOpenWriters);
   }
 
   @Override
@@ -61,13 +65,15 @@ public class DelegatingMultiSinkOutputFormat extends OutputFormat<StructuredReco
     String bucketPathUniqueId = conf.get(BUCKET_PATH_UNIQUE_ID);
     String projectName = conf.get(PROJECT_NAME);
     String datasetName = conf.get(DATASET_NAME);
+    int maxOpenWriters = conf.getInt(MAX_OPEN_WRITERS, Integer.MAX_VALUE);
 
     return new DelegatingMultiSinkRecordWriter(taskAttemptContext,
                                                tableNameField,
                                                bucketName,
                                                bucketPathUniqueId,
                                                DatasetId.of(projectName, datasetName),
-                                               getOutputCommitterInstance(taskAttemptContext));
+                                               getOutputCommitterInstance(taskAttemptContext),
+                                               maxOpenWriters);
   }
 
   @Override
@@ -87,10 +93,13 @@ public class DelegatingMultiSinkOutputFormat extends OutputFormat<StructuredReco
       String datasetName = conf.get(DATASET_NAME);
       String bucketName = conf.get(BUCKET_NAME);
       String bucketPathUniqueId = conf.get(BUCKET_PATH_UNIQUE_ID);
+      int commitParallelism = conf.getInt(BigQueryConstants.CONFIG_MULTI_SINK_COMMIT_PARALLELISM,
+                                          DelegatingMultiSinkOutputCommitter.DEFAULT_COMMIT_PARALLELISM);
       delegatingMultiSinkOutputCommitter = new DelegatingMultiSinkOutputCommitter(projectName,
                                                                                   datasetName,
                                                                                   bucketName,
-                                                                                  bucketPathUniqueId);
+                                                                                  bucketPathUniqueId,
+                                                                                  commitParallelism);
     }
 
     return delegatingMultiSinkOutputCommitter;
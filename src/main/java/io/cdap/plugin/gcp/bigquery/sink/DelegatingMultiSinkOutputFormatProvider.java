@@ -34,9 +34,11 @@ public class DelegatingMultiSinkOutputFormatProvider implements OutputFormatProv
                                                  String filterField,
                                                  String bucketName,
                                                  String projectName,
-                                                 String datasetName) {
+                                                 String datasetName,
+                                                 int maxOpenWriters) {
     this.config = config;
-    DelegatingMultiSinkOutputFormat.configure(config, filterField, bucketName, projectName, datasetName);
+    DelegatingMultiSinkOutputFormat.configure(config, filterField, bucketName, projectName, datasetName,
+                                              maxOpenWriters);
   }
 
   @Override
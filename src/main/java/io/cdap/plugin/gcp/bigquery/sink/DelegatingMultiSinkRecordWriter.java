@@ -18,24 +18,36 @@ package io.cdap.plugin.gcp.bigquery.sink;
 
 import com.google.cloud.bigquery.DatasetId;
 import com.google.cloud.hadoop.io.bigquery.output.BigQueryTableFieldSchema;
+import com.google.common.annotations.VisibleForTesting;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.OutputCommitter;
 import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Record Writer which delegates writes to other Record Writers based on the record's Table name.
  * <p>
- * This Record Writer will initialize record writes and Output Committers as needed.
+ * This Record Writer will initialize record writes and Output Committers as needed. At most {@code maxOpenWriters}
+ * delegates are kept open at a time, since each of them holds its own GCS upload buffer. When the limit is reached,
+ * the least recently used delegate is closed. If more records arrive for its table, a new delegate is opened which
+ * writes into a new part file next to the previous ones, so all of them are loaded by the table's commit.
  */
 public class DelegatingMultiSinkRecordWriter extends RecordWriter<StructuredRecord, NullWritable> {
+  private static final Logger LOG = LoggerFactory.getLogger(DelegatingMultiSinkRecordWriter.class);
+  // Same as FileOutputFormat.BASE_OUTPUT_NAME, which is not accessible from here.
+  private static final String BASE_OUTPUT_NAME = "mapreduce.output.basename";
+  private static final String DEFAULT_OUTPUT_NAME = "part";
 
   private final TaskAttemptContext initialContext;
   private final String tableNameField;
@@ -43,7 +55,9 @@ public class DelegatingMultiSinkRecordWriter extends RecordWriter<StructuredReco
   private final String bucketPathUniqueId;
   private final DatasetId datasetId;
   private final Map<String, RecordWriter<StructuredRecord, NullWritable>> delegateMap;
+  private final Map<String, WriterStats> statsMap;
   private final DelegatingMultiSinkOutputCommitter delegatingOutputCommitter;
+  private final int maxOpenWriters;
 
   public DelegatingMultiSinkRecordWriter(TaskAttemptContext initialContext,
                                          String tableNameField,
@@ -51,25 +65,39 @@ public class DelegatingMultiSinkRecordWriter extends RecordWriter<StructuredReco
                                          String bucketPathUniqueId,
                                          DatasetId datasetId,
                                          DelegatingMultiSinkOutputCommitter delegatingMultiSinkOutputCommitter) {
+    this(initialContext, tableNameField, bucketName, bucketPathUniqueId, datasetId,
+         delegatingMultiSinkOutputCommitter, Integer.MAX_VALUE);
+  }
+
+  public DelegatingMultiSinkRecordWriter(TaskAttemptContext initialContext,
+                                         String tableNameField,
+                                         String bucketName,
+                                         String bucketPathUniqueId,
+                                         DatasetId datasetId,
+                                         DelegatingMultiSinkOutputCommitter delegatingMultiSinkOutputCommitter,
+                                         int maxOpenWriters) {
     this.initialContext = initialContext;
     this.tableNameField = tableNameField;
     this.bucketName = bucketName;
     this.bucketPathUniqueId = bucketPathUniqueId;
     this.datasetId = datasetId;
-    this.delegateMap = new HashMap<>();
+    // Access order, so the first entry is always the least recently used delegate.
+    this.delegateMap = new LinkedHashMap<>(16, 0.75f, true);
+    this.statsMap = new HashMap<>();
     this.delegatingOutputCommitter = delegatingMultiSinkOutputCommitter;
+    this.maxOpenWriters = maxOpenWriters;
   }
 
   @Override
   public void write(StructuredRecord key, NullWritable value) throws IOException, InterruptedException {
     String tableName = key.get(tableNameField);
 
-    RecordWriter<StructuredRecord, NullWritable> delegate;
+    RecordWriter<StructuredRecord, NullWritable> delegate = delegateMap.get(tableName);
 
-    if (delegateMap.containsKey(tableName)) {
-      delegate = delegateMap.get(tableName);
-    } else {
-      delegate = getRecordWriterDelegate(tableName, key.getSchema());
+    if (delegate == null) {
+      WriterStats stats = statsMap.get(tableName);
+      // A table whose writer was evicted keeps the schema it was first registered with.
+      delegate = getRecordWriterDelegate(tableName, stats == null ? key.getSchema() : stats.schema);
     }
 
     delegate.write(key, value);
@@ -80,6 +108,8 @@ public class DelegatingMultiSinkRecordWriter extends RecordWriter<StructuredReco
     for (RecordWriter<StructuredRecord, NullWritable> delegate : delegateMap.values()) {
       delegate.close(context);
     }
+    delegateMap.clear();
+    logWriterStats();
 
     // The task attempt context at this stage doesn't have all of the configuration properties we need to properly
     // execute the commit job step. For this reason, we use the original context instance that was used when
@@ -93,6 +123,10 @@ public class DelegatingMultiSinkRecordWriter extends RecordWriter<StructuredReco
    */
   public RecordWriter<StructuredRecord, NullWritable> getRecordWriterDelegate(String tableName, Schema schema)
     throws IOException, InterruptedException {
+    if (delegateMap.size() >= maxOpenWriters) {
+      evictLeastRecentlyUsed();
+    }
+
     // Configure output.
     List<BigQueryTableFieldSchema> fields = BigQuerySinkUtils.getBigQueryTableFieldsFromSchema(schema);
 
@@ -104,11 +138,21 @@ public class DelegatingMultiSinkRecordWriter extends RecordWriter<StructuredReco
                                                gcsPath,
                                                fields);
 
-    BigQueryOutputFormat bqOutputFormat = new BigQueryOutputFormat();
+    BigQueryOutputFormat bqOutputFormat = createOutputFormat();
 
-    // Get output committer instance for the current table and add it to the delegating Output Committer.
-    OutputCommitter bqOutputCommitter = bqOutputFormat.getOutputCommitter(initialContext);
-    delegatingOutputCommitter.addCommitterAndSchema(bqOutputCommitter, tableName, schema, initialContext);
+    WriterStats stats = statsMap.get(tableName);
+    if (stats == null) {
+      // Get output committer instance for the current table and add it to the delegating Output Committer.
+      OutputCommitter bqOutputCommitter = bqOutputFormat.getOutputCommitter(initialContext);
+      delegatingOutputCommitter.addCommitterAndSchema(bqOutputCommitter, tableName, schema, initialContext);
+      stats = new WriterStats(schema);
+      statsMap.put(tableName, stats);
+    }
+
+    // Every writer opened for the same table needs its own part file, otherwise it would overwrite the previous one.
+    initialContext.getConfiguration().set(BASE_OUTPUT_NAME, stats.opened == 0 ?
+      DEFAULT_OUTPUT_NAME : DEFAULT_OUTPUT_NAME + "-" + stats.opened);
+    stats.opened++;
 
     // Get record writer instance and add it to the delegate map.
     RecordWriter<StructuredRecord, NullWritable> delegate = bqOutputFormat.getRecordWriter(initialContext, schema);
@@ -116,4 +160,47 @@ public class DelegatingMultiSinkRecordWriter extends RecordWriter<StructuredReco
 
     return delegate;
   }
+
+  @VisibleForTesting
+  BigQueryOutputFormat createOutputFormat() {
+    return new BigQueryOutputFormat();
+  }
+
+  private void evictLeastRecentlyUsed() throws IOException, InterruptedException {
+    Iterator<Map.Entry<String, RecordWriter<StructuredRecord, NullWritable>>> iterator =
+      delegateMap.entrySet().iterator();
+    Map.Entry<String, RecordWriter<StructuredRecord, NullWritable>> eldest = iterator.next();
+    iterator.remove();
+    eldest.getValue().close(initialContext);
+    statsMap.get(eldest.getKey()).evicted++;
+    LOG.debug("Closed writer for table '{}' since {} writers are open.", eldest.getKey(), maxOpenWriters);
+  }
+
+  private void logWriterStats() {
+    int opened = 0;
+    int evicted = 0;
+    for (Map.Entry<String, WriterStats> entry : statsMap.entrySet()) {
+      WriterStats stats = entry.getValue();
+      opened += stats.opened;
+      evicted += stats.evicted;
+      LOG.debug("Table '{}': opened {} writer(s), rolled {} time(s), evicted {} time(s).",
+                entry.getKey(), stats.opened, stats.opened - 1, stats.evicted);
+    }
+    LOG.info("Wrote {} table(s) with {} writer(s), {} of them rolled to a new file, {} evicted. " +
+               "At most {} writers were kept open.", statsMap.size(), opened, opened - statsMap.size(), evicted,
+             maxOpenWriters);
+  }
+
+  /**
+   * Number of writers opened and evicted for a table.
+   */
+  private static final class WriterStats {
+    private final Schema schema;
+    private int opened;
+    private int evicted;
+
+    private WriterStats(Schema schema) {
+      this.schema = schema;
+    }
+  }
 }
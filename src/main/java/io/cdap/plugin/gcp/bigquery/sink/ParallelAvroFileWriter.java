@@ -0,0 +1,289 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sink;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileConstants;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.EncoderFactory;
+import org.xerial.snappy.Snappy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes an Avro container file whose data blocks are compressed by a pool of threads.
+ *
+ * The calling thread serializes records into blocks like {@link org.apache.avro.file.DataFileWriter} does, but hands
+ * every full block to the pool instead of compressing it itself. Compressed blocks are written in the order they were
+ * serialized, so the file can be read like one written by a {@link org.apache.avro.file.DataFileWriter} with the
+ * same codec. At most two blocks per thread are in flight, which bounds the memory used by the pipeline.
+ *
+ * @param <D> type of the records
+ */
+public class ParallelAvroFileWriter<D> implements Closeable {
+  private static final byte[] MAGIC = new byte[] {'O', 'b', 'j', 1};
+  private static final int SYNC_SIZE = 16;
+
+  private final DatumWriter<D> datumWriter;
+  private final BlockCodec codec;
+  private final int syncInterval;
+  private final OutputStream out;
+  private final BinaryEncoder fileEncoder;
+  private final ByteArrayOutputStream blockBuffer;
+  private final BinaryEncoder blockEncoder;
+  private final byte[] sync;
+  private final ExecutorService executor;
+  private final Deque<Future<byte[]>> pendingBlocks;
+  private final Deque<Long> pendingCounts;
+  private final int maxPendingBlocks;
+  private long blockCount;
+
+  /**
+   * Writes the header of the file and starts the compression threads.
+   *
+   * @param schema schema of the records
+   * @param datumWriter writer which serializes the records
+   * @param codec codec of the data blocks
+   * @param out stream the file is written to
+   * @param syncInterval approximate size of the uncompressed data blocks
+   * @param threads number of compression threads
+   * @throws IOException if the header cannot be written
+   */
+  public ParallelAvroFileWriter(Schema schema, DatumWriter<D> datumWriter, BlockCodec codec, OutputStream out,
+                                int syncInterval, int threads) throws IOException {
+    this.datumWriter = datumWriter;
+    this.codec = codec;
+    this.syncInterval = syncInterval;
+    this.out = out;
+    this.fileEncoder = EncoderFactory.get().directBinaryEncoder(out, null);
+    this.blockBuffer = new ByteArrayOutputStream(syncInterval + syncInterval / 4);
+    this.blockEncoder = EncoderFactory.get().binaryEncoder(blockBuffer, null);
+    this.sync = new byte[SYNC_SIZE];
+    new SecureRandom().nextBytes(sync);
+    this.executor = Executors.newFixedThreadPool(
+      threads, new ThreadFactoryBuilder().setNameFormat("avro-block-compressor-%d").setDaemon(true).build());
+    this.pendingBlocks = new ArrayDeque<>();
+    this.pendingCounts = new ArrayDeque<>();
+    this.maxPendingBlocks = 2 * threads;
+    datumWriter.setSchema(schema);
+    writeHeader(schema);
+  }
+
+  /**
+   * Serializes a record into the current block, and hands the block to the compression threads once it is full.
+   */
+  public void append(D datum) throws IOException {
+    datumWriter.write(datum, blockEncoder);
+    blockCount++;
+    if (blockBuffer.size() + blockEncoder.bytesBuffered() >= syncInterval) {
+      submitBlock();
+    }
+  }
+
+  /**
+   * Ends the current block and writes all pending blocks to the file.
+   */
+  public void flush() throws IOException {
+    submitBlock();
+    while (!pendingBlocks.isEmpty()) {
+      writeBlock();
+    }
+    fileEncoder.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+      out.close();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void writeHeader(Schema schema) throws IOException {
+    fileEncoder.writeFixed(MAGIC);
+    fileEncoder.writeMapStart();
+    fileEncoder.setItemCount(2);
+    fileEncoder.startItem();
+    fileEncoder.writeString(DataFileConstants.SCHEMA);
+    fileEncoder.writeBytes(schema.toString().getBytes(StandardCharsets.UTF_8));
+    fileEncoder.startItem();
+    fileEncoder.writeString(DataFileConstants.CODEC);
+    fileEncoder.writeBytes(codec.getName().getBytes(StandardCharsets.UTF_8));
+    fileEncoder.writeMapEnd();
+    fileEncoder.writeFixed(sync);
+    fileEncoder.flush();
+  }
+
+  private void submitBlock() throws IOException {
+    if (blockCount == 0) {
+      return;
+    }
+    blockEncoder.flush();
+    byte[] block = blockBuffer.toByteArray();
+    blockBuffer.reset();
+    pendingBlocks.add(executor.submit(() -> codec.compress(block)));
+    pendingCounts.add(blockCount);
+    blockCount = 0;
+
+    // Write blocks which are already compressed, and wait for the oldest one if too many are in flight.
+    while (!pendingBlocks.isEmpty()
+      && (pendingBlocks.size() > maxPendingBlocks || pendingBlocks.peek().isDone())) {
+      writeBlock();
+    }
+  }
+
+  private void writeBlock() throws IOException {
+    byte[] compressed;
+    try {
+      compressed = pendingBlocks.poll().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while compressing an Avro block.");
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to compress an Avro block.", e.getCause());
+    }
+    fileEncoder.writeLong(pendingCounts.poll());
+    fileEncoder.writeLong(compressed.length);
+    fileEncoder.writeFixed(compressed);
+    fileEncoder.writeFixed(sync);
+  }
+
+  /**
+   * Compresses the data blocks of an Avro container file, the same way the Avro codec of the same name does.
+   */
+  public abstract static class BlockCodec {
+    private final String name;
+
+    private BlockCodec(String name) {
+      this.name = name;
+    }
+
+    /**
+     * Returns the codec with the given Avro name.
+     *
+     * @param name name of the codec, one of 'null', 'deflate' or 'snappy'
+     * @param deflateLevel compression level, only used by the deflate codec
+     * @throws IllegalArgumentException if the codec is not supported
+     */
+    public static BlockCodec of(String name, int deflateLevel) {
+      switch (name.toLowerCase()) {
+        case DataFileConstants.NULL_CODEC:
+          return new BlockCodec(DataFileConstants.NULL_CODEC) {
+            @Override
+            byte[] compress(byte[] data) {
+              return data;
+            }
+
+            @Override
+            public CodecFactory getCodecFactory() {
+              return CodecFactory.nullCodec();
+            }
+          };
+        case DataFileConstants.DEFLATE_CODEC:
+          return new BlockCodec(DataFileConstants.DEFLATE_CODEC) {
+            @Override
+            byte[] compress(byte[] data) {
+              // Avro stores raw deflate data, without the zlib header and checksum.
+              Deflater deflater = new Deflater(deflateLevel, true);
+              try {
+                deflater.setInput(data);
+                deflater.finish();
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 64);
+                byte[] buffer = new byte[8192];
+                while (!deflater.finished()) {
+                  compressed.write(buffer, 0, deflater.deflate(buffer));
+                }
+                return compressed.toByteArray();
+              } finally {
+                deflater.end();
+              }
+            }
+
+            @Override
+            public CodecFactory getCodecFactory() {
+              return CodecFactory.deflateCodec(deflateLevel);
+            }
+          };
+        case DataFileConstants.SNAPPY_CODEC:
+          return new BlockCodec(DataFileConstants.SNAPPY_CODEC) {
+            @Override
+            byte[] compress(byte[] data) throws IOException {
+              // Avro appends the CRC32 checksum of the uncompressed data to every snappy block.
+              byte[] compressed = new byte[Snappy.maxCompressedLength(data.length) + 4];
+              int size = Snappy.compress(data, 0, data.length, compressed, 0);
+              CRC32 crc32 = new CRC32();
+              crc32.update(data);
+              int checksum = (int) crc32.getValue();
+              compressed[size] = (byte) (checksum >>> 24);
+              compressed[size + 1] = (byte) (checksum >>> 16);
+              compressed[size + 2] = (byte) (checksum >>> 8);
+              compressed[size + 3] = (byte) checksum;
+              return Arrays.copyOf(compressed, size + 4);
+            }
+
+            @Override
+            public CodecFactory getCodecFactory() {
+              return CodecFactory.snappyCodec();
+            }
+          };
+        default:
+          throw new IllegalArgumentException(String.format("Unsupported Avro compression codec '%s'.", name));
+      }
+    }
+
+    /**
+     * @return the Avro name of the codec
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return whether the codec compresses blocks at all
+     */
+    public boolean isCompressed() {
+      return !DataFileConstants.NULL_CODEC.equals(name);
+    }
+
+    /**
+     * @return the factory of the same codec, for files written by a {@link org.apache.avro.file.DataFileWriter}
+     */
+    public abstract CodecFactory getCodecFactory();
+
+    abstract byte[] compress(byte[] data) throws IOException;
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sink;
+
+import com.google.cloud.hadoop.io.bigquery.BigQueryFileFormat;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryConstants;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+
+import java.io.IOException;
+
+/**
+ * Parquet output format used to stage records in Cloud Storage before they are loaded into BigQuery.
+ */
+public class ParquetOutputFormat extends FileOutputFormat<StructuredRecord, NullWritable> {
+  // Row groups are buffered in memory, so they are kept smaller than the Parquet default of 128MB.
+  static final int DEFAULT_ROW_GROUP_SIZE = 32 * 1024 * 1024;
+  static final CompressionCodecName DEFAULT_COMPRESSION = CompressionCodecName.SNAPPY;
+
+  @Override
+  public RecordWriter<StructuredRecord, NullWritable> getRecordWriter(TaskAttemptContext context) throws IOException {
+    Configuration conf = context.getConfiguration();
+    return new ParquetRecordWriter(getDefaultWorkFile(context, BigQueryFileFormat.PARQUET.getExtension()), conf,
+                                   getCompressionCodec(conf),
+                                   conf.getInt(BigQueryConstants.CONFIG_PARQUET_ROW_GROUP_SIZE,
+                                               DEFAULT_ROW_GROUP_SIZE),
+                                   conf.getBoolean(BigQueryConstants.CONFIG_PARQUET_ENABLE_DICTIONARY, true));
+  }
+
+  private static CompressionCodecName getCompressionCodec(Configuration conf) throws IOException {
+    String codec = conf.get(BigQueryConstants.CONFIG_PARQUET_COMPRESSION);
+    if (codec == null) {
+      return DEFAULT_COMPRESSION;
+    }
+    try {
+      return CompressionCodecName.fromConf(codec);
+    } catch (IllegalArgumentException e) {
+      throw new IOException(String.format("Unsupported Parquet compression codec '%s'.", codec), e);
+    }
+  }
+}
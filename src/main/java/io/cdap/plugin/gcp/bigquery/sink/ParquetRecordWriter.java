@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sink;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+
+import java.io.IOException;
+import javax.annotation.Nullable;
+
+/**
+ * Parquet record writer.
+ *
+ * The Parquet file is opened when the first record is written, with a {@link StructuredRecordWriteSupport} compiled
+ * for the output schema, or for the schema of the first record if the output schema is not known.
+ */
+public class ParquetRecordWriter extends RecordWriter<StructuredRecord, NullWritable> {
+  private final Path file;
+  private final Configuration conf;
+  private final CompressionCodecName compressionCodec;
+  private final int rowGroupSize;
+  private final boolean enableDictionary;
+  private ParquetWriter<StructuredRecord> writer;
+
+  /**
+   * Constructor.
+   *
+   * @param file the Parquet file to write
+   * @param conf Hadoop configuration used to open the file
+   * @param compressionCodec compression codec of the column chunks
+   * @param rowGroupSize size in bytes of the row groups buffered in memory before they are flushed
+   * @param enableDictionary whether columns are dictionary encoded while that keeps them smaller
+   */
+  public ParquetRecordWriter(Path file, Configuration conf, CompressionCodecName compressionCodec, int rowGroupSize,
+                             boolean enableDictionary) {
+    this.file = file;
+    this.conf = conf;
+    this.compressionCodec = compressionCodec;
+    this.rowGroupSize = rowGroupSize;
+    this.enableDictionary = enableDictionary;
+  }
+
+  @Override
+  public void write(StructuredRecord record, NullWritable ignore) throws IOException {
+    write(record, null);
+  }
+
+  /**
+   * Writes a record with the columns of the given schema.
+   *
+   * @param record the record to write
+   * @param outputSchema schema of the staged file, or null to use the schema of the first record
+   * @throws IOException if the record cannot be written
+   */
+  public void write(StructuredRecord record, @Nullable Schema outputSchema) throws IOException {
+    if (writer == null) {
+      StructuredRecordWriteSupport writeSupport =
+        new StructuredRecordWriteSupport(outputSchema == null ? record.getSchema() : outputSchema);
+      writer = new Builder(file, writeSupport)
+        .withConf(conf)
+        .withCompressionCodec(compressionCodec)
+        .withRowGroupSize(rowGroupSize)
+        .withDictionaryEncoding(enableDictionary)
+        .build();
+    }
+    writer.write(record);
+  }
+
+  /**
+   * Returns the size of the Parquet file so far, including the row group buffered in memory.
+   */
+  public long getBytesWritten() {
+    return writer == null ? 0L : writer.getDataSize();
+  }
+
+  @Override
+  public void close(TaskAttemptContext context) throws IOException {
+    if (writer != null) {
+      writer.close();
+    }
+  }
+
+  /**
+   * Builds a {@link ParquetWriter} around a compiled write support.
+   */
+  private static final class Builder extends ParquetWriter.Builder<StructuredRecord, Builder> {
+    private final WriteSupport<StructuredRecord> writeSupport;
+
+    private Builder(Path file, WriteSupport<StructuredRecord> writeSupport) {
+      super(file);
+      this.writeSupport = writeSupport;
+    }
+
+    @Override
+    protected Builder self() {
+      return this;
+    }
+
+    @Override
+    protected WriteSupport<StructuredRecord> getWriteSupport(Configuration conf) {
+      return writeSupport;
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sink;
+
+import org.apache.avro.file.DataFileConstants;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+
+/**
+ * Compression codec of the files staged in Cloud Storage.
+ */
+public enum StagingCompression {
+  NONE(DataFileConstants.NULL_CODEC, CompressionCodecName.UNCOMPRESSED),
+  SNAPPY(DataFileConstants.SNAPPY_CODEC, CompressionCodecName.SNAPPY),
+  // Parquet files are compressed with the gzip codec, which uses deflate as well.
+  DEFLATE(DataFileConstants.DEFLATE_CODEC, CompressionCodecName.GZIP);
+
+  private final String avroCodec;
+  private final CompressionCodecName parquetCodec;
+
+  StagingCompression(String avroCodec, CompressionCodecName parquetCodec) {
+    this.avroCodec = avroCodec;
+    this.parquetCodec = parquetCodec;
+  }
+
+  /**
+   * @return the name of the codec in Avro container files
+   */
+  public String getAvroCodec() {
+    return avroCodec;
+  }
+
+  /**
+   * @return the codec of Parquet column chunks
+   */
+  public CompressionCodecName getParquetCodec() {
+    return parquetCodec;
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.gcp.bigquery.sink;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.Encoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A {@link DatumWriter} which encodes {@link StructuredRecord} values straight into an Avro {@link Encoder}.
+ *
+ * The writer is compiled once from the CDAP output schema into a tree of {@link ValueEncoder}s. Field names, union
+ * branch indexes and the type dispatch are resolved at compile time, so writing a record does not allocate an
+ * intermediate GenericRecord and does not inspect the schema again.
+ */
+public class StructuredRecordDatumWriter implements DatumWriter<StructuredRecord> {
+
+  private final org.apache.avro.Schema avroSchema;
+  private final ValueEncoder recordEncoder;
+
+  /**
+   * Compiles a datum writer for the given output schema.
+   *
+   * @param schema CDAP output schema
+   * @throws UnsupportedOperationException if the schema contains types this writer cannot encode
+   */
+  public StructuredRecordDatumWriter(Schema schema) {
+    this.avroSchema = new org.apache.avro.Schema.Parser().parse(schema.toString());
+    this.recordEncoder = compile(schema, avroSchema, schema.getRecordName());
+  }
+
+  /**
+   * @return Avro schema of the records produced by this writer
+   */
+  public org.apache.avro.Schema getAvroSchema() {
+    return avroSchema;
+  }
+
+  @Override
+  public void setSchema(org.apache.avro.Schema schema) {
+    // The writer is compiled for a fixed schema.
+  }
+
+  @Override
+  public void write(StructuredRecord record, Encoder out) throws IOException {
+    recordEncoder.encode(record, out);
+  }
+
+  private static ValueEncoder compile(Schema schema, org.apache.avro.Schema avroSchema, String name) {
+    switch (schema.getType()) {
+      case NULL:
+        return (value, out) -> out.writeNull();
+      case BOOLEAN:
+        return (value, out) -> out.writeBoolean((Boolean) value);
+      case INT:
+        return (value, out) -> out.writeInt(((Number) value).intValue());
+      case LONG:
+        return (value, out) -> out.writeLong(((Number) value).longValue());
+      case FLOAT:
+        return (value, out) -> out.writeFloat(((Number) value).floatValue());
+      case DOUBLE:
+        return (value, out) -> out.writeDouble(((Number) value).doubleValue());
+      case STRING:
+        return (value, out) -> out.writeString(value.toString());
+      case BYTES:
+        return (value, out) -> {
+          if (value instanceof ByteBuffer) {
+            out.writeBytes((ByteBuffer) value);
+          } else {
+            out.writeBytes((byte[]) value);
+          }
+        };
+      case ENUM:
+        return (value, out) -> out.writeEnum(avroSchema.getEnumOrdinal(value.toString()));
+      case ARRAY:
+        return compileArray(schema, avroSchema, name);
+      case MAP:
+        return compileMap(schema, avroSchema, name);
+      case RECORD:
+        return compileRecord(schema, avroSchema);
+      case UNION:
+        return compileUnion(schema, avroSchema, name);
+      default:
+        throw new UnsupportedOperationException(
+          String.format("Field '%s' is of unsupported type '%s'", name, schema.getType()));
+    }
+  }
+
+  private static ValueEncoder compileRecord(Schema schema, org.apache.avro.Schema avroSchema) {
+    List<Schema.Field> fields = Objects.requireNonNull(schema.getFields());
+    int size = fields.size();
+    String[] names = new String[size];
+    boolean[] nullable = new boolean[size];
+    ValueEncoder[] encoders = new ValueEncoder[size];
+    for (int i = 0; i < size; i++) {
+      Schema.Field field = fields.get(i);
+      names[i] = field.getName();
+      nullable[i] = field.getSchema().isNullable();
+      encoders[i] = compile(field.getSchema(), avroSchema.getField(field.getName()).schema(), field.getName());
+    }
+    return (value, out) -> {
+      StructuredRecord record = (StructuredRecord) value;
+      for (int i = 0; i < size; i++) {
+        Object fieldValue = record.get(names[i]);
+        if (fieldValue == null && !nullable[i]) {
+          throw new IllegalArgumentException(
+            String.format("Field '%s' is not nullable but has a null value.", names[i]));
+        }
+        encoders[i].encode(fieldValue, out);
+      }
+    };
+  }
+
+  private static ValueEncoder compileUnion(Schema schema, org.apache.avro.Schema avroSchema, String name) {
+    List<Schema> branches = schema.getUnionSchemas();
+    if (!schema.isNullable() || branches.size() != 2) {
+      throw new UnsupportedOperationException(
+        String.format("Field '%s' is a union of '%s', only nullable unions are supported.", name, branches));
+    }
+    int nullIndex = branches.get(0).getType() == Schema.Type.NULL ? 0 : 1;
+    int valueIndex = 1 - nullIndex;
+    ValueEncoder valueEncoder = compile(branches.get(valueIndex), avroSchema.getTypes().get(valueIndex), name);
+    return (value, out) -> {
+      if (value == null) {
+        out.writeIndex(nullIndex);
+        out.writeNull();
+      } else {
+        out.writeIndex(valueIndex);
+        valueEncoder.encode(value, out);
+      }
+    };
+  }
+
+  private static ValueEncoder compileArray(Schema schema, org.apache.avro.Schema avroSchema, String name) {
+    ValueEncoder elementEncoder = compile(Objects.requireNonNull(schema.getComponentSchema()),
+                                          avroSchema.getElementType(), name);
+    return (value, out) -> {
+      out.writeArrayStart();
+      if (value instanceof Collection) {
+        Collection<?> collection = (Collection<?>) value;
+        out.setItemCount(collection.size());
+        for (Object element : collection) {
+          out.startItem();
+          elementEncoder.encode(element, out);
+        }
+      } else {
+        Object[] array = (Object[]) value;
+        out.setItemCount(array.length);
+        for (Object element : array) {
+          out.startItem();
+          elementEncoder.encode(element, out);
+        }
+      }
+      out.writeArrayEnd();
+    };
+  }
+
+  private static ValueEncoder compileMap(Schema schema, org.apache.avro.Schema avroSchema, String name) {
+    Map.Entry<Schema, Schema> mapSchema = Objects.requireNonNull(schema.getMapSchema());
+    ValueEncoder valueEncoder = compile(mapSchema.getValue(), avroSchema.getValueType(), name);
+    return (value, out) -> {
+      Map<?, ?> map = (Map<?, ?>) value;
+      out.writeMapStart();
+      out.setItemCount(map.size());
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        out.startItem();
+        out.writeString(entry.getKey().toString());
+        valueEncoder.encode(entry.getValue(), out);
+      }
+      out.writeMapEnd();
+    };
+  }
+
+  /**
+   * Encodes a single CDAP value.
+   */
+  private interface ValueEncoder {
+    void encode(Object value, Encoder out) throws IOException;
+  }
+}
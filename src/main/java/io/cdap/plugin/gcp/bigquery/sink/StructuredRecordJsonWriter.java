@@ -0,0 +1,625 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.gcp.bigquery.sink;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryTypeSize;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryUtil;
+import org.apache.hadoop.io.Text;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Writes {@link StructuredRecord}s as single line JSON documents for NEWLINE_DELIMITED_JSON staging files.
+ *
+ * The output is equivalent to {@link BigQueryJsonConverter}, but the writer is compiled once per record schema into a
+ * plan of {@link ValueWriter}s, so nullability, logical types and field name quoting are resolved only once. Values
+ * are rendered straight into a reusable UTF-8 buffer: dates and timestamps are formatted from their epoch values,
+ * decimals that fit into a long are formatted without BigDecimal, and bytes are Base64 encoded in place.
+ */
+public class StructuredRecordJsonWriter {
+  private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+  private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss.SSSSSS");
+  private static final byte[] BASE64 =
+    "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+  // Escaped by gson since they are line terminators in JavaScript.
+  private static final char LINE_SEPARATOR = 0x2028;
+  private static final char PARAGRAPH_SEPARATOR = 0x2029;
+  private static final long MICROS_PER_DAY = TimeUnit.DAYS.toMicros(1);
+  // Days between 0000-03-01 and 1970-01-01, used by the civil date conversion below.
+  private static final long DAYS_0000_TO_1970 = 719468L;
+
+  private final Schema recordSchema;
+  private final RecordWriter recordWriter;
+  private final JsonBuffer buffer;
+  private final Text text;
+
+  /**
+   * Compiles a writer for records of the given schema.
+   *
+   * @param recordSchema schema of the records that will be written
+   * @param outputSchema output schema of the sink. Only the fields present in it are written, all fields are written
+   *                     if it is null
+   */
+  public StructuredRecordJsonWriter(Schema recordSchema, @Nullable Schema outputSchema) {
+    this.recordSchema = recordSchema;
+    this.recordWriter = compileRecord(recordSchema, outputSchema);
+    this.buffer = new JsonBuffer();
+    this.text = new Text();
+  }
+
+  /**
+   * @return true if this writer was compiled for the given record schema
+   */
+  public boolean isCompiledFor(Schema schema) {
+    return recordSchema == schema || recordSchema.equals(schema);
+  }
+
+  /**
+   * Renders the record as a JSON object.
+   *
+   * @return the UTF-8 encoded JSON object. The returned instance is reused by the next call
+   */
+  public Text write(StructuredRecord record) {
+    buffer.reset();
+    recordWriter.write(record, buffer);
+    text.set(buffer.bytes, 0, buffer.length);
+    return text;
+  }
+
+  private static RecordWriter compileRecord(Schema schema, @Nullable Schema outputSchema) {
+    List<Schema.Field> fields = Objects.requireNonNull(schema.getFields());
+    int size = fields.size();
+    String[] names = new String[size];
+    byte[][] prefixes = new byte[size][];
+    ValueWriter[] writers = new ValueWriter[size];
+    int count = 0;
+    for (Schema.Field field : fields) {
+      // From all the fields in input record, write only those fields that are present in output schema
+      if (outputSchema != null && outputSchema.getField(field.getName()) == null) {
+        continue;
+      }
+      names[count] = field.getName();
+      JsonBuffer prefix = new JsonBuffer();
+      prefix.writeByte(count == 0 ? '{' : ',');
+      prefix.writeString(field.getName());
+      prefix.writeByte(':');
+      prefixes[count] = Arrays.copyOf(prefix.bytes, prefix.length);
+      writers[count] = compile(field.getName(), field.getSchema());
+      count++;
+    }
+    int fieldCount = count;
+    return (record, out) -> {
+      if (fieldCount == 0) {
+        out.writeByte('{');
+      }
+      for (int i = 0; i < fieldCount; i++) {
+        out.writeBytes(prefixes[i]);
+        writers[i].write(record.get(names[i]), out);
+      }
+      out.writeByte('}');
+    };
+  }
+
+  private static ValueWriter compile(String name, Schema fieldSchema) {
+    Schema schema = BigQueryUtil.getNonNullableSchema(fieldSchema);
+    switch (schema.getType()) {
+      case NULL:
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+      case BOOLEAN:
+      case STRING:
+      case BYTES:
+        return nullSafe(compileSimpleType(name, schema));
+      case ARRAY:
+        return compileArray(name, schema);
+      case RECORD:
+        RecordWriter recordWriter = compileRecord(schema, null);
+        return nullSafe((value, out) -> {
+          if (!(value instanceof StructuredRecord)) {
+            throw new IllegalStateException(
+              String.format("Value is of type '%s', expected type is '%s'",
+                            value.getClass().getSimpleName(), StructuredRecord.class.getSimpleName()));
+          }
+          recordWriter.write((StructuredRecord) value, out);
+        });
+      default:
+        // Fail on write rather than on compile, the same way BigQueryRecordToJson does.
+        return (value, out) -> {
+          throw new IllegalStateException(
+            String.format("Field '%s' is of unsupported type '%s'", name, fieldSchema.getType()));
+        };
+    }
+  }
+
+  private static ValueWriter nullSafe(ValueWriter writer) {
+    return (value, out) -> {
+      if (value == null) {
+        out.writeAscii("null");
+      } else {
+        writer.write(value, out);
+      }
+    };
+  }
+
+  private static ValueWriter compileSimpleType(String name, Schema schema) {
+    Schema.LogicalType logicalType = schema.getLogicalType();
+    if (logicalType != null) {
+      switch (logicalType) {
+        case DATE:
+          return (value, out) -> {
+            out.writeByte('"');
+            out.writeDate((Integer) value);
+            out.writeByte('"');
+          };
+        case TIME_MILLIS:
+          return (value, out) -> writeTime(TimeUnit.MILLISECONDS.toMicros((Integer) value), out);
+        case TIME_MICROS:
+          return (value, out) -> writeTime((Long) value, out);
+        case TIMESTAMP_MILLIS:
+          return (value, out) -> writeTimestamp(TimeUnit.MILLISECONDS.toMicros((Long) value), out);
+        case TIMESTAMP_MICROS:
+          return (value, out) -> writeTimestamp((Long) value, out);
+        case DECIMAL:
+          return (value, out) -> writeDecimal(name, (byte[]) value, schema.getScale(), out);
+        case DATETIME:
+          //datetime should be already an ISO-8601 string
+          return (value, out) -> out.writeString(value.toString());
+        default:
+          return (value, out) -> {
+            throw new IllegalStateException(
+              String.format("Field '%s' is of unsupported type '%s'", name, logicalType.getToken()));
+          };
+      }
+    }
+
+    switch (schema.getType()) {
+      case NULL:
+        return (value, out) -> out.writeAscii("null");
+      case INT:
+      case LONG:
+        return (value, out) -> out.writeLong(((Number) value).longValue());
+      case FLOAT:
+      case DOUBLE:
+        return (value, out) -> {
+          double d = ((Number) value).doubleValue();
+          if (Double.isNaN(d) || Double.isInfinite(d)) {
+            throw new IllegalArgumentException("JSON forbids NaN and infinities: " + value);
+          }
+          out.writeAscii(value.toString());
+        };
+      case BOOLEAN:
+        return (value, out) -> out.writeAscii((Boolean) value ? "true" : "false");
+      case STRING:
+        return (value, out) -> out.writeString(value.toString());
+      case BYTES:
+        return (value, out) -> {
+          if (value instanceof byte[]) {
+            out.writeBase64(ByteBuffer.wrap((byte[]) value));
+          } else if (value instanceof ByteBuffer) {
+            out.writeBase64((ByteBuffer) value);
+          } else {
+            throw new IllegalStateException(String.format("Expected value of Field '%s' to be bytes but got '%s'",
+                                                          name, value.getClass().getSimpleName()));
+          }
+        };
+      default:
+        return (value, out) -> {
+          throw new IllegalStateException(String.format("Field '%s' is of unsupported type '%s'",
+                                                        name, schema.getType()));
+        };
+    }
+  }
+
+  private static ValueWriter compileArray(String name, Schema schema) {
+    Schema componentSchema = BigQueryUtil.getNonNullableSchema(Objects.requireNonNull(schema.getComponentSchema()));
+    boolean unsupported = BigQueryUtil.UNSUPPORTED_ARRAY_TYPES.contains(componentSchema.getType());
+    ValueWriter elementWriter = unsupported ? null : compile(name, componentSchema);
+    RecordWriter elementRecordWriter = componentSchema.getType() == Schema.Type.RECORD ?
+      compileRecord(componentSchema, null) : null;
+    return (value, out) -> {
+      if (value == null) {
+        throw new RuntimeException(
+          String.format("Field '%s' is of value null, which is not a valid value for BigQuery type array.", name));
+      }
+      Collection<?> collection;
+      if (value instanceof Collection) {
+        collection = (Collection<?>) value;
+      } else if (value instanceof Object[]) {
+        collection = Arrays.asList((Object[]) value);
+      } else {
+        throw new IllegalArgumentException(String.format(
+          "A value for the field '%s' is of type '%s' when it is expected to be a Collection or array.",
+          name, value.getClass().getSimpleName()));
+      }
+      if (unsupported) {
+        throw new IllegalArgumentException(String.format("Field '%s' is an array of '%s', " +
+                                                           "which is not a valid BigQuery type.",
+                                                         name, componentSchema));
+      }
+
+      out.writeByte('[');
+      boolean first = true;
+      for (Object element : collection) {
+        // BigQuery does not allow null values in array items
+        if (element == null) {
+          throw new IllegalArgumentException(String.format("Field '%s' contains null values in its array, " +
+                                                             "which is not allowed by BigQuery.", name));
+        }
+        if (!first) {
+          out.writeByte(',');
+        }
+        first = false;
+        if (element instanceof StructuredRecord) {
+          StructuredRecord record = (StructuredRecord) element;
+          // Nested records are written with their own schema, which is almost always the component schema.
+          if (elementRecordWriter != null && componentSchema.equals(record.getSchema())) {
+            elementRecordWriter.write(record, out);
+          } else {
+            compileRecord(Objects.requireNonNull(record.getSchema()), null).write(record, out);
+          }
+        } else {
+          elementWriter.write(element, out);
+        }
+      }
+      out.writeByte(']');
+    };
+  }
+
+  private static void writeTime(long micros, JsonBuffer out) {
+    if (micros < 0 || micros >= MICROS_PER_DAY) {
+      // Let LocalTime report the invalid value.
+      out.writeString(TIME_FORMATTER.format(LocalTime.ofNanoOfDay(TimeUnit.MICROSECONDS.toNanos(micros))));
+      return;
+    }
+    out.writeByte('"');
+    out.writeTimeOfDay(micros);
+    out.writeByte('"');
+  }
+
+  private static void writeTimestamp(long micros, JsonBuffer out) {
+    long days = Math.floorDiv(micros, MICROS_PER_DAY);
+    if (!out.isFourDigitYear(days)) {
+      Instant instant = Instant.ofEpochSecond(Math.floorDiv(micros, 1000000L),
+                                              TimeUnit.MICROSECONDS.toNanos(Math.floorMod(micros, 1000000L)));
+      out.writeString(DATETIME_FORMATTER.format(instant.atZone(ZoneOffset.UTC)));
+      return;
+    }
+    //timestamp for json input should be in this format yyyy-MM-dd HH:mm:ss.SSSSSS
+    out.writeByte('"');
+    out.writeDate(days);
+    out.writeByte(' ');
+    out.writeTimeOfDay(Math.floorMod(micros, MICROS_PER_DAY));
+    out.writeByte('"');
+  }
+
+  private static void writeDecimal(String name, byte[] value, int scale, JsonBuffer out) {
+    // Checks from https://cloud.google.com/bigquery/docs/reference/standard-sql/data-types#numeric_types
+    // An unscaled value of at most 8 bytes has at most 19 digits, so only the scale can be out of range.
+    if (value.length == 0 || value.length > 8 || scale < 0 || scale > BigQueryTypeSize.BigNumeric.SCALE) {
+      out.writeString(getDecimal(name, value, scale).toPlainString());
+      return;
+    }
+    long unscaled = value[0];
+    for (int i = 1; i < value.length; i++) {
+      unscaled = (unscaled << 8) | (value[i] & 0xFF);
+    }
+    if (unscaled == Long.MIN_VALUE) {
+      out.writeString(getDecimal(name, value, scale).toPlainString());
+      return;
+    }
+    out.writeByte('"');
+    out.writeDecimal(unscaled, scale);
+    out.writeByte('"');
+  }
+
+  private static BigDecimal getDecimal(String name, byte[] value, int scale) {
+    BigDecimal decimal = new BigDecimal(new BigInteger(value), scale);
+    if (decimal.precision() > BigQueryTypeSize.BigNumeric.PRECISION ||
+      decimal.scale() > BigQueryTypeSize.BigNumeric.SCALE) {
+      throw new IllegalArgumentException(
+        String.format("Numeric Field '%s' has invalid precision '%s' and scale '%s'. " +
+                        "Precision must be at most '%s' and scale must be at most '%s'.",
+                      name, decimal.precision(), decimal.scale(),
+                      BigQueryTypeSize.BigNumeric.PRECISION, BigQueryTypeSize.BigNumeric.SCALE));
+    }
+    return decimal;
+  }
+
+  /**
+   * Writes a single value, including null.
+   */
+  private interface ValueWriter {
+    void write(@Nullable Object value, JsonBuffer out);
+  }
+
+  /**
+   * Writes a record as a JSON object.
+   */
+  private interface RecordWriter {
+    void write(StructuredRecord record, JsonBuffer out);
+  }
+
+  /**
+   * Growable UTF-8 buffer with the JSON primitives needed by the writer.
+   */
+  private static final class JsonBuffer {
+    private final byte[] digits = new byte[20];
+    private byte[] bytes = new byte[1024];
+    private int length;
+
+    void reset() {
+      length = 0;
+    }
+
+    private void ensureCapacity(int extra) {
+      if (length + extra > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+      }
+    }
+
+    void writeByte(int b) {
+      ensureCapacity(1);
+      bytes[length++] = (byte) b;
+    }
+
+    void writeBytes(byte[] b) {
+      ensureCapacity(b.length);
+      System.arraycopy(b, 0, bytes, length, b.length);
+      length += b.length;
+    }
+
+    void writeAscii(String s) {
+      int len = s.length();
+      ensureCapacity(len);
+      for (int i = 0; i < len; i++) {
+        bytes[length++] = (byte) s.charAt(i);
+      }
+    }
+
+    /**
+     * Writes a quoted string, escaping the same characters as gson.
+     */
+    void writeString(String s) {
+      int len = s.length();
+      // Worst case is 6 bytes per char for an escaped control character.
+      ensureCapacity(len * 6 + 2);
+      bytes[length++] = '"';
+      for (int i = 0; i < len; i++) {
+        char c = s.charAt(i);
+        if (c < 0x80) {
+          if (c >= 0x20 && c != '"' && c != '\\') {
+            bytes[length++] = (byte) c;
+            continue;
+          }
+          bytes[length++] = '\\';
+          switch (c) {
+            case '"':
+            case '\\':
+              bytes[length++] = (byte) c;
+              break;
+            case '\t':
+              bytes[length++] = 't';
+              break;
+            case '\b':
+              bytes[length++] = 'b';
+              break;
+            case '\n':
+              bytes[length++] = 'n';
+              break;
+            case '\r':
+              bytes[length++] = 'r';
+              break;
+            case '\f':
+              bytes[length++] = 'f';
+              break;
+            default:
+              writeUnicodeEscape(c);
+          }
+        } else if (c < 0x800) {
+          bytes[length++] = (byte) (0xC0 | (c >> 6));
+          bytes[length++] = (byte) (0x80 | (c & 0x3F));
+        } else if (c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR) {
+          bytes[length++] = '\\';
+          writeUnicodeEscape(c);
+        } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+          int codePoint = Character.toCodePoint(c, s.charAt(++i));
+          bytes[length++] = (byte) (0xF0 | (codePoint >> 18));
+          bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+          bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+          bytes[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+          // Unpaired surrogate, encoded as '?' like String.getBytes(UTF_8) does.
+          bytes[length++] = '?';
+        } else {
+          bytes[length++] = (byte) (0xE0 | (c >> 12));
+          bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+          bytes[length++] = (byte) (0x80 | (c & 0x3F));
+        }
+      }
+      bytes[length++] = '"';
+    }
+
+    private void writeUnicodeEscape(char c) {
+      bytes[length++] = 'u';
+      bytes[length++] = HEX[(c >> 12) & 0xF];
+      bytes[length++] = HEX[(c >> 8) & 0xF];
+      bytes[length++] = HEX[(c >> 4) & 0xF];
+      bytes[length++] = HEX[c & 0xF];
+    }
+
+    void writeLong(long value) {
+      if (value == Long.MIN_VALUE) {
+        writeAscii(Long.toString(value));
+        return;
+      }
+      if (value < 0) {
+        writeByte('-');
+        value = -value;
+      }
+      int count = toDigits(value);
+      ensureCapacity(count);
+      for (int i = count - 1; i >= 0; i--) {
+        bytes[length++] = digits[i];
+      }
+    }
+
+    /**
+     * Writes the plain string representation of unscaled * 10^-scale.
+     */
+    void writeDecimal(long unscaled, int scale) {
+      if (unscaled < 0) {
+        writeByte('-');
+        unscaled = -unscaled;
+      }
+      int count = toDigits(unscaled);
+      ensureCapacity(count + scale + 2);
+      if (scale == 0) {
+        for (int i = count - 1; i >= 0; i--) {
+          bytes[length++] = digits[i];
+        }
+        return;
+      }
+      if (count <= scale) {
+        bytes[length++] = '0';
+        bytes[length++] = '.';
+        for (int i = count; i < scale; i++) {
+          bytes[length++] = '0';
+        }
+        for (int i = count - 1; i >= 0; i--) {
+          bytes[length++] = digits[i];
+        }
+        return;
+      }
+      for (int i = count - 1; i >= 0; i--) {
+        if (i == scale - 1) {
+          bytes[length++] = '.';
+        }
+        bytes[length++] = digits[i];
+      }
+    }
+
+    /**
+     * Stores the decimal digits of a non-negative value in reverse order and returns their count.
+     */
+    private int toDigits(long value) {
+      int count = 0;
+      do {
+        digits[count++] = (byte) ('0' + (value % 10));
+        value /= 10;
+      } while (value != 0);
+      return count;
+    }
+
+    boolean isFourDigitYear(long epochDay) {
+      // 0000-01-01 and 9999-12-31
+      return epochDay >= -719528L && epochDay <= 2932896L;
+    }
+
+    /**
+     * Writes the epoch day as yyyy-MM-dd, using the proleptic Gregorian calendar like {@link java.time.LocalDate}.
+     */
+    void writeDate(long epochDay) {
+      if (!isFourDigitYear(epochDay)) {
+        writeAscii(java.time.LocalDate.ofEpochDay(epochDay).toString());
+        return;
+      }
+      long z = epochDay + DAYS_0000_TO_1970;
+      long era = Math.floorDiv(z, 146097L);
+      long dayOfEra = z - era * 146097L;
+      long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+      long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+      long mp = (5 * dayOfYear + 2) / 153;
+      int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+      int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+      int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+      ensureCapacity(10);
+      writePadded(year, 4);
+      bytes[length++] = '-';
+      writePadded(month, 2);
+      bytes[length++] = '-';
+      writePadded(day, 2);
+    }
+
+    /**
+     * Writes the microsecond of day as HH:mm:ss.SSSSSS.
+     */
+    void writeTimeOfDay(long microOfDay) {
+      int micros = (int) (microOfDay % 1000000L);
+      int seconds = (int) (microOfDay / 1000000L);
+      ensureCapacity(15);
+      writePadded(seconds / 3600, 2);
+      bytes[length++] = ':';
+      writePadded((seconds / 60) % 60, 2);
+      bytes[length++] = ':';
+      writePadded(seconds % 60, 2);
+      bytes[length++] = '.';
+      writePadded(micros, 6);
+    }
+
+    private void writePadded(int value, int width) {
+      for (int i = length + width - 1; i >= length; i--) {
+        bytes[i] = (byte) ('0' + (value % 10));
+        value /= 10;
+      }
+      length += width;
+    }
+
+    /**
+     * Writes the remaining bytes of the buffer as a quoted Base64 string without changing its position.
+     */
+    void writeBase64(ByteBuffer buffer) {
+      int start = buffer.position();
+      int end = buffer.limit();
+      ensureCapacity((end - start + 2) / 3 * 4 + 2);
+      bytes[length++] = '"';
+      int i = start;
+      for (; i + 2 < end; i += 3) {
+        int bits = (buffer.get(i) & 0xFF) << 16 | (buffer.get(i + 1) & 0xFF) << 8 | (buffer.get(i + 2) & 0xFF);
+        bytes[length++] = BASE64[(bits >>> 18) & 0x3F];
+        bytes[length++] = BASE64[(bits >>> 12) & 0x3F];
+        bytes[length++] = BASE64[(bits >>> 6) & 0x3F];
+        bytes[length++] = BASE64[bits & 0x3F];
+      }
+      int remaining = end - i;
+      if (remaining > 0) {
+        int bits = (buffer.get(i) & 0xFF) << 16 | (remaining == 2 ? (buffer.get(i + 1) & 0xFF) << 8 : 0);
+        bytes[length++] = BASE64[(bits >>> 18) & 0x3F];
+        bytes[length++] = BASE64[(bits >>> 12) & 0x3F];
+        bytes[length++] = remaining == 2 ? BASE64[(bits >>> 6) & 0x3F] : (byte) '=';
+        bytes[length++] = '=';
+      }
+      bytes[length++] = '"';
+    }
+  }
+}
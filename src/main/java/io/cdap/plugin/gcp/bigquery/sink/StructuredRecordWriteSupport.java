@@ -0,0 +1,312 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sink;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.GroupType;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Types;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A Parquet {@link WriteSupport} which writes {@link StructuredRecord} values straight into a {@link RecordConsumer}.
+ *
+ * Like {@link StructuredRecordDatumWriter}, the write support is compiled once from the CDAP output schema into a
+ * Parquet message type and a tree of {@link ValueWriter}s, so writing a record does not convert it first. Columns are
+ * typed the way BigQuery maps Parquet types on load: dates, times and timestamps carry their logical type, decimals
+ * are stored as binary decimals and arrays use the three level LIST layout, which BigQuery reads as repeated fields
+ * when list inference is enabled on the load job.
+ */
+public class StructuredRecordWriteSupport extends WriteSupport<StructuredRecord> {
+  private static final String LIST_GROUP = "list";
+  private static final String LIST_ELEMENT = "element";
+
+  private final MessageType messageType;
+  private final RecordWriter recordWriter;
+  private RecordConsumer consumer;
+
+  /**
+   * Compiles a write support for the given output schema.
+   *
+   * @param schema CDAP output schema
+   * @throws UnsupportedOperationException if the schema contains types which cannot be staged as Parquet
+   */
+  public StructuredRecordWriteSupport(Schema schema) {
+    List<Schema.Field> fields = Objects.requireNonNull(schema.getFields());
+    Types.MessageTypeBuilder builder = Types.buildMessage();
+    for (Schema.Field field : fields) {
+      builder.addField(toParquetType(field.getName(), field.getSchema()));
+    }
+    this.messageType = builder.named(schema.getRecordName() == null ? "record" : schema.getRecordName());
+    this.recordWriter = new RecordWriter(fields, messageType);
+  }
+
+  /**
+   * @return Parquet schema of the files produced by this write support
+   */
+  public MessageType getMessageType() {
+    return messageType;
+  }
+
+  @Override
+  public WriteContext init(Configuration configuration) {
+    return new WriteContext(messageType, Collections.emptyMap());
+  }
+
+  @Override
+  public void prepareForWrite(RecordConsumer recordConsumer) {
+    this.consumer = recordConsumer;
+  }
+
+  @Override
+  public void write(StructuredRecord record) {
+    consumer.startMessage();
+    recordWriter.writeFields(record, consumer);
+    consumer.endMessage();
+  }
+
+  private static Type toParquetType(String name, Schema schema) {
+    Type.Repetition repetition = schema.isNullable() ? Type.Repetition.OPTIONAL : Type.Repetition.REQUIRED;
+    Schema nonNullable = getNonNullable(name, schema);
+    Schema.LogicalType logicalType = nonNullable.getLogicalType();
+    if (logicalType != null) {
+      switch (logicalType) {
+        case DATE:
+          return Types.primitive(PrimitiveType.PrimitiveTypeName.INT32, repetition)
+            .as(LogicalTypeAnnotation.dateType()).named(name);
+        case TIME_MILLIS:
+        case TIME_MICROS:
+          // Times in milliseconds are widened to microseconds, so all times map to the same BigQuery type.
+          return Types.primitive(PrimitiveType.PrimitiveTypeName.INT64, repetition)
+            .as(LogicalTypeAnnotation.timeType(true, LogicalTypeAnnotation.TimeUnit.MICROS)).named(name);
+        case TIMESTAMP_MILLIS:
+          return Types.primitive(PrimitiveType.PrimitiveTypeName.INT64, repetition)
+            .as(LogicalTypeAnnotation.timestampType(true, LogicalTypeAnnotation.TimeUnit.MILLIS)).named(name);
+        case TIMESTAMP_MICROS:
+          return Types.primitive(PrimitiveType.PrimitiveTypeName.INT64, repetition)
+            .as(LogicalTypeAnnotation.timestampType(true, LogicalTypeAnnotation.TimeUnit.MICROS)).named(name);
+        case DECIMAL:
+          return Types.primitive(PrimitiveType.PrimitiveTypeName.BINARY, repetition)
+            .as(LogicalTypeAnnotation.decimalType(nonNullable.getScale(), nonNullable.getPrecision())).named(name);
+        default:
+          throw new UnsupportedOperationException(
+            String.format("Field '%s' is of unsupported type '%s'", name, logicalType.getToken()));
+      }
+    }
+    switch (nonNullable.getType()) {
+      case BOOLEAN:
+        return Types.primitive(PrimitiveType.PrimitiveTypeName.BOOLEAN, repetition).named(name);
+      case INT:
+        return Types.primitive(PrimitiveType.PrimitiveTypeName.INT32, repetition).named(name);
+      case LONG:
+        return Types.primitive(PrimitiveType.PrimitiveTypeName.INT64, repetition).named(name);
+      case FLOAT:
+        return Types.primitive(PrimitiveType.PrimitiveTypeName.FLOAT, repetition).named(name);
+      case DOUBLE:
+        return Types.primitive(PrimitiveType.PrimitiveTypeName.DOUBLE, repetition).named(name);
+      case STRING:
+      case ENUM:
+        return Types.primitive(PrimitiveType.PrimitiveTypeName.BINARY, repetition)
+          .as(LogicalTypeAnnotation.stringType()).named(name);
+      case BYTES:
+        return Types.primitive(PrimitiveType.PrimitiveTypeName.BINARY, repetition).named(name);
+      case ARRAY:
+        Type element = toParquetType(LIST_ELEMENT, Objects.requireNonNull(nonNullable.getComponentSchema()));
+        return Types.buildGroup(repetition).as(LogicalTypeAnnotation.listType())
+          .addField(Types.repeatedGroup().addField(element).named(LIST_GROUP))
+          .named(name);
+      case RECORD:
+        Types.GroupBuilder<GroupType> group = Types.buildGroup(repetition);
+        for (Schema.Field field : Objects.requireNonNull(nonNullable.getFields())) {
+          group.addField(toParquetType(field.getName(), field.getSchema()));
+        }
+        return group.named(name);
+      default:
+        throw new UnsupportedOperationException(
+          String.format("Field '%s' is of unsupported type '%s'", name, nonNullable.getType()));
+    }
+  }
+
+  private static Schema getNonNullable(String name, Schema schema) {
+    if (schema.getType() != Schema.Type.UNION) {
+      return schema;
+    }
+    if (!schema.isNullable() || schema.getUnionSchemas().size() != 2) {
+      throw new UnsupportedOperationException(
+        String.format("Field '%s' is a union of '%s', only nullable unions are supported.", name,
+                      schema.getUnionSchemas()));
+    }
+    return schema.getNonNullable();
+  }
+
+  private static ValueWriter compile(Schema schema, Type type) {
+    Schema nonNullable = getNonNullable(type.getName(), schema);
+    Schema.LogicalType logicalType = nonNullable.getLogicalType();
+    if (logicalType != null) {
+      switch (logicalType) {
+        case DATE:
+          return (value, consumer) -> consumer.addInteger(((Number) value).intValue());
+        case TIME_MILLIS:
+          return (value, consumer) -> consumer.addLong(((Number) value).longValue() * 1000L);
+        case TIME_MICROS:
+        case TIMESTAMP_MILLIS:
+        case TIMESTAMP_MICROS:
+          return (value, consumer) -> consumer.addLong(((Number) value).longValue());
+        case DECIMAL:
+          int scale = nonNullable.getScale();
+          return (value, consumer) -> consumer.addBinary(toDecimalBinary(value, scale));
+        default:
+          throw new UnsupportedOperationException(
+            String.format("Field '%s' is of unsupported type '%s'", type.getName(), logicalType.getToken()));
+      }
+    }
+    switch (nonNullable.getType()) {
+      case BOOLEAN:
+        return (value, consumer) -> consumer.addBoolean((Boolean) value);
+      case INT:
+        return (value, consumer) -> consumer.addInteger(((Number) value).intValue());
+      case LONG:
+        return (value, consumer) -> consumer.addLong(((Number) value).longValue());
+      case FLOAT:
+        return (value, consumer) -> consumer.addFloat(((Number) value).floatValue());
+      case DOUBLE:
+        return (value, consumer) -> consumer.addDouble(((Number) value).doubleValue());
+      case STRING:
+      case ENUM:
+        return (value, consumer) -> consumer.addBinary(Binary.fromString(value.toString()));
+      case BYTES:
+        return (value, consumer) -> consumer.addBinary(toBinary(value));
+      case ARRAY:
+        return compileArray(nonNullable, type.asGroupType());
+      case RECORD:
+        RecordWriter recordWriter = new RecordWriter(Objects.requireNonNull(nonNullable.getFields()),
+                                                     type.asGroupType());
+        return (value, consumer) -> {
+          consumer.startGroup();
+          recordWriter.writeFields((StructuredRecord) value, consumer);
+          consumer.endGroup();
+        };
+      default:
+        throw new UnsupportedOperationException(
+          String.format("Field '%s' is of unsupported type '%s'", type.getName(), nonNullable.getType()));
+    }
+  }
+
+  private static ValueWriter compileArray(Schema schema, GroupType listType) {
+    Schema componentSchema = Objects.requireNonNull(schema.getComponentSchema());
+    Type elementType = listType.getType(LIST_GROUP).asGroupType().getType(LIST_ELEMENT);
+    boolean elementNullable = componentSchema.isNullable();
+    ValueWriter elementWriter = compile(componentSchema, elementType);
+    return (value, consumer) -> {
+      Collection<?> elements = value instanceof Collection ? (Collection<?>) value : Arrays.asList((Object[]) value);
+      consumer.startGroup();
+      if (!elements.isEmpty()) {
+        consumer.startField(LIST_GROUP, 0);
+        for (Object element : elements) {
+          consumer.startGroup();
+          if (element != null) {
+            consumer.startField(LIST_ELEMENT, 0);
+            elementWriter.write(element, consumer);
+            consumer.endField(LIST_ELEMENT, 0);
+          } else if (!elementNullable) {
+            throw new IllegalArgumentException(
+              String.format("Array field '%s' is not nullable but has a null element.", listType.getName()));
+          }
+          consumer.endGroup();
+        }
+        consumer.endField(LIST_GROUP, 0);
+      }
+      consumer.endGroup();
+    };
+  }
+
+  private static Binary toBinary(Object value) {
+    if (value instanceof ByteBuffer) {
+      return Binary.fromConstantByteBuffer(((ByteBuffer) value).duplicate());
+    }
+    return Binary.fromConstantByteArray((byte[]) value);
+  }
+
+  private static Binary toDecimalBinary(Object value, int scale) {
+    if (value instanceof BigDecimal) {
+      // Parquet decimals hold the big-endian two's complement unscaled value, like CDAP decimals.
+      return Binary.fromConstantByteArray(((BigDecimal) value).setScale(scale).unscaledValue().toByteArray());
+    }
+    return toBinary(value);
+  }
+
+  /**
+   * Writes the fields of a record, or of a nested record, in the order of the Parquet group.
+   */
+  private static final class RecordWriter {
+    private final String[] names;
+    private final boolean[] nullable;
+    private final ValueWriter[] writers;
+
+    private RecordWriter(List<Schema.Field> fields, GroupType groupType) {
+      int size = fields.size();
+      this.names = new String[size];
+      this.nullable = new boolean[size];
+      this.writers = new ValueWriter[size];
+      for (int i = 0; i < size; i++) {
+        Schema.Field field = fields.get(i);
+        names[i] = field.getName();
+        nullable[i] = field.getSchema().isNullable();
+        writers[i] = compile(field.getSchema(), groupType.getType(i));
+      }
+    }
+
+    private void writeFields(StructuredRecord record, RecordConsumer consumer) {
+      for (int i = 0; i < names.length; i++) {
+        Object value = record.get(names[i]);
+        if (value == null) {
+          if (!nullable[i]) {
+            throw new IllegalArgumentException(
+              String.format("Field '%s' is not nullable but has a null value.", names[i]));
+          }
+          // Null values of optional fields are written by leaving out the field.
+          continue;
+        }
+        consumer.startField(names[i], i);
+        writers[i].write(value, consumer);
+        consumer.endField(names[i], i);
+      }
+    }
+  }
+
+  /**
+   * Writes a single non-null CDAP value.
+   */
+  private interface ValueWriter {
+    void write(Object value, RecordConsumer consumer);
+  }
+}
@@ -25,21 +25,28 @@ import org.apache.avro.generic.GenericRecord;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 /**
  * Create StructuredRecords from GenericRecords. Contains custom logic for BigQuery date and time types.
+ *
+ * The conversion of every record schema is compiled once into a list of field positions and converters, so that
+ * records are converted without looking up fields by name or inspecting their schemas again.
  */
 public class BigQueryAvroToStructuredTransformer extends RecordConverter<GenericRecord, StructuredRecord> {
 
   private Schema genericRecordSchema;
+  // Compiled conversions by output schema instance. Not serialized, they are compiled again after deserialization.
+  private transient Map<Schema, CompiledRecord> compiledRecords;
 
   public StructuredRecord transform(GenericRecord genericRecord) throws IOException {
     if (genericRecordSchema == null) {
@@ -50,13 +57,59 @@ public class BigQueryAvroToStructuredTransformer extends RecordConverter<Generic
 
   @Override
   public StructuredRecord transform(GenericRecord genericRecord, Schema structuredSchema) throws IOException {
-    StructuredRecord.Builder builder = StructuredRecord.builder(structuredSchema);
-    for (Schema.Field field : structuredSchema.getFields()) {
-      String fieldName = field.getName();
-      Object value = convertField(genericRecord.get(fieldName), field);
-      builder.set(fieldName, value);
+    if (compiledRecords == null) {
+      compiledRecords = new IdentityHashMap<>();
+    }
+    CompiledRecord compiledRecord = compiledRecords.get(structuredSchema);
+    if (compiledRecord == null || compiledRecord.avroSchema != genericRecord.getSchema()) {
+      compiledRecord = new CompiledRecord(genericRecord.getSchema(), structuredSchema);
+      compiledRecords.put(structuredSchema, compiledRecord);
+    }
+    return compiledRecord.transform(genericRecord);
+  }
+
+  /**
+   * Compiles the conversion of the values of a field with the given schema. Null values are never passed to the
+   * returned converter.
+   *
+   * Subclasses which change the conversion of a type in {@link #convertField(Object, Schema)} must change it here too.
+   */
+  protected FieldConverter compileField(Schema fieldSchema) {
+    Schema nonNullableSchema = fieldSchema.isNullable() ? fieldSchema.getNonNullable() : fieldSchema;
+    Schema.LogicalType logicalType = nonNullableSchema.getLogicalType();
+    if (logicalType != null) {
+      switch (logicalType) {
+        case DATE:
+          return BigQueryAvroToStructuredTransformer::convertDate;
+        case TIME_MILLIS:
+          return value -> Math.toIntExact(TimeUnit.MICROSECONDS.toMillis(convertTimeMicros(value)));
+        case TIME_MICROS:
+          return BigQueryAvroToStructuredTransformer::convertTimeMicros;
+        case TIMESTAMP_MILLIS:
+        case TIMESTAMP_MICROS:
+          return value -> value;
+        case DATETIME:
+          return BigQueryAvroToStructuredTransformer::convertDateTime;
+        case DECIMAL:
+          return value -> toBytes((ByteBuffer) value);
+        default:
+          return value -> convertField(value, fieldSchema);
+      }
+    }
+
+    switch (nonNullableSchema.getType()) {
+      case BOOLEAN:
+      case LONG:
+      case DOUBLE:
+        return value -> value;
+      case STRING:
+        return Object::toString;
+      case BYTES:
+        return this::convertBytes;
+      default:
+        // Complex types keep going through convertField, nested records end up in a compiled conversion again.
+        return value -> convertField(value, fieldSchema);
     }
-    return builder.build();
   }
 
   @Override
@@ -75,36 +128,18 @@ public class BigQueryAvroToStructuredTransformer extends RecordConverter<Generic
       if (logicalType != null) {
         switch (logicalType) {
           case DATE:
-            // date will be in yyyy-mm-dd format
-            return Math.toIntExact(LocalDate.parse(field.toString()).toEpochDay());
+            return convertDate(field);
           case TIME_MILLIS:
-            // time will be in hh:mm:ss format
-            return Math.toIntExact(TimeUnit.NANOSECONDS.toMillis(LocalTime.parse(field.toString()).toNanoOfDay()));
+            return Math.toIntExact(TimeUnit.MICROSECONDS.toMillis(convertTimeMicros(field)));
           case TIME_MICROS:
-            // time will be in hh:mm:ss format
-            return TimeUnit.NANOSECONDS.toMicros(LocalTime.parse(field.toString()).toNanoOfDay());
+            return convertTimeMicros(field);
           case TIMESTAMP_MILLIS:
           case TIMESTAMP_MICROS:
             return field;
           case DATETIME:
-            try {
-              LocalDateTime.parse(field.toString());
-            } catch (DateTimeParseException exception) {
-              throw new UnexpectedFormatException(
-                String.format("Datetime field with value '%s' is not in ISO-8601 format.",
-                              fieldSchema.getDisplayName(),
-                              field.toString()),
-                exception);
-            }
-            //If properly formatted return the string
-            return field.toString();
+            return convertDateTime(field);
           case DECIMAL:
-            ByteBuffer value = (ByteBuffer) field;
-            byte[] bytes = new byte[value.remaining()];
-            int pos = value.position();
-            value.get(bytes);
-            value.position(pos);
-            return bytes;
+            return toBytes((ByteBuffer) field);
           default:
             throw new UnexpectedFormatException("Field type '" + fieldSchema.getDisplayName() + "' is not supported.");
         }
@@ -134,4 +169,145 @@ public class BigQueryAvroToStructuredTransformer extends RecordConverter<Generic
     return field instanceof ByteBuffer ? Bytes.toBytes((ByteBuffer) field) : field;
   }
 
+  /**
+   * Converts a date, which the Storage Read API returns as days since epoch and exports return as yyyy-mm-dd.
+   */
+  private static Object convertDate(Object field) {
+    if (field instanceof Integer) {
+      return field;
+    }
+    String value = field.toString();
+    if (value.length() == 10 && value.charAt(4) == '-' && value.charAt(7) == '-') {
+      int year = parseDigits(value, 0, 4);
+      int month = parseDigits(value, 5, 7);
+      int day = parseDigits(value, 8, 10);
+      if (year >= 0 && month >= 0 && day >= 0) {
+        return Math.toIntExact(LocalDate.of(year, month, day).toEpochDay());
+      }
+    }
+    return Math.toIntExact(LocalDate.parse(value).toEpochDay());
+  }
+
+  /**
+   * Converts a time to microseconds of the day. The Storage Read API returns microseconds already, exports return
+   * hh:mm:ss with an optional fraction of up to six digits.
+   */
+  private static long convertTimeMicros(Object field) {
+    if (field instanceof Long) {
+      return (Long) field;
+    }
+    String value = field.toString();
+    int length = value.length();
+    if (length >= 8 && value.charAt(2) == ':' && value.charAt(5) == ':') {
+      int hours = parseDigits(value, 0, 2);
+      int minutes = parseDigits(value, 3, 5);
+      int seconds = parseDigits(value, 6, 8);
+      if (hours >= 0 && hours < 24 && minutes >= 0 && minutes < 60 && seconds >= 0 && seconds < 60) {
+        long micros = ((hours * 60L + minutes) * 60L + seconds) * 1_000_000L;
+        if (length == 8) {
+          return micros;
+        }
+        if (length > 9 && length <= 15 && value.charAt(8) == '.') {
+          int fraction = parseDigits(value, 9, length);
+          if (fraction >= 0) {
+            for (int i = length; i < 15; i++) {
+              fraction *= 10;
+            }
+            return micros + fraction;
+          }
+        }
+      }
+    }
+    return TimeUnit.NANOSECONDS.toMicros(LocalTime.parse(value).toNanoOfDay());
+  }
+
+  /**
+   * Validates that a datetime is in ISO-8601 format, without going through a formatter for well formed values.
+   */
+  private static String convertDateTime(Object field) {
+    String value = field.toString();
+    try {
+      if (value.length() > 11 && value.charAt(10) == 'T') {
+        convertDate(value.substring(0, 10));
+        convertTimeMicros(value.substring(11));
+      } else {
+        LocalDateTime.parse(value);
+      }
+    } catch (DateTimeException exception) {
+      throw new UnexpectedFormatException(
+        String.format("Datetime field with value '%s' is not in ISO-8601 format.", value), exception);
+    }
+    //If properly formatted return the string
+    return value;
+  }
+
+  private static byte[] toBytes(ByteBuffer value) {
+    byte[] bytes = new byte[value.remaining()];
+    int pos = value.position();
+    value.get(bytes);
+    value.position(pos);
+    return bytes;
+  }
+
+  /**
+   * Returns the number formed by the digits in the given range, or -1 if there is any other character in it.
+   */
+  private static int parseDigits(String value, int start, int end) {
+    int result = 0;
+    for (int i = start; i < end; i++) {
+      char c = value.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      result = result * 10 + (c - '0');
+    }
+    return result;
+  }
+
+  /**
+   * Converts the non-null value of a field.
+   */
+  protected interface FieldConverter {
+    Object convert(Object value) throws IOException;
+  }
+
+  /**
+   * Conversion of a record schema into an output schema, by field position.
+   */
+  private final class CompiledRecord {
+    private final org.apache.avro.Schema avroSchema;
+    private final Schema schema;
+    private final String[] names;
+    private final int[] positions;
+    private final FieldConverter[] converters;
+
+    private CompiledRecord(org.apache.avro.Schema avroSchema, Schema schema) {
+      this.avroSchema = avroSchema;
+      this.schema = schema;
+      List<Schema.Field> fields = schema.getFields();
+      this.names = new String[fields.size()];
+      this.positions = new int[fields.size()];
+      this.converters = new FieldConverter[fields.size()];
+      for (int i = 0; i < fields.size(); i++) {
+        Schema.Field field = fields.get(i);
+        org.apache.avro.Schema.Field avroField = avroSchema.getField(field.getName());
+        names[i] = field.getName();
+        positions[i] = avroField == null ? -1 : avroField.pos();
+        converters[i] = compileField(field.getSchema());
+      }
+    }
+
+    private StructuredRecord transform(GenericRecord genericRecord) throws IOException {
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+      for (int i = 0; i < names.length; i++) {
+        Object value = positions[i] < 0 ? null : genericRecord.get(positions[i]);
+        try {
+          builder.set(names[i], value == null ? null : converters[i].convert(value));
+        } catch (ArithmeticException e) {
+          throw new IOException(String.format("Field '%s' has a value that is too large.", names[i]), e);
+        }
+      }
+      return builder.build();
+    }
+  }
 }
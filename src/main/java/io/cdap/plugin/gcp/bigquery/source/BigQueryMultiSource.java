@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.source;
+
+import com.google.auth.Credentials;
+import com.google.cloud.bigquery.BigQuery;
+import com.google.cloud.bigquery.DatasetId;
+import com.google.cloud.bigquery.Table;
+import com.google.cloud.bigquery.TableDefinition.Type;
+import com.google.cloud.bigquery.TableId;
+import com.google.cloud.hadoop.io.bigquery.BigQueryConfiguration;
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Metadata;
+import io.cdap.cdap.api.annotation.MetadataProperty;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.data.batch.Input;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.dataset.lib.KeyValue;
+import io.cdap.cdap.etl.api.Emitter;
+import io.cdap.cdap.etl.api.FailureCollector;
+import io.cdap.cdap.etl.api.PipelineConfigurer;
+import io.cdap.cdap.etl.api.batch.BatchRuntimeContext;
+import io.cdap.cdap.etl.api.batch.BatchSource;
+import io.cdap.cdap.etl.api.batch.BatchSourceContext;
+import io.cdap.cdap.etl.api.connector.Connector;
+import io.cdap.plugin.common.LineageRecorder;
+import io.cdap.plugin.gcp.bigquery.connector.BigQueryConnector;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryConstants;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryUtil;
+import io.cdap.plugin.gcp.common.GCPUtils;
+import org.apache.avro.generic.GenericData;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the tables of a BigQuery dataset whose names match a pattern, in a single stage.
+ */
+@Plugin(type = BatchSource.PLUGIN_TYPE)
+@Name(BigQueryMultiSource.NAME)
+@Description("Reads the tables of a BigQuery dataset whose names match a pattern. "
+  + "BigQuery is Google's serverless, highly scalable, enterprise data warehouse. "
+  + "All tables are read in parallel through the BigQuery Storage Read API, and every output record is tagged with "
+  + "the name of its table.")
+@Metadata(properties = {@MetadataProperty(key = Connector.PLUGIN_TYPE, value = BigQueryConnector.NAME)})
+public final class BigQueryMultiSource extends BatchSource<LongWritable, GenericData.Record, StructuredRecord> {
+  private static final Logger LOG = LoggerFactory.getLogger(BigQueryMultiSource.class);
+  public static final String NAME = "BigQueryMultiTable";
+  private BigQueryMultiSourceConfig config;
+  private final BigQueryAvroToStructuredTransformer transformer = new BigQueryAvroToStructuredTransformer();
+  // Output schema of every table, by the Avro schema its rows are read with.
+  private Map<org.apache.avro.Schema, Schema> outputSchemas;
+
+  @Override
+  public void configurePipeline(PipelineConfigurer configurer) {
+    super.configurePipeline(configurer);
+    FailureCollector collector = configurer.getStageConfigurer().getFailureCollector();
+    config.validate(collector);
+    // Every table has its own schema, which is carried by the records.
+    configurer.getStageConfigurer().setOutputSchema(null);
+  }
+
+  @Override
+  public void prepareRun(BatchSourceContext context) throws Exception {
+    FailureCollector collector = context.getFailureCollector();
+    config.validate(collector);
+    collector.getOrThrowException();
+
+    Credentials credentials = BigQuerySourceUtils.getCredentials(config.getConnection());
+    BigQuery bigQuery = GCPUtils.getBigQuery(config.getProject(), credentials);
+    DatasetId datasetId = DatasetId.of(config.getDatasetProject(), config.getDataset());
+    List<String> tableNames = getTableNames(bigQuery, datasetId, config.getTablePattern());
+    if (tableNames.isEmpty()) {
+      collector.addFailure(String.format("Dataset '%s' has no tables matching '%s'.", datasetId.getDataset(),
+                                         config.getTablePattern()), "Ensure the table pattern matches some tables.")
+        .withConfigProperty(BigQueryMultiSourceConfig.NAME_TABLE_PATTERN);
+      collector.getOrThrowException();
+    }
+    LOG.info("Reading {} tables of dataset '{}': {}", tableNames.size(), datasetId, tableNames);
+    for (String tableName : tableNames) {
+      emitLineage(context, bigQuery, TableId.of(datasetId.getProject(), datasetId.getDataset(), tableName));
+    }
+
+    Configuration configuration = BigQueryUtil.getBigQueryConfig(config.getServiceAccount(), config.getProject(),
+                                                                 null, config.getServiceAccountType());
+    BigQuerySourceUtils.configureServiceAccount(configuration, config.getConnection());
+    configuration.set(BigQueryConfiguration.INPUT_PROJECT_ID_KEY, datasetId.getProject());
+    configuration.set(BigQueryConfiguration.INPUT_DATASET_ID_KEY, datasetId.getDataset());
+    configuration.setStrings(BigQueryConstants.CONFIG_MULTI_SOURCE_TABLES, tableNames.toArray(new String[0]));
+    configuration.set(BigQueryConstants.CONFIG_MULTI_SOURCE_TABLE_NAME_FIELD, config.getTableNameField());
+    configuration.setInt(BigQueryConstants.CONFIG_STORAGE_READ_MAX_STREAMS, config.getMaxReadStreams());
+
+    context.setInput(Input.of(config.referenceName, new BigQueryMultiTableInputFormatProvider(configuration)));
+  }
+
+  @Override
+  public void initialize(BatchRuntimeContext context) throws Exception {
+    super.initialize(context);
+    outputSchemas = new HashMap<>();
+  }
+
+  @Override
+  public void transform(KeyValue<LongWritable, GenericData.Record> input, Emitter<StructuredRecord> emitter)
+    throws Exception {
+    GenericData.Record record = input.getValue();
+    Schema outputSchema = outputSchemas.get(record.getSchema());
+    if (outputSchema == null) {
+      // Name the record after its table, so that records of different tables have different schemas downstream.
+      Schema schema = Schema.parseJson(record.getSchema().toString());
+      outputSchema = Schema.recordOf(String.valueOf(record.get(config.getTableNameField())), schema.getFields());
+      outputSchemas.put(record.getSchema(), outputSchema);
+    }
+    emitter.emit(transformer.transform(record, outputSchema));
+  }
+
+  /**
+   * Records the read of a table under its own dataset name, the same way the multi table sink records its writes.
+   */
+  private void emitLineage(BatchSourceContext context, BigQuery bigQuery, TableId tableId) {
+    Table table = bigQuery.getTable(tableId);
+    com.google.cloud.bigquery.Schema bqSchema = table == null ? null : table.getDefinition().getSchema();
+    Schema schema = bqSchema == null ? null : BigQueryUtil.getTableSchema(bqSchema, null);
+    if (schema == null) {
+      return;
+    }
+    String datasetName = String.format("%s-%s", config.referenceName, tableId.getTable())
+      .replaceAll("[^\\p{Alpha}\\p{Digit}-]+", "_");
+    LineageRecorder lineageRecorder = new LineageRecorder(context, datasetName);
+    lineageRecorder.createExternalDataset(schema);
+    lineageRecorder.recordRead("Read", String.format("Read from BigQuery table '%s'.", tableId.getTable()),
+                               schema.getFields().stream().map(Schema.Field::getName).collect(Collectors.toList()));
+  }
+
+  private static List<String> getTableNames(BigQuery bigQuery, DatasetId datasetId, Pattern tablePattern) {
+    List<String> tableNames = new ArrayList<>();
+    for (Table table : bigQuery.listTables(datasetId).iterateAll()) {
+      // Views cannot be read through the Storage Read API.
+      if (Type.TABLE.equals(table.getDefinition().getType())
+        && tablePattern.matcher(table.getTableId().getTable()).matches()) {
+        tableNames.add(table.getTableId().getTable());
+      }
+    }
+    return tableNames;
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.source;
+
+import com.google.cloud.ServiceOptions;
+import com.google.common.base.Strings;
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.etl.api.FailureCollector;
+import io.cdap.plugin.common.ConfigUtil;
+import io.cdap.plugin.common.Constants;
+import io.cdap.plugin.common.IdUtils;
+import io.cdap.plugin.gcp.bigquery.common.BigQueryBaseConfig;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryUtil;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import javax.annotation.Nullable;
+
+/**
+ * Holds configuration required for configuring {@link BigQueryMultiSource}.
+ */
+public final class BigQueryMultiSourceConfig extends BigQueryBaseConfig {
+  public static final String NAME_TABLE_PATTERN = "tablePattern";
+  public static final String NAME_TABLE_NAME_FIELD = "tableNameField";
+  public static final String NAME_MAX_READ_STREAMS = "maxReadStreams";
+  private static final String TABLE_PATTERN_DEFAULT = ".*";
+  private static final String TABLE_NAME_FIELD_DEFAULT = "tablename";
+
+  @Name(Constants.Reference.REFERENCE_NAME)
+  @Description("This will be used to uniquely identify this source for lineage, annotating metadata, etc.")
+  public String referenceName;
+
+  @Name(NAME_TABLE_PATTERN)
+  @Macro
+  @Nullable
+  @Description("Regular expression the names of the tables to read must match. All tables of the dataset are read "
+    + "if it is not set. Views are never read.")
+  private String tablePattern;
+
+  @Name(NAME_TABLE_NAME_FIELD)
+  @Macro
+  @Nullable
+  @Description("Name of the field every output record stores the name of its table in. Defaults to 'tablename'.")
+  private String tableNameField;
+
+  @Name(NAME_MAX_READ_STREAMS)
+  @Macro
+  @Nullable
+  @Description("Maximum number of streams every table is read with. Every stream is read by a separate task. If it "
+    + "is not set, BigQuery picks the number of streams based on the size of each table.")
+  private Integer maxReadStreams;
+
+  private BigQueryMultiSourceConfig() {
+    // Instances are only created by the framework, which sets the fields from the plugin properties.
+    super(null, null, null, null);
+  }
+
+  public Pattern getTablePattern() {
+    return Pattern.compile(Strings.isNullOrEmpty(tablePattern) ? TABLE_PATTERN_DEFAULT : tablePattern);
+  }
+
+  public String getTableNameField() {
+    return Strings.isNullOrEmpty(tableNameField) ? TABLE_NAME_FIELD_DEFAULT : tableNameField;
+  }
+
+  /**
+   * @return the maximum number of read streams per table, 0 if BigQuery should decide
+   */
+  public int getMaxReadStreams() {
+    return maxReadStreams == null ? 0 : maxReadStreams;
+  }
+
+  public String getDatasetProject() {
+    if (connection == null) {
+      return ServiceOptions.getDefaultProjectId();
+    }
+    return connection.getDatasetProject();
+  }
+
+  public void validate(FailureCollector collector) {
+    IdUtils.validateReferenceName(referenceName, collector);
+    ConfigUtil.validateConnection(this, useConnection, connection, collector);
+
+    if (!containsMacro(NAME_DATASET)) {
+      BigQueryUtil.validateDataset(dataset, NAME_DATASET, collector);
+    }
+    if (!containsMacro(NAME_TABLE_PATTERN) && !Strings.isNullOrEmpty(tablePattern)) {
+      try {
+        Pattern.compile(tablePattern);
+      } catch (PatternSyntaxException e) {
+        collector.addFailure(String.format("Invalid table pattern '%s': %s", tablePattern, e.getDescription()),
+                             "Ensure the table pattern is a valid regular expression.")
+          .withConfigProperty(NAME_TABLE_PATTERN);
+      }
+    }
+    if (!containsMacro(NAME_MAX_READ_STREAMS) && maxReadStreams != null && maxReadStreams < 0) {
+      collector.addFailure("Maximum read streams must not be negative.", "Set it to 0 or a positive number.")
+        .withConfigProperty(NAME_MAX_READ_STREAMS);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.source;
+
+import com.google.cloud.bigquery.storage.v1.BigQueryReadClient;
+import com.google.cloud.bigquery.storage.v1.ReadSession;
+import com.google.cloud.bigquery.storage.v1.ReadStream;
+import com.google.cloud.hadoop.io.bigquery.BigQueryConfiguration;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryConstants;
+import org.apache.avro.generic.GenericData;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * BigQuery input format which reads several tables of a dataset through the BigQuery Storage Read API.
+ *
+ * The read sessions of all tables are created up front with a single client, a few at a time, and the streams of all
+ * sessions become the input splits of the job. The tables are therefore read by the same pool of tasks, rather than
+ * one table after the other.
+ */
+public class BigQueryMultiTableInputFormat extends InputFormat<LongWritable, GenericData.Record> {
+  private static final Logger LOG = LoggerFactory.getLogger(BigQueryMultiTableInputFormat.class);
+  // Maximum number of read sessions created concurrently.
+  private static final int MAX_CONCURRENT_SESSIONS = 16;
+
+  @Override
+  public List<InputSplit> getSplits(JobContext context) throws IOException {
+    Configuration conf = context.getConfiguration();
+    String projectId = conf.get(BigQueryConfiguration.PROJECT_ID_KEY);
+    String datasetProjectId = conf.get(BigQueryConfiguration.INPUT_PROJECT_ID_KEY);
+    String datasetId = conf.get(BigQueryConfiguration.INPUT_DATASET_ID_KEY);
+    String[] tableNames = conf.getStrings(BigQueryConstants.CONFIG_MULTI_SOURCE_TABLES, new String[0]);
+
+    List<InputSplit> splits = new ArrayList<>();
+    if (tableNames.length == 0) {
+      return splits;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(tableNames.length, MAX_CONCURRENT_SESSIONS));
+    try (BigQueryReadClient client = BigQueryStorageReadInputFormat.createReadClient(conf)) {
+      List<Future<ReadSession>> sessions = new ArrayList<>(tableNames.length);
+      for (String tableName : tableNames) {
+        sessions.add(executor.submit(() -> BigQueryStorageReadInputFormat.createReadSession(
+          client, conf, projectId, datasetProjectId, datasetId, tableName, null)));
+      }
+      for (int i = 0; i < tableNames.length; i++) {
+        ReadSession session = sessions.get(i).get();
+        String avroSchema = session.getAvroSchema().getSchema();
+        for (ReadStream stream : session.getStreamsList()) {
+          splits.add(new BigQueryMultiTableSplit(tableNames[i], stream.getName(), avroSchema));
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while creating read sessions.", e);
+    } catch (ExecutionException e) {
+      throw new IOException(String.format("Failed to create read sessions for dataset '%s.%s': %s",
+                                          datasetProjectId, datasetId, e.getCause().getMessage()), e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    LOG.info("Created {} splits for {} tables of dataset '{}.{}'.", splits.size(), tableNames.length,
+             datasetProjectId, datasetId);
+    return splits;
+  }
+
+  @Override
+  public RecordReader<LongWritable, GenericData.Record> createRecordReader(InputSplit split,
+                                                                           TaskAttemptContext context) {
+    return new BigQueryMultiTableRecordReader(
+      context.getConfiguration().get(BigQueryConstants.CONFIG_MULTI_SOURCE_TABLE_NAME_FIELD));
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.source;
+
+import org.apache.avro.Schema;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the rows of a stream of one of the tables read by the {@link BigQueryMultiSource}, and tags every row with
+ * the name of its table.
+ */
+public class BigQueryMultiTableRecordReader extends BigQueryStorageReadRecordReader {
+  private final String tableNameField;
+
+  public BigQueryMultiTableRecordReader(String tableNameField) {
+    this.tableNameField = tableNameField;
+  }
+
+  @Override
+  protected Schema getReaderSchema(BigQueryStorageReadSplit split, Schema streamSchema) {
+    return addTableNameField(streamSchema, tableNameField, ((BigQueryMultiTableSplit) split).getTableName());
+  }
+
+  /**
+   * Adds a field to a record schema whose default value is the table name. Decoding rows of the original schema with
+   * the returned schema sets the field of every row to the table name without copying the rows.
+   */
+  static Schema addTableNameField(Schema schema, String tableNameField, String tableName) {
+    if (schema.getField(tableNameField) != null) {
+      throw new IllegalArgumentException(
+        String.format("Table '%s' already has a field named '%s'. Use a different table name field.",
+                      tableName, tableNameField));
+    }
+    List<Schema.Field> fields = new ArrayList<>();
+    for (Schema.Field field : schema.getFields()) {
+      fields.add(new Schema.Field(field.name(), field.schema(), field.doc(), field.defaultVal()));
+    }
+    fields.add(new Schema.Field(tableNameField, Schema.create(Schema.Type.STRING), null, tableName));
+    return Schema.createRecord(schema.getName(), schema.getDoc(), schema.getNamespace(), false, fields);
+  }
+}
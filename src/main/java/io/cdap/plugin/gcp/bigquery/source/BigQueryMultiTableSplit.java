@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.source;
+
+import org.apache.hadoop.io.Text;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Input split for a single stream of one of the tables read by the {@link BigQueryMultiSource}.
+ */
+public class BigQueryMultiTableSplit extends BigQueryStorageReadSplit {
+  private String tableName;
+
+  /**
+   * Constructor used when the split is deserialized.
+   */
+  public BigQueryMultiTableSplit() {
+    // no-op
+  }
+
+  /**
+   * @param tableName name of the table the stream reads
+   * @param streamName fully qualified name of the read stream
+   * @param avroSchema Avro schema of the rows in the stream, as returned by the read session
+   */
+  public BigQueryMultiTableSplit(String tableName, String streamName, String avroSchema) {
+    super(streamName, avroSchema);
+    this.tableName = tableName;
+  }
+
+  public String getTableName() {
+    return tableName;
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    super.write(out);
+    Text.writeString(out, tableName);
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    super.readFields(in);
+    tableName = Text.readString(in);
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.source;
+
+import com.google.cloud.bigquery.BigQuery;
+import com.google.cloud.bigquery.FieldValueList;
+import com.google.cloud.bigquery.LegacySQLTypeName;
+import com.google.cloud.bigquery.QueryJobConfiguration;
+import com.google.cloud.bigquery.QueryParameterValue;
+import com.google.cloud.bigquery.StandardTableDefinition;
+import com.google.cloud.bigquery.TableId;
+import com.google.cloud.bigquery.TimePartitioning;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * Plans the reads of a time-partitioned table partition by partition.
+ *
+ * Partitions are listed with their last modified time from the INFORMATION_SCHEMA.PARTITIONS view of the dataset,
+ * which lets a run skip the partitions outside of the partition range, or not modified since the previous run.
+ * The selected partitions are read in groups, each group with its own read session restricted to its partitions.
+ *
+ * Rows with a NULL partition column, and rows of ingestion time partitioned tables still in the streaming buffer, are
+ * in the __NULL__ and __UNPARTITIONED__ pseudo partitions. These are only selected when no partition range is set,
+ * as their rows are outside of every range.
+ */
+public final class BigQueryPartitionPlanner {
+  private static final String LIST_PARTITIONS_QUERY =
+    "SELECT partition_id, last_modified_time FROM `%s.%s.INFORMATION_SCHEMA.PARTITIONS` WHERE table_name = @table";
+  private static final DateTimeFormatter LITERAL_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+  private static final String DEFAULT_COLUMN_NAME = "_PARTITIONTIME";
+  private static final String NULL_PARTITION_ID = "__NULL__";
+  private static final String UNPARTITIONED_PARTITION_ID = "__UNPARTITIONED__";
+
+  private BigQueryPartitionPlanner() {
+    // no-op
+  }
+
+  /**
+   * Lists the time partitions of a table, pseudo partitions first.
+   *
+   * Rows of column partitioned tables still in the streaming buffer cannot be told apart by a condition, so the
+   * __UNPARTITIONED__ pseudo partition of these tables is left out. Its rows are read with the partition of their
+   * column value once they are written into it.
+   */
+  public static List<Partition> listPartitions(BigQuery bigQuery, TableId tableId,
+                                               TimePartitioning timePartitioning) throws InterruptedException {
+    QueryJobConfiguration query = QueryJobConfiguration
+      .newBuilder(String.format(LIST_PARTITIONS_QUERY, tableId.getProject(), tableId.getDataset()))
+      .addNamedParameter("table", QueryParameterValue.string(tableId.getTable()))
+      .build();
+    List<Partition> partitions = new ArrayList<>();
+    for (FieldValueList row : bigQuery.query(query).iterateAll()) {
+      String partitionId = row.get("partition_id").getStringValue();
+      if (partitionId == null
+        || (UNPARTITIONED_PARTITION_ID.equals(partitionId) && timePartitioning.getField() != null)) {
+        continue;
+      }
+      partitions.add(new Partition(partitionId, timePartitioning.getType(),
+                                   row.get("last_modified_time").getTimestampValue()));
+    }
+    partitions.sort(Comparator.comparing(Partition::getStart,
+                                         Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder())));
+    return partitions;
+  }
+
+  /**
+   * Selects the partitions which overlap the partition range and were modified after the watermark. Pseudo partitions
+   * are only selected when no range is set.
+   *
+   * @param partitions partitions of the table
+   * @param partitionFromDate inclusive start of the range, if any
+   * @param partitionToDate exclusive end of the range, if any
+   * @param watermark last modified time in microseconds up to which partitions were read already, if any
+   */
+  public static List<Partition> selectPartitions(List<Partition> partitions, @Nullable String partitionFromDate,
+                                                 @Nullable String partitionToDate, @Nullable Long watermark) {
+    LocalDateTime from = partitionFromDate == null ? null : LocalDate.parse(partitionFromDate).atStartOfDay();
+    LocalDateTime to = partitionToDate == null ? null : LocalDate.parse(partitionToDate).atStartOfDay();
+    return partitions.stream()
+      .filter(partition -> !partition.isPseudoPartition() || (from == null && to == null))
+      .filter(partition -> from == null || partition.isPseudoPartition() || partition.getEnd().isAfter(from))
+      .filter(partition -> to == null || partition.isPseudoPartition() || partition.getStart().isBefore(to))
+      .filter(partition -> watermark == null || partition.getLastModifiedTime() > watermark)
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Splits the partitions into at most the given number of groups of consecutive partitions.
+   */
+  public static List<List<String>> groupPartitions(List<String> partitionIds, int maxGroups) {
+    int groupSize = (partitionIds.size() + maxGroups - 1) / maxGroups;
+    List<List<String>> groups = new ArrayList<>();
+    for (int start = 0; start < partitionIds.size(); start += groupSize) {
+      groups.add(partitionIds.subList(start, Math.min(start + groupSize, partitionIds.size())));
+    }
+    return groups;
+  }
+
+  /**
+   * Generates the condition which selects the rows of the given partitions. The rows of both pseudo partitions have a
+   * NULL partition column.
+   */
+  public static String generatePartitionCondition(StandardTableDefinition tableDefinition,
+                                                  List<String> partitionIds) {
+    TimePartitioning timePartitioning = tableDefinition.getTimePartitioning();
+    String columnName = getPartitionColumn(timePartitioning);
+    String literalType = getPartitionLiteralType(tableDefinition);
+
+    List<String> conditions = new ArrayList<>(partitionIds.size());
+    for (String partitionId : partitionIds) {
+      Partition partition = new Partition(partitionId, timePartitioning.getType(), 0L);
+      if (partition.isPseudoPartition()) {
+        conditions.add(String.format("(%s is null)", columnName));
+        continue;
+      }
+      conditions.add(String.format("(%s >= %s and %s < %s)",
+                                   columnName, toLiteral(literalType, partition.getStart()),
+                                   columnName, toLiteral(literalType, partition.getEnd())));
+    }
+    return String.join(" or ", conditions);
+  }
+
+  /**
+   * Returns the column a table is partitioned by, quoted, or the pseudo column of ingestion time partitioned tables.
+   */
+  static String getPartitionColumn(TimePartitioning timePartitioning) {
+    return timePartitioning.getField() == null ? DEFAULT_COLUMN_NAME : "`" + timePartitioning.getField() + "`";
+  }
+
+  /**
+   * Returns the type of the literals the partition column of a table compares with, so that BigQuery can prune
+   * partitions.
+   */
+  static String getPartitionLiteralType(StandardTableDefinition tableDefinition) {
+    String field = tableDefinition.getTimePartitioning().getField();
+    if (field != null) {
+      LegacySQLTypeName columnType = tableDefinition.getSchema().getFields().get(field).getType();
+      if (LegacySQLTypeName.DATE.equals(columnType)) {
+        return "DATE";
+      } else if (LegacySQLTypeName.DATETIME.equals(columnType)) {
+        return "DATETIME";
+      }
+    }
+    return "TIMESTAMP";
+  }
+
+  private static String toLiteral(String literalType, LocalDateTime dateTime) {
+    String value = "DATE".equals(literalType) ? dateTime.toLocalDate().toString() : LITERAL_FORMAT.format(dateTime);
+    return String.format("%s(\"%s\")", literalType, value);
+  }
+
+  /**
+   * A time partition of a table, or one of its pseudo partitions, which have no bounds.
+   */
+  public static final class Partition {
+    private final String id;
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    private final long lastModifiedTime;
+
+    /**
+     * @param id partition id, in the format of the partitioning type, for example yyyyMMdd for daily partitions,
+     *           or the id of a pseudo partition
+     * @param partitioningType time partitioning type of the table
+     * @param lastModifiedTime last modified time of the partition, in microseconds
+     */
+    Partition(String id, TimePartitioning.Type partitioningType, long lastModifiedTime) {
+      this.id = id;
+      this.lastModifiedTime = lastModifiedTime;
+      if (NULL_PARTITION_ID.equals(id) || UNPARTITIONED_PARTITION_ID.equals(id)) {
+        start = null;
+        end = null;
+        return;
+      }
+      int year = Integer.parseInt(id.substring(0, 4));
+      switch (partitioningType) {
+        case YEAR:
+          start = LocalDate.of(year, 1, 1).atStartOfDay();
+          end = start.plusYears(1);
+          break;
+        case MONTH:
+          start = LocalDate.of(year, Integer.parseInt(id.substring(4, 6)), 1).atStartOfDay();
+          end = start.plusMonths(1);
+          break;
+        case HOUR:
+          start = LocalDate.of(year, Integer.parseInt(id.substring(4, 6)), Integer.parseInt(id.substring(6, 8)))
+            .atTime(Integer.parseInt(id.substring(8, 10)), 0);
+          end = start.plusHours(1);
+          break;
+        default:
+          start = LocalDate.of(year, Integer.parseInt(id.substring(4, 6)), Integer.parseInt(id.substring(6, 8)))
+            .atStartOfDay();
+          end = start.plusDays(1);
+      }
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public boolean isPseudoPartition() {
+      return start == null;
+    }
+
+    @Nullable
+    public LocalDateTime getStart() {
+      return start;
+    }
+
+    @Nullable
+    public LocalDateTime getEnd() {
+      return end;
+    }
+
+    public long getLastModifiedTime() {
+      return lastModifiedTime;
+    }
+  }
+}
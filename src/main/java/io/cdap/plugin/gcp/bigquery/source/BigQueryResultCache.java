@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.source;
+
+import com.google.api.services.bigquery.model.Job;
+import com.google.api.services.bigquery.model.JobConfiguration;
+import com.google.api.services.bigquery.model.JobConfigurationQuery;
+import com.google.api.services.bigquery.model.JobReference;
+import com.google.api.services.bigquery.model.JobStatistics2;
+import com.google.api.services.bigquery.model.Table;
+import com.google.api.services.bigquery.model.TableReference;
+import com.google.cloud.hadoop.io.bigquery.BigQueryHelper;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * Keys the tables materialized by the BigQuery source, so that runs which issue the same query against unchanged
+ * sources can reuse the table of an earlier run instead of running the query again.
+ *
+ * The key is a hash of the query, the partition range and the last modified time of the source and of every table
+ * the query reads, as reported by a dry run. Any change to the data or to a view definition therefore results in a new
+ * key. Queries with non-deterministic functions, views whose definition calls one, and tables with rows in the
+ * streaming buffer, are never cached.
+ */
+public final class BigQueryResultCache {
+  private static final Logger LOG = LoggerFactory.getLogger(BigQueryResultCache.class);
+  // The current date and time functions can be called without parentheses, the other functions can not.
+  private static final Pattern NON_DETERMINISTIC_FUNCTION = Pattern.compile(
+    "\\b(CURRENT_DATE|CURRENT_DATETIME|CURRENT_TIME|CURRENT_TIMESTAMP)\\b" +
+      "|\\b(NOW|RAND|GENERATE_UUID|SESSION_USER)\\s*\\(",
+    Pattern.CASE_INSENSITIVE);
+
+  private BigQueryResultCache() {
+    // no-op
+  }
+
+  /**
+   * Returns the key of the query results, or null if the results cannot be cached.
+   *
+   * @param bigQueryHelper helper used to dry run the query and look up the tables it reads
+   * @param projectId project the dry run is issued in
+   * @param location location of the source
+   * @param source the table or view the source reads
+   * @param query query which materializes the source
+   * @param partitionFromDate start of the partition range, if any
+   * @param partitionToDate end of the partition range, if any
+   */
+  @Nullable
+  public static String getKey(BigQueryHelper bigQueryHelper, String projectId, @Nullable String location,
+                              TableReference source, String query, @Nullable String partitionFromDate,
+                              @Nullable String partitionToDate) throws IOException {
+    if (!isDeterministic(query)) {
+      LOG.debug("Not caching the results of query '{}' because it is not deterministic.", query);
+      return null;
+    }
+
+    SortedMap<String, BigInteger> lastModifiedTimes = new TreeMap<>();
+    if (!addLastModifiedTime(bigQueryHelper, source, lastModifiedTimes)) {
+      return null;
+    }
+    Job dryRun = new Job()
+      .setJobReference(new JobReference().setProjectId(projectId).setLocation(location))
+      .setConfiguration(new JobConfiguration()
+                          .setDryRun(true)
+                          .setQuery(new JobConfigurationQuery().setQuery(query).setUseLegacySql(false)));
+    JobStatistics2 statistics = bigQueryHelper.getRawBigquery().jobs().insert(projectId, dryRun).execute()
+      .getStatistics().getQuery();
+    if (statistics.getReferencedTables() != null) {
+      for (TableReference table : statistics.getReferencedTables()) {
+        if (!addLastModifiedTime(bigQueryHelper, table, lastModifiedTimes)) {
+          return null;
+        }
+      }
+    }
+    return generateKey(query, partitionFromDate, partitionToDate, lastModifiedTimes);
+  }
+
+  /**
+   * Returns the name of the table the results with the given key are cached in.
+   */
+  public static String getTableName(String sourceTable, String key) {
+    return String.format("_%s_cache_%s", sourceTable, key);
+  }
+
+  static String generateKey(String query, @Nullable String partitionFromDate, @Nullable String partitionToDate,
+                            SortedMap<String, BigInteger> lastModifiedTimes) {
+    Hasher hasher = Hashing.sha256().newHasher()
+      .putString(query, StandardCharsets.UTF_8).putChar('\n')
+      .putString(String.valueOf(partitionFromDate), StandardCharsets.UTF_8).putChar('\n')
+      .putString(String.valueOf(partitionToDate), StandardCharsets.UTF_8).putChar('\n');
+    for (Map.Entry<String, BigInteger> entry : lastModifiedTimes.entrySet()) {
+      hasher.putString(entry.getKey(), StandardCharsets.UTF_8).putChar('@')
+        .putString(entry.getValue().toString(), StandardCharsets.UTF_8).putChar('\n');
+    }
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Returns true if the query does not call any non-deterministic function.
+   */
+  public static boolean isDeterministic(String query) {
+    return !NON_DETERMINISTIC_FUNCTION.matcher(query).find();
+  }
+
+  private static boolean addLastModifiedTime(BigQueryHelper bigQueryHelper, TableReference tableReference,
+                                             Map<String, BigInteger> lastModifiedTimes) throws IOException {
+    Table table = bigQueryHelper.getTable(tableReference);
+    String tableName = String.format("%s.%s.%s", tableReference.getProjectId(), tableReference.getDatasetId(),
+                                     tableReference.getTableId());
+    // The query only names a view, the functions it calls are in the definition of the view.
+    String definition = getDefinition(table);
+    if (definition != null && !isDeterministic(definition)) {
+      LOG.debug("Not caching query results because the definition of view '{}' is not deterministic.", tableName);
+      return false;
+    }
+    // Rows in the streaming buffer do not change the last modified time of a table.
+    if (table.getStreamingBuffer() != null || table.getLastModifiedTime() == null) {
+      LOG.debug("Not caching query results because table '{}' has rows in its streaming buffer.", tableName);
+      return false;
+    }
+    lastModifiedTimes.put(tableName, table.getLastModifiedTime());
+    return true;
+  }
+
+  /**
+   * Returns the query of a view or materialized view, or null if the table is not a view.
+   */
+  @Nullable
+  private static String getDefinition(Table table) {
+    if (table.getView() != null) {
+      return table.getView().getQuery();
+    }
+    if (table.getMaterializedView() != null) {
+      return table.getMaterializedView().getQuery();
+    }
+    return null;
+  }
+}
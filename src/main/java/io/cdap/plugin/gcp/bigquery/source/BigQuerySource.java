@@ -25,6 +25,7 @@ import com.google.cloud.bigquery.FieldList;
 import com.google.cloud.bigquery.StandardTableDefinition;
 import com.google.cloud.bigquery.Table;
 import com.google.cloud.bigquery.TableDefinition.Type;
+import com.google.cloud.bigquery.TableId;
 import com.google.cloud.bigquery.TimePartitioning;
 import com.google.cloud.kms.v1.CryptoKeyName;
 import com.google.cloud.storage.Storage;
@@ -59,8 +60,10 @@ import org.apache.hadoop.io.LongWritable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.time.DateTimeException;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -83,6 +86,12 @@ public final class BigQuerySource extends BatchSource<LongWritable, GenericData.
   private final BigQueryAvroToStructuredTransformer transformer = new BigQueryAvroToStructuredTransformer();
   // UUID for the run. Will be used as bucket name if bucket is not provided.
   private String bucketPath;
+  // Whether the table is read through the Storage Read API, in which case nothing is staged in GCS.
+  private boolean useStorageReadApi;
+  // Watermark to save once the run succeeds, if the source reads partitions incrementally.
+  private Long partitionWatermark;
+  // High-water mark of the watermark column to save once the run succeeds, if the source reads incrementally.
+  private String columnWatermark;
 
   @Override
   public void configurePipeline(PipelineConfigurer configurer) {
@@ -129,9 +138,6 @@ public final class BigQuerySource extends BatchSource<LongWritable, GenericData.
     // Create BigQuery client
     String serviceAccount = config.getServiceAccount();
     Credentials credentials = BigQuerySourceUtils.getCredentials(config.getConnection());
-    BigQuery bigQuery = GCPUtils.getBigQuery(config.getProject(), credentials);
-    Dataset dataset = bigQuery.getDataset(DatasetId.of(config.getDatasetProject(), config.getDataset()));
-    Storage storage = GCPUtils.getStorage(config.getProject(), credentials);
 
     // Get Configuration for this run
     bucketPath = UUID.randomUUID().toString();
@@ -140,30 +146,50 @@ public final class BigQuerySource extends BatchSource<LongWritable, GenericData.
     configuration = BigQueryUtil.getBigQueryConfig(serviceAccount, config.getProject(), cmekKeyName,
                                                    config.getServiceAccountType());
 
-    // Configure GCS Bucket to use
-    String bucket = BigQuerySourceUtils.getOrCreateBucket(configuration,
-                                                          storage,
-                                                          config.getBucket(),
-                                                          dataset,
-                                                          bucketPath,
-                                                          cmekKeyName);
-
     // Configure Service account credentials
     BigQuerySourceUtils.configureServiceAccount(configuration, config.getConnection());
 
     // Configure BQ Source
     configureBigQuerySource();
+    configureWatermarkColumn(collector, credentials);
+    // Only read the columns of the configured schema, if one was given.
+    Schema schema = config.getSchema(collector);
+    if (schema != null && schema.getFields() != null) {
+      configuration.setStrings(BigQueryConstants.CONFIG_SELECTED_FIELDS,
+                               schema.getFields().stream().map(Schema.Field::getName).toArray(String[]::new));
+    }
 
-    // Configure BigQuery input format.
-    String temporaryGcsPath = BigQuerySourceUtils.getTemporaryGcsPath(bucket, bucketPath, bucketPath);
-    BigQuerySourceUtils.configureBigQueryInput(configuration,
-                                               DatasetId.of(config.getDatasetProject(), config.getDataset()),
-                                               config.getTable(),
-                                               temporaryGcsPath);
+    // Views cannot be read through the Storage Read API, they are always materialized and exported.
+    Type sourceTableType = config.getSourceTableType();
+    useStorageReadApi = config.isUseStorageReadApi() && sourceTableType == Type.TABLE;
+    DatasetId datasetId = DatasetId.of(config.getDatasetProject(), config.getDataset());
+    if (useStorageReadApi) {
+      BigQuerySourceUtils.configureStorageReadInput(configuration, datasetId, config.getTable(),
+                                                    config.getMaxReadStreams());
+      planPartitions(credentials);
+    } else {
+      BigQuery bigQuery = GCPUtils.getBigQuery(config.getProject(), credentials);
+      Dataset dataset = bigQuery.getDataset(datasetId);
+      Storage storage = GCPUtils.getStorage(config.getProject(), credentials);
+
+      // Configure GCS Bucket to use
+      String bucket = BigQuerySourceUtils.getOrCreateBucket(configuration,
+                                                            storage,
+                                                            config.getBucket(),
+                                                            dataset,
+                                                            bucketPath,
+                                                            cmekKeyName);
+
+      // Configure BigQuery input format.
+      String temporaryGcsPath = BigQuerySourceUtils.getTemporaryGcsPath(bucket, bucketPath, bucketPath);
+      BigQuerySourceUtils.configureBigQueryInput(configuration,
+                                                 datasetId,
+                                                 config.getTable(),
+                                                 temporaryGcsPath);
+    }
 
     // Both emitLineage and setOutputFormat internally try to create an external dataset if it does not already exists.
     // We call emitLineage before since it creates the dataset with schema.
-    Type sourceTableType = config.getSourceTableType();
     emitLineage(context, configuredSchema, sourceTableType, config.getTable());
     setInputFormat(context);
   }
@@ -191,10 +217,103 @@ public final class BigQuerySource extends BatchSource<LongWritable, GenericData.
 
   @Override
   public void onRunFinish(boolean succeeded, BatchSourceContext context) {
+    if (succeeded && partitionWatermark != null) {
+      BigQuerySourceUtils.writeWatermark(configuration, config.getPartitionWatermarkPath(),
+                                         Long.toString(partitionWatermark));
+    }
+    if (succeeded && columnWatermark != null) {
+      BigQuerySourceUtils.writeWatermark(configuration, config.getWatermarkPath(), columnWatermark);
+    }
+    if (useStorageReadApi) {
+      return;
+    }
     BigQuerySourceUtils.deleteGcsTemporaryDirectory(configuration, config.getBucket(), bucketPath);
     BigQuerySourceUtils.deleteBigQueryTemporaryTable(configuration, config);
   }
 
+  /**
+   * Plans the partitions of a time-partitioned table to read, if the source reads a partition range or reads
+   * incrementally. The partitions are listed from metadata, so no query has to materialize the range.
+   */
+  private void planPartitions(@Nullable Credentials credentials) throws IOException, InterruptedException {
+    String watermarkPath = config.getPartitionWatermarkPath();
+    if (config.getPartitionFrom() == null && config.getPartitionTo() == null && watermarkPath == null) {
+      return;
+    }
+    BigQuery bigQuery = GCPUtils.getBigQuery(config.getProject(), credentials);
+    TableId tableId = TableId.of(config.getDatasetProject(), config.getDataset(), config.getTable());
+    Table table = bigQuery.getTable(tableId);
+    if (table == null || !(table.getDefinition() instanceof StandardTableDefinition)) {
+      return;
+    }
+    TimePartitioning timePartitioning = ((StandardTableDefinition) table.getDefinition()).getTimePartitioning();
+    if (timePartitioning == null) {
+      return;
+    }
+
+    String savedWatermark = watermarkPath == null ? null : BigQuerySourceUtils.readWatermark(configuration,
+                                                                                             watermarkPath);
+    Long watermark = savedWatermark == null ? null : Long.parseLong(savedWatermark);
+    List<BigQueryPartitionPlanner.Partition> partitions =
+      BigQueryPartitionPlanner.listPartitions(bigQuery, tableId, timePartitioning);
+    List<String> partitionIds = BigQueryPartitionPlanner
+      .selectPartitions(partitions, config.getPartitionFrom(), config.getPartitionTo(), watermark).stream()
+      .map(BigQueryPartitionPlanner.Partition::getId)
+      .collect(Collectors.toList());
+    configuration.set(BigQueryConstants.CONFIG_READ_PARTITIONS, String.join(",", partitionIds));
+    LOG.info("Reading {} of the {} partitions of table '{}'.", partitionIds.size(), partitions.size(), tableId);
+
+    if (watermarkPath != null) {
+      // Only partitions of the range advance the watermark, partitions modified while the run reads them are read
+      // again by the next run.
+      partitionWatermark = BigQueryPartitionPlanner
+        .selectPartitions(partitions, config.getPartitionFrom(), config.getPartitionTo(), null).stream()
+        .mapToLong(BigQueryPartitionPlanner.Partition::getLastModifiedTime)
+        .max()
+        .orElse(watermark == null ? 0L : watermark);
+    }
+  }
+
+  /**
+   * Restricts the read to the rows added since the previous run, if the source reads incrementally by a watermark
+   * column. The condition is added to the filter, so that it applies to every way the source reads.
+   */
+  private void configureWatermarkColumn(FailureCollector collector, @Nullable Credentials credentials)
+    throws IOException, InterruptedException {
+    String column = config.getWatermarkColumn();
+    if (column == null) {
+      return;
+    }
+    Field field = getBQSchema(collector).getFields().stream()
+      .filter(f -> f.getName().equals(column))
+      .findFirst()
+      .orElse(null);
+    if (field == null || !BigQueryWatermarkColumn.SUPPORTED_TYPES.contains(field.getType())) {
+      collector.addFailure(String.format("Watermark column '%s' must be an INTEGER or TIMESTAMP column of the table.",
+                                         column), null)
+        .withConfigProperty(BigQuerySourceConfig.NAME_WATERMARK_COLUMN);
+      collector.getOrThrowException();
+    }
+
+    BigQuery bigQuery = GCPUtils.getBigQuery(config.getProject(), credentials);
+    TableId tableId = TableId.of(config.getDatasetProject(), config.getDataset(), config.getTable());
+    String lastWatermark = BigQuerySourceUtils.readWatermark(configuration, config.getWatermarkPath());
+    String filter = config.getFilter();
+    // Bound the query for the maximum by the partition range, so that it does not scan the whole column.
+    Table table = bigQuery.getTable(tableId);
+    String maxValueCondition = table != null && table.getDefinition() instanceof StandardTableDefinition ?
+      PartitionedBigQueryInputFormat.generateCondition((StandardTableDefinition) table.getDefinition(),
+                                                       config.getPartitionFrom(), config.getPartitionTo(), filter) :
+      filter;
+    String maxValue = BigQueryWatermarkColumn.getMaxValue(bigQuery, tableId, column, field.getType(), lastWatermark,
+                                                          maxValueCondition);
+    String condition = BigQueryWatermarkColumn.generateCondition(column, field.getType(), lastWatermark, maxValue);
+    configuration.set(BigQueryConstants.CONFIG_FILTER,
+                      filter == null ? condition : String.format("(%s) and (%s)", filter, condition));
+    LOG.info("Reading the rows of '{}' with '{}' after '{}' up to '{}'.", tableId, column, lastWatermark, maxValue);
+    columnWatermark = maxValue == null ? lastWatermark : maxValue;
+  }
+
   private void configureBigQuerySource() {
     if (config.getPartitionFrom() != null) {
       configuration.set(BigQueryConstants.CONFIG_PARTITION_FROM_DATE, config.getPartitionFrom());
@@ -205,6 +324,7 @@ public final class BigQuerySource extends BatchSource<LongWritable, GenericData.
     if (config.getFilter() != null) {
       configuration.set(BigQueryConstants.CONFIG_FILTER, config.getFilter());
     }
+    configuration.setBoolean(BigQueryConstants.CONFIG_RESULT_CACHE_ENABLED, config.isEnableResultCache());
     if (config.getViewMaterializationProject() != null) {
       configuration.set(BigQueryConstants.CONFIG_VIEW_MATERIALIZATION_PROJECT, config.getViewMaterializationProject());
     }
@@ -336,7 +456,9 @@ public final class BigQuerySource extends BatchSource<LongWritable, GenericData.
   }
 
   private void setInputFormat(BatchSourceContext context) {
-    context.setInput(Input.of(config.referenceName, new BigQueryInputFormatProvider(configuration)));
+    BigQueryInputFormatProvider inputFormatProvider = useStorageReadApi ?
+      new BigQueryStorageReadInputFormatProvider(configuration) : new BigQueryInputFormatProvider(configuration);
+    context.setInput(Input.of(config.referenceName, inputFormatProvider));
   }
 
   private void emitLineage(BatchSourceContext context, Schema schema, Type sourceTableType,
@@ -66,6 +66,12 @@ public final class BigQuerySourceConfig extends BigQueryBaseConfig {
   public static final String NAME_ENABLE_QUERYING_VIEWS = "enableQueryingViews";
   public static final String NAME_VIEW_MATERIALIZATION_PROJECT = "viewMaterializationProject";
   public static final String NAME_VIEW_MATERIALIZATION_DATASET = "viewMaterializationDataset";
+  public static final String NAME_USE_STORAGE_READ_API = "useStorageReadApi";
+  public static final String NAME_ENABLE_RESULT_CACHE = "enableResultCache";
+  public static final String NAME_MAX_READ_STREAMS = "maxReadStreams";
+  public static final String NAME_PARTITION_WATERMARK_PATH = "partitionWatermarkPath";
+  public static final String NAME_WATERMARK_COLUMN = "watermarkColumn";
+  public static final String NAME_WATERMARK_PATH = "watermarkPath";
 
   @Name(Constants.Reference.REFERENCE_NAME)
   @Description("This will be used to uniquely identify this source for lineage, annotating metadata, etc.")
@@ -127,6 +133,49 @@ public final class BigQuerySourceConfig extends BigQueryBaseConfig {
     + "Defaults to the same dataset in which the view is located.")
   private String viewMaterializationDataset;
 
+  @Name(NAME_ENABLE_RESULT_CACHE)
+  @Macro
+  @Nullable
+  @Description("Whether to reuse the tables materialized for views and filtered reads by earlier runs, as long as "
+    + "the query and the data it reads have not changed.")
+  private String enableResultCache;
+
+  @Name(NAME_USE_STORAGE_READ_API)
+  @Macro
+  @Nullable
+  @Description("Whether to read tables through the BigQuery Storage Read API instead of exporting them to a "
+    + "temporary location on Google Cloud Storage. Views are always exported.")
+  private String useStorageReadApi;
+
+  @Name(NAME_MAX_READ_STREAMS)
+  @Macro
+  @Nullable
+  @Description("Maximum number of streams the table is read with when using the Storage Read API. Every stream "
+    + "is read by a separate task. If it is not set, BigQuery picks the number of streams based on the table size.")
+  private Integer maxReadStreams;
+
+  @Name(NAME_PARTITION_WATERMARK_PATH)
+  @Macro
+  @Nullable
+  @Description("GCS path of the file which stores the last modified time of the partitions read by the previous run. "
+    + "If it is set, only the partitions of a time-partitioned table modified since the previous successful run are "
+    + "read. Requires the Storage Read API.")
+  private String partitionWatermarkPath;
+
+  @Name(NAME_WATERMARK_COLUMN)
+  @Macro
+  @Nullable
+  @Description("Monotonically increasing INTEGER or TIMESTAMP column to read the table incrementally by. If it is "
+    + "set, every run only reads the rows with a greater value than the rows read by the previous successful run.")
+  private String watermarkColumn;
+
+  @Name(NAME_WATERMARK_PATH)
+  @Macro
+  @Nullable
+  @Description("GCS path of the file which stores the highest value of the watermark column read by the previous "
+    + "run.")
+  private String watermarkPath;
+
   public String getTable() {
     return table;
   }
@@ -161,6 +210,36 @@ public final class BigQuerySourceConfig extends BigQueryBaseConfig {
     if (!containsMacro(NAME_CMEK_KEY)) {
       validateCmekKey(collector, arguments);
     }
+
+    if (!containsMacro(NAME_MAX_READ_STREAMS) && maxReadStreams != null && maxReadStreams < 0) {
+      collector.addFailure("Maximum read streams must not be negative.", "Set it to 0 or a positive number.")
+        .withConfigProperty(NAME_MAX_READ_STREAMS);
+    }
+
+    if (!containsMacro(NAME_PARTITION_WATERMARK_PATH) && !Strings.isNullOrEmpty(partitionWatermarkPath)) {
+      if (!partitionWatermarkPath.startsWith("gs://")) {
+        collector.addFailure("Partition watermark path must be a GCS path.", "Ensure the path starts with 'gs://'.")
+          .withConfigProperty(NAME_PARTITION_WATERMARK_PATH);
+      }
+      if (!containsMacro(NAME_USE_STORAGE_READ_API) && !isUseStorageReadApi()) {
+        collector.addFailure("Incremental reads require the Storage Read API.",
+                             "Enable the Storage Read API or remove the partition watermark path.")
+          .withConfigProperty(NAME_PARTITION_WATERMARK_PATH);
+      }
+    }
+
+    if (!containsMacro(NAME_WATERMARK_COLUMN) && !containsMacro(NAME_WATERMARK_PATH)) {
+      boolean hasColumn = !Strings.isNullOrEmpty(watermarkColumn);
+      boolean hasPath = !Strings.isNullOrEmpty(watermarkPath);
+      if (hasColumn != hasPath) {
+        collector.addFailure("Watermark column and watermark path must be set together.",
+                             "Set both properties to read incrementally, or neither.")
+          .withConfigProperty(hasColumn ? NAME_WATERMARK_PATH : NAME_WATERMARK_COLUMN);
+      } else if (hasPath && !watermarkPath.startsWith("gs://")) {
+        collector.addFailure("Watermark path must be a GCS path.", "Ensure the path starts with 'gs://'.")
+          .withConfigProperty(NAME_WATERMARK_PATH);
+      }
+    }
   }
 
   void validateCmekKey(FailureCollector collector, Map<String, String> arguments) {
@@ -200,6 +279,14 @@ public final class BigQuerySourceConfig extends BigQueryBaseConfig {
           String.format("'%s' is a 'View' :", table),
           "In order to enable query views, please enable 'Enable Querying Views'");
       }
+      // Views are always read through an export, which does not read partition by partition.
+      if (definition != null && definition != Type.TABLE && !containsMacro(NAME_PARTITION_WATERMARK_PATH)
+        && !Strings.isNullOrEmpty(partitionWatermarkPath)) {
+        collector.addFailure(String.format("Partition watermark path is not supported for '%s', which is a view.",
+                                           table),
+                             "Remove the partition watermark path or read a table.")
+          .withConfigProperty(NAME_PARTITION_WATERMARK_PATH);
+      }
     }
   }
 
@@ -277,6 +364,36 @@ public final class BigQuerySourceConfig extends BigQueryBaseConfig {
     return viewMaterializationDataset;
   }
 
+  public boolean isEnableResultCache() {
+    return "true".equalsIgnoreCase(enableResultCache);
+  }
+
+  public boolean isUseStorageReadApi() {
+    return "true".equalsIgnoreCase(useStorageReadApi);
+  }
+
+  /**
+   * @return the maximum number of read streams, 0 if BigQuery should decide
+   */
+  public int getMaxReadStreams() {
+    return maxReadStreams == null ? 0 : maxReadStreams;
+  }
+
+  @Nullable
+  public String getPartitionWatermarkPath() {
+    return Strings.isNullOrEmpty(partitionWatermarkPath) ? null : partitionWatermarkPath;
+  }
+
+  @Nullable
+  public String getWatermarkColumn() {
+    return Strings.isNullOrEmpty(watermarkColumn) ? null : watermarkColumn;
+  }
+
+  @Nullable
+  public String getWatermarkPath() {
+    return Strings.isNullOrEmpty(watermarkPath) ? null : watermarkPath;
+  }
+
   /**
    * Returns true if bigquery table can be connected and schema is not a macro.
    */
@@ -25,15 +25,21 @@ import com.google.cloud.hadoop.io.bigquery.BigQueryConfiguration;
 import com.google.cloud.kms.v1.CryptoKeyName;
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.StorageException;
+import com.google.common.io.ByteStreams;
 import io.cdap.plugin.gcp.bigquery.connector.BigQueryConnectorConfig;
 import io.cdap.plugin.gcp.bigquery.util.BigQueryConstants;
 import io.cdap.plugin.gcp.bigquery.util.BigQueryUtil;
 import io.cdap.plugin.gcp.common.GCPUtils;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 import javax.annotation.Nullable;
 
@@ -149,6 +155,63 @@ public class BigQuerySourceUtils {
                                                  table);
   }
 
+  /**
+   * Configure BigQuery input to be read through the Storage Read API.
+   *
+   * @param configuration Hadoop configuration instance.
+   * @param dataset the dataset to use.
+   * @param table the name of the table to pull from.
+   * @param maxReadStreams maximum number of streams to read the table with, 0 to let BigQuery decide.
+   * @throws IOException if the BigQuery input could not be configured.
+   */
+  public static void configureStorageReadInput(Configuration configuration,
+                                               DatasetId dataset,
+                                               String table,
+                                               int maxReadStreams) throws IOException {
+    configuration.setInt(BigQueryConstants.CONFIG_STORAGE_READ_MAX_STREAMS, maxReadStreams);
+    BigQueryConfiguration.configureBigQueryInput(configuration,
+                                                 dataset.getProject(),
+                                                 dataset.getDataset(),
+                                                 table);
+  }
+
+  /**
+   * Reads the watermark saved by a previous run.
+   *
+   * @param configuration Hadoop configuration instance.
+   * @param watermarkPath path of the watermark file.
+   * @return the watermark, or null if no run saved one yet.
+   * @throws IOException if the watermark could not be read.
+   */
+  @Nullable
+  public static String readWatermark(Configuration configuration, String watermarkPath) throws IOException {
+    Path path = new Path(watermarkPath);
+    FileSystem fs = path.getFileSystem(configuration);
+    if (!fs.exists(path)) {
+      return null;
+    }
+    try (FSDataInputStream in = fs.open(path)) {
+      return new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8).trim();
+    }
+  }
+
+  /**
+   * Saves the watermark for the next run.
+   *
+   * @param configuration Hadoop configuration instance.
+   * @param watermarkPath path of the watermark file.
+   * @param watermark the watermark up to which data was read.
+   */
+  public static void writeWatermark(Configuration configuration, String watermarkPath, String watermark) {
+    Path path = new Path(watermarkPath);
+    try (FSDataOutputStream out = path.getFileSystem(configuration).create(path, true)) {
+      out.write(watermark.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      // The next run reads the same data again, which is safe as incremental reads are at-least-once.
+      LOG.error("Failed to save watermark to '{}': {}", watermarkPath, e.getMessage(), e);
+    }
+  }
+
   /**
    * Build GCS path for a supplied bucket, prefix and table name.
    *
@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.source;
+
+import com.google.api.gax.core.FixedCredentialsProvider;
+import com.google.auth.Credentials;
+import com.google.cloud.bigquery.StandardTableDefinition;
+import com.google.cloud.bigquery.storage.v1.BigQueryReadClient;
+import com.google.cloud.bigquery.storage.v1.BigQueryReadSettings;
+import com.google.cloud.bigquery.storage.v1.CreateReadSessionRequest;
+import com.google.cloud.bigquery.storage.v1.DataFormat;
+import com.google.cloud.bigquery.storage.v1.ReadSession;
+import com.google.cloud.bigquery.storage.v1.ReadStream;
+import com.google.cloud.bigquery.storage.v1.TableName;
+import com.google.cloud.hadoop.io.bigquery.BigQueryConfiguration;
+import com.google.cloud.hadoop.util.ConfigurationUtil;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryConstants;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryUtil;
+import io.cdap.plugin.gcp.common.GCPUtils;
+import org.apache.avro.generic.GenericData;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * BigQuery input format which reads a table through the BigQuery Storage Read API.
+ *
+ * A single read session is created for the table, with the partition range and the filter of the source pushed down
+ * as a row restriction and only the columns of the output schema selected. Every stream of the session becomes an
+ * input split, and its rows are decoded straight from the Avro blocks returned by the service. Unlike
+ * {@link PartitionedBigQueryInputFormat}, no export job is run and no data is staged in GCS. When the partitions to
+ * read were planned by {@link BigQueryPartitionPlanner}, every group of partitions is read by its own session.
+ */
+public class BigQueryStorageReadInputFormat extends InputFormat<LongWritable, GenericData.Record> {
+  private static final Logger LOG = LoggerFactory.getLogger(BigQueryStorageReadInputFormat.class);
+  // Upper bound on the read sessions created for planned partitions, consecutive partitions are grouped beyond it.
+  private static final int MAX_PARTITION_READ_SESSIONS = 64;
+
+  @Override
+  public List<InputSplit> getSplits(JobContext context) throws IOException {
+    Configuration conf = context.getConfiguration();
+    Map<String, String> mandatoryConfig = ConfigurationUtil.getMandatoryConfig(
+      conf, BigQueryConfiguration.MANDATORY_CONFIG_PROPERTIES_INPUT);
+    String projectId = mandatoryConfig.get(BigQueryConfiguration.PROJECT_ID_KEY);
+    String datasetProjectId = mandatoryConfig.get(BigQueryConfiguration.INPUT_PROJECT_ID_KEY);
+    String datasetId = mandatoryConfig.get(BigQueryConfiguration.INPUT_DATASET_ID_KEY);
+    String tableName = mandatoryConfig.get(BigQueryConfiguration.INPUT_TABLE_ID_KEY);
+
+    List<InputSplit> splits = new ArrayList<>();
+    try (BigQueryReadClient client = createReadClient(conf)) {
+      for (String rowRestriction : getRowRestrictions(conf, datasetProjectId, datasetId, tableName)) {
+        ReadSession session = createReadSession(client, conf, projectId, datasetProjectId, datasetId, tableName,
+                                                rowRestriction);
+        LOG.info("Created read session '{}' with {} streams for table '{}.{}.{}'.", session.getName(),
+                 session.getStreamsCount(), datasetProjectId, datasetId, tableName);
+        String avroSchema = session.getAvroSchema().getSchema();
+        for (ReadStream stream : session.getStreamsList()) {
+          splits.add(new BigQueryStorageReadSplit(stream.getName(), avroSchema));
+        }
+      }
+    }
+    return splits;
+  }
+
+  @Override
+  public RecordReader<LongWritable, GenericData.Record> createRecordReader(InputSplit split,
+                                                                           TaskAttemptContext context) {
+    return new BigQueryStorageReadRecordReader();
+  }
+
+  static ReadSession createReadSession(BigQueryReadClient client, Configuration conf, String projectId,
+                                       String datasetProjectId, String datasetId, String tableName,
+                                       @Nullable String rowRestriction) {
+    ReadSession.TableReadOptions.Builder readOptions = ReadSession.TableReadOptions.newBuilder();
+    if (rowRestriction != null) {
+      readOptions.setRowRestriction(rowRestriction);
+    }
+    List<String> selectedFields = PartitionedBigQueryInputFormat.getSelectedFields(conf);
+    if (selectedFields != null) {
+      readOptions.addAllSelectedFields(selectedFields);
+    }
+    CreateReadSessionRequest request = CreateReadSessionRequest.newBuilder()
+      .setParent(String.format("projects/%s", projectId))
+      .setReadSession(ReadSession.newBuilder()
+                        .setTable(TableName.of(datasetProjectId, datasetId, tableName).toString())
+                        .setDataFormat(DataFormat.AVRO)
+                        .setReadOptions(readOptions))
+      // Zero lets BigQuery pick the number of streams based on the size of the table.
+      .setMaxStreamCount(conf.getInt(BigQueryConstants.CONFIG_STORAGE_READ_MAX_STREAMS, 0))
+      .build();
+    return client.createReadSession(request);
+  }
+
+  /**
+   * Returns the row restriction of every read session to create. A single session reads the whole table, unless
+   * the partitions to read were planned by {@link BigQueryPartitionPlanner}, in which case every group of partitions
+   * is read by its own session.
+   */
+  private static List<String> getRowRestrictions(Configuration conf, String datasetProjectId, String datasetId,
+                                                 String tableName) {
+    String partitionFromDate = conf.get(BigQueryConstants.CONFIG_PARTITION_FROM_DATE, null);
+    String partitionToDate = conf.get(BigQueryConstants.CONFIG_PARTITION_TO_DATE, null);
+    String filter = conf.get(BigQueryConstants.CONFIG_FILTER, null);
+    String readPartitions = conf.get(BigQueryConstants.CONFIG_READ_PARTITIONS);
+    if (readPartitions == null && partitionFromDate == null && partitionToDate == null && filter == null) {
+      return Collections.singletonList(null);
+    }
+    com.google.cloud.bigquery.Table table = BigQueryUtil.getBigQueryTable(
+      datasetProjectId, datasetId, tableName, conf.get(BigQueryConstants.CONFIG_SERVICE_ACCOUNT, null),
+      conf.getBoolean(BigQueryConstants.CONFIG_SERVICE_ACCOUNT_IS_FILE, true));
+    StandardTableDefinition tableDefinition = Objects.requireNonNull(table).getDefinition();
+    String condition = PartitionedBigQueryInputFormat.generateCondition(tableDefinition, partitionFromDate,
+                                                                        partitionToDate, filter);
+    if (readPartitions == null) {
+      return Collections.singletonList(condition);
+    }
+
+    List<String> partitionIds = readPartitions.isEmpty() ?
+      Collections.emptyList() : Arrays.asList(readPartitions.split(","));
+    List<String> rowRestrictions = new ArrayList<>();
+    for (List<String> group : BigQueryPartitionPlanner.groupPartitions(partitionIds, MAX_PARTITION_READ_SESSIONS)) {
+      String partitionCondition = BigQueryPartitionPlanner.generatePartitionCondition(tableDefinition, group);
+      rowRestrictions.add(condition == null ?
+                            partitionCondition : String.format("(%s) and (%s)", partitionCondition, condition));
+    }
+    return rowRestrictions;
+  }
+
+  /**
+   * Creates a Storage Read API client using the credentials stored in the Hadoop configuration.
+   */
+  static BigQueryReadClient createReadClient(Configuration conf) throws IOException {
+    BigQueryReadSettings.Builder settings = BigQueryReadSettings.newBuilder();
+    String serviceAccount = conf.get(BigQueryConstants.CONFIG_SERVICE_ACCOUNT, null);
+    if (serviceAccount != null) {
+      Credentials credentials = GCPUtils.loadServiceAccountCredentials(
+        serviceAccount, conf.getBoolean(BigQueryConstants.CONFIG_SERVICE_ACCOUNT_IS_FILE, true));
+      settings.setCredentialsProvider(FixedCredentialsProvider.create(credentials));
+    }
+    return BigQueryReadClient.create(settings.build());
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.source;
+
+import com.google.api.gax.rpc.ServerStream;
+import com.google.cloud.bigquery.storage.v1.BigQueryReadClient;
+import com.google.cloud.bigquery.storage.v1.ReadRowsRequest;
+import com.google.cloud.bigquery.storage.v1.ReadRowsResponse;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryConstants;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Reads the rows of a single Storage Read API stream and decodes them into Avro records.
+ *
+ * The key of every record is its position in the stream. Transient failures while reading are retried by the client,
+ * which resumes the stream from the last row it received.
+ *
+ * Readers running in the same JVM share a client per credentials, so that the splits of a task, and of the tables of
+ * the {@link BigQueryMultiSource}, do not each open their own channels. A client is closed by its last reader.
+ */
+public class BigQueryStorageReadRecordReader extends RecordReader<LongWritable, GenericData.Record> {
+  private static final Map<String, SharedClient> CLIENTS = new HashMap<>();
+
+  private final LongWritable currentKey = new LongWritable();
+  private String clientKey;
+  private BigQueryReadClient client;
+  private ServerStream<ReadRowsResponse> stream;
+  private Iterator<ReadRowsResponse> responses;
+  private DatumReader<GenericData.Record> datumReader;
+  private BinaryDecoder decoder;
+  private GenericData.Record currentValue;
+  private long rowCount;
+  private float progress;
+
+  @Override
+  public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+    BigQueryStorageReadSplit readSplit = (BigQueryStorageReadSplit) split;
+    Schema schema = new Schema.Parser().parse(readSplit.getAvroSchema());
+    datumReader = new GenericDatumReader<>(schema, getReaderSchema(readSplit, schema));
+    clientKey = getClientKey(context.getConfiguration());
+    client = acquireClient(clientKey, context.getConfiguration());
+    stream = client.readRowsCallable().call(
+      ReadRowsRequest.newBuilder().setReadStream(readSplit.getStreamName()).build());
+    responses = stream.iterator();
+  }
+
+  /**
+   * Returns the schema the rows of the split are decoded into. Fields which are not in the schema of the stream are
+   * set to their default value.
+   */
+  protected Schema getReaderSchema(BigQueryStorageReadSplit split, Schema streamSchema) {
+    return streamSchema;
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    while (decoder == null || decoder.isEnd()) {
+      if (!responses.hasNext()) {
+        return false;
+      }
+      ReadRowsResponse response = responses.next();
+      progress = (float) response.getStats().getProgress().getAtResponseEnd();
+      decoder = DecoderFactory.get().binaryDecoder(response.getAvroRows().getSerializedBinaryRows().toByteArray(),
+                                                   decoder);
+    }
+    currentValue = datumReader.read(null, decoder);
+    currentKey.set(rowCount++);
+    return true;
+  }
+
+  @Override
+  public LongWritable getCurrentKey() {
+    return currentKey;
+  }
+
+  @Override
+  public GenericData.Record getCurrentValue() {
+    return currentValue;
+  }
+
+  @Override
+  public float getProgress() {
+    return progress;
+  }
+
+  @Override
+  public void close() {
+    if (stream != null) {
+      // Stops the server from sending the rest of the stream if the task ends early, no-op otherwise.
+      stream.cancel();
+    }
+    if (client != null) {
+      releaseClient(clientKey);
+      client = null;
+    }
+  }
+
+  private static String getClientKey(Configuration conf) {
+    return conf.getBoolean(BigQueryConstants.CONFIG_SERVICE_ACCOUNT_IS_FILE, true) + ":"
+      + conf.get(BigQueryConstants.CONFIG_SERVICE_ACCOUNT, "");
+  }
+
+  private static synchronized BigQueryReadClient acquireClient(String key, Configuration conf) throws IOException {
+    SharedClient shared = CLIENTS.get(key);
+    if (shared == null) {
+      shared = new SharedClient(BigQueryStorageReadInputFormat.createReadClient(conf));
+      CLIENTS.put(key, shared);
+    }
+    shared.references++;
+    return shared.client;
+  }
+
+  private static synchronized void releaseClient(String key) {
+    SharedClient shared = CLIENTS.get(key);
+    if (shared != null && --shared.references == 0) {
+      CLIENTS.remove(key);
+      shared.client.close();
+    }
+  }
+
+  /**
+   * A client and the number of readers using it.
+   */
+  private static final class SharedClient {
+    private final BigQueryReadClient client;
+    private int references;
+
+    private SharedClient(BigQueryReadClient client) {
+      this.client = client;
+    }
+  }
+}
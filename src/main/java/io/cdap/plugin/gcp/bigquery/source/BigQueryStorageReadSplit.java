@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.source;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapreduce.InputSplit;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Input split for a single stream of a BigQuery Storage Read API session.
+ */
+public class BigQueryStorageReadSplit extends InputSplit implements Writable {
+  private String streamName;
+  private String avroSchema;
+
+  /**
+   * Constructor used when the split is deserialized.
+   */
+  public BigQueryStorageReadSplit() {
+    // no-op
+  }
+
+  /**
+   * @param streamName fully qualified name of the read stream
+   * @param avroSchema Avro schema of the rows in the stream, as returned by the read session
+   */
+  public BigQueryStorageReadSplit(String streamName, String avroSchema) {
+    this.streamName = streamName;
+    this.avroSchema = avroSchema;
+  }
+
+  public String getStreamName() {
+    return streamName;
+  }
+
+  public String getAvroSchema() {
+    return avroSchema;
+  }
+
+  @Override
+  public long getLength() {
+    // The size of a stream is not known until it has been read.
+    return 0L;
+  }
+
+  @Override
+  public String[] getLocations() {
+    return new String[0];
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    Text.writeString(out, streamName);
+    Text.writeString(out, avroSchema);
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    streamName = Text.readString(in);
+    avroSchema = Text.readString(in);
+  }
+
+  @Override
+  public String toString() {
+    return streamName;
+  }
+}
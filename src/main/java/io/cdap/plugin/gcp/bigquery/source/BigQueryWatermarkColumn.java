@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.source;
+
+import com.google.cloud.bigquery.BigQuery;
+import com.google.cloud.bigquery.FieldValue;
+import com.google.cloud.bigquery.LegacySQLTypeName;
+import com.google.cloud.bigquery.QueryJobConfiguration;
+import com.google.cloud.bigquery.TableId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Reads a table incrementally by a monotonically increasing column.
+ *
+ * Every run reads the rows whose watermark column is greater than the high-water mark saved by the previous run, up to
+ * and including the maximum value of the column when the run starts. Rows appended while the run reads are therefore
+ * left to the next run, and rows with a NULL watermark are never read.
+ *
+ * Only INTEGER and TIMESTAMP columns are supported. Coarser columns such as DATE keep receiving rows with the maximum
+ * value after it was read, and these rows would never be read with an exclusive lower bound.
+ */
+public final class BigQueryWatermarkColumn {
+  static final List<LegacySQLTypeName> SUPPORTED_TYPES = Arrays.asList(LegacySQLTypeName.INTEGER,
+                                                                      LegacySQLTypeName.TIMESTAMP);
+  private static final String MAX_VALUE_QUERY = "SELECT MAX(`%s`) AS watermark FROM `%s.%s.%s`";
+
+  private BigQueryWatermarkColumn() {
+    // no-op
+  }
+
+  /**
+   * Returns the maximum value of the watermark column after the last high-water mark, or null if there is none.
+   *
+   * @param bigQuery client the query is run with
+   * @param tableId the table or view the source reads
+   * @param column name of the watermark column
+   * @param type type of the watermark column, one of {@link #SUPPORTED_TYPES}
+   * @param lastWatermark high-water mark saved by the previous run, if any
+   * @param condition partition range and filter of the source, if any
+   */
+  @Nullable
+  public static String getMaxValue(BigQuery bigQuery, TableId tableId, String column, LegacySQLTypeName type,
+                                   @Nullable String lastWatermark,
+                                   @Nullable String condition) throws InterruptedException {
+    String query = generateMaxValueQuery(tableId, column, type, lastWatermark, condition);
+    FieldValue value = bigQuery.query(QueryJobConfiguration.of(query)).iterateAll().iterator().next().get(0);
+    if (value.isNull()) {
+      return null;
+    }
+    // Timestamps are kept in microseconds, so that the saved high-water mark does not depend on a time zone.
+    return LegacySQLTypeName.TIMESTAMP.equals(type) ?
+      Long.toString(value.getTimestampValue()) : value.getStringValue();
+  }
+
+  /**
+   * Generates the query for the maximum value of the watermark column. The query only reads the rows of the partition
+   * range and filter after the last high-water mark, so that it scans no more than the run reads.
+   */
+  static String generateMaxValueQuery(TableId tableId, String column, LegacySQLTypeName type,
+                                      @Nullable String lastWatermark, @Nullable String condition) {
+    String query = String.format(MAX_VALUE_QUERY, column, tableId.getProject(), tableId.getDataset(),
+                                 tableId.getTable());
+    List<String> conditions = new ArrayList<>();
+    if (lastWatermark != null) {
+      conditions.add(String.format("`%s` > %s", column, toLiteral(type, lastWatermark)));
+    }
+    if (condition != null) {
+      conditions.add(String.format("(%s)", condition));
+    }
+    return conditions.isEmpty() ? query : query + " WHERE " + String.join(" and ", conditions);
+  }
+
+  /**
+   * Generates the condition which selects the rows after the last high-water mark, up to the new one.
+   *
+   * @param column name of the watermark column
+   * @param type type of the watermark column, one of {@link #SUPPORTED_TYPES}
+   * @param lastWatermark high-water mark saved by the previous run, if any
+   * @param maxValue maximum value of the watermark column, if any
+   */
+  public static String generateCondition(String column, LegacySQLTypeName type, @Nullable String lastWatermark,
+                                         @Nullable String maxValue) {
+    String quotedColumn = "`" + column + "`";
+    if (maxValue == null) {
+      // The column has no values, so there is nothing new to read.
+      return "false";
+    }
+    String upperBound = String.format("%s <= %s", quotedColumn, toLiteral(type, maxValue));
+    if (lastWatermark == null) {
+      return upperBound;
+    }
+    return String.format("%s > %s and %s", quotedColumn, toLiteral(type, lastWatermark), upperBound);
+  }
+
+  private static String toLiteral(LegacySQLTypeName type, String value) {
+    if (LegacySQLTypeName.INTEGER.equals(type)) {
+      return Long.toString(Long.parseLong(value));
+    } else if (LegacySQLTypeName.TIMESTAMP.equals(type)) {
+      return String.format("TIMESTAMP_MICROS(%d)", Long.parseLong(value));
+    }
+    throw new IllegalArgumentException(String.format("Watermark column type '%s' is not supported.", type));
+  }
+}
@@ -6,7 +6,6 @@ import com.google.api.services.bigquery.model.JobConfigurationQuery;
 import com.google.api.services.bigquery.model.JobReference;
 import com.google.api.services.bigquery.model.Table;
 import com.google.api.services.bigquery.model.TableReference;
-import com.google.cloud.bigquery.LegacySQLTypeName;
 import com.google.cloud.bigquery.StandardTableDefinition;
 import com.google.cloud.bigquery.TableDefinition.Type;
 import com.google.cloud.bigquery.TimePartitioning;
@@ -32,13 +31,17 @@ import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
 import org.apache.hadoop.util.Progressable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
 /**
@@ -46,7 +49,7 @@ import javax.annotation.Nullable;
  * in order to create input splits.
  */
 public class PartitionedBigQueryInputFormat extends AbstractBigQueryInputFormat<LongWritable, GenericData.Record> {
-  private static final String DEFAULT_COLUMN_NAME = "_PARTITIONTIME";
+  private static final Logger LOG = LoggerFactory.getLogger(PartitionedBigQueryInputFormat.class);
 
   private InputFormat<LongWritable, GenericData.Record> delegateInputFormat =
     new AvroBigQueryInputFormat();
@@ -99,12 +102,13 @@ public class PartitionedBigQueryInputFormat extends AbstractBigQueryInputFormat<
       datasetProjectId, datasetId, tableName, serviceAccount, isServiceAccountFilePath);
     Type type = Objects.requireNonNull(bigQueryTable).getDefinition().getType();
 
+    List<String> selectedFields = getSelectedFields(configuration);
     String query;
     if (type == Type.VIEW || type == Type.MATERIALIZED_VIEW) {
-      query = generateQueryForMaterializingView(datasetProjectId, datasetId, tableName, filter);
+      query = generateQueryForMaterializingView(datasetProjectId, datasetId, tableName, filter, selectedFields);
     } else {
       query = generateQuery(partitionFromDate, partitionToDate, filter, projectId, datasetProjectId, datasetId,
-                            tableName, serviceAccount, isServiceAccountFilePath);
+                            tableName, serviceAccount, isServiceAccountFilePath, selectedFields);
     }
 
     if (query != null) {
@@ -112,9 +116,24 @@ public class PartitionedBigQueryInputFormat extends AbstractBigQueryInputFormat<
         .setTableId(tableName);
       String location = bigQueryHelper.getTable(sourceTable).getLocation();
       String temporaryTableName = configuration.get(BigQueryConstants.CONFIG_TEMPORARY_TABLE_NAME);
+      String cacheKey = null;
+      if (configuration.getBoolean(BigQueryConstants.CONFIG_RESULT_CACHE_ENABLED, false)) {
+        cacheKey = BigQueryResultCache.getKey(bigQueryHelper, projectId, location, sourceTable, query,
+                                              partitionFromDate, partitionToDate);
+      }
+      if (cacheKey != null) {
+        temporaryTableName = BigQueryResultCache.getTableName(tableName, cacheKey);
+      }
       TableReference exportTableReference = createExportTableReference(type, datasetProjectId, datasetId,
                                                                        temporaryTableName, configuration);
-      runQuery(configuration, bigQueryHelper, projectId, exportTableReference, query, location);
+      if (cacheKey != null && bigQueryHelper.tableExists(exportTableReference)) {
+        LOG.info("Reusing the results of an earlier run cached in table '{}'.", temporaryTableName);
+        extendExpiration(bigQueryHelper, exportTableReference);
+      } else {
+        // Concurrent runs may materialize the same cached results, which are identical.
+        runQuery(configuration, bigQueryHelper, projectId, exportTableReference, query, location,
+                 cacheKey == null ? "WRITE_EMPTY" : "WRITE_TRUNCATE");
+      }
       if (type == Type.VIEW || type == Type.MATERIALIZED_VIEW) {
         configuration.set(BigQueryConfiguration.INPUT_PROJECT_ID_KEY,
                           configuration.get(BigQueryConstants.CONFIG_VIEW_MATERIALIZATION_PROJECT));
@@ -128,15 +147,32 @@ public class PartitionedBigQueryInputFormat extends AbstractBigQueryInputFormat<
   @VisibleForTesting
   String generateQuery(String partitionFromDate, String partitionToDate, String filter, String project,
                        String datasetProject, String dataset, String table, @Nullable String serviceAccount,
-                       @Nullable Boolean isServiceAccountFilePath) {
+                       @Nullable Boolean isServiceAccountFilePath, @Nullable List<String> selectedFields) {
     if (partitionFromDate == null && partitionToDate == null && filter == null) {
       return null;
     }
-    String queryTemplate = "select * from `%s` where %s";
+    String queryTemplate = "select %s from `%s` where %s";
     com.google.cloud.bigquery.Table sourceTable = BigQueryUtil.getBigQueryTable(datasetProject, dataset, table,
                                                                                 serviceAccount,
                                                                                 isServiceAccountFilePath);
     StandardTableDefinition tableDefinition = Objects.requireNonNull(sourceTable).getDefinition();
+    String condition = generateCondition(tableDefinition, partitionFromDate, partitionToDate, filter);
+    if (condition == null) {
+      return null;
+    }
+
+    String tableName = datasetProject + "." + dataset + "." + table;
+    return String.format(queryTemplate, generateSelectList(selectedFields), tableName, condition);
+  }
+
+  /**
+   * Generates the condition which selects the rows of the given partition range that match the filter.
+   *
+   * @return the condition, or null if all rows of the table are selected
+   */
+  @Nullable
+  static String generateCondition(StandardTableDefinition tableDefinition, @Nullable String partitionFromDate,
+                                  @Nullable String partitionToDate, @Nullable String filter) {
     TimePartitioning timePartitioning = tableDefinition.getTimePartitioning();
     if (timePartitioning == null && filter == null) {
       return null;
@@ -156,14 +192,13 @@ public class PartitionedBigQueryInputFormat extends AbstractBigQueryInputFormat<
         condition.append(" and (").append(filter).append(")");
       }
     }
-
-    String tableName = datasetProject + "." + dataset + "." + table;
-    return String.format(queryTemplate, tableName, condition.toString());
+    return condition.length() == 0 ? null : condition.toString();
   }
 
   @VisibleForTesting
-  String generateQueryForMaterializingView(String datasetProject, String dataset, String table, String filter) {
-    String queryTemplate = "select * from `%s`%s";
+  String generateQueryForMaterializingView(String datasetProject, String dataset, String table, String filter,
+                                           @Nullable List<String> selectedFields) {
+    String queryTemplate = "select %s from `%s`%s";
     StringBuilder condition = new StringBuilder();
 
     if (!Strings.isNullOrEmpty(filter)) {
@@ -171,7 +206,23 @@ public class PartitionedBigQueryInputFormat extends AbstractBigQueryInputFormat<
     }
 
     String tableName = datasetProject + "." + dataset + "." + table;
-    return String.format(queryTemplate, tableName, condition.toString());
+    return String.format(queryTemplate, generateSelectList(selectedFields), tableName, condition.toString());
+  }
+
+  /**
+   * Returns the columns the source reads, or null if it reads all of them.
+   */
+  @Nullable
+  static List<String> getSelectedFields(Configuration configuration) {
+    String[] selectedFields = configuration.getStrings(BigQueryConstants.CONFIG_SELECTED_FIELDS);
+    return selectedFields == null || selectedFields.length == 0 ? null : Arrays.asList(selectedFields);
+  }
+
+  private static String generateSelectList(@Nullable List<String> selectedFields) {
+    if (selectedFields == null || selectedFields.isEmpty()) {
+      return "*";
+    }
+    return selectedFields.stream().map(field -> "`" + field + "`").collect(Collectors.joining(", "));
   }
 
   /**
@@ -209,7 +260,8 @@ public class PartitionedBigQueryInputFormat extends AbstractBigQueryInputFormat<
                                String projectId,
                                TableReference tableRef,
                                String query,
-                               String location)
+                               String location,
+                               String writeDisposition)
     throws IOException, InterruptedException {
 
     // Create a query statement and query request object.
@@ -223,8 +275,7 @@ public class PartitionedBigQueryInputFormat extends AbstractBigQueryInputFormat<
 
     queryConfig.setCreateDisposition("CREATE_IF_NEEDED");
 
-    // Require table to be empty.
-    queryConfig.setWriteDisposition("WRITE_EMPTY");
+    queryConfig.setWriteDisposition(writeDisposition);
 
     JobConfiguration config = new JobConfiguration();
     config.setQuery(queryConfig);
@@ -250,13 +301,17 @@ public class PartitionedBigQueryInputFormat extends AbstractBigQueryInputFormat<
     BigQueryUtils.waitForJobCompletion(
       bigQueryHelper.getRawBigquery(), projectId, jobReference, progressable);
     if (bigQueryHelper.tableExists(tableRef)) {
-      long expirationMillis = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
-      Table table = bigQueryHelper.getTable(tableRef).setExpirationTime(expirationMillis);
-      bigQueryHelper.getRawBigquery().tables().update(tableRef.getProjectId(), tableRef.getDatasetId(),
-                                                      tableRef.getTableId(), table).execute();
+      extendExpiration(bigQueryHelper, tableRef);
     }
   }
 
+  private static void extendExpiration(BigQueryHelper bigQueryHelper, TableReference tableRef) throws IOException {
+    long expirationMillis = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+    Table table = bigQueryHelper.getTable(tableRef).setExpirationTime(expirationMillis);
+    bigQueryHelper.getRawBigquery().tables().update(tableRef.getProjectId(), tableRef.getDatasetId(),
+                                                    tableRef.getTableId(), table).execute();
+  }
+
   /**
    * Gets the Job Reference for the BQ job to execute.
    *
@@ -279,34 +334,26 @@ public class PartitionedBigQueryInputFormat extends AbstractBigQueryInputFormat<
     return new JobReference().setProjectId(projectId).setJobId(savedJobId).setLocation(location);
   }
 
-  private String generateTimePartitionCondition(StandardTableDefinition tableDefinition,
-                                                TimePartitioning timePartitioning, String partitionFromDate,
-                                                String partitionToDate) {
+  private static String generateTimePartitionCondition(StandardTableDefinition tableDefinition,
+                                                       TimePartitioning timePartitioning,
+                                                       String partitionFromDate, String partitionToDate) {
     StringBuilder timePartitionCondition = new StringBuilder();
-    String columnName = timePartitioning.getField() != null ? timePartitioning.getField() : DEFAULT_COLUMN_NAME;
-
-    LegacySQLTypeName columnType = null;
-    if (!DEFAULT_COLUMN_NAME.equals(columnName)) {
-      columnType = tableDefinition.getSchema().getFields().get(columnName).getType();
-    }
+    String columnName = BigQueryPartitionPlanner.getPartitionColumn(timePartitioning);
+    // Compare the partition column with a literal of its own type, so that BigQuery can prune partitions.
+    String literalType = BigQueryPartitionPlanner.getPartitionLiteralType(tableDefinition);
 
     if (partitionFromDate != null) {
-      if (LegacySQLTypeName.DATE.equals(columnType)) {
-        columnName = "TIMESTAMP(\"" + columnName + "\")";
-      }
-      timePartitionCondition.append(columnName).append(" >= ").append("TIMESTAMP(\"")
+      timePartitionCondition.append(columnName).append(" >= ").append(literalType).append("(\"")
         .append(partitionFromDate).append("\")");
     }
     if (partitionFromDate != null && partitionToDate != null) {
       timePartitionCondition.append(" and ");
     }
     if (partitionToDate != null) {
-      if (LegacySQLTypeName.DATE.equals(columnType)) {
-        columnName = "TIMESTAMP(\"" + columnName + "\")";
-      }
-      timePartitionCondition.append(columnName).append(" < ").append("TIMESTAMP(\"")
+      timePartitionCondition.append(columnName).append(" < ").append(literalType).append("(\"")
         .append(partitionToDate).append("\")");
     }
     return timePartitionCondition.toString();
   }
+
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sqlengine;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.api.engine.sql.dataset.SQLDataset;
+
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+/**
+ * SQL Dataset that represents the result of a "Select" operation which has not been executed yet.
+ *
+ * Instead of storing its results in a table, the select statement of this dataset is inlined as a subquery into the
+ * statement of the stage which reads it, so that a chain of operations runs as a single BigQuery job. The statement is
+ * only executed into a table when the table itself is needed, such as when the dataset is pulled, written to a sink or
+ * read by more than one stage.
+ */
+public class BigQueryDeferredSelectDataset implements SQLDataset, BigQuerySQLDataset {
+
+  private final String datasetName;
+  private final Schema outputSchema;
+  private final String project;
+  private final String dataset;
+  private final String selectQuery;
+  private final Supplier<BigQuerySelectDataset> executor;
+  private BigQuerySelectDataset executedDataset;
+  private int numReferences;
+
+  public static BigQueryDeferredSelectDataset getInstance(String datasetName,
+                                                          Schema outputSchema,
+                                                          String project,
+                                                          String dataset,
+                                                          String selectQuery,
+                                                          Supplier<BigQuerySelectDataset> executor) {
+    return new BigQueryDeferredSelectDataset(datasetName, outputSchema, project, dataset, selectQuery, executor);
+  }
+
+  private BigQueryDeferredSelectDataset(String datasetName,
+                                        Schema outputSchema,
+                                        String project,
+                                        String dataset,
+                                        String selectQuery,
+                                        Supplier<BigQuerySelectDataset> executor) {
+    this.datasetName = datasetName;
+    this.outputSchema = outputSchema;
+    this.project = project;
+    this.dataset = dataset;
+    this.selectQuery = selectQuery;
+    this.executor = executor;
+  }
+
+  /**
+   * Executes the select statement into a table, if it was not executed already.
+   *
+   * @return the dataset holding the results of the statement
+   */
+  public BigQuerySelectDataset execute() {
+    if (executedDataset == null) {
+      executedDataset = executor.get();
+    }
+    return executedDataset;
+  }
+
+  public boolean isExecuted() {
+    return executedDataset != null;
+  }
+
+  /**
+   * Records that a stage reads this dataset.
+   *
+   * @return the number of stages which read this dataset so far
+   */
+  public int addReference() {
+    return ++numReferences;
+  }
+
+  public String getSelectQuery() {
+    return selectQuery;
+  }
+
+  @Override
+  public String getDatasetName() {
+    return datasetName;
+  }
+
+  @Override
+  public Schema getSchema() {
+    return outputSchema;
+  }
+
+  @Override
+  public long getNumRows() {
+    // Counting the rows would require executing the statement, which is what this dataset avoids.
+    return executedDataset != null ? executedDataset.getNumRows() : 0L;
+  }
+
+  @Override
+  public String getBigQueryProject() {
+    return project;
+  }
+
+  @Override
+  public String getBigQueryDataset() {
+    return dataset;
+  }
+
+  @Override
+  public String getBigQueryTable() {
+    return execute().getBigQueryTable();
+  }
+
+  @Override
+  @Nullable
+  public String getJobId() {
+    return executedDataset != null ? executedDataset.getJobId() : null;
+  }
+
+  @Override
+  @Nullable
+  public String getGCSPath() {
+    return null;
+  }
+}
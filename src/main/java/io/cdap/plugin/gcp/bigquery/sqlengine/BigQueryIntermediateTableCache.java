@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sqlengine;
+
+import com.google.cloud.bigquery.BigQuery;
+import com.google.cloud.bigquery.CopyJobConfiguration;
+import com.google.cloud.bigquery.FieldValueList;
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobInfo;
+import com.google.cloud.bigquery.QueryJobConfiguration;
+import com.google.cloud.bigquery.Table;
+import com.google.cloud.bigquery.TableId;
+import com.google.common.hash.Hashing;
+import io.cdap.cdap.etl.api.engine.sql.SQLEngineException;
+import io.cdap.plugin.gcp.bigquery.source.BigQueryResultCache;
+import io.cdap.plugin.gcp.bigquery.sqlengine.util.BigQuerySQLEngineUtils;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryJobPoller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Keys the intermediate tables of the BigQuery SQL engine, so that runs which execute the same statement over the same
+ * records can reuse the table of an earlier run instead of executing the statement again.
+ *
+ * The tables of every run have new names, so the key is a hash of the statement in which the name of every input
+ * table is replaced with a fingerprint of its contents. Pushed tables are fingerprinted with a query over their
+ * records, and the fingerprint of a table created from a cached statement is the key of that statement. Statements
+ * with non-deterministic functions are never cached.
+ */
+public final class BigQueryIntermediateTableCache {
+  private static final String CACHE_TABLE_NAME_FORMAT = "_pushdown_cache_%s";
+  private static final String FINGERPRINT_QUERY =
+    "SELECT COUNT(*), SUM(CAST(FARM_FINGERPRINT(TO_JSON_STRING(t)) AS NUMERIC)) FROM `%s.%s.%s` AS t";
+
+  private BigQueryIntermediateTableCache() {
+    // no-op
+  }
+
+  /**
+   * Returns the key of a statement, or null if the results of the statement cannot be cached.
+   *
+   * @param query                  the statement to execute
+   * @param tableNameToFingerprint fingerprint of every input table the statement reads, by table name
+   */
+  @Nullable
+  public static String getKey(String query, Map<String, String> tableNameToFingerprint) {
+    if (!BigQueryResultCache.isDeterministic(query)) {
+      return null;
+    }
+
+    // Replace longer names first, so that no table name is replaced within another one.
+    List<String> tableNames = new ArrayList<>(tableNameToFingerprint.keySet());
+    tableNames.sort(Comparator.comparing(String::length).reversed().thenComparing(Comparator.naturalOrder()));
+    String normalizedQuery = query;
+    for (String tableName : tableNames) {
+      normalizedQuery = normalizedQuery.replace(tableName, "{" + tableNameToFingerprint.get(tableName) + "}");
+    }
+
+    return Hashing.sha256().hashString(normalizedQuery, StandardCharsets.UTF_8).toString();
+  }
+
+  /**
+   * Returns the name of the table the results of the statement with the given key are cached in.
+   */
+  public static String getTableName(String key) {
+    return String.format(CACHE_TABLE_NAME_FORMAT, key);
+  }
+
+  /**
+   * Fingerprints the records of a table. The fingerprint does not depend on the order of the records.
+   *
+   * @param bigQuery BigQuery client
+   * @param tableId  table to fingerprint
+   * @return the fingerprint of the records of the table
+   */
+  public static String getFingerprint(BigQuery bigQuery, TableId tableId) throws InterruptedException {
+    String query = String.format(FINGERPRINT_QUERY, tableId.getProject(), tableId.getDataset(), tableId.getTable());
+    FieldValueList row = bigQuery.query(QueryJobConfiguration.newBuilder(query)
+                                          .setLabels(BigQuerySQLEngineUtils.getJobTags("fingerprint"))
+                                          .build())
+      .iterateAll().iterator().next();
+    String sum = row.get(1).isNull() ? "0" : row.get(1).getStringValue();
+    return row.get(0).getStringValue() + ":" + sum;
+  }
+
+  /**
+   * Copies a table into another one, replacing the contents of the destination table.
+   *
+   * @param bigQuery       BigQuery client
+   * @param source         table to copy
+   * @param destination    table to copy into
+   * @param expirationTime expiration time to set on the destination table, if any
+   */
+  public static void copyTable(BigQuery bigQuery, TableId source, TableId destination,
+                               @Nullable Long expirationTime) throws InterruptedException {
+    CopyJobConfiguration copyConfig = CopyJobConfiguration.newBuilder(destination, source)
+      .setCreateDisposition(JobInfo.CreateDisposition.CREATE_IF_NEEDED)
+      .setWriteDisposition(JobInfo.WriteDisposition.WRITE_TRUNCATE)
+      .setLabels(BigQuerySQLEngineUtils.getJobTags("cache"))
+      .build();
+    Job copyJob = BigQueryJobPoller.getInstance().waitFor(bigQuery.create(JobInfo.of(copyConfig)));
+
+    if (copyJob == null) {
+      throw new SQLEngineException(String.format("Copy job from '%s' to '%s' not found", source, destination));
+    } else if (copyJob.getStatus().getError() != null) {
+      throw new SQLEngineException(String.format("Error copying table '%s' to '%s': %s",
+                                                 source, destination, copyJob.getStatus().getError()));
+    }
+
+    if (expirationTime != null) {
+      Table table = bigQuery.getTable(destination);
+      bigQuery.update(table.toBuilder().setExpirationTime(expirationTime).build());
+    }
+  }
+}
@@ -34,6 +34,7 @@ import io.cdap.cdap.etl.api.join.JoinDefinition;
 import io.cdap.plugin.gcp.bigquery.sink.BigQuerySinkUtils;
 import io.cdap.plugin.gcp.bigquery.sqlengine.builder.BigQueryJoinSQLBuilder;
 import io.cdap.plugin.gcp.bigquery.sqlengine.util.BigQuerySQLEngineUtils;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryJobPoller;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -141,7 +142,7 @@ public class BigQueryJoinDataset implements SQLDataset, BigQuerySQLDataset {
 
     // Wait for the query to complete.
     try {
-      queryJob = queryJob.waitFor();
+      queryJob = BigQueryJobPoller.getInstance().waitFor(queryJob);
     } catch (InterruptedException ie) {
       throw new SQLEngineException("Interrupted exception when executing Join operation", ie);
     }
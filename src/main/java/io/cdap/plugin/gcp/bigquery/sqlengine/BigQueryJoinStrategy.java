@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sqlengine;
+
+import io.cdap.cdap.etl.api.join.JoinStage;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Decides where a join is executed, based on where its inputs are and how large they are estimated to be.
+ *
+ * An input is small if it is already stored in BigQuery and its table is at most the Spark join threshold, or if it is
+ * still in Spark and marked to be broadcast. The size of other inputs still in Spark is not known, so they are
+ * considered large. A join with a small input whose large inputs are all still in Spark is kept in Spark, as pushing it
+ * down would upload the large inputs into BigQuery just to join them with a few records. The engine only declines such
+ * a join, and Spark's own planner then picks how to execute it. Every other join is executed in BigQuery, as its large
+ * inputs are already stored there.
+ *
+ * Only the size in bytes of the inputs is estimated. It is what Spark compares with its own broadcast threshold, and
+ * unlike the number of rows it accounts for the width of the records.
+ */
+public final class BigQueryJoinStrategy {
+
+  /**
+   * Where a join is executed.
+   */
+  public enum Decision {
+    // All inputs are pushed into BigQuery and the join is executed there.
+    BIGQUERY,
+    // The join is left to Spark, whose planner picks how to execute it.
+    SPARK
+  }
+
+  private BigQueryJoinStrategy() {
+    // no-op
+  }
+
+  /**
+   * Decides where a join is executed.
+   *
+   * @param stages                  input stages of the join
+   * @param stageToEstimatedBytes   estimated size of the inputs already stored in BigQuery, by stage name. The size of
+   *                                inputs which were stored but not executed yet is null.
+   * @param sparkThresholdBytes     maximum size of an input stored in BigQuery for it to be considered small
+   * @return where the join should be executed
+   */
+  public static Decision decide(Collection<JoinStage> stages,
+                                Map<String, Long> stageToEstimatedBytes,
+                                long sparkThresholdBytes) {
+    boolean hasSmallInput = false;
+    boolean hasLargeInputInBigQuery = false;
+
+    for (JoinStage stage : stages) {
+      String stageName = stage.getStageName();
+      boolean isSmall;
+
+      if (stageToEstimatedBytes.containsKey(stageName)) {
+        Long estimatedBytes = stageToEstimatedBytes.get(stageName);
+        isSmall = estimatedBytes != null && estimatedBytes <= sparkThresholdBytes;
+        hasLargeInputInBigQuery |= !isSmall;
+      } else {
+        isSmall = stage.isBroadcast();
+      }
+
+      hasSmallInput |= isSmall;
+    }
+
+    return hasSmallInput && !hasLargeInputInBigQuery ? Decision.SPARK : Decision.BIGQUERY;
+  }
+
+  /**
+   * Sums the estimated size of the inputs already stored in BigQuery.
+   *
+   * @param stageToEstimatedBytes estimated size of the inputs already stored in BigQuery, by stage name.
+   * @return estimated number of bytes of all inputs with a known size.
+   */
+  public static long getTotalEstimatedBytes(Map<String, Long> stageToEstimatedBytes) {
+    return stageToEstimatedBytes.values().stream()
+      .filter(Objects::nonNull)
+      .mapToLong(Long::longValue)
+      .sum();
+  }
+}
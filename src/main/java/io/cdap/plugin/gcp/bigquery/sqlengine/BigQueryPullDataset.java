@@ -26,6 +26,8 @@ import io.cdap.cdap.etl.api.engine.sql.dataset.SQLPullDataset;
 import io.cdap.cdap.etl.api.engine.sql.request.SQLPullRequest;
 import io.cdap.plugin.gcp.bigquery.source.BigQueryInputFormatProvider;
 import io.cdap.plugin.gcp.bigquery.source.BigQuerySourceUtils;
+import io.cdap.plugin.gcp.bigquery.source.BigQueryStorageReadInputFormat;
+import io.cdap.plugin.gcp.bigquery.source.PartitionedBigQueryInputFormat;
 import io.cdap.plugin.gcp.bigquery.sqlengine.transform.PullTransform;
 import io.cdap.plugin.gcp.bigquery.sqlengine.util.BigQuerySQLEngineUtils;
 import org.apache.avro.generic.GenericData;
@@ -37,6 +39,9 @@ import javax.annotation.Nullable;
 
 /**
  * SQL Pull Dataset implementation for BigQuery backed datasets.
+ *
+ * Records are either exported to the temporary bucket as Avro files and read back from there, or read directly from
+ * the table through the BigQuery Storage Read API, in which case nothing is exported.
  */
 public class BigQueryPullDataset extends BigQueryInputFormatProvider
   implements SQLPullDataset<StructuredRecord, LongWritable, GenericData.Record>, BigQuerySQLDataset {
@@ -47,6 +52,7 @@ public class BigQueryPullDataset extends BigQueryInputFormatProvider
   private final DatasetId bqDataset;
   private final String bqTable;
   private final String gcsPath;
+  private final String inputFormatClassName;
   private Long numRows;
 
   private BigQueryPullDataset(Configuration configuration,
@@ -55,7 +61,8 @@ public class BigQueryPullDataset extends BigQueryInputFormatProvider
                               BigQuery bigQuery,
                               DatasetId bqDataset,
                               String bqTable,
-                              String gcsPath) {
+                              @Nullable String gcsPath,
+                              String inputFormatClassName) {
     super(configuration);
     this.datasetName = datasetName;
     this.schema = schema;
@@ -63,6 +70,7 @@ public class BigQueryPullDataset extends BigQueryInputFormatProvider
     this.bqDataset = bqDataset;
     this.bqTable = bqTable;
     this.gcsPath = gcsPath;
+    this.inputFormatClassName = inputFormatClassName;
   }
 
   public static BigQueryPullDataset getInstance(SQLPullRequest pullRequest,
@@ -71,14 +79,24 @@ public class BigQueryPullDataset extends BigQueryInputFormatProvider
                                                 DatasetId bqDataset,
                                                 String bqTable,
                                                 String bucket,
-                                                String runId) throws IOException {
+                                                String runId,
+                                                boolean useStorageReadAPI) throws IOException {
 
     // Clone configuration object
     Configuration configuration = new Configuration(baseConfiguration);
 
     // Configure BigQuery input format.
-    String gcsPath = BigQuerySQLEngineUtils.getGCSPath(bucket, runId, bqTable);
-    BigQuerySourceUtils.configureBigQueryInput(configuration, bqDataset, bqTable, gcsPath);
+    String gcsPath = null;
+    String inputFormatClassName;
+    if (useStorageReadAPI) {
+      // Zero lets BigQuery pick the number of streams based on the size of the table.
+      BigQuerySourceUtils.configureStorageReadInput(configuration, bqDataset, bqTable, 0);
+      inputFormatClassName = BigQueryStorageReadInputFormat.class.getName();
+    } else {
+      gcsPath = BigQuerySQLEngineUtils.getGCSPath(bucket, runId, bqTable);
+      BigQuerySourceUtils.configureBigQueryInput(configuration, bqDataset, bqTable, gcsPath);
+      inputFormatClassName = PartitionedBigQueryInputFormat.class.getName();
+    }
 
     return new BigQueryPullDataset(configuration,
                                    pullRequest.getDatasetName(),
@@ -86,7 +104,13 @@ public class BigQueryPullDataset extends BigQueryInputFormatProvider
                                    bigQuery,
                                    bqDataset,
                                    bqTable,
-                                   gcsPath);
+                                   gcsPath,
+                                   inputFormatClassName);
+  }
+
+  @Override
+  public String getInputFormatClassName() {
+    return inputFormatClassName;
   }
 
   @Override
@@ -136,6 +160,7 @@ public class BigQueryPullDataset extends BigQueryInputFormatProvider
   }
 
   @Override
+  @Nullable
   public String getGCSPath() {
     return gcsPath;
   }
@@ -27,6 +27,7 @@ import io.cdap.cdap.etl.api.engine.sql.dataset.SQLPushDataset;
 import io.cdap.cdap.etl.api.engine.sql.request.SQLPushRequest;
 import io.cdap.plugin.gcp.bigquery.sink.BigQueryOutputFormatProvider;
 import io.cdap.plugin.gcp.bigquery.sink.BigQuerySinkUtils;
+import io.cdap.plugin.gcp.bigquery.sink.BigQueryStorageWriteOutputFormat;
 import io.cdap.plugin.gcp.bigquery.sink.Operation;
 import io.cdap.plugin.gcp.bigquery.sqlengine.transform.PushTransform;
 import io.cdap.plugin.gcp.bigquery.sqlengine.util.BigQuerySQLEngineUtils;
@@ -49,6 +50,7 @@ public class BigQueryPushDataset extends BigQueryOutputFormatProvider
   private final String bqTable;
   private final String gcsPath;
   private final String jobId;
+  private final boolean useStorageWriteAPI;
   private Long numRows;
 
   private BigQueryPushDataset(String datasetName,
@@ -58,7 +60,8 @@ public class BigQueryPushDataset extends BigQueryOutputFormatProvider
                               DatasetId bqDataset,
                               String bqTable,
                               String jobId,
-                              String gcsPath) {
+                              String gcsPath,
+                              boolean useStorageWriteAPI) {
     super(configuration, tableSchema);
     this.datasetName = datasetName;
     this.bigQuery = bigQuery;
@@ -66,6 +69,7 @@ public class BigQueryPushDataset extends BigQueryOutputFormatProvider
     this.bqTable = bqTable;
     this.jobId = jobId;
     this.gcsPath = gcsPath;
+    this.useStorageWriteAPI = useStorageWriteAPI;
   }
 
   protected static BigQueryPushDataset getInstance(SQLPushRequest pushRequest,
@@ -98,8 +102,15 @@ public class BigQueryPushDataset extends BigQueryOutputFormatProvider
     BigQuerySinkUtils.configureOutput(configuration, dataset, table, gcsPath, fields);
 
     // Create empty table to store uploaded records.
-    BigQuerySQLEngineUtils.createEmptyTable(sqlEngineConfig, bigQuery, dataset.getProject(), dataset.getDataset(),
-                                            table);
+    if (sqlEngineConfig.shouldUseStorageWriteAPI()) {
+      // The Storage Write API can only write into a table which already has the schema of the records.
+      BigQuerySQLEngineUtils.createEmptyTable(
+        sqlEngineConfig, bigQuery, dataset.getProject(), dataset.getDataset(), table,
+        BigQuerySinkUtils.convertCdapSchemaToBigQuerySchema(pushRequest.getDatasetSchema()));
+    } else {
+      BigQuerySQLEngineUtils.createEmptyTable(sqlEngineConfig, bigQuery, dataset.getProject(), dataset.getDataset(),
+                                              table);
+    }
 
     //Build new Instance
     return new BigQueryPushDataset(pushRequest.getDatasetName(),
@@ -109,7 +120,14 @@ public class BigQueryPushDataset extends BigQueryOutputFormatProvider
                                    dataset,
                                    table,
                                    jobId,
-                                   gcsPath);
+                                   gcsPath,
+                                   sqlEngineConfig.shouldUseStorageWriteAPI());
+  }
+
+  @Override
+  public String getOutputFormatClassName() {
+    // Records are either written directly into the table, or staged in GCS and loaded into the table.
+    return useStorageWriteAPI ? BigQueryStorageWriteOutputFormat.class.getName() : super.getOutputFormatClassName();
   }
 
   @Override
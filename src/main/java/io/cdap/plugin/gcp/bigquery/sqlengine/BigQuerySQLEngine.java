@@ -79,6 +79,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -86,6 +87,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
@@ -105,6 +107,8 @@ public class BigQuerySQLEngine
   private static final Logger LOG = LoggerFactory.getLogger(BigQuerySQLEngine.class);
 
   public static final String NAME = "BigQueryPushdownEngine";
+  // Statements longer than this are executed rather than nested, as BigQuery limits the length of a query to 1MB.
+  private static final int MAX_NESTED_QUERY_LENGTH = 256 * 1024;
 
   private final BigQuerySQLEngineConfig sqlEngineConfig;
   private BigQuery bigQuery;
@@ -117,6 +121,9 @@ public class BigQuerySQLEngine
   private String runId;
   private Map<String, String> tableNames;
   private Map<String, BigQuerySQLDataset> datasets;
+  private Map<String, Long> joinEstimatedBytes;
+  // Fingerprints of the contents of the tables of this run, by table name.
+  private Map<String, String> tableFingerprints;
 
   @SuppressWarnings("unused")
   public BigQuerySQLEngine(BigQuerySQLEngineConfig sqlEngineConfig) {
@@ -141,6 +148,8 @@ public class BigQuerySQLEngine
     runId = BigQuerySQLEngineUtils.newIdentifier();
     tableNames = new HashMap<>();
     datasets = new HashMap<>();
+    joinEstimatedBytes = new HashMap<>();
+    tableFingerprints = new HashMap<>();
 
     String serviceAccount = sqlEngineConfig.getServiceAccount();
     Credentials credentials = serviceAccount == null ?
@@ -235,7 +244,8 @@ public class BigQuerySQLEngine
                                              DatasetId.of(datasetProject, dataset),
                                              table,
                                              bucket,
-                                             runId);
+                                             runId,
+                                             sqlEngineConfig.shouldPullWithStorageReadAPI());
     } catch (IOException ioe) {
       throw new SQLEngineException(ioe);
     }
@@ -248,13 +258,53 @@ public class BigQuerySQLEngine
 
   @Override
   public boolean canJoin(SQLJoinDefinition sqlJoinDefinition) {
-    boolean canJoin = isValidJoinDefinition(sqlJoinDefinition);
+    boolean canJoin = isValidJoinDefinition(sqlJoinDefinition) && shouldJoinInBigQuery(sqlJoinDefinition);
     LOG.info("Validating join for stage '{}' can be executed on BigQuery: {}",
              sqlJoinDefinition.getDatasetName(),
              canJoin);
     return canJoin;
   }
 
+  /**
+   * Decides if a valid join should be executed in BigQuery or kept in Spark, based on the estimated size of its inputs.
+   */
+  private boolean shouldJoinInBigQuery(SQLJoinDefinition sqlJoinDefinition) {
+    Long sparkThresholdBytes = sqlEngineConfig.getSparkJoinThresholdBytes();
+    if (sparkThresholdBytes == null || datasets == null) {
+      return true;
+    }
+
+    // Estimate the size of the inputs which are already stored in BigQuery.
+    Map<String, Long> stageToEstimatedBytes = new HashMap<>();
+    for (JoinStage stage : sqlJoinDefinition.getJoinDefinition().getStages()) {
+      BigQuerySQLDataset inputDataset = datasets.get(stage.getStageName());
+      if (inputDataset != null) {
+        stageToEstimatedBytes.put(stage.getStageName(), isDeferred(inputDataset) ? null :
+          BigQuerySQLEngineUtils.getNumBytes(bigQuery,
+                                             DatasetId.of(inputDataset.getBigQueryProject(),
+                                                          inputDataset.getBigQueryDataset()),
+                                             inputDataset.getBigQueryTable()));
+      }
+    }
+
+    BigQueryJoinStrategy.Decision decision =
+      BigQueryJoinStrategy.decide(sqlJoinDefinition.getJoinDefinition().getStages(),
+                                  stageToEstimatedBytes,
+                                  sparkThresholdBytes);
+    long estimatedBytes = BigQueryJoinStrategy.getTotalEstimatedBytes(stageToEstimatedBytes);
+    LOG.info("Join for stage '{}' will be executed in {}. Inputs stored in BigQuery: {}, estimated bytes: {}",
+             sqlJoinDefinition.getDatasetName(),
+             decision,
+             stageToEstimatedBytes.keySet(),
+             estimatedBytes);
+
+    if (decision != BigQueryJoinStrategy.Decision.BIGQUERY) {
+      return false;
+    }
+    joinEstimatedBytes.put(sqlJoinDefinition.getDatasetName(), estimatedBytes);
+    return true;
+  }
+
   @VisibleForTesting
   protected static boolean isValidJoinDefinition(SQLJoinDefinition sqlJoinDefinition) {
     List<String> validationProblems = new ArrayList<>();
@@ -294,17 +344,40 @@ public class BigQuerySQLEngine
 
   @Override
   public SQLDataset join(SQLJoinRequest sqlJoinRequest) throws SQLEngineException {
+    // Inline the statements of input stages which were not executed yet.
+    Map<String, String> stageToSourceExpressionMap = new HashMap<>();
+    for (JoinStage stage : sqlJoinRequest.getJoinDefinition().getStages()) {
+      BigQuerySQLDataset inputDataset = datasets.get(stage.getStageName());
+      addReference(inputDataset);
+      if (isDeferred(inputDataset)) {
+        stageToSourceExpressionMap.put(
+          stage.getStageName(), "(" + ((BigQueryDeferredSelectDataset) inputDataset).getSelectQuery() + ")");
+      }
+    }
+
     // Get SQL builder for this Join operation
     BigQueryJoinSQLBuilder builder = new BigQueryJoinSQLBuilder(
       sqlJoinRequest.getJoinDefinition(),
       DatasetId.of(datasetProject, dataset),
-      getStageNameToBQTableNameMap());
+      getStageNameToBQTableNameMap(),
+      stageToSourceExpressionMap);
 
     // Execute Select job with the supplied query.
-    return executeSelect(sqlJoinRequest.getDatasetName(),
-                         sqlJoinRequest.getJoinDefinition().getOutputSchema(),
-                         BigQueryJobType.JOIN,
-                         builder.getQuery());
+    BigQuerySQLDataset joinDataset = select(sqlJoinRequest.getDatasetName(),
+                                            sqlJoinRequest.getJoinDefinition().getOutputSchema(),
+                                            BigQueryJobType.JOIN,
+                                            builder.getQuery());
+
+    // Compare the bytes estimated when deciding where to execute the join with the bytes BigQuery processed.
+    Long estimatedBytes = joinEstimatedBytes.remove(sqlJoinRequest.getDatasetName());
+    if (estimatedBytes != null && joinDataset instanceof BigQuerySelectDataset) {
+      LOG.info("Join for stage '{}' had {} estimated input bytes stored in BigQuery, and processed {} bytes",
+               sqlJoinRequest.getDatasetName(),
+               estimatedBytes,
+               ((BigQuerySelectDataset) joinDataset).getTotalBytesProcessed());
+    }
+
+    return joinDataset;
   }
 
   @Nullable
@@ -366,7 +439,8 @@ public class BigQuerySQLEngine
   public void cleanup(String datasetName) throws SQLEngineException {
 
     BigQuerySQLDataset bqDataset = datasets.get(datasetName);
-    if (bqDataset == null) {
+    // Deferred datasets which were never executed have no job or table to clean up.
+    if (bqDataset == null || isDeferred(bqDataset)) {
       return;
     }
 
@@ -477,13 +551,57 @@ public class BigQuerySQLEngine
         e -> (BigQuerySQLDataset) e.getValue()));
 
     // Set input datasets for relation.
+    bqDatasets.values().forEach(this::addReference);
     relation.setInputDatasets(bqDatasets);
 
     // Execute select with the generated expression.
-    return executeSelect(context.getOutputDatasetName(),
-                         context.getOutputSchema(),
-                         BigQueryJobType.TRANSFORM,
-                         relation.getSQLStatement());
+    return select(context.getOutputDatasetName(),
+                  context.getOutputSchema(),
+                  BigQueryJobType.TRANSFORM,
+                  relation.getSQLStatement());
+  }
+
+  /**
+   * Returns a dataset for the results of a select statement. The statement is executed right away, unless statements
+   * are fused, in which case it is only executed once its results need to be stored in a table.
+   */
+  private BigQuerySQLDataset select(String datasetName,
+                                    Schema outputSchema,
+                                    BigQueryJobType jobType,
+                                    String query) {
+    if (!sqlEngineConfig.shouldFuseStatements()) {
+      return executeSelect(datasetName, outputSchema, jobType, query);
+    }
+
+    LOG.info("Deferring {} operation for dataset {}", jobType.getType(), datasetName);
+    BigQueryDeferredSelectDataset deferredDataset = BigQueryDeferredSelectDataset.getInstance(
+      datasetName,
+      outputSchema,
+      datasetProject,
+      dataset,
+      query,
+      () -> executeSelect(datasetName, outputSchema, jobType, query));
+    datasets.put(datasetName, deferredDataset);
+    return deferredDataset;
+  }
+
+  /**
+   * Records that a stage reads the supplied dataset. Deferred datasets read by more than one stage are executed, so
+   * that their statement runs once instead of once per stage, and so are statements too long to be nested further.
+   */
+  private void addReference(@Nullable BigQuerySQLDataset bqDataset) {
+    if (!(bqDataset instanceof BigQueryDeferredSelectDataset)) {
+      return;
+    }
+    BigQueryDeferredSelectDataset deferredDataset = (BigQueryDeferredSelectDataset) bqDataset;
+    if (deferredDataset.addReference() > 1 || deferredDataset.getSelectQuery().length() > MAX_NESTED_QUERY_LENGTH) {
+      deferredDataset.execute();
+    }
+  }
+
+  private static boolean isDeferred(@Nullable BigQuerySQLDataset bqDataset) {
+    return bqDataset instanceof BigQueryDeferredSelectDataset
+      && !((BigQueryDeferredSelectDataset) bqDataset).isExecuted();
   }
 
   private BigQuerySelectDataset executeSelect(String datasetName,
@@ -512,7 +630,15 @@ public class BigQuerySQLEngine
       jobId,
       jobType,
       query
-    ).execute();
+    );
+
+    String cacheKey = sqlEngineConfig.shouldCacheIntermediateTables() ? getCacheKey(query) : null;
+    if (cacheKey == null) {
+      selectDataset.execute();
+    } else {
+      executeCached(selectDataset, cacheKey);
+      tableFingerprints.put(table, cacheKey);
+    }
 
     datasets.put(datasetName, selectDataset);
 
@@ -520,14 +646,82 @@ public class BigQuerySQLEngine
     return selectDataset;
   }
 
+  /**
+   * Get the cache key for a statement, based on the contents of the tables of this run which the statement reads.
+   *
+   * @return the cache key, or null if the results of the statement cannot be cached.
+   */
+  @Nullable
+  private String getCacheKey(String query) {
+    Map<String, String> tableNameToFingerprint = new HashMap<>();
+    for (BigQuerySQLDataset bqDataset : datasets.values()) {
+      if (isDeferred(bqDataset) || !query.contains(bqDataset.getBigQueryTable())) {
+        continue;
+      }
+
+      String tableName = bqDataset.getBigQueryTable();
+      String fingerprint = tableFingerprints.get(tableName);
+      if (fingerprint == null && bqDataset instanceof BigQueryPushDataset) {
+        // Records pushed from Spark are fingerprinted once, when a statement first reads them.
+        try {
+          fingerprint = BigQueryIntermediateTableCache.getFingerprint(
+            bigQuery, TableId.of(bqDataset.getBigQueryProject(), bqDataset.getBigQueryDataset(), tableName));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new SQLEngineException("Interrupted exception when fingerprinting table " + tableName, e);
+        }
+        tableFingerprints.put(tableName, fingerprint);
+      }
+
+      // The results of statements reading tables which are not fingerprinted cannot be cached.
+      if (fingerprint == null) {
+        return null;
+      }
+      tableNameToFingerprint.put(tableName, fingerprint);
+    }
+
+    return BigQueryIntermediateTableCache.getKey(query, tableNameToFingerprint);
+  }
+
+  /**
+   * Populates the table of a select dataset from the cache if an earlier run cached the results of the statement, or
+   * executes the statement and caches its results otherwise.
+   */
+  private void executeCached(BigQuerySelectDataset selectDataset, String cacheKey) {
+    TableId tableId = TableId.of(datasetProject, dataset, selectDataset.getBigQueryTable());
+    TableId cacheTableId = TableId.of(datasetProject, dataset, BigQueryIntermediateTableCache.getTableName(cacheKey));
+
+    try {
+      // Cached tables are copied, as they may expire while this run still reads them.
+      if (bigQuery.getTable(cacheTableId) != null) {
+        LOG.info("Reusing the results of an earlier run cached in table '{}' for dataset {}",
+                 cacheTableId.getTable(), selectDataset.getDatasetName());
+        BigQueryIntermediateTableCache.copyTable(bigQuery, cacheTableId, tableId, null);
+        return;
+      }
+
+      selectDataset.execute();
+      long ttlMillis = TimeUnit.MILLISECONDS.convert(sqlEngineConfig.getTempTableTTLHours(), TimeUnit.HOURS);
+      BigQueryIntermediateTableCache.copyTable(bigQuery, tableId, cacheTableId,
+                                               Instant.now().toEpochMilli() + ttlMillis);
+      LOG.info("Cached the results for dataset {} in table '{}'",
+               selectDataset.getDatasetName(), cacheTableId.getTable());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLEngineException("Interrupted exception when copying table " + cacheTableId.getTable(), e);
+    }
+  }
+
   /**
    * Get a map that contains stage names as keys and BigQuery tables as Values.
    *
    * @return map representing all stages currently pushed to BQ.
    */
   protected Map<String, String> getStageNameToBQTableNameMap() {
+    // Deferred datasets have no table until they are executed.
     return datasets.entrySet()
       .stream()
+      .filter(e -> !isDeferred(e.getValue()))
       .collect(Collectors.toMap(
         Map.Entry::getKey,
         e -> e.getValue().getBigQueryTable()
@@ -43,7 +43,12 @@ public class BigQuerySQLEngineConfig extends BigQueryBaseConfig {
     public static final String NAME_TEMP_TABLE_TTL_HOURS = "tempTableTTLHours";
     public static final String NAME_JOB_PRIORITY = "jobPriority";
     public static final String NAME_USE_STORAGE_READ_API = "useStorageReadAPI";
+    public static final String NAME_PULL_WITH_STORAGE_READ_API = "pullWithStorageReadAPI";
     public static final String NAME_DIRECT_SINK_WRITE = "useDirectSinkWrite";
+    public static final String NAME_USE_STORAGE_WRITE_API = "useStorageWriteAPI";
+    public static final String NAME_FUSE_STATEMENTS = "fuseStatements";
+    public static final String NAME_SPARK_JOIN_THRESHOLD_MB = "sparkJoinThresholdMB";
+    public static final String NAME_CACHE_INTERMEDIATE_TABLES = "cacheIntermediateTables";
 
     // Job priority options
     public static final String PRIORITY_BATCH = "batch";
@@ -89,6 +94,24 @@ public class BigQuerySQLEngineConfig extends BigQueryBaseConfig {
       "This requires Scala version 2.12 to be installed in the execution environment.")
     private Boolean useStorageReadAPI;
 
+    @Name(NAME_PULL_WITH_STORAGE_READ_API)
+    @Macro
+    @Nullable
+    @Description("Select this option to read records pulled from BigQuery through the BigQuery Storage Read API " +
+      "within the pipeline tasks, instead of exporting them to the temporary bucket and reading the exported files. " +
+      "Unlike 'Use BigQuery Storage Read API', this does not require Scala 2.12. If both options are selected and " +
+      "records are pulled into Spark, 'Use BigQuery Storage Read API' takes precedence. The usage of this API " +
+      "incurrs additional costs.")
+    private Boolean pullWithStorageReadAPI;
+
+    @Name(NAME_USE_STORAGE_WRITE_API)
+    @Macro
+    @Nullable
+    @Description("Select this option to use the BigQuery Storage Write API when pushing records into BigQuery " +
+      "during pipeline execution. Records are written directly into the BigQuery table instead of being staged in " +
+      "the temporary bucket and loaded with a load job. The usage of this API incurrs additional costs.")
+    private Boolean useStorageWriteAPI;
+
     @Name(NAME_DIRECT_SINK_WRITE)
     @Macro
     @Nullable
@@ -98,6 +121,33 @@ public class BigQuerySQLEngineConfig extends BigQueryBaseConfig {
       "succeed, the standard sink workflow will continue to execute.")
     private Boolean useDirectSinkWrite;
 
+    @Name(NAME_FUSE_STATEMENTS)
+    @Macro
+    @Nullable
+    @Description("If enabled, the SQL engine will combine the statements of consecutive join and transformation " +
+      "stages into a single BigQuery job, instead of storing the results of every stage in a temporary table. " +
+      "The results of a stage are still stored in a table when they are read by more than one stage, pulled " +
+      "from BigQuery or written to a sink. The number of records of combined stages is not reported in metrics.")
+    private Boolean fuseStatements;
+
+    @Name(NAME_SPARK_JOIN_THRESHOLD_MB)
+    @Macro
+    @Nullable
+    @Description("Maximum size, in megabytes, of a join input stored in BigQuery for the input to be considered " +
+      "small. If set, joins with a small input whose other inputs have not been pushed into BigQuery yet are left " +
+      "to Spark, whose own planner picks how to join them, instead of pushing all inputs into BigQuery. Inputs " +
+      "which are still in Spark are considered small if they are marked to be broadcast. If not set, all supported " +
+      "joins are executed in BigQuery.")
+    private Integer sparkJoinThresholdMB;
+
+    @Name(NAME_CACHE_INTERMEDIATE_TABLES)
+    @Macro
+    @Nullable
+    @Description("If enabled, the results of join and transformation stages are cached in BigQuery, and later runs " +
+      "which execute the same stage over the same records reuse the cached results instead of executing the stage " +
+      "again. Cached results expire after the Temporary Table TTL. Records pushed into BigQuery are fingerprinted " +
+      "with a query over the pushed table, which incurs additional costs.")
+    private Boolean cacheIntermediateTables;
 
     private BigQuerySQLEngineConfig(@Nullable BigQueryConnectorConfig connection,
                                     @Nullable String dataset, @Nullable String location,
@@ -125,10 +175,34 @@ public class BigQuerySQLEngineConfig extends BigQueryBaseConfig {
         return useStorageReadAPI != null ? useStorageReadAPI : false;
     }
 
+    public Boolean shouldPullWithStorageReadAPI() {
+        return pullWithStorageReadAPI != null ? pullWithStorageReadAPI : false;
+    }
+
+    public Boolean shouldUseStorageWriteAPI() {
+        return useStorageWriteAPI != null ? useStorageWriteAPI : false;
+    }
+
     public Boolean shouldUseDirectSinkWrite() {
         return useDirectSinkWrite != null ? useDirectSinkWrite : false;
     }
 
+    public Boolean shouldFuseStatements() {
+        return fuseStatements != null ? fuseStatements : false;
+    }
+
+    public Boolean shouldCacheIntermediateTables() {
+        return cacheIntermediateTables != null ? cacheIntermediateTables : false;
+    }
+
+    /**
+     * @return the Spark join threshold in bytes, or null if joins should not be kept in Spark based on their size.
+     */
+    @Nullable
+    public Long getSparkJoinThresholdBytes() {
+        return sparkJoinThresholdMB != null ? sparkJoinThresholdMB * 1024L * 1024L : null;
+    }
+
     public QueryJobConfiguration.Priority getJobPriority() {
         String priority = jobPriority != null ? jobPriority : "batch";
         return QueryJobConfiguration.Priority.valueOf(priority.toUpperCase());
@@ -144,6 +218,12 @@ public class BigQuerySQLEngineConfig extends BigQueryBaseConfig {
                 && !PRIORITY_INTERACTIVE.equalsIgnoreCase(jobPriority)) {
             throw new SQLEngineException("Property 'jobPriority' must be 'batch' or 'interactive'");
         }
+
+        // Ensure the broadcast join threshold is not negative
+        if (sparkJoinThresholdMB != null && !containsMacro(NAME_SPARK_JOIN_THRESHOLD_MB)
+                && sparkJoinThresholdMB < 0) {
+            throw new SQLEngineException("Property 'sparkJoinThresholdMB' must not be negative");
+        }
     }
 
     public void validate(FailureCollector failureCollector) {
@@ -6,6 +6,7 @@ import com.google.cloud.bigquery.DatasetId;
 import com.google.cloud.bigquery.Job;
 import com.google.cloud.bigquery.JobId;
 import com.google.cloud.bigquery.JobInfo;
+import com.google.cloud.bigquery.JobStatistics;
 import com.google.cloud.bigquery.QueryJobConfiguration;
 import com.google.cloud.bigquery.Table;
 import com.google.cloud.bigquery.TableDefinition;
@@ -15,6 +16,7 @@ import io.cdap.cdap.etl.api.engine.sql.SQLEngineException;
 import io.cdap.cdap.etl.api.engine.sql.dataset.SQLDataset;
 import io.cdap.plugin.gcp.bigquery.sink.BigQuerySinkUtils;
 import io.cdap.plugin.gcp.bigquery.sqlengine.util.BigQuerySQLEngineUtils;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryJobPoller;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,6 +41,7 @@ public class BigQuerySelectDataset implements SQLDataset, BigQuerySQLDataset {
   private final BigQueryJobType operation;
   private final String selectQuery;
   private Long numRows;
+  private Long totalBytesProcessed;
 
   public static BigQuerySelectDataset getInstance(String datasetName,
                                                   Schema outputSchema,
@@ -115,7 +118,7 @@ public class BigQuerySelectDataset implements SQLDataset, BigQuerySQLDataset {
 
     // Wait for the query to complete.
     try {
-      queryJob = queryJob.waitFor();
+      queryJob = BigQueryJobPoller.getInstance().waitFor(queryJob);
     } catch (InterruptedException ie) {
       throw new SQLEngineException("Interrupted exception when executing Join operation", ie);
     }
@@ -129,10 +132,21 @@ public class BigQuerySelectDataset implements SQLDataset, BigQuerySQLDataset {
         jobId, project, bqDataset, location, queryJob.getStatus().getError().toString()));
     }
 
+    JobStatistics.QueryStatistics statistics = queryJob.getStatistics();
+    totalBytesProcessed = statistics != null ? statistics.getTotalBytesProcessed() : null;
+
     LOG.info("Created BigQuery table `{}` using Job: {}", bqTable, jobId);
     return this;
   }
 
+  /**
+   * @return the number of bytes processed by the job which executed the select statement, if known.
+   */
+  @Nullable
+  public Long getTotalBytesProcessed() {
+    return totalBytesProcessed;
+  }
+
   @Override
   public String getDatasetName() {
     return datasetName;
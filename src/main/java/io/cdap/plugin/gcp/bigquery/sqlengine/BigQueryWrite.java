@@ -44,6 +44,7 @@ import io.cdap.plugin.gcp.bigquery.sink.BigQuerySinkUtils;
 import io.cdap.plugin.gcp.bigquery.sink.Operation;
 import io.cdap.plugin.gcp.bigquery.sink.PartitionType;
 import io.cdap.plugin.gcp.bigquery.sqlengine.util.BigQuerySQLEngineUtils;
+import io.cdap.plugin.gcp.bigquery.util.BigQueryJobPoller;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -217,7 +218,7 @@ public class BigQueryWrite {
     TableResult result = null;
 
     // Wait for the query to complete.
-    queryJob = queryJob.waitFor();
+    queryJob = BigQueryJobPoller.getInstance().waitFor(queryJob);
     result = queryJob.getQueryResults();
 
     // Check for errors
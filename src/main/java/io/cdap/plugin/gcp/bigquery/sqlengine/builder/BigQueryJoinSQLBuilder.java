@@ -56,6 +56,22 @@ public class BigQueryJoinSQLBuilder extends BigQueryBaseSQLBuilder {
          new StringBuilder());
   }
 
+  /**
+   * @param stageToSourceExpressionMap source expressions, such as subqueries, used instead of the BigQuery table of
+   *                                   some of the stages
+   */
+  public BigQueryJoinSQLBuilder(JoinDefinition joinDefinition,
+                                DatasetId dataset,
+                                Map<String, String> stageToBQTableNameMap,
+                                Map<String, String> stageToSourceExpressionMap) {
+    this(joinDefinition,
+         dataset,
+         stageToBQTableNameMap,
+         new HashMap<>(stageToSourceExpressionMap),
+         new HashMap<>(),
+         new StringBuilder());
+  }
+
   @VisibleForTesting
   protected BigQueryJoinSQLBuilder(JoinDefinition joinDefinition,
                                    DatasetId dataset,
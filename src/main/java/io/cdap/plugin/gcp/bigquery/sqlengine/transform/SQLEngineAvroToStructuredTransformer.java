@@ -48,6 +48,25 @@ public class SQLEngineAvroToStructuredTransformer extends BigQueryAvroToStructur
   private static final String FLOAT_CONVERSION_ERROR =
     "Could not convert Object '%s' into Float when reading from BigQuery";
 
+  @Override
+  protected FieldConverter compileField(Schema fieldSchema) {
+    Schema schema = fieldSchema.isNullable() ? fieldSchema.getNonNullable() : fieldSchema;
+    if (schema.getLogicalType() == null) {
+      switch (schema.getType()) {
+        case INT:
+          return SQLEngineAvroToStructuredTransformer::mapInteger;
+        case FLOAT:
+          return SQLEngineAvroToStructuredTransformer::mapFloat;
+        case STRING:
+          return value -> value instanceof ByteBuffer ?
+            StandardCharsets.UTF_8.decode((ByteBuffer) value).toString() : value.toString();
+        default:
+          break;
+      }
+    }
+    return super.compileField(fieldSchema);
+  }
+
   @Override
   @Nullable
   protected Object convertField(Object field, Schema fieldSchema) throws IOException {
@@ -107,11 +107,54 @@ public class BigQuerySQLEngineUtils {
     }
 
     long numRows = bgTable.getNumRows().longValue();
+    // Rows written through the Storage Write API are not counted until they leave the streaming buffer.
+    StandardTableDefinition.StreamingBuffer streamingBuffer = getStreamingBuffer(bgTable);
+    if (streamingBuffer != null && streamingBuffer.getEstimatedRows() != null) {
+      numRows += streamingBuffer.getEstimatedRows();
+    }
 
     LOG.debug("Table {} contains {} records", table, numRows);
     return numRows;
   }
 
+  /**
+   * Returns the streaming buffer of a table, or null if the table has none.
+   */
+  @Nullable
+  private static StandardTableDefinition.StreamingBuffer getStreamingBuffer(Table table) {
+    TableDefinition definition = table.getDefinition();
+    return definition instanceof StandardTableDefinition ?
+      ((StandardTableDefinition) definition).getStreamingBuffer() : null;
+  }
+
+  /**
+   * Get the estimated number of bytes stored in a BQ table.
+   *
+   * @param bigQuery BigQuery client
+   * @param dataset  Dataset Id
+   * @param table    Table Name
+   * @return number of bytes for this table, or null if the table could not be found.
+   */
+  @Nullable
+  public static Long getNumBytes(BigQuery bigQuery, DatasetId dataset, String table) {
+    TableId tableId = TableId.of(dataset.getProject(), dataset.getDataset(), table);
+    Table bgTable = bigQuery.getTable(tableId);
+
+    if (bgTable == null || bgTable.getNumBytes() == null) {
+      return null;
+    }
+
+    long numBytes = bgTable.getNumBytes();
+    // Bytes written through the Storage Write API are not counted until they leave the streaming buffer.
+    StandardTableDefinition.StreamingBuffer streamingBuffer = getStreamingBuffer(bgTable);
+    if (streamingBuffer != null && streamingBuffer.getEstimatedBytes() != null) {
+      numBytes += streamingBuffer.getEstimatedBytes();
+    }
+
+    LOG.debug("Table {} contains {} bytes", table, numBytes);
+    return numBytes;
+  }
+
   /**
    * Creates an empty table with an empty schema to store records.
    * <p>
@@ -128,12 +171,33 @@ public class BigQuerySQLEngineUtils {
                                       String project,
                                       String dataset,
                                       String table) {
+    createEmptyTable(config, bigQuery, project, dataset, table, com.google.cloud.bigquery.Schema.of());
+  }
+
+  /**
+   * Creates an empty table with the supplied schema to store records.
+   * <p>
+   * If the Engine Configuration specifies a TTL for tables, the table is created with the specified TTL.
+   *
+   * @param config      BigQuery SQL Engine Config instance
+   * @param bigQuery    BigQuery client
+   * @param project     Project Name
+   * @param dataset     Dataset Name
+   * @param table       Table Name
+   * @param tableSchema BigQuery schema for the new table
+   */
+  public static void createEmptyTable(BigQuerySQLEngineConfig config,
+                                      BigQuery bigQuery,
+                                      String project,
+                                      String dataset,
+                                      String table,
+                                      com.google.cloud.bigquery.Schema tableSchema) {
 
     LOG.debug("Creating empty table {} in dataset {} and project {}", table, dataset, project);
 
     // Define table name and create builder.
     TableId tableId = TableId.of(project, dataset, table);
-    TableDefinition tableDefinition = StandardTableDefinition.of(com.google.cloud.bigquery.Schema.of());
+    TableDefinition tableDefinition = StandardTableDefinition.of(tableSchema);
     TableInfo.Builder tableInfoBuilder = TableInfo.newBuilder(tableId, tableDefinition);
 
     // Set TTL for table if needed.
@@ -45,4 +45,24 @@ public interface BigQueryConstants {
   String CONFIG_PARTITION_INTEGER_RANGE_INTERVAL = "cdap.bq.sink.partition.integer.range.interval";
   String CONFIG_TEMPORARY_TABLE_NAME = "cdap.bq.source.temporary.table.name";
   String CDAP_BQ_SINK_OUTPUT_SCHEMA = "cdap.bq.sink.output.schema";
+  String CONFIG_LOAD_JOB_PARALLELISM = "cdap.bq.sink.load.job.parallelism";
+  String CONFIG_LOAD_INTO_PARTITIONS = "cdap.bq.sink.load.into.partitions";
+  String CONFIG_PARTITION_LOAD_MAX_WRITERS = "cdap.bq.sink.partition.load.max.writers";
+  String CONFIG_STORAGE_WRITE_BATCH_SIZE = "cdap.bq.sink.storage.write.batch.size";
+  String CONFIG_MULTI_SINK_COMMIT_PARALLELISM = "cdap.bq.multi.sink.commit.parallelism";
+  String CONFIG_STAGING_FILE_FORMAT = "cdap.bq.sink.staging.file.format";
+  String CONFIG_PARQUET_ROW_GROUP_SIZE = "cdap.bq.sink.parquet.row.group.size";
+  String CONFIG_PARQUET_COMPRESSION = "cdap.bq.sink.parquet.compression";
+  String CONFIG_PARQUET_ENABLE_DICTIONARY = "cdap.bq.sink.parquet.enable.dictionary";
+  String CONFIG_STAGING_FILE_TARGET_SIZE = "cdap.bq.sink.staging.file.target.size";
+  String CONFIG_STAGING_COALESCE_SIZE = "cdap.bq.sink.staging.coalesce.size";
+  String CONFIG_AVRO_COMPRESSION_CODEC = "cdap.bq.sink.avro.compression.codec";
+  String CONFIG_AVRO_DEFLATE_LEVEL = "cdap.bq.sink.avro.deflate.level";
+  String CONFIG_AVRO_COMPRESSION_THREADS = "cdap.bq.sink.avro.compression.threads";
+  String CONFIG_STORAGE_READ_MAX_STREAMS = "cdap.bq.source.storage.read.max.streams";
+  String CONFIG_SELECTED_FIELDS = "cdap.bq.source.selected.fields";
+  String CONFIG_RESULT_CACHE_ENABLED = "cdap.bq.source.result.cache.enabled";
+  String CONFIG_READ_PARTITIONS = "cdap.bq.source.read.partitions";
+  String CONFIG_MULTI_SOURCE_TABLES = "cdap.bq.multi.source.tables";
+  String CONFIG_MULTI_SOURCE_TABLE_NAME_FIELD = "cdap.bq.multi.source.table.name.field";
 }
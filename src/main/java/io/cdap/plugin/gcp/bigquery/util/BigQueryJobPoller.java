@@ -0,0 +1,249 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.util;
+
+import com.google.cloud.bigquery.BigQueryException;
+import com.google.cloud.bigquery.Job;
+import com.google.cloud.bigquery.JobStatus;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+/**
+ * Tracks BigQuery jobs until they are done.
+ *
+ * Polls are scheduled from a single shared scheduler thread instead of a sleeping thread per job, so many load or query
+ * jobs can be tracked at once. The requests which fetch the state of the jobs are sent from a small pool of I/O
+ * threads, so a slow request does not delay the polls of other jobs. Every job backs off exponentially between polls,
+ * with jitter so that jobs submitted together do not keep polling together. Retryable errors are retried with the same
+ * back off, from the scheduler rather than by sleeping in a thread. Callers get a {@link CompletableFuture} which
+ * completes with the final state of the job, or can block on it with {@link #waitFor(Job)} and
+ * {@link #await(CompletableFuture)}.
+ */
+public final class BigQueryJobPoller {
+  private static final Logger LOG = LoggerFactory.getLogger(BigQueryJobPoller.class);
+  private static final long INITIAL_INTERVAL_MILLIS = 500L;
+  private static final long MAX_INTERVAL_MILLIS = 10000L;
+  private static final double MULTIPLIER = 1.5d;
+  // Number of consecutive retryable errors after which a poll fails.
+  private static final int MAX_CONSECUTIVE_ERRORS = 10;
+  private static final int IO_THREADS = 8;
+  private static final BigQueryJobPoller INSTANCE = new BigQueryJobPoller(
+    Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("bigquery-job-poller").setDaemon(true).build()),
+    Executors.newFixedThreadPool(
+      IO_THREADS, new ThreadFactoryBuilder().setNameFormat("bigquery-job-poller-io-%d").setDaemon(true).build()),
+    INITIAL_INTERVAL_MILLIS, MAX_INTERVAL_MILLIS);
+
+  private final ScheduledExecutorService scheduler;
+  private final Executor ioExecutor;
+  private final long initialIntervalMillis;
+  private final long maxIntervalMillis;
+
+  @VisibleForTesting
+  BigQueryJobPoller(ScheduledExecutorService scheduler, Executor ioExecutor, long initialIntervalMillis,
+                    long maxIntervalMillis) {
+    this.scheduler = scheduler;
+    this.ioExecutor = ioExecutor;
+    this.initialIntervalMillis = initialIntervalMillis;
+    this.maxIntervalMillis = maxIntervalMillis;
+  }
+
+  /**
+   * @return the poller shared by all BigQuery plugins in this JVM
+   */
+  public static BigQueryJobPoller getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Polls a job until it is done. Errors fetching the state of the job are not retried.
+   *
+   * @see #poll(String, Callable, Predicate, Predicate, long)
+   */
+  public <T> CompletableFuture<T> poll(String jobName, Callable<T> get, Predicate<T> isDone, long maxElapsedMillis) {
+    return poll(jobName, get, isDone, t -> false, maxElapsedMillis);
+  }
+
+  /**
+   * Polls a job until it is done.
+   *
+   * @param jobName name of the job, used for logging and error messages
+   * @param get fetches the current state of the job with a single request, without retrying or sleeping
+   * @param isDone returns true once the fetched state is final
+   * @param isRetryable returns true if an error thrown by get is transient, in which case get is called again after
+   *                    backing off
+   * @param maxElapsedMillis time after which the future fails with an {@link IOException}, or 0 to poll until done
+   * @return future which completes with the final state of the job, or fails with the exception thrown by get
+   */
+  public <T> CompletableFuture<T> poll(String jobName, Callable<T> get, Predicate<T> isDone,
+                                       Predicate<Throwable> isRetryable, long maxElapsedMillis) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    new PollTask<>(jobName, get, isDone, isRetryable, maxElapsedMillis, future).run();
+    return future;
+  }
+
+  /**
+   * Polls a job created with the BigQuery client until it is done. Retryable {@link BigQueryException}s, such as rate
+   * limit and server errors, are retried.
+   *
+   * @return future which completes with the final state of the job, or with null if the job no longer exists
+   */
+  public CompletableFuture<Job> watch(Job job) {
+    if (isDone(job)) {
+      return CompletableFuture.completedFuture(job);
+    }
+    return poll(job.getJobId().getJob(), job::reload, j -> j == null || isDone(j),
+                t -> t instanceof BigQueryException && ((BigQueryException) t).isRetryable(), 0L);
+  }
+
+  /**
+   * Blocks until the job is done. This is a drop-in replacement for {@link Job#waitFor}.
+   *
+   * @return the final state of the job, or null if the job no longer exists
+   * @throws com.google.cloud.bigquery.BigQueryException if the job state can not be fetched
+   */
+  @Nullable
+  public Job waitFor(Job job) throws InterruptedException {
+    CompletableFuture<Job> future = watch(job);
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      throw e;
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(
+        String.format("Failed to wait for BigQuery job '%s'.", job.getJobId().getJob()), e.getCause());
+    }
+  }
+
+  /**
+   * Blocks until the future returned by {@link #poll} completes. Polling stops if the calling thread is interrupted.
+   */
+  public static <T> T await(CompletableFuture<T> future) throws IOException, InterruptedException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      throw e;
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+
+  private static boolean isDone(Job job) {
+    return job.getStatus() != null && job.getStatus().getState() == JobStatus.State.DONE;
+  }
+
+  /**
+   * Polls a single job from the I/O threads and reschedules itself until the job is done.
+   */
+  private final class PollTask<T> implements Runnable {
+    private final String jobName;
+    private final Callable<T> get;
+    private final Predicate<T> isDone;
+    private final Predicate<Throwable> isRetryable;
+    private final long maxElapsedMillis;
+    private final CompletableFuture<T> future;
+    private final long startTime;
+    private long intervalMillis;
+    private int consecutiveErrors;
+
+    private PollTask(String jobName, Callable<T> get, Predicate<T> isDone, Predicate<Throwable> isRetryable,
+                     long maxElapsedMillis, CompletableFuture<T> future) {
+      this.jobName = jobName;
+      this.get = get;
+      this.isDone = isDone;
+      this.isRetryable = isRetryable;
+      this.maxElapsedMillis = maxElapsedMillis;
+      this.future = future;
+      this.startTime = System.currentTimeMillis();
+      this.intervalMillis = initialIntervalMillis;
+    }
+
+    @Override
+    public void run() {
+      // The future is completed by the caller when it stops waiting.
+      if (future.isDone()) {
+        return;
+      }
+      try {
+        ioExecutor.execute(this::pollOnce);
+      } catch (Exception e) {
+        future.completeExceptionally(e);
+      }
+    }
+
+    private void pollOnce() {
+      if (future.isDone()) {
+        return;
+      }
+      try {
+        T state = get.call();
+        consecutiveErrors = 0;
+        if (isDone.test(state)) {
+          future.complete(state);
+          return;
+        }
+      } catch (Throwable t) {
+        if (!isRetryable.test(t) || ++consecutiveErrors >= MAX_CONSECUTIVE_ERRORS) {
+          future.completeExceptionally(t);
+          return;
+        }
+        LOG.debug("Retrying to fetch the state of job {} after error: {}", jobName, t.getMessage());
+      }
+
+      long elapsedTime = System.currentTimeMillis() - startTime;
+      if (maxElapsedMillis > 0 && elapsedTime >= maxElapsedMillis) {
+        future.completeExceptionally(
+          new IOException(String.format("Job %s failed to complete after %s millis.", jobName, elapsedTime)));
+        return;
+      }
+      long delay = intervalMillis / 2 + ThreadLocalRandom.current().nextLong(intervalMillis / 2 + 1);
+      intervalMillis = Math.min(maxIntervalMillis, (long) (intervalMillis * MULTIPLIER));
+      LOG.trace("Job {} is not done after {} ms, polling again in {} ms.", jobName, elapsedTime, delay);
+      try {
+        scheduler.schedule(this, delay, TimeUnit.MILLISECONDS);
+      } catch (Exception e) {
+        future.completeExceptionally(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.util;
+
+import com.google.api.services.bigquery.model.TableReference;
+import com.google.cloud.bigquery.DatasetId;
+import com.google.cloud.bigquery.TableId;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+/**
+ * Caches BigQuery table and dataset metadata for the duration of a job.
+ *
+ * Committing a sink looks up the same destination table and dataset many times, and a multi sink does so for every
+ * table. Lookups made through the cache of a job only reach BigQuery the first time. Both the REST model and the
+ * client library representations are cached, keyed by the fully qualified table or dataset name, and a missing
+ * table is cached as well. Code which changes a table has to call {@link #invalidateTable}, or
+ * {@link #invalidateTableForAllJobs} when it has no access to the cache of the job.
+ */
+public final class BigQueryMetadataCache {
+  // Caches are released explicitly when the job finishes. Expiry only bounds caches of jobs which never finish.
+  private static final Cache<String, BigQueryMetadataCache> JOB_CACHES = CacheBuilder.newBuilder()
+    .expireAfterAccess(6, TimeUnit.HOURS)
+    .build();
+
+  private final Map<String, Optional<com.google.api.services.bigquery.model.Table>> modelTables;
+  private final Map<String, com.google.api.services.bigquery.model.Dataset> modelDatasets;
+  private final Map<String, Optional<com.google.cloud.bigquery.Table>> tables;
+  private final Map<String, Optional<com.google.cloud.bigquery.Dataset>> datasets;
+
+  private BigQueryMetadataCache() {
+    this.modelTables = new ConcurrentHashMap<>();
+    this.modelDatasets = new ConcurrentHashMap<>();
+    this.tables = new ConcurrentHashMap<>();
+    this.datasets = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Returns the cache of a job, creating it if needed.
+   *
+   * @param jobId id which is shared by everything that runs as part of the job. If it is null, a cache which is not
+   *              shared with anything else is returned
+   */
+  public static BigQueryMetadataCache forJob(@Nullable String jobId) {
+    if (jobId == null) {
+      return new BigQueryMetadataCache();
+    }
+    return JOB_CACHES.asMap().computeIfAbsent(jobId, id -> new BigQueryMetadataCache());
+  }
+
+  /**
+   * Drops the cache of a job once the job is finished.
+   */
+  public static void release(@Nullable String jobId) {
+    if (jobId != null) {
+      JOB_CACHES.invalidate(jobId);
+    }
+  }
+
+  /**
+   * Removes a table from the caches of all jobs.
+   */
+  public static void invalidateTableForAllJobs(TableId tableId) {
+    for (BigQueryMetadataCache cache : JOB_CACHES.asMap().values()) {
+      cache.invalidateTable(tableId);
+    }
+  }
+
+  /**
+   * Returns a table through the REST API model.
+   *
+   * @param tableRef reference of the table
+   * @param loader fetches the table, returning null if the table does not exist
+   * @return the table, or null if it does not exist
+   */
+  @Nullable
+  public com.google.api.services.bigquery.model.Table getTable(
+    TableReference tableRef, Loader<com.google.api.services.bigquery.model.Table> loader) throws IOException {
+    String key = getKey(tableRef.getProjectId(), tableRef.getDatasetId(), tableRef.getTableId());
+    Optional<com.google.api.services.bigquery.model.Table> table = modelTables.get(key);
+    if (table == null) {
+      table = Optional.ofNullable(loader.load());
+      modelTables.put(key, table);
+    }
+    // The model is mutable, callers get their own copy.
+    return table.map(com.google.api.services.bigquery.model.Table::clone).orElse(null);
+  }
+
+  /**
+   * Returns a dataset through the REST API model.
+   */
+  public com.google.api.services.bigquery.model.Dataset getDataset(
+    String projectId, String datasetId, Loader<com.google.api.services.bigquery.model.Dataset> loader)
+    throws IOException {
+    String key = getKey(projectId, datasetId);
+    com.google.api.services.bigquery.model.Dataset dataset = modelDatasets.get(key);
+    if (dataset == null) {
+      dataset = loader.load();
+      modelDatasets.put(key, dataset);
+    }
+    return dataset.clone();
+  }
+
+  /**
+   * Returns a table through the BigQuery client library. Tables without a project are not cached.
+   *
+   * @param tableId id of the table
+   * @param loader fetches the table, returning null if the table does not exist
+   * @return the table, or null if it does not exist
+   */
+  @Nullable
+  public com.google.cloud.bigquery.Table getTable(TableId tableId, Supplier<com.google.cloud.bigquery.Table> loader) {
+    if (tableId.getProject() == null) {
+      return loader.get();
+    }
+    String key = getKey(tableId.getProject(), tableId.getDataset(), tableId.getTable());
+    Optional<com.google.cloud.bigquery.Table> table = tables.get(key);
+    if (table == null) {
+      table = Optional.ofNullable(loader.get());
+      tables.put(key, table);
+    }
+    return table.orElse(null);
+  }
+
+  /**
+   * Returns a dataset through the BigQuery client library. Datasets without a project are not cached.
+   *
+   * @return the dataset, or null if it does not exist
+   */
+  @Nullable
+  public com.google.cloud.bigquery.Dataset getDataset(DatasetId datasetId,
+                                                      Supplier<com.google.cloud.bigquery.Dataset> loader) {
+    if (datasetId.getProject() == null) {
+      return loader.get();
+    }
+    String key = getKey(datasetId.getProject(), datasetId.getDataset());
+    Optional<com.google.cloud.bigquery.Dataset> dataset = datasets.get(key);
+    if (dataset == null) {
+      dataset = Optional.ofNullable(loader.get());
+      datasets.put(key, dataset);
+    }
+    return dataset.orElse(null);
+  }
+
+  /**
+   * Removes a table after it was created, deleted or updated.
+   */
+  public void invalidateTable(TableReference tableRef) {
+    invalidateTable(tableRef.getProjectId(), tableRef.getDatasetId(), tableRef.getTableId());
+  }
+
+  /**
+   * Removes a table after it was created, deleted or updated.
+   */
+  public void invalidateTable(TableId tableId) {
+    if (tableId.getProject() == null) {
+      // The project is not known, so the table may be cached under any project.
+      tables.keySet().removeIf(key -> key.endsWith(getKey(tableId.getDataset(), tableId.getTable())));
+      modelTables.keySet().removeIf(key -> key.endsWith(getKey(tableId.getDataset(), tableId.getTable())));
+      return;
+    }
+    invalidateTable(tableId.getProject(), tableId.getDataset(), tableId.getTable());
+  }
+
+  private void invalidateTable(String projectId, String datasetId, String tableId) {
+    String key = getKey(projectId, datasetId, tableId);
+    modelTables.remove(key);
+    tables.remove(key);
+  }
+
+  private static String getKey(String... parts) {
+    // Names can not contain backticks, so they separate the parts unambiguously.
+    return "`" + String.join("`.`", parts) + "`";
+  }
+
+  /**
+   * Fetches metadata through the REST API.
+   *
+   * @param <T> type of the metadata
+   */
+  public interface Loader<T> {
+    @Nullable
+    T load() throws IOException;
+  }
+}
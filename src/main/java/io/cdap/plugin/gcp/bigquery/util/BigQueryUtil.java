@@ -57,6 +57,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -539,28 +540,47 @@ public final class BigQueryUtil {
   @Nullable
   public static Table getBigQueryTable(String datasetProject, String datasetId, String tableName,
                                        @Nullable String serviceAccount, boolean isServiceAccountFilePath) {
+    return getBigQueryTable(datasetProject, datasetId, tableName, serviceAccount, isServiceAccountFilePath,
+                            (BigQueryMetadataCache) null);
+  }
+
+  /**
+   * Get BigQuery table through the metadata cache of a job. The BigQuery client is only created if the table is not
+   * cached yet.
+   *
+   * @param datasetProject           project where dataset is in
+   * @param datasetId                BigQuery dataset ID
+   * @param tableName                BigQuery table name
+   * @param serviceAccount           service account file path or JSON content
+   * @param isServiceAccountFilePath indicator for whether service account is file or json
+   * @param metadataCache            metadata cache of the job, or null to always fetch the table
+   * @return BigQuery table
+   */
+  @Nullable
+  public static Table getBigQueryTable(String datasetProject, String datasetId, String tableName,
+                                       @Nullable String serviceAccount, boolean isServiceAccountFilePath,
+                                       @Nullable BigQueryMetadataCache metadataCache) {
     TableId tableId = TableId.of(datasetProject, datasetId, tableName);
+    Supplier<Table> loader = () -> {
+      com.google.auth.Credentials credentials = null;
+      if (serviceAccount != null) {
+        try {
+          credentials = GCPUtils.loadServiceAccountCredentials(serviceAccount, isServiceAccountFilePath);
+        } catch (IOException e) {
+          throw new InvalidConfigPropertyException(
+            String.format("Unable to load credentials from %s", isServiceAccountFilePath ? serviceAccount : " JSON."),
+            "serviceFilePath");
+        }
+      }
+      BigQuery bigQuery = GCPUtils.getBigQuery(datasetProject, credentials);
 
-    com.google.auth.Credentials credentials = null;
-    if (serviceAccount != null) {
       try {
-        credentials = GCPUtils.loadServiceAccountCredentials(serviceAccount, isServiceAccountFilePath);
-      } catch (IOException e) {
-        throw new InvalidConfigPropertyException(
-          String.format("Unable to load credentials from %s", isServiceAccountFilePath ? serviceAccount : " JSON."),
-          "serviceFilePath");
+        return bigQuery.getTable(tableId);
+      } catch (BigQueryException e) {
+        throw new InvalidStageException("Unable to get details about the BigQuery table: " + e.getMessage(), e);
       }
-    }
-    BigQuery bigQuery = GCPUtils.getBigQuery(datasetProject, credentials);
-
-    Table table;
-    try {
-      table = bigQuery.getTable(tableId);
-    } catch (BigQueryException e) {
-      throw new InvalidStageException("Unable to get details about the BigQuery table: " + e.getMessage(), e);
-    }
-
-    return table;
+    };
+    return metadataCache == null ? loader.get() : metadataCache.getTable(tableId, loader);
   }
 
   /**
@@ -18,8 +18,10 @@ package io.cdap.plugin.gcp.bigquery;
 
 import com.google.common.collect.ImmutableList;
 import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.format.UnexpectedFormatException;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.gcp.bigquery.source.BigQueryAvroToStructuredTransformer;
+import org.apache.avro.SchemaBuilder;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.generic.GenericRecordBuilder;
 import org.junit.Assert;
@@ -175,6 +177,73 @@ public class AvroToStructuredRecordTest {
     Assert.assertEquals(expected, actual);
   }
 
+  @Test
+  public void testDateTimeStrings() throws Exception {
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("dt", Schema.of(Schema.LogicalType.DATE)),
+                                    Schema.Field.of("time", Schema.of(Schema.LogicalType.TIME_MICROS)),
+                                    Schema.Field.of("timeMillis", Schema.of(Schema.LogicalType.TIME_MILLIS)),
+                                    Schema.Field.of("datetime", Schema.of(Schema.LogicalType.DATETIME)));
+    org.apache.avro.Schema avroSchema = SchemaBuilder.record("record").fields()
+      .requiredString("dt")
+      .requiredString("time")
+      .requiredString("timeMillis")
+      .requiredString("datetime")
+      .endRecord();
+    BigQueryAvroToStructuredTransformer transformer = new BigQueryAvroToStructuredTransformer();
+
+    GenericRecord record = new GenericRecordBuilder(avroSchema)
+      .set("dt", "1969-07-20")
+      .set("time", "20:17:40.1234")
+      .set("timeMillis", "23:59:59.999999")
+      .set("datetime", "2022-03-04T05:06:07.891")
+      .build();
+    StructuredRecord actual = transformer.transform(record, schema);
+    Assert.assertEquals(LocalDate.of(1969, 7, 20), actual.getDate("dt"));
+    Assert.assertEquals(LocalTime.of(20, 17, 40, 123_400_000), actual.getTime("time"));
+    Assert.assertEquals(LocalTime.of(23, 59, 59, 999_000_000), actual.getTime("timeMillis"));
+    Assert.assertEquals("2022-03-04T05:06:07.891", actual.get("datetime"));
+
+    // Values which are not in the common format still go through the java.time parsers.
+    record = new GenericRecordBuilder(avroSchema)
+      .set("dt", "+12022-03-04")
+      .set("time", "20:17")
+      .set("timeMillis", "00:00:01")
+      .set("datetime", "2022-03-04T05:06")
+      .build();
+    actual = transformer.transform(record, schema);
+    Assert.assertEquals(LocalDate.of(12022, 3, 4), actual.getDate("dt"));
+    Assert.assertEquals(LocalTime.of(20, 17), actual.getTime("time"));
+    Assert.assertEquals(LocalTime.of(0, 0, 1), actual.getTime("timeMillis"));
+  }
+
+  @Test(expected = UnexpectedFormatException.class)
+  public void testInvalidDateTime() throws Exception {
+    Schema schema = Schema.recordOf("record", Schema.Field.of("datetime", Schema.of(Schema.LogicalType.DATETIME)));
+    org.apache.avro.Schema avroSchema = SchemaBuilder.record("record").fields().requiredString("datetime").endRecord();
+    new BigQueryAvroToStructuredTransformer().transform(
+      new GenericRecordBuilder(avroSchema).set("datetime", "2022-02-30T05:06:07").build(), schema);
+  }
+
+  @Test
+  public void testFieldOrderOfRecordsChanges() throws Exception {
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    BigQueryAvroToStructuredTransformer transformer = new BigQueryAvroToStructuredTransformer();
+    org.apache.avro.Schema avroSchema = SchemaBuilder.record("record").fields()
+      .requiredLong("id").optionalString("name").endRecord();
+    StructuredRecord actual = transformer.transform(
+      new GenericRecordBuilder(avroSchema).set("id", 1L).set("name", "alice").build(), schema);
+    Assert.assertEquals("alice", actual.get("name"));
+
+    // Records with another schema are converted by name, not by the positions of the previous schema.
+    avroSchema = SchemaBuilder.record("record").fields().optionalString("name").requiredLong("id").endRecord();
+    actual = transformer.transform(new GenericRecordBuilder(avroSchema).set("id", 2L).build(), schema);
+    Assert.assertEquals(2L, (long) actual.get("id"));
+    Assert.assertNull(actual.get("name"));
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testUnionTypeUnsupported() throws Exception {
     Schema schema = Schema.recordOf("record",
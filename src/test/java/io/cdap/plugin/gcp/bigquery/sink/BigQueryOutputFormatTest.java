@@ -19,6 +19,7 @@ import com.google.api.services.bigquery.model.Dataset;
 import com.google.api.services.bigquery.model.JobConfiguration;
 import com.google.api.services.bigquery.model.TableReference;
 import com.google.cloud.bigquery.JobId;
+import com.google.cloud.bigquery.JobInfo;
 import com.google.cloud.hadoop.io.bigquery.BigQueryConfiguration;
 import com.google.cloud.hadoop.io.bigquery.BigQueryFileFormat;
 import com.google.cloud.hadoop.io.bigquery.BigQueryHelper;
@@ -26,6 +27,7 @@ import com.google.cloud.hadoop.io.bigquery.output.ForwardingBigQueryFileOutputCo
 import io.cdap.plugin.gcp.bigquery.util.BigQueryConstants;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapreduce.JobContext;
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentMatchers;
@@ -36,8 +38,14 @@ import org.powermock.api.support.membermodification.MemberMatcher;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.mockito.Mockito.times;
 import static org.powermock.api.support.membermodification.MemberModifier.suppress;
@@ -129,6 +137,22 @@ public class BigQueryOutputFormatTest {
               ArgumentMatchers.any(JobConfiguration.class));
   }
 
+  @Test
+  public void commitJobTestInsertConcurrentBatchesBQInvocations() throws Exception {
+
+    generateList(60001);
+    BigQueryOutputFormat.BigQueryOutputCommitter bqQueryOutputCommitterSpy = initMocks("INSERT");
+    jobContextMock.getConfiguration().setInt(BigQueryConstants.CONFIG_LOAD_JOB_PARALLELISM, 3);
+    bqQueryOutputCommitterSpy.commitJob(jobContextMock);
+
+    // 7 batches loaded concurrently in temp table and 1 batch for table copy
+    PowerMockito.verifyPrivate(bqQueryOutputCommitterSpy, times(8))
+      .invoke("triggerBigqueryJob", ArgumentMatchers.eq("test_project"),
+              ArgumentMatchers.anyString(),
+              ArgumentMatchers.any(Dataset.class),
+              ArgumentMatchers.any(JobConfiguration.class));
+  }
+
   @Test
   public void commitJobTestUpdateBQInvocations() throws Exception {
 
@@ -151,4 +175,96 @@ public class BigQueryOutputFormatTest {
               ArgumentMatchers.any(Configuration.class));
   }
 
+  @Test
+  public void commitJobTestTruncateWithoutRecords() throws Exception {
+    listOfStrings = Collections.emptyList();
+    BigQueryOutputFormat.BigQueryOutputCommitter bqQueryOutputCommitterSpy = initMocks("INSERT");
+    jobContextMock.getConfiguration().set(BigQueryConfiguration.OUTPUT_TABLE_WRITE_DISPOSITION_KEY,
+                                          JobInfo.WriteDisposition.WRITE_TRUNCATE.name());
+    bqQueryOutputCommitterSpy.commitJob(jobContextMock);
+
+    // Nothing is staged, so the existing table is truncated instead of being loaded with WRITE_TRUNCATE.
+    PowerMockito.verifyPrivate(bqQueryOutputCommitterSpy, times(1))
+      .invoke("triggerBigqueryJob", ArgumentMatchers.eq("test_project"),
+              ArgumentMatchers.anyString(),
+              ArgumentMatchers.any(Dataset.class),
+              ArgumentMatchers.<JobConfiguration>argThat(
+                config -> config.getQuery() != null
+                  && "TRUNCATE TABLE `test_project.test_dataset.test_table`".equals(config.getQuery().getQuery())));
+  }
+
+  @Test
+  public void commitJobTestAppendWithoutRecords() throws Exception {
+    listOfStrings = Collections.emptyList();
+    BigQueryOutputFormat.BigQueryOutputCommitter bqQueryOutputCommitterSpy = initMocks("INSERT");
+    jobContextMock.getConfiguration().set(BigQueryConfiguration.OUTPUT_TABLE_WRITE_DISPOSITION_KEY,
+                                          JobInfo.WriteDisposition.WRITE_APPEND.name());
+    bqQueryOutputCommitterSpy.commitJob(jobContextMock);
+
+    PowerMockito.verifyPrivate(bqQueryOutputCommitterSpy, times(0))
+      .invoke("triggerBigqueryJob", ArgumentMatchers.eq("test_project"),
+              ArgumentMatchers.anyString(),
+              ArgumentMatchers.any(Dataset.class),
+              ArgumentMatchers.any(JobConfiguration.class));
+  }
+
+  @Test
+  public void testLoadJobsOverlap() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(BigQueryConstants.CONFIG_LOAD_JOB_PARALLELISM, 2);
+    // Each load waits for the other one to start, which only completes if both run at the same time.
+    CountDownLatch started = new CountDownLatch(2);
+    Callable<Void> load = () -> {
+      started.countDown();
+      if (!started.await(10, TimeUnit.SECONDS)) {
+        throw new IOException("Loads did not overlap.");
+      }
+      return null;
+    };
+    BigQueryOutputFormat.BigQueryOutputCommitter.runLoadJobs(Arrays.asList(load, load), "job", conf, "error", () -> {
+      throw new IOException("Jobs must not be cancelled when all loads succeed.");
+    });
+  }
+
+  @Test
+  public void testFirstLoadFailureCancelsRemainingLoads() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(BigQueryConstants.CONFIG_LOAD_JOB_PARALLELISM, 2);
+    CountDownLatch slowLoadStarted = new CountDownLatch(1);
+    CountDownLatch slowLoadCancelled = new CountDownLatch(1);
+    IOException failure = new IOException("load failed");
+    // Set when the BigQuery jobs are cancelled, which must only happen once the load threads stopped.
+    CountDownLatch jobsCancelled = new CountDownLatch(1);
+    AtomicBoolean cancelledAfterThreadsStopped = new AtomicBoolean();
+
+    Callable<Void> slowLoad = () -> {
+      slowLoadStarted.countDown();
+      try {
+        Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+      } catch (InterruptedException e) {
+        slowLoadCancelled.countDown();
+      }
+      return null;
+    };
+    Callable<Void> failingLoad = () -> {
+      slowLoadStarted.await();
+      throw failure;
+    };
+
+    // The slow load is submitted first, the failure must still be reported without waiting for it.
+    try {
+      BigQueryOutputFormat.BigQueryOutputCommitter.runLoadJobs(Arrays.asList(slowLoad, failingLoad), "job", conf,
+                                                               "error", () -> {
+          cancelledAfterThreadsStopped.set(slowLoadCancelled.getCount() == 0);
+          jobsCancelled.countDown();
+        });
+      Assert.fail("Expected the failure of the load to fail the commit.");
+    } catch (IOException e) {
+      Assert.assertSame(failure, e);
+    }
+    // The jobs are cancelled before the failure is reported.
+    Assert.assertEquals(0, jobsCancelled.getCount());
+    Assert.assertTrue(cancelledAfterThreadsStopped.get());
+    Assert.assertEquals(0, slowLoadCancelled.getCount());
+  }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sink;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link BigQueryPartitionedRecordWriter}.
+ */
+public class BigQueryPartitionedRecordWriterTest {
+
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("dt", Schema.nullableOf(Schema.of(Schema.LogicalType.DATE))),
+    Schema.Field.of("ts", Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS))),
+    Schema.Field.of("dtm", Schema.nullableOf(Schema.of(Schema.LogicalType.DATETIME))));
+
+  @Test
+  public void testGetPartition() {
+    StructuredRecord record = StructuredRecord.builder(SCHEMA)
+      .set("id", 1L)
+      .setDate("dt", LocalDate.of(2022, 3, 4))
+      .setTimestamp("ts", ZonedDateTime.of(2022, 3, 4, 23, 30, 0, 0, ZoneOffset.ofHours(-2)))
+      .setDateTime("dtm", LocalDateTime.of(1959, 12, 31, 10, 0))
+      .build();
+
+    Assert.assertEquals("20220304", BigQueryPartitionedRecordWriter.getPartition(record, "dt"));
+    // Timestamps are partitioned by their UTC date.
+    Assert.assertEquals("20220305", BigQueryPartitionedRecordWriter.getPartition(record, "ts"));
+    Assert.assertEquals(BigQueryPartitionedRecordWriter.UNPARTITIONED,
+                        BigQueryPartitionedRecordWriter.getPartition(record, "dtm"));
+
+    StructuredRecord nullRecord = StructuredRecord.builder(SCHEMA).set("id", 2L).build();
+    Assert.assertEquals(BigQueryPartitionedRecordWriter.NULL_PARTITION,
+                        BigQueryPartitionedRecordWriter.getPartition(nullRecord, "dt"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetPartitionForNonTimeField() {
+    StructuredRecord record = StructuredRecord.builder(SCHEMA).set("id", 1L).build();
+    BigQueryPartitionedRecordWriter.getPartition(record, "id");
+  }
+
+  @Test
+  public void testGetPartitionFromPath() {
+    Assert.assertEquals("20220304", BigQueryPartitionedRecordWriter.getPartitionFromPath(
+      "gs://bucket/output/partition=20220304-m-00001.avro"));
+    Assert.assertEquals(BigQueryPartitionedRecordWriter.NULL_PARTITION,
+                        BigQueryPartitionedRecordWriter.getPartitionFromPath(
+                          "gs://bucket/output/partition=__NULL__-r-00000.json"));
+    Assert.assertNull(BigQueryPartitionedRecordWriter.getPartitionFromPath("gs://bucket/output/part-m-00001.avro"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testRecordsBeyondMaxPartitionsAreNotSplit() throws Exception {
+    List<String> baseNames = new ArrayList<>();
+    RecordWriter<StructuredRecord, NullWritable> delegate = Mockito.mock(RecordWriter.class);
+    BigQueryPartitionedRecordWriter writer = new BigQueryPartitionedRecordWriter("dt", 2, baseName -> {
+      baseNames.add(baseName);
+      return delegate;
+    });
+    for (int day = 1; day <= 4; day++) {
+      writer.write(StructuredRecord.builder(SCHEMA).set("id", 1L).setDate("dt", LocalDate.of(2022, 1, day)).build(),
+                   NullWritable.get());
+    }
+    writer.close(Mockito.mock(TaskAttemptContext.class));
+
+    List<String> expected = new ArrayList<>();
+    expected.add("partition=20220101");
+    expected.add("partition=20220102");
+    expected.add("part");
+    Assert.assertEquals(expected, baseNames);
+    Mockito.verify(delegate, Mockito.times(4)).write(Mockito.any(), Mockito.any());
+    Mockito.verify(delegate, Mockito.times(3)).close(Mockito.any());
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sink;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for {@link BigQueryRollingRecordWriter}.
+ */
+public class BigQueryRollingRecordWriterTest {
+
+  private static final Schema SCHEMA = Schema.recordOf("record", Schema.Field.of("id", Schema.of(Schema.Type.LONG)));
+
+  @Test
+  public void testRollsAtTargetSize() throws Exception {
+    List<String> baseNames = new ArrayList<>();
+    AtomicLong bytesWritten = new AtomicLong();
+    BigQueryRecordWriter delegate = Mockito.mock(BigQueryRecordWriter.class);
+    Mockito.doAnswer(invocation -> bytesWritten.addAndGet(40L)).when(delegate).write(Mockito.any(), Mockito.any());
+    Mockito.when(delegate.getBytesWritten()).thenAnswer(invocation -> bytesWritten.get());
+    TaskAttemptContext context = Mockito.mock(TaskAttemptContext.class);
+
+    BigQueryRollingRecordWriter.WriterFactory writerFactory = baseName -> {
+      baseNames.add(baseName);
+      bytesWritten.set(0L);
+      return delegate;
+    };
+    BigQueryRollingRecordWriter writer =
+      new BigQueryRollingRecordWriter("partition=20220101", 100L, context, writerFactory);
+    for (long id = 0; id < 7; id++) {
+      writer.write(StructuredRecord.builder(SCHEMA).set("id", id).build(), NullWritable.get());
+    }
+    writer.close(context);
+
+    List<String> expected = new ArrayList<>();
+    expected.add("partition=20220101");
+    expected.add("partition=20220101-1");
+    expected.add("partition=20220101-2");
+    Assert.assertEquals(expected, baseNames);
+    Mockito.verify(delegate, Mockito.times(7)).write(Mockito.any(), Mockito.any());
+    Mockito.verify(delegate, Mockito.times(3)).close(context);
+    // Rolled files still belong to their partition.
+    Assert.assertEquals("20220101", BigQueryPartitionedRecordWriter.getPartitionFromPath(
+      "gs://bucket/output/partition=20220101-2-m-00001.avro"));
+  }
+
+  @Test
+  public void testSingleFileWithoutTargetSize() throws Exception {
+    List<String> baseNames = new ArrayList<>();
+    BigQueryRecordWriter delegate = Mockito.mock(BigQueryRecordWriter.class);
+    Mockito.when(delegate.getBytesWritten()).thenReturn(Long.MAX_VALUE);
+    TaskAttemptContext context = Mockito.mock(TaskAttemptContext.class);
+    BigQueryRollingRecordWriter writer = new BigQueryRollingRecordWriter("part", 0L, context, baseName -> {
+      baseNames.add(baseName);
+      return delegate;
+    });
+    for (long id = 0; id < 3; id++) {
+      writer.write(StructuredRecord.builder(SCHEMA).set("id", id).build(), NullWritable.get());
+    }
+    writer.close(context);
+
+    Assert.assertEquals(Collections.singletonList("part"), baseNames);
+    Mockito.verify(delegate, Mockito.times(1)).close(context);
+  }
+
+  @Test
+  public void testNoFileWithoutRecords() throws Exception {
+    List<String> baseNames = new ArrayList<>();
+    for (long targetFileSize : new long[] {0L, 100L}) {
+      BigQueryRollingRecordWriter writer = new BigQueryRollingRecordWriter("part", targetFileSize, null, baseName -> {
+        baseNames.add(baseName);
+        return Mockito.mock(BigQueryRecordWriter.class);
+      });
+      writer.close(Mockito.mock(TaskAttemptContext.class));
+    }
+    Assert.assertTrue(baseNames.isEmpty());
+  }
+}
@@ -16,6 +16,7 @@
 
 package io.cdap.plugin.gcp.bigquery.sink;
 
+import com.google.api.gax.paging.Page;
 import com.google.cloud.bigquery.BigQuery;
 import com.google.cloud.bigquery.Dataset;
 import com.google.cloud.bigquery.Field;
@@ -40,8 +41,10 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.internal.util.reflection.FieldReader;
 import org.mockito.internal.util.reflection.FieldSetter;
 
+import java.util.Arrays;
 import java.util.List;
 
 import javax.annotation.Nullable;
@@ -108,6 +111,25 @@ public class BigQuerySinkTest {
     Assert.assertEquals(0, collector.getValidationFailures().size());
   }
 
+  @Test
+  public void testStorageWriteAPIConfig() {
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("name", Schema.of(Schema.Type.STRING)));
+
+    BigQuerySinkConfig config = new BigQuerySinkConfig("44", "ds", "tb", "bucket", schema.toString(),
+                                                       "NONE", null, null, null, null);
+    config.useStorageWriteAPI = true;
+    MockFailureCollector collector = new MockFailureCollector("bqsink");
+    config.validate(collector);
+    Assert.assertEquals(0, collector.getValidationFailures().size());
+
+    config.operation = Operation.UPSERT.name();
+    collector = new MockFailureCollector("bqsink");
+    config.validate(collector);
+    Assert.assertEquals(1, collector.getValidationFailures().size());
+  }
+
   @Test
   public void testBigQuerySinkMetricInsert() throws Exception {
     Job mockJob = getMockLoadJob(10L);
@@ -138,6 +160,28 @@ public class BigQuerySinkTest {
     testMetric(mockJob, 1000L, 1);
   }
 
+  @Test
+  public void testBigQuerySinkMetricPartitionLoads() throws Exception {
+    BigQuerySink sink = getSinkToTest(null);
+    String jobId = (String) new FieldReader(sink, BigQuerySink.class.getDeclaredField("jobId")).read();
+    Job partition1 = getMockLoadJob(10L);
+    Job partition2 = getMockLoadJob(20L);
+    Job sqlEngineWrite = getMockLoadJob(40L);
+    when(partition1.getJobId()).thenReturn(JobId.of(jobId + "_20220101"));
+    when(partition2.getJobId()).thenReturn(JobId.of(jobId + "_20220102"));
+    when(sqlEngineWrite.getJobId()).thenReturn(JobId.of(jobId + "_write"));
+    Page<Job> page = mock(Page.class);
+    when(page.iterateAll()).thenReturn(Arrays.asList(partition1, sqlEngineWrite, partition2));
+    BigQuery bigQuery = (BigQuery) new FieldReader(sink, AbstractBigQuerySink.class.getDeclaredField("bigQuery"))
+      .read();
+    when(bigQuery.listJobs(Mockito.<BigQuery.JobListOption>any(), Mockito.<BigQuery.JobListOption>any()))
+      .thenReturn(page);
+
+    MockStageMetrics mockStageMetrics = new MockStageMetrics("test");
+    sink.recordMetric(true, getContextWithMetrics(mockStageMetrics));
+    Assert.assertEquals(30L, mockStageMetrics.getCount(AbstractBigQuerySink.RECORDS_UPDATED_METRIC));
+  }
+
   private void testMetric(Job mockJob, long expectedCount, int invocations)
     throws NoSuchFieldException {
     BigQuerySink sink = getSinkToTest(mockJob);
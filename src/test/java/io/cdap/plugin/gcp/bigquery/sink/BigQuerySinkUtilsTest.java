@@ -17,7 +17,11 @@
 package io.cdap.plugin.gcp.bigquery.sink;
 
 import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.FieldList;
+import com.google.cloud.bigquery.FieldValue;
+import com.google.cloud.bigquery.FieldValueList;
 import com.google.cloud.bigquery.LegacySQLTypeName;
+import com.google.cloud.bigquery.TableId;
 import com.google.cloud.hadoop.io.bigquery.output.BigQueryTableFieldSchema;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.gcp.bigquery.util.BigQueryTypeSize;
@@ -25,6 +29,8 @@ import org.apache.hadoop.conf.Configuration;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -396,4 +402,47 @@ public class BigQuerySinkUtilsTest {
                         LegacySQLTypeName.BOOLEAN);
   }
 
+  @Test
+  public void testGenerateRangeFilter() {
+    List<String> columns = Arrays.asList("day", "id", "flag");
+    Assert.assertEquals("SELECT MIN(day) AS min_0, MAX(day) AS max_0, MIN(id) AS min_1, MAX(id) AS max_1, " +
+                          "MIN(flag) AS min_2, MAX(flag) AS max_2 FROM `p.d.t`",
+                        BigQuerySinkUtils.generateRangeQuery(TableId.of("p", "d", "t"), columns));
+
+    FieldList fields = FieldList.of(Field.of("min_0", LegacySQLTypeName.DATE),
+                                    Field.of("max_0", LegacySQLTypeName.DATE),
+                                    Field.of("min_1", LegacySQLTypeName.INTEGER),
+                                    Field.of("max_1", LegacySQLTypeName.INTEGER),
+                                    Field.of("min_2", LegacySQLTypeName.BOOLEAN),
+                                    Field.of("max_2", LegacySQLTypeName.BOOLEAN));
+    FieldValueList row = FieldValueList.of(Arrays.asList(
+      FieldValue.of(FieldValue.Attribute.PRIMITIVE, "2022-01-01"),
+      FieldValue.of(FieldValue.Attribute.PRIMITIVE, "2022-01-03"),
+      FieldValue.of(FieldValue.Attribute.PRIMITIVE, "5"),
+      FieldValue.of(FieldValue.Attribute.PRIMITIVE, "42"),
+      FieldValue.of(FieldValue.Attribute.PRIMITIVE, "false"),
+      FieldValue.of(FieldValue.Attribute.PRIMITIVE, "true")), fields);
+    String rangeFilter = BigQuerySinkUtils.generateRangeFilter(columns, fields, row);
+    Assert.assertEquals("T.day BETWEEN DATE '2022-01-01' AND DATE '2022-01-03' AND T.id BETWEEN 5 AND 42",
+                        rangeFilter);
+
+    String query = BigQuerySinkUtils.generateUpdateUpsertQuery(Operation.UPDATE, TableId.of("p", "d", "src"),
+                                                               TableId.of("p", "d", "dst"),
+                                                               Arrays.asList("id", "day", "value"),
+                                                               Arrays.asList("id", "day"), Collections.emptyList(),
+                                                               null, rangeFilter);
+    Assert.assertTrue(query.endsWith(
+      "WHERE T.day BETWEEN DATE '2022-01-01' AND DATE '2022-01-03' AND T.id BETWEEN 5 AND 42 AND " +
+        "T.id = S.id AND T.day = S.day"));
+  }
+
+  @Test
+  public void testGenerateRangeFilterWithoutValues() {
+    FieldList fields = FieldList.of(Field.of("min_0", LegacySQLTypeName.TIMESTAMP),
+                                    Field.of("max_0", LegacySQLTypeName.TIMESTAMP));
+    FieldValueList row = FieldValueList.of(Arrays.asList(FieldValue.of(FieldValue.Attribute.PRIMITIVE, null),
+                                                         FieldValue.of(FieldValue.Attribute.PRIMITIVE, null)),
+                                           fields);
+    Assert.assertNull(BigQuerySinkUtils.generateRangeFilter(Collections.singletonList("ts"), fields, row));
+  }
 }
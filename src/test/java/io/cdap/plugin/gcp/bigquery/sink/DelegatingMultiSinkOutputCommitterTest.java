@@ -23,16 +23,21 @@ import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.powermock.api.mockito.PowerMockito.doAnswer;
 import static org.powermock.api.mockito.PowerMockito.doNothing;
+import static org.powermock.api.mockito.PowerMockito.doReturn;
 import static org.powermock.api.mockito.PowerMockito.doThrow;
 import static org.powermock.api.mockito.PowerMockito.mock;
 import static org.powermock.api.mockito.PowerMockito.spy;
@@ -55,6 +60,7 @@ public class DelegatingMultiSinkOutputCommitterTest {
     committer = spy(new DelegatingMultiSinkOutputCommitter("project", "ds", "bucket", "path"));
     doNothing().when(committer).configureContext(any(), anyString());
     ctx = mock(TaskAttemptContext.class);
+    doReturn(ctx).when(committer).getTableContext(any(), anyString());
     c1 = mock(OutputCommitter.class);
     c2 = mock(OutputCommitter.class);
     c3 = mock(OutputCommitter.class);
@@ -122,6 +128,42 @@ public class DelegatingMultiSinkOutputCommitterTest {
     verify(c3, times(1)).commitJob(ctx);
   }
 
+  @Test
+  public void testCommitJobCommitsTablesConcurrently() throws IOException, InterruptedException {
+    committer.addCommitterAndSchema(c1, "table1", s1, ctx);
+    committer.addCommitterAndSchema(c2, "table2", s2, ctx);
+
+    // Each commit waits for the other one to start, which only completes if both run at the same time.
+    CountDownLatch started = new CountDownLatch(2);
+    Answer<Void> commit = invocation -> {
+      started.countDown();
+      if (!started.await(10, TimeUnit.SECONDS)) {
+        throw new IOException("Commits did not overlap.");
+      }
+      return null;
+    };
+    doAnswer(commit).when(c1).commitJob(any());
+    doAnswer(commit).when(c2).commitJob(any());
+
+    committer.commitJob(ctx);
+  }
+
+  @Test
+  public void testCommitJobFailsOnFirstError() throws IOException, InterruptedException {
+    committer.addCommitterAndSchema(c1, "table1", s1, ctx);
+    committer.addCommitterAndSchema(c2, "table2", s2, ctx);
+    committer.addCommitterAndSchema(c3, "table3", s3, ctx);
+
+    doThrow(new IOException("e2")).when(c2).commitJob(any());
+
+    try {
+      committer.commitJob(ctx);
+      Assert.fail("Expected commit to fail");
+    } catch (IOException e) {
+      Assert.assertEquals("e2", e.getMessage());
+    }
+  }
+
   @Test
   public void testAbortTask() throws IOException, InterruptedException {
     committer.addCommitterAndSchema(c1, "table1", s1, ctx);
@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sink;
+
+import com.google.cloud.bigquery.DatasetId;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.OutputCommitter;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link DelegatingMultiSinkRecordWriter}.
+ */
+public class DelegatingMultiSinkRecordWriterTest {
+
+  private static final String TABLE_FIELD = "tablename";
+  private static final Schema SCHEMA = Schema.recordOf("record",
+                                                       Schema.Field.of(TABLE_FIELD, Schema.of(Schema.Type.STRING)),
+                                                       Schema.Field.of("id", Schema.of(Schema.Type.LONG)));
+  private static final Schema OTHER_SCHEMA = Schema.recordOf("record",
+                                                             Schema.Field.of(TABLE_FIELD,
+                                                                             Schema.of(Schema.Type.STRING)),
+                                                             Schema.Field.of("name", Schema.of(Schema.Type.STRING)));
+
+  private TaskAttemptContext context;
+  private DelegatingMultiSinkOutputCommitter committer;
+  private List<RecordWriter<StructuredRecord, NullWritable>> delegates;
+  private List<String> delegateFileNames;
+  private List<Schema> delegateSchemas;
+
+  @Before
+  public void setUp() throws Exception {
+    Configuration configuration = new Configuration();
+    context = Mockito.mock(TaskAttemptContext.class);
+    Mockito.when(context.getConfiguration()).thenReturn(configuration);
+    committer = Mockito.mock(DelegatingMultiSinkOutputCommitter.class);
+    delegates = new ArrayList<>();
+    delegateFileNames = new ArrayList<>();
+    delegateSchemas = new ArrayList<>();
+  }
+
+  @Test
+  public void testLeastRecentlyUsedWriterIsClosed() throws Exception {
+    DelegatingMultiSinkRecordWriter writer = createWriter(2);
+    writer.write(record("a", SCHEMA), NullWritable.get());
+    writer.write(record("b", SCHEMA), NullWritable.get());
+    writer.write(record("a", SCHEMA), NullWritable.get());
+    Assert.assertEquals(2, delegates.size());
+
+    // Writing a third table closes the writer of 'b', which was used less recently than the one of 'a'.
+    writer.write(record("c", SCHEMA), NullWritable.get());
+    Assert.assertEquals(3, delegates.size());
+    Mockito.verify(delegates.get(1)).close(context);
+    Mockito.verify(delegates.get(0), Mockito.never()).close(Mockito.any());
+    Mockito.verify(delegates.get(2), Mockito.never()).close(Mockito.any());
+  }
+
+  @Test
+  public void testEvictedTableRollsToNewPartFile() throws Exception {
+    DelegatingMultiSinkRecordWriter writer = createWriter(1);
+    writer.write(record("a", SCHEMA), NullWritable.get());
+    writer.write(record("b", SCHEMA), NullWritable.get());
+    writer.write(record("a", SCHEMA), NullWritable.get());
+    writer.write(record("b", SCHEMA), NullWritable.get());
+    writer.write(record("a", SCHEMA), NullWritable.get());
+
+    Assert.assertEquals(Arrays.asList("part", "part", "part-1", "part-1", "part-2"), delegateFileNames);
+    // Every table registers its committer only once, no matter how many writers it opened.
+    Mockito.verify(committer).addCommitterAndSchema(Mockito.any(), Mockito.eq("a"), Mockito.any(), Mockito.any());
+    Mockito.verify(committer).addCommitterAndSchema(Mockito.any(), Mockito.eq("b"), Mockito.any(), Mockito.any());
+  }
+
+  @Test
+  public void testEvictedTableKeepsFirstSchema() throws Exception {
+    DelegatingMultiSinkRecordWriter writer = createWriter(1);
+    writer.write(record("a", SCHEMA), NullWritable.get());
+    writer.write(record("b", SCHEMA), NullWritable.get());
+    writer.write(record("a", OTHER_SCHEMA), NullWritable.get());
+
+    Assert.assertEquals(Arrays.asList(SCHEMA, SCHEMA, SCHEMA), delegateSchemas);
+    Mockito.verify(committer).addCommitterAndSchema(Mockito.any(), Mockito.eq("a"), Mockito.eq(SCHEMA),
+                                                    Mockito.any());
+  }
+
+  private DelegatingMultiSinkRecordWriter createWriter(int maxOpenWriters) throws Exception {
+    BigQueryOutputFormat outputFormat = Mockito.mock(BigQueryOutputFormat.class);
+    Mockito.when(outputFormat.getOutputCommitter(context)).thenReturn(Mockito.mock(OutputCommitter.class));
+    Mockito.when(outputFormat.getRecordWriter(Mockito.eq(context), Mockito.any(Schema.class)))
+      .thenAnswer(invocation -> {
+        @SuppressWarnings("unchecked")
+        RecordWriter<StructuredRecord, NullWritable> delegate = Mockito.mock(RecordWriter.class);
+        delegates.add(delegate);
+        delegateFileNames.add(context.getConfiguration().get("mapreduce.output.basename"));
+        delegateSchemas.add(invocation.getArgument(1));
+        return delegate;
+      });
+
+    DelegatingMultiSinkRecordWriter writer =
+      Mockito.spy(new DelegatingMultiSinkRecordWriter(context, TABLE_FIELD, "bucket", "path",
+                                                      DatasetId.of("project", "dataset"), committer, maxOpenWriters));
+    Mockito.doReturn(outputFormat).when(writer).createOutputFormat();
+    return writer;
+  }
+
+  private static StructuredRecord record(String tableName, Schema schema) {
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema).set(TABLE_FIELD, tableName);
+    if (schema.getField("id") != null) {
+      builder.set("id", 1L);
+    } else {
+      builder.set("name", "name");
+    }
+    return builder.build();
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sink;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.file.DataFileConstants;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Tests for {@link ParallelAvroFileWriter}.
+ */
+public class ParallelAvroFileWriterTest {
+
+  private static final Schema SCHEMA = SchemaBuilder.record("record").fields()
+    .requiredLong("id")
+    .requiredString("name")
+    .endRecord();
+
+  @Test
+  public void testDeflate() throws IOException {
+    testRoundTrip(DataFileConstants.DEFLATE_CODEC);
+  }
+
+  @Test
+  public void testSnappy() throws IOException {
+    testRoundTrip(DataFileConstants.SNAPPY_CODEC);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedCodec() {
+    ParallelAvroFileWriter.BlockCodec.of("zstandard", 6);
+  }
+
+  private void testRoundTrip(String codecName) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ParallelAvroFileWriter.BlockCodec codec = ParallelAvroFileWriter.BlockCodec.of(codecName, 6);
+    // A small sync interval spreads the records over many blocks, which are compressed concurrently.
+    try (ParallelAvroFileWriter<GenericRecord> writer =
+           new ParallelAvroFileWriter<>(SCHEMA, new GenericDatumWriter<>(SCHEMA), codec, out, 256, 3)) {
+      for (long id = 0; id < 1000; id++) {
+        GenericRecord record = new GenericData.Record(SCHEMA);
+        record.put("id", id);
+        record.put("name", "name" + id);
+        writer.append(record);
+      }
+    }
+
+    try (DataFileStream<GenericRecord> reader =
+           new DataFileStream<>(new ByteArrayInputStream(out.toByteArray()), new GenericDatumReader<>(SCHEMA))) {
+      Assert.assertEquals(codecName, reader.getMetaString(DataFileConstants.CODEC));
+      long id = 0;
+      while (reader.hasNext()) {
+        GenericRecord record = reader.next();
+        Assert.assertEquals(id, record.get("id"));
+        Assert.assertEquals("name" + id, record.get("name").toString());
+        id++;
+      }
+      Assert.assertEquals(1000L, id);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sink;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.avro.StructuredToAvroTransformer;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+
+/**
+ * Tests for {@link StructuredRecordDatumWriter}.
+ */
+public class StructuredRecordDatumWriterTest {
+
+  private static final Schema NESTED = Schema.recordOf("nested",
+                                                       Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+                                                       Schema.Field.of("y", Schema.nullableOf(
+                                                         Schema.of(Schema.Type.STRING))));
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("price", Schema.of(Schema.Type.DOUBLE)),
+    Schema.Field.of("ratio", Schema.nullableOf(Schema.of(Schema.Type.FLOAT))),
+    Schema.Field.of("flag", Schema.of(Schema.Type.BOOLEAN)),
+    Schema.Field.of("data", Schema.nullableOf(Schema.of(Schema.Type.BYTES))),
+    Schema.Field.of("dt", Schema.nullableOf(Schema.of(Schema.LogicalType.DATE))),
+    Schema.Field.of("ts", Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS))),
+    Schema.Field.of("amount", Schema.nullableOf(Schema.decimalOf(10, 2))),
+    Schema.Field.of("tags", Schema.arrayOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("nested", Schema.nullableOf(NESTED)),
+    Schema.Field.of("nestedList", Schema.arrayOf(NESTED)));
+
+  @Test
+  public void testEncodingMatchesGenericRecordConversion() throws IOException {
+    StructuredRecord full = StructuredRecord.builder(SCHEMA)
+      .set("id", 1L)
+      .set("name", "alice")
+      .set("price", 1.5d)
+      .set("ratio", 0.25f)
+      .set("flag", true)
+      .set("data", new byte[] {1, 2, 3})
+      .setDate("dt", LocalDate.of(2022, 1, 2))
+      .setTimestamp("ts", ZonedDateTime.of(2022, 1, 2, 3, 4, 5, 6000, ZoneOffset.UTC))
+      .setDecimal("amount", new BigDecimal("12.34"))
+      .set("tags", Arrays.asList("a", "b"))
+      .set("nested", StructuredRecord.builder(NESTED).set("x", 5).set("y", "z").build())
+      .set("nestedList", Arrays.asList(StructuredRecord.builder(NESTED).set("x", 6).build()))
+      .build();
+    StructuredRecord sparse = StructuredRecord.builder(SCHEMA)
+      .set("id", 2L)
+      .set("price", 2.5d)
+      .set("flag", false)
+      .set("tags", Arrays.asList())
+      .set("nestedList", Arrays.asList())
+      .build();
+
+    for (StructuredRecord record : Arrays.asList(full, sparse)) {
+      Assert.assertArrayEquals(encodeGeneric(record), encodeCompiled(record));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullForRequiredField() throws IOException {
+    StructuredRecord record = StructuredRecord.builder(NESTED).set("y", "z").build();
+    StructuredRecordDatumWriter writer = new StructuredRecordDatumWriter(NESTED);
+    writer.write(record, EncoderFactory.get().binaryEncoder(new ByteArrayOutputStream(), null));
+  }
+
+  private static byte[] encodeGeneric(StructuredRecord record) throws IOException {
+    GenericRecord genericRecord = new StructuredToAvroTransformer(null).transform(record, SCHEMA);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<GenericRecord>(genericRecord.getSchema()).write(genericRecord, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static byte[] encodeCompiled(StructuredRecord record) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new StructuredRecordDatumWriter(SCHEMA).write(record, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sink;
+
+import com.google.gson.JsonParser;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests for {@link StructuredRecordJsonWriter}.
+ */
+public class StructuredRecordJsonWriterTest {
+
+  private static final Schema NESTED = Schema.recordOf("nested",
+                                                       Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+                                                       Schema.Field.of("y", Schema.nullableOf(
+                                                         Schema.of(Schema.Type.STRING))));
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("price", Schema.of(Schema.Type.DOUBLE)),
+    Schema.Field.of("ratio", Schema.nullableOf(Schema.of(Schema.Type.FLOAT))),
+    Schema.Field.of("flag", Schema.of(Schema.Type.BOOLEAN)),
+    Schema.Field.of("data", Schema.nullableOf(Schema.of(Schema.Type.BYTES))),
+    Schema.Field.of("dt", Schema.nullableOf(Schema.of(Schema.LogicalType.DATE))),
+    Schema.Field.of("tm", Schema.nullableOf(Schema.of(Schema.LogicalType.TIME_MICROS))),
+    Schema.Field.of("ts", Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS))),
+    Schema.Field.of("tsMillis", Schema.nullableOf(Schema.of(Schema.LogicalType.TIMESTAMP_MILLIS))),
+    Schema.Field.of("amount", Schema.nullableOf(Schema.decimalOf(10, 2))),
+    Schema.Field.of("bigAmount", Schema.nullableOf(Schema.decimalOf(38, 9))),
+    Schema.Field.of("tags", Schema.arrayOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("nested", Schema.nullableOf(NESTED)),
+    Schema.Field.of("nestedList", Schema.arrayOf(NESTED)));
+
+  @Test
+  public void testOutputMatchesJsonConverter() throws IOException {
+    StructuredRecord full = StructuredRecord.builder(SCHEMA)
+      .set("id", -1L)
+      .set("name", "a \"quoted\"\né€ name")
+      .set("price", 1.5d)
+      .set("ratio", 0.25f)
+      .set("flag", true)
+      .set("data", new byte[] {1, 2, 3, 4})
+      .setDate("dt", LocalDate.of(2022, 1, 2))
+      .setTime("tm", LocalTime.of(23, 59, 58, 123456000))
+      .setTimestamp("ts", ZonedDateTime.of(1969, 12, 31, 23, 59, 59, 1000, ZoneOffset.UTC))
+      .setTimestamp("tsMillis", ZonedDateTime.of(2022, 2, 28, 3, 4, 5, 6000000, ZoneOffset.UTC))
+      .setDecimal("amount", new BigDecimal("-0.05"))
+      .setDecimal("bigAmount", new BigDecimal("12345678901234567890123.123456789"))
+      .set("tags", Arrays.asList("a", "b"))
+      .set("nested", StructuredRecord.builder(NESTED).set("x", 5).set("y", "z").build())
+      .set("nestedList", Arrays.asList(StructuredRecord.builder(NESTED).set("x", 6).build(),
+                                       StructuredRecord.builder(NESTED).set("x", 7).build()))
+      .build();
+    StructuredRecord sparse = StructuredRecord.builder(SCHEMA)
+      .set("id", 2L)
+      .set("price", 2.5d)
+      .set("flag", false)
+      .set("data", ByteBuffer.wrap(new byte[] {5}))
+      .set("tags", Collections.emptyList())
+      .set("nestedList", Collections.emptyList())
+      .build();
+
+    StructuredRecordJsonWriter writer = new StructuredRecordJsonWriter(SCHEMA, null);
+    BigQueryJsonConverter converter = new BigQueryJsonConverter();
+    for (StructuredRecord record : Arrays.asList(full, sparse)) {
+      Assert.assertEquals(converter.transform(record, null),
+                          new JsonParser().parse(writer.write(record).toString()));
+    }
+  }
+
+  @Test
+  public void testOutputSchemaFiltersFields() {
+    Schema outputSchema = Schema.recordOf("output", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+    StructuredRecord record = StructuredRecord.builder(NESTED).set("x", 1).set("y", "z").build();
+    Assert.assertEquals("{\"x\":1}", new StructuredRecordJsonWriter(NESTED, outputSchema).write(record).toString());
+  }
+
+  @Test
+  public void testTimestampFormat() {
+    Schema schema = Schema.recordOf("ts", Schema.Field.of("ts", Schema.of(Schema.LogicalType.TIMESTAMP_MICROS)));
+    StructuredRecord record = StructuredRecord.builder(schema)
+      .setTimestamp("ts", ZonedDateTime.of(2020, 2, 29, 1, 2, 3, 4000, ZoneOffset.UTC))
+      .build();
+    Assert.assertEquals("{\"ts\":\"2020-02-29 01:02:03.000004\"}",
+                        new StructuredRecordJsonWriter(schema, null).write(record).toString());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullArrayElement() {
+    StructuredRecord record = StructuredRecord.builder(SCHEMA)
+      .set("id", 1L)
+      .set("price", 1d)
+      .set("flag", true)
+      .set("tags", Arrays.asList("a", null))
+      .set("nestedList", Collections.emptyList())
+      .build();
+    new StructuredRecordJsonWriter(SCHEMA, null).write(record);
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sink;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests for {@link StructuredRecordWriteSupport}.
+ */
+public class StructuredRecordWriteSupportTest {
+
+  private static final Schema NESTED_SCHEMA = Schema.recordOf(
+    "nested",
+    Schema.Field.of("name", Schema.of(Schema.Type.STRING)));
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("dt", Schema.nullableOf(Schema.of(Schema.LogicalType.DATE))),
+    Schema.Field.of("ts", Schema.of(Schema.LogicalType.TIMESTAMP_MICROS)),
+    Schema.Field.of("price", Schema.nullableOf(Schema.decimalOf(10, 2))),
+    Schema.Field.of("tags", Schema.arrayOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("nested", Schema.nullableOf(NESTED_SCHEMA)));
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testMessageType() {
+    MessageType expected = MessageTypeParser.parseMessageType(
+      "message record {\n" +
+        "  required int64 id;\n" +
+        "  optional binary name (STRING);\n" +
+        "  optional int32 dt (DATE);\n" +
+        "  required int64 ts (TIMESTAMP(MICROS,true));\n" +
+        "  optional binary price (DECIMAL(10,2));\n" +
+        "  required group tags (LIST) {\n" +
+        "    repeated group list {\n" +
+        "      required binary element (STRING);\n" +
+        "    }\n" +
+        "  }\n" +
+        "  optional group nested {\n" +
+        "    required binary name (STRING);\n" +
+        "  }\n" +
+        "}");
+    Assert.assertEquals(expected, new StructuredRecordWriteSupport(SCHEMA).getMessageType());
+  }
+
+  @Test
+  public void testWriteRecords() throws Exception {
+    File file = new File(temporaryFolder.newFolder(), "part-m-00000.parquet");
+    Configuration conf = new Configuration();
+    ParquetRecordWriter writer = new ParquetRecordWriter(new Path(file.toURI()), conf, CompressionCodecName.SNAPPY,
+                                                         ParquetOutputFormat.DEFAULT_ROW_GROUP_SIZE, true);
+    writer.write(StructuredRecord.builder(SCHEMA)
+                   .set("id", 1L)
+                   .set("name", "first")
+                   .setDate("dt", LocalDate.of(2022, 3, 4))
+                   .set("ts", 1000L)
+                   .setDecimal("price", new BigDecimal("12.34"))
+                   .set("tags", Arrays.asList("a", "b"))
+                   .set("nested", StructuredRecord.builder(NESTED_SCHEMA).set("name", "inner").build())
+                   .build(), SCHEMA);
+    writer.write(StructuredRecord.builder(SCHEMA)
+                   .set("id", 2L)
+                   .set("ts", 2000L)
+                   .set("tags", Collections.emptyList())
+                   .build(), SCHEMA);
+    writer.close(null);
+
+    try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(), new Path(file.toURI()))
+      .withConf(conf).build()) {
+      Group first = reader.read();
+      Assert.assertEquals(1L, first.getLong("id", 0));
+      Assert.assertEquals("first", first.getString("name", 0));
+      Assert.assertEquals(LocalDate.of(2022, 3, 4).toEpochDay(), first.getInteger("dt", 0));
+      Assert.assertEquals(1000L, first.getLong("ts", 0));
+      Assert.assertEquals(new BigDecimal("12.34").unscaledValue(),
+                          new BigInteger(first.getBinary("price", 0).getBytes()));
+      Group tags = first.getGroup("tags", 0);
+      Assert.assertEquals(2, tags.getFieldRepetitionCount("list"));
+      Assert.assertEquals("b", tags.getGroup("list", 1).getString("element", 0));
+      Assert.assertEquals("inner", first.getGroup("nested", 0).getString("name", 0));
+
+      Group second = reader.read();
+      Assert.assertEquals(2L, second.getLong("id", 0));
+      Assert.assertEquals(0, second.getFieldRepetitionCount("name"));
+      Assert.assertEquals(0, second.getGroup("tags", 0).getFieldRepetitionCount("list"));
+      Assert.assertNull(reader.read());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullRequiredField() throws Exception {
+    File file = new File(temporaryFolder.newFolder(), "part-m-00000.parquet");
+    ParquetRecordWriter writer = new ParquetRecordWriter(new Path(file.toURI()), new Configuration(),
+                                                         CompressionCodecName.UNCOMPRESSED,
+                                                         ParquetOutputFormat.DEFAULT_ROW_GROUP_SIZE, true);
+    writer.write(StructuredRecord.builder(SCHEMA).set("id", 1L).build(), SCHEMA);
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.source;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Tests for {@link BigQueryMultiTableRecordReader} and {@link BigQueryMultiTableSplit}.
+ */
+public class BigQueryMultiTableRecordReaderTest {
+
+  private static final Schema SCHEMA = SchemaBuilder.record("root").fields()
+    .requiredLong("id")
+    .optionalString("name")
+    .endRecord();
+
+  @Test
+  public void testSplitSerialization() throws IOException {
+    BigQueryMultiTableSplit split =
+      new BigQueryMultiTableSplit("orders", "projects/p/locations/us/sessions/s/streams/0", SCHEMA.toString());
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    split.write(new DataOutputStream(bytes));
+    BigQueryMultiTableSplit deserialized = new BigQueryMultiTableSplit();
+    deserialized.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+    Assert.assertEquals("orders", deserialized.getTableName());
+    Assert.assertEquals(split.getStreamName(), deserialized.getStreamName());
+    Assert.assertEquals(split.getAvroSchema(), deserialized.getAvroSchema());
+  }
+
+  @Test
+  public void testRowsAreTaggedWithTableName() throws IOException {
+    GenericData.Record record = new GenericData.Record(SCHEMA);
+    record.put("id", 5L);
+    record.put("name", "widget");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(bytes, null);
+    new GenericDatumWriter<GenericData.Record>(SCHEMA).write(record, encoder);
+    encoder.flush();
+
+    Schema readerSchema = BigQueryMultiTableRecordReader.addTableNameField(SCHEMA, "tablename", "orders");
+    GenericData.Record decoded = new GenericDatumReader<GenericData.Record>(SCHEMA, readerSchema)
+      .read(null, DecoderFactory.get().binaryDecoder(bytes.toByteArray(), null));
+
+    Assert.assertEquals(5L, decoded.get("id"));
+    Assert.assertEquals("widget", decoded.get("name").toString());
+    Assert.assertEquals("orders", decoded.get("tablename").toString());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTableNameFieldConflict() {
+    BigQueryMultiTableRecordReader.addTableNameField(SCHEMA, "name", "orders");
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.source;
+
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.LegacySQLTypeName;
+import com.google.cloud.bigquery.Schema;
+import com.google.cloud.bigquery.StandardTableDefinition;
+import com.google.cloud.bigquery.TimePartitioning;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link BigQueryPartitionPlanner}.
+ */
+public class BigQueryPartitionPlannerTest {
+
+  @Test
+  public void testPartitionBounds() {
+    BigQueryPartitionPlanner.Partition day = new BigQueryPartitionPlanner.Partition("20220131",
+                                                                                    TimePartitioning.Type.DAY, 0L);
+    Assert.assertEquals(LocalDateTime.of(2022, 1, 31, 0, 0), day.getStart());
+    Assert.assertEquals(LocalDateTime.of(2022, 2, 1, 0, 0), day.getEnd());
+
+    BigQueryPartitionPlanner.Partition hour = new BigQueryPartitionPlanner.Partition("2022013123",
+                                                                                     TimePartitioning.Type.HOUR, 0L);
+    Assert.assertEquals(LocalDateTime.of(2022, 1, 31, 23, 0), hour.getStart());
+    Assert.assertEquals(LocalDateTime.of(2022, 2, 1, 0, 0), hour.getEnd());
+
+    BigQueryPartitionPlanner.Partition month = new BigQueryPartitionPlanner.Partition("202212",
+                                                                                      TimePartitioning.Type.MONTH, 0L);
+    Assert.assertEquals(LocalDateTime.of(2022, 12, 1, 0, 0), month.getStart());
+    Assert.assertEquals(LocalDateTime.of(2023, 1, 1, 0, 0), month.getEnd());
+  }
+
+  @Test
+  public void testSelectPartitions() {
+    List<BigQueryPartitionPlanner.Partition> partitions = Arrays.asList(
+      new BigQueryPartitionPlanner.Partition("20220101", TimePartitioning.Type.DAY, 100L),
+      new BigQueryPartitionPlanner.Partition("20220102", TimePartitioning.Type.DAY, 300L),
+      new BigQueryPartitionPlanner.Partition("20220103", TimePartitioning.Type.DAY, 200L),
+      new BigQueryPartitionPlanner.Partition("20220104", TimePartitioning.Type.DAY, 400L));
+
+    Assert.assertEquals(Arrays.asList("20220102", "20220103"),
+                        getIds(BigQueryPartitionPlanner.selectPartitions(partitions, "2022-01-02", "2022-01-04",
+                                                                         null)));
+    Assert.assertEquals(Arrays.asList("20220102", "20220104"),
+                        getIds(BigQueryPartitionPlanner.selectPartitions(partitions, null, null, 200L)));
+    Assert.assertEquals(Collections.singletonList("20220102"),
+                        getIds(BigQueryPartitionPlanner.selectPartitions(partitions, null, "2022-01-04", 200L)));
+  }
+
+  @Test
+  public void testSelectPseudoPartitions() {
+    List<BigQueryPartitionPlanner.Partition> partitions = Arrays.asList(
+      new BigQueryPartitionPlanner.Partition("__NULL__", TimePartitioning.Type.DAY, 300L),
+      new BigQueryPartitionPlanner.Partition("__UNPARTITIONED__", TimePartitioning.Type.DAY, 100L),
+      new BigQueryPartitionPlanner.Partition("20220101", TimePartitioning.Type.DAY, 300L));
+
+    Assert.assertTrue(partitions.get(0).isPseudoPartition());
+    Assert.assertFalse(partitions.get(2).isPseudoPartition());
+    Assert.assertEquals(Arrays.asList("__NULL__", "20220101"),
+                        getIds(BigQueryPartitionPlanner.selectPartitions(partitions, null, null, 200L)));
+    Assert.assertEquals(Collections.singletonList("20220101"),
+                        getIds(BigQueryPartitionPlanner.selectPartitions(partitions, "2022-01-01", null, null)));
+  }
+
+  @Test
+  public void testGroupPartitions() {
+    List<String> ids = Arrays.asList("1", "2", "3", "4", "5");
+    Assert.assertEquals(Arrays.asList(Arrays.asList("1", "2"), Arrays.asList("3", "4"), Collections.singletonList("5")),
+                        BigQueryPartitionPlanner.groupPartitions(ids, 3));
+    Assert.assertEquals(5, BigQueryPartitionPlanner.groupPartitions(ids, 64).size());
+    Assert.assertTrue(BigQueryPartitionPlanner.groupPartitions(Collections.emptyList(), 64).isEmpty());
+  }
+
+  @Test
+  public void testGeneratePartitionCondition() {
+    StandardTableDefinition ingestionTime = StandardTableDefinition.newBuilder()
+      .setTimePartitioning(TimePartitioning.of(TimePartitioning.Type.DAY))
+      .build();
+    Assert.assertEquals("(_PARTITIONTIME >= TIMESTAMP(\"2022-01-01 00:00:00\") and "
+                          + "_PARTITIONTIME < TIMESTAMP(\"2022-01-02 00:00:00\")) or "
+                          + "(_PARTITIONTIME >= TIMESTAMP(\"2022-01-03 00:00:00\") and "
+                          + "_PARTITIONTIME < TIMESTAMP(\"2022-01-04 00:00:00\"))",
+                        BigQueryPartitionPlanner.generatePartitionCondition(
+                          ingestionTime, Arrays.asList("20220101", "20220103")));
+
+    StandardTableDefinition dateColumn = StandardTableDefinition.newBuilder()
+      .setTimePartitioning(TimePartitioning.newBuilder(TimePartitioning.Type.MONTH).setField("dt").build())
+      .setSchema(Schema.of(Field.of("dt", LegacySQLTypeName.DATE)))
+      .build();
+    Assert.assertEquals("(`dt` >= DATE(\"2022-01-01\") and `dt` < DATE(\"2022-02-01\"))",
+                        BigQueryPartitionPlanner.generatePartitionCondition(
+                          dateColumn, Collections.singletonList("202201")));
+    Assert.assertEquals("(`dt` is null) or (`dt` >= DATE(\"2022-01-01\") and `dt` < DATE(\"2022-02-01\"))",
+                        BigQueryPartitionPlanner.generatePartitionCondition(
+                          dateColumn, Arrays.asList("__NULL__", "202201")));
+    Assert.assertEquals("(_PARTITIONTIME is null)",
+                        BigQueryPartitionPlanner.generatePartitionCondition(
+                          ingestionTime, Collections.singletonList("__UNPARTITIONED__")));
+  }
+
+  private static List<String> getIds(List<BigQueryPartitionPlanner.Partition> partitions) {
+    return partitions.stream().map(BigQueryPartitionPlanner.Partition::getId).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.source;
+
+import com.google.api.services.bigquery.model.Job;
+import com.google.api.services.bigquery.model.JobStatistics;
+import com.google.api.services.bigquery.model.JobStatistics2;
+import com.google.api.services.bigquery.model.Table;
+import com.google.api.services.bigquery.model.TableReference;
+import com.google.api.services.bigquery.model.ViewDefinition;
+import com.google.cloud.hadoop.io.bigquery.BigQueryHelper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Tests for {@link BigQueryResultCache}.
+ */
+public class BigQueryResultCacheTest {
+
+  private static final String QUERY = "select `id` from `project.dataset.view` where id > 5";
+  private static final TableReference VIEW =
+    new TableReference().setProjectId("project").setDatasetId("dataset").setTableId("view");
+
+  @Test
+  public void testKeyChangesWithSources() {
+    SortedMap<String, BigInteger> lastModifiedTimes = new TreeMap<>();
+    lastModifiedTimes.put("project.dataset.view", BigInteger.valueOf(1000L));
+    lastModifiedTimes.put("project.dataset.table", BigInteger.valueOf(2000L));
+    String key = BigQueryResultCache.generateKey(QUERY, null, null, lastModifiedTimes);
+    Assert.assertEquals(key, BigQueryResultCache.generateKey(QUERY, null, null, new TreeMap<>(lastModifiedTimes)));
+
+    Assert.assertNotEquals(key, BigQueryResultCache.generateKey(QUERY + " and id < 10", null, null,
+                                                                lastModifiedTimes));
+    Assert.assertNotEquals(key, BigQueryResultCache.generateKey(QUERY, "2022-01-01", null, lastModifiedTimes));
+    lastModifiedTimes.put("project.dataset.table", BigInteger.valueOf(3000L));
+    Assert.assertNotEquals(key, BigQueryResultCache.generateKey(QUERY, null, null, lastModifiedTimes));
+  }
+
+  @Test
+  public void testNonDeterministicQueries() {
+    Assert.assertTrue(BigQueryResultCache.isDeterministic(QUERY));
+    Assert.assertTrue(BigQueryResultCache.isDeterministic("select * from `p.d.t` where current_date_col > 5"));
+    Assert.assertFalse(BigQueryResultCache.isDeterministic("select * from `p.d.t` where dt = CURRENT_DATE()"));
+    Assert.assertFalse(BigQueryResultCache.isDeterministic("select * from `p.d.t` where rand () < 0.1"));
+  }
+
+  @Test
+  public void testCurrentDateTimeWithoutParentheses() {
+    Assert.assertFalse(BigQueryResultCache.isDeterministic("select * from `p.d.t` where dt = CURRENT_DATE"));
+    Assert.assertFalse(BigQueryResultCache.isDeterministic("select * from `p.d.t` where ts < current_timestamp"));
+    Assert.assertFalse(BigQueryResultCache.isDeterministic("select current_time, current_datetime from `p.d.t`"));
+    Assert.assertTrue(BigQueryResultCache.isDeterministic("select * from `p.d.t` where current_timestamp_col > 5"));
+  }
+
+  @Test
+  public void testNonDeterministicViewIsNotCached() throws Exception {
+    BigQueryHelper bigQueryHelper = Mockito.mock(BigQueryHelper.class);
+    Mockito.when(bigQueryHelper.getTable(VIEW)).thenReturn(
+      new Table().setType("VIEW").setLastModifiedTime(BigInteger.valueOf(1000L))
+        .setView(new ViewDefinition().setQuery(
+          "select * from `project.dataset.table` where dt >= date_sub(current_date, interval 7 day)")));
+
+    Assert.assertNull(BigQueryResultCache.getKey(bigQueryHelper, "project", null, VIEW, QUERY, null, null));
+    // The query is not even dry run.
+    Mockito.verify(bigQueryHelper, Mockito.never()).getRawBigquery();
+  }
+
+  @Test
+  public void testDeterministicViewIsCached() throws Exception {
+    BigQueryHelper bigQueryHelper = Mockito.mock(BigQueryHelper.class, Mockito.RETURNS_DEEP_STUBS);
+    TableReference table = new TableReference().setProjectId("project").setDatasetId("dataset").setTableId("table");
+    Mockito.when(bigQueryHelper.getTable(VIEW)).thenReturn(
+      new Table().setType("VIEW").setLastModifiedTime(BigInteger.valueOf(1000L))
+        .setView(new ViewDefinition().setQuery("select * from `project.dataset.table` where id > 5")));
+    Mockito.when(bigQueryHelper.getTable(table)).thenReturn(
+      new Table().setType("TABLE").setLastModifiedTime(BigInteger.valueOf(2000L)));
+    Mockito.when(bigQueryHelper.getRawBigquery().jobs().insert(Mockito.anyString(), Mockito.any()).execute())
+      .thenReturn(new Job().setStatistics(new JobStatistics().setQuery(
+        new JobStatistics2().setReferencedTables(Collections.singletonList(table)))));
+
+    Assert.assertNotNull(BigQueryResultCache.getKey(bigQueryHelper, "project", null, VIEW, QUERY, null, null));
+  }
+}
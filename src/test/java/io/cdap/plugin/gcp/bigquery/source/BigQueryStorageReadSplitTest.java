@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.source;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Tests for {@link BigQueryStorageReadSplit} and the records decoded from Storage Read API streams.
+ */
+public class BigQueryStorageReadSplitTest {
+
+  @Test
+  public void testSerialization() throws IOException {
+    String schema = SchemaBuilder.record("root").fields().requiredLong("id").endRecord().toString();
+    BigQueryStorageReadSplit split =
+      new BigQueryStorageReadSplit("projects/p/locations/us/sessions/s/streams/0", schema);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    split.write(new DataOutputStream(bytes));
+    BigQueryStorageReadSplit deserialized = new BigQueryStorageReadSplit();
+    deserialized.readFields(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+    Assert.assertEquals(split.getStreamName(), deserialized.getStreamName());
+    Assert.assertEquals(split.getAvroSchema(), deserialized.getAvroSchema());
+  }
+
+  @Test
+  public void testTransformStorageReadTypes() throws IOException {
+    // The Storage Read API returns dates and times as numbers, while exports return them as strings.
+    org.apache.avro.Schema avroSchema = SchemaBuilder.record("root").fields()
+      .name("dt").type(LogicalTypes.date().addToSchema(SchemaBuilder.builder().intType())).noDefault()
+      .name("tm").type(LogicalTypes.timeMicros().addToSchema(SchemaBuilder.builder().longType())).noDefault()
+      .endRecord();
+    LocalDate date = LocalDate.of(2022, 3, 4);
+    LocalTime time = LocalTime.of(12, 30, 15);
+    GenericData.Record record = new GenericData.Record(avroSchema);
+    record.put("dt", (int) date.toEpochDay());
+    record.put("tm", time.toNanoOfDay() / 1000L);
+
+    Schema schema = Schema.recordOf("root",
+                                    Schema.Field.of("dt", Schema.of(Schema.LogicalType.DATE)),
+                                    Schema.Field.of("tm", Schema.of(Schema.LogicalType.TIME_MICROS)));
+    StructuredRecord transformed = new BigQueryAvroToStructuredTransformer().transform(record, schema);
+    Assert.assertEquals(date, transformed.getDate("dt"));
+    Assert.assertEquals(time, transformed.getTime("tm"));
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.source;
+
+import com.google.cloud.bigquery.LegacySQLTypeName;
+import com.google.cloud.bigquery.TableId;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link BigQueryWatermarkColumn}.
+ */
+public class BigQueryWatermarkColumnTest {
+
+  @Test
+  public void testGenerateCondition() {
+    Assert.assertEquals("`id` <= 100",
+                        BigQueryWatermarkColumn.generateCondition("id", LegacySQLTypeName.INTEGER, null, "100"));
+    Assert.assertEquals("`id` > 100 and `id` <= 250",
+                        BigQueryWatermarkColumn.generateCondition("id", LegacySQLTypeName.INTEGER, "100", "250"));
+    Assert.assertEquals("`ts` > TIMESTAMP_MICROS(1000) and `ts` <= TIMESTAMP_MICROS(2000)",
+                        BigQueryWatermarkColumn.generateCondition("ts", LegacySQLTypeName.TIMESTAMP, "1000", "2000"));
+  }
+
+  @Test
+  public void testGenerateMaxValueQuery() {
+    TableId tableId = TableId.of("proj", "ds", "tbl");
+    Assert.assertEquals("SELECT MAX(`id`) AS watermark FROM `proj.ds.tbl`",
+                        BigQueryWatermarkColumn.generateMaxValueQuery(tableId, "id", LegacySQLTypeName.INTEGER,
+                                                                      null, null));
+    Assert.assertEquals("SELECT MAX(`ts`) AS watermark FROM `proj.ds.tbl` WHERE `ts` > TIMESTAMP_MICROS(1000) and "
+                          + "(_PARTITIONTIME >= TIMESTAMP(\"2022-01-01\"))",
+                        BigQueryWatermarkColumn.generateMaxValueQuery(
+                          tableId, "ts", LegacySQLTypeName.TIMESTAMP, "1000",
+                          "_PARTITIONTIME >= TIMESTAMP(\"2022-01-01\")"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedType() {
+    BigQueryWatermarkColumn.generateCondition("d", LegacySQLTypeName.DATE, "2022-01-01", "2022-01-02");
+  }
+
+  @Test
+  public void testGenerateConditionWithoutValues() {
+    Assert.assertEquals("false",
+                        BigQueryWatermarkColumn.generateCondition("id", LegacySQLTypeName.INTEGER, null, null));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testInvalidIntegerWatermark() {
+    BigQueryWatermarkColumn.generateCondition("id", LegacySQLTypeName.INTEGER, "1 or true", "100");
+  }
+}
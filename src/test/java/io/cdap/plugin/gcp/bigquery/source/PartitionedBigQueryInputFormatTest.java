@@ -16,8 +16,12 @@
 
 package io.cdap.plugin.gcp.bigquery.source;
 
+import com.google.cloud.bigquery.Field;
+import com.google.cloud.bigquery.LegacySQLTypeName;
+import com.google.cloud.bigquery.Schema;
 import com.google.cloud.bigquery.StandardTableDefinition;
 import com.google.cloud.bigquery.Table;
+import com.google.cloud.bigquery.TimePartitioning;
 import io.cdap.plugin.gcp.bigquery.util.BigQueryUtil;
 import org.junit.Assert;
 import org.junit.Test;
@@ -27,7 +31,7 @@ import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
-import java.util.Objects;
+import java.util.Arrays;
 
 /**
  *  Unit Tests for generateQuery methods
@@ -44,13 +48,13 @@ public class PartitionedBigQueryInputFormatTest {
     String filter = "tableColumn = 'abc'";
     PartitionedBigQueryInputFormat partitionedBigQueryInputFormat = new PartitionedBigQueryInputFormat();
     String generatedQuery = partitionedBigQueryInputFormat.generateQueryForMaterializingView(datasetProject, dataset,
-                                                                                             table, filter);
+                                                                                             table, filter, null);
     String expectedQuery = String.format("select * from `%s.%s.%s` where %s", datasetProject, dataset, table, filter);
     Assert.assertEquals(expectedQuery, generatedQuery);
 
     String expectedQueryWithoutFilter = String.format("select * from `%s.%s.%s`", datasetProject, dataset, table);
     generatedQuery = partitionedBigQueryInputFormat.generateQueryForMaterializingView(datasetProject, dataset,
-                                                                                      table, null);
+                                                                                      table, null, null);
     Assert.assertEquals(expectedQueryWithoutFilter, generatedQuery);
   }
 
@@ -69,12 +73,43 @@ public class PartitionedBigQueryInputFormatTest {
                                                     ArgumentMatchers.anyBoolean())).thenReturn(t);
     PowerMockito.when(t.getDefinition()).thenReturn(tableDefinition);
     String generatedQuery = partitionedBigQueryInputFormat.generateQuery(null, null, filter, datasetProject,
-                                                                         datasetProject, dataset, table, null, true);
+                                                                         datasetProject, dataset, table, null, true,
+                                                                         null);
     String expectedQuery = String.format("select * from `%s.%s.%s` where %s", datasetProject, dataset, table, filter);
     Assert.assertEquals(expectedQuery, generatedQuery);
 
     generatedQuery = partitionedBigQueryInputFormat.generateQuery(null, null, null, datasetProject, datasetProject,
-                                                                  dataset, table, null, true);
+                                                                  dataset, table, null, true, null);
     Assert.assertNull(generatedQuery);
+
+    generatedQuery = partitionedBigQueryInputFormat.generateQuery(null, null, filter, datasetProject, datasetProject,
+                                                                  dataset, table, null, true,
+                                                                  Arrays.asList("id", "name"));
+    expectedQuery = String.format("select `id`, `name` from `%s.%s.%s` where %s", datasetProject, dataset, table,
+                                  filter);
+    Assert.assertEquals(expectedQuery, generatedQuery);
+  }
+
+  @Test
+  public void testGenerateCondition() {
+    StandardTableDefinition tableDefinition = PowerMockito.mock(StandardTableDefinition.class);
+    PowerMockito.when(tableDefinition.getTimePartitioning())
+      .thenReturn(TimePartitioning.of(TimePartitioning.Type.DAY));
+    Assert.assertEquals("_PARTITIONTIME >= TIMESTAMP(\"2022-01-01\") and (id > 5)",
+                        PartitionedBigQueryInputFormat.generateCondition(tableDefinition, "2022-01-01", null,
+                                                                         "id > 5"));
+    Assert.assertNull(PartitionedBigQueryInputFormat.generateCondition(tableDefinition, null, null, null));
+  }
+
+  @Test
+  public void testGenerateConditionForDatePartitionColumn() {
+    StandardTableDefinition tableDefinition = PowerMockito.mock(StandardTableDefinition.class);
+    PowerMockito.when(tableDefinition.getTimePartitioning())
+      .thenReturn(TimePartitioning.newBuilder(TimePartitioning.Type.DAY).setField("dt").build());
+    PowerMockito.when(tableDefinition.getSchema())
+      .thenReturn(Schema.of(Field.of("dt", LegacySQLTypeName.DATE)));
+    Assert.assertEquals("`dt` >= DATE(\"2022-01-01\") and `dt` < DATE(\"2022-02-01\")",
+                        PartitionedBigQueryInputFormat.generateCondition(tableDefinition, "2022-01-01",
+                                                                         "2022-02-01", null));
   }
 }
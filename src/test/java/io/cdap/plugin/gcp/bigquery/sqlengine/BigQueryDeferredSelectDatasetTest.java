@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sqlengine;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.gcp.bigquery.relational.BigQueryRelation;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test for {@link BigQueryDeferredSelectDataset}
+ */
+public class BigQueryDeferredSelectDatasetTest {
+
+  private static final Schema SCHEMA = Schema.recordOf("output",
+                                                       Schema.Field.of("a", Schema.of(Schema.Type.STRING)),
+                                                       Schema.Field.of("b", Schema.of(Schema.Type.LONG)));
+
+  private AtomicInteger numExecutions;
+  private BigQueryDeferredSelectDataset deferredDataset;
+
+  @Before
+  public void setUp() {
+    numExecutions = new AtomicInteger();
+    BigQuerySelectDataset selectDataset = Mockito.mock(BigQuerySelectDataset.class);
+    Mockito.when(selectDataset.getBigQueryTable()).thenReturn("tbl");
+    Mockito.when(selectDataset.getNumRows()).thenReturn(10L);
+    deferredDataset = BigQueryDeferredSelectDataset.getInstance("ds", SCHEMA, "proj", "dataset",
+                                                                "select a, b from src",
+                                                                () -> {
+                                                                  numExecutions.incrementAndGet();
+                                                                  return selectDataset;
+                                                                });
+  }
+
+  @Test
+  public void testExecuteOnce() {
+    Assert.assertFalse(deferredDataset.isExecuted());
+    Assert.assertEquals(0L, deferredDataset.getNumRows());
+    Assert.assertEquals(0, numExecutions.get());
+
+    Assert.assertEquals("tbl", deferredDataset.getBigQueryTable());
+    Assert.assertEquals("tbl", deferredDataset.getBigQueryTable());
+    deferredDataset.execute();
+    Assert.assertTrue(deferredDataset.isExecuted());
+    Assert.assertEquals(10L, deferredDataset.getNumRows());
+    Assert.assertEquals(1, numExecutions.get());
+  }
+
+  @Test
+  public void testAddReference() {
+    Assert.assertEquals(1, deferredDataset.addReference());
+    Assert.assertEquals(2, deferredDataset.addReference());
+  }
+
+  @Test
+  public void testRelationNestsDeferredStatement() {
+    BigQueryRelation relation = BigQueryRelation.getInstance("ds", getColumns());
+    relation.setInputDatasets(Collections.singletonMap("ds", deferredDataset));
+
+    Assert.assertEquals("SELECT `a` AS `a` , `b` AS `b` FROM (select a, b from src) AS `ds`",
+                        relation.getSQLStatement());
+    Assert.assertEquals(0, numExecutions.get());
+  }
+
+  @Test
+  public void testRelationReadsExecutedTable() {
+    deferredDataset.execute();
+    BigQueryRelation relation = BigQueryRelation.getInstance("ds", getColumns());
+    relation.setInputDatasets(Collections.singletonMap("ds", deferredDataset));
+
+    Assert.assertEquals("SELECT `a` AS `a` , `b` AS `b` FROM `proj.dataset.tbl` AS `ds`",
+                        relation.getSQLStatement());
+    Assert.assertEquals(1, numExecutions.get());
+  }
+
+  private static Set<String> getColumns() {
+    Set<String> columns = new LinkedHashSet<>();
+    columns.add("a");
+    columns.add("b");
+    return columns;
+  }
+}
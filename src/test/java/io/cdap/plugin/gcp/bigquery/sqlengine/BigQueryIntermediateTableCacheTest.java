@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sqlengine;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test for {@link BigQueryIntermediateTableCache}
+ */
+public class BigQueryIntermediateTableCacheTest {
+
+  private static final String QUERY = "SELECT * FROM `proj.ds.%s` AS `a` JOIN `proj.ds.%s` AS `b` ON a.id = b.id";
+
+  @Test
+  public void testKeyDoesNotDependOnTableNames() {
+    String key = BigQueryIntermediateTableCache.getKey(String.format(QUERY, "run1_a", "run1_b"),
+                                                       fingerprints("run1_a", "1:10", "run1_b", "2:20"));
+    String otherRunKey = BigQueryIntermediateTableCache.getKey(String.format(QUERY, "run2_a", "run2_b"),
+                                                               fingerprints("run2_a", "1:10", "run2_b", "2:20"));
+    Assert.assertNotNull(key);
+    Assert.assertEquals(key, otherRunKey);
+  }
+
+  @Test
+  public void testKeyDependsOnContents() {
+    String key = BigQueryIntermediateTableCache.getKey(String.format(QUERY, "run1_a", "run1_b"),
+                                                       fingerprints("run1_a", "1:10", "run1_b", "2:20"));
+    String changedKey = BigQueryIntermediateTableCache.getKey(String.format(QUERY, "run2_a", "run2_b"),
+                                                              fingerprints("run2_a", "1:10", "run2_b", "3:30"));
+    Assert.assertNotEquals(key, changedKey);
+  }
+
+  @Test
+  public void testKeyDependsOnStatement() {
+    String key = BigQueryIntermediateTableCache.getKey("SELECT a FROM `proj.ds.run1_a`",
+                                                       Collections.singletonMap("run1_a", "1:10"));
+    String otherKey = BigQueryIntermediateTableCache.getKey("SELECT b FROM `proj.ds.run1_a`",
+                                                            Collections.singletonMap("run1_a", "1:10"));
+    Assert.assertNotEquals(key, otherKey);
+  }
+
+  @Test
+  public void testNonDeterministicStatementIsNotCached() {
+    Assert.assertNull(BigQueryIntermediateTableCache.getKey("SELECT a, RAND() FROM `proj.ds.run1_a`",
+                                                            Collections.singletonMap("run1_a", "1:10")));
+    Assert.assertNull(BigQueryIntermediateTableCache.getKey("SELECT a FROM `proj.ds.run1_a` WHERE d = CURRENT_DATE",
+                                                            Collections.singletonMap("run1_a", "1:10")));
+  }
+
+  private static Map<String, String> fingerprints(String table1, String fingerprint1,
+                                                  String table2, String fingerprint2) {
+    Map<String, String> fingerprints = new HashMap<>();
+    fingerprints.put(table1, fingerprint1);
+    fingerprints.put(table2, fingerprint2);
+    return fingerprints;
+  }
+}
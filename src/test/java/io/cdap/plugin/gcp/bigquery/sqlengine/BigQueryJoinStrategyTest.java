@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sqlengine;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.api.join.JoinStage;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test for {@link BigQueryJoinStrategy}
+ */
+public class BigQueryJoinStrategyTest {
+
+  private static final Schema SCHEMA = Schema.recordOf("input", Schema.Field.of("id", Schema.of(Schema.Type.LONG)));
+  private static final long THRESHOLD = 100L;
+
+  @Test
+  public void testAllInputsInSpark() {
+    List<JoinStage> stages = Arrays.asList(stage("large", false), stage("other", false));
+    Assert.assertEquals(BigQueryJoinStrategy.Decision.BIGQUERY,
+                        BigQueryJoinStrategy.decide(stages, Collections.emptyMap(), THRESHOLD));
+  }
+
+  @Test
+  public void testBroadcastInputLeftToSpark() {
+    List<JoinStage> stages = Arrays.asList(stage("large", false), stage("small", true));
+    Assert.assertEquals(BigQueryJoinStrategy.Decision.SPARK,
+                        BigQueryJoinStrategy.decide(stages, Collections.emptyMap(), THRESHOLD));
+  }
+
+  @Test
+  public void testSmallInputLeftToSpark() {
+    List<JoinStage> stages = Arrays.asList(stage("large", false), stage("small", false));
+    Assert.assertEquals(BigQueryJoinStrategy.Decision.SPARK,
+                        BigQueryJoinStrategy.decide(stages, Collections.singletonMap("small", 10L), THRESHOLD));
+  }
+
+  @Test
+  public void testLargeInputInBigQuery() {
+    List<JoinStage> stages = Arrays.asList(stage("large", false), stage("small", true));
+    Assert.assertEquals(BigQueryJoinStrategy.Decision.BIGQUERY,
+                        BigQueryJoinStrategy.decide(stages, Collections.singletonMap("large", 1000L), THRESHOLD));
+  }
+
+  @Test
+  public void testUnknownSizeInBigQuery() {
+    List<JoinStage> stages = Arrays.asList(stage("deferred", false), stage("small", true));
+    Assert.assertEquals(BigQueryJoinStrategy.Decision.BIGQUERY,
+                        BigQueryJoinStrategy.decide(stages, Collections.singletonMap("deferred", null), THRESHOLD));
+  }
+
+  @Test
+  public void testGetTotalEstimatedBytes() {
+    Map<String, Long> stageToEstimatedBytes = new HashMap<>();
+    stageToEstimatedBytes.put("a", 10L);
+    stageToEstimatedBytes.put("b", null);
+    stageToEstimatedBytes.put("c", 5L);
+    Assert.assertEquals(15L, BigQueryJoinStrategy.getTotalEstimatedBytes(stageToEstimatedBytes));
+  }
+
+  private static JoinStage stage(String name, boolean broadcast) {
+    return JoinStage.builder(name, SCHEMA).setBroadcast(broadcast).build();
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.sqlengine;
+
+import com.google.cloud.bigquery.BigQuery;
+import com.google.cloud.bigquery.DatasetId;
+import com.google.cloud.hadoop.io.bigquery.BigQueryConfiguration;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.api.engine.sql.request.SQLPullRequest;
+import io.cdap.plugin.gcp.bigquery.source.BigQueryStorageReadInputFormat;
+import io.cdap.plugin.gcp.bigquery.source.PartitionedBigQueryInputFormat;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test for {@link BigQueryPullDataset}
+ */
+public class BigQueryPullDatasetTest {
+
+  private static final Schema SCHEMA = Schema.recordOf("record", Schema.Field.of("id", Schema.of(Schema.Type.LONG)));
+  private static final DatasetId DATASET = DatasetId.of("project", "dataset");
+
+  private SQLPullRequest pullRequest;
+  private Configuration configuration;
+
+  @Before
+  public void setUp() {
+    pullRequest = Mockito.mock(SQLPullRequest.class);
+    Mockito.when(pullRequest.getDatasetName()).thenReturn("stage");
+    Mockito.when(pullRequest.getDatasetSchema()).thenReturn(SCHEMA);
+    configuration = new Configuration();
+    configuration.set(BigQueryConfiguration.PROJECT_ID_KEY, "project");
+  }
+
+  @Test
+  public void testPullThroughExport() throws Exception {
+    BigQueryPullDataset dataset = BigQueryPullDataset.getInstance(pullRequest, configuration,
+                                                                  Mockito.mock(BigQuery.class), DATASET, "table",
+                                                                  "bucket", "run", false);
+
+    Assert.assertEquals(PartitionedBigQueryInputFormat.class.getName(), dataset.getInputFormatClassName());
+    Assert.assertNotNull(dataset.getGCSPath());
+    Assert.assertEquals("table",
+                        dataset.getInputFormatConfiguration().get(BigQueryConfiguration.INPUT_TABLE_ID_KEY));
+  }
+
+  @Test
+  public void testPullThroughStorageReadApi() throws Exception {
+    BigQueryPullDataset dataset = BigQueryPullDataset.getInstance(pullRequest, configuration,
+                                                                  Mockito.mock(BigQuery.class), DATASET, "table",
+                                                                  "bucket", "run", true);
+
+    Assert.assertEquals(BigQueryStorageReadInputFormat.class.getName(), dataset.getInputFormatClassName());
+    // Nothing is exported, so there is no temporary directory to delete.
+    Assert.assertNull(dataset.getGCSPath());
+    Assert.assertEquals("table",
+                        dataset.getInputFormatConfiguration().get(BigQueryConfiguration.INPUT_TABLE_ID_KEY));
+  }
+}
@@ -16,8 +16,16 @@
 
 package io.cdap.plugin.gcp.bigquery.sqlengine.util;
 
+import com.google.cloud.bigquery.BigQuery;
+import com.google.cloud.bigquery.DatasetId;
+import com.google.cloud.bigquery.StandardTableDefinition;
+import com.google.cloud.bigquery.Table;
+import com.google.cloud.bigquery.TableId;
 import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.math.BigInteger;
 
 public class BigQuerySQLEngineUtilsTest {
 
@@ -32,4 +40,51 @@ public class BigQuerySQLEngineUtilsTest {
     Assert.assertTrue(BigQuerySQLEngineUtils.isValidIdentifier("コンピューター"));
     Assert.assertTrue(BigQuerySQLEngineUtils.isValidIdentifier("电脑"));
   }
+
+  @Test
+  public void testGetNumRowsIncludesStreamingBuffer() {
+    BigQuery bigQuery = Mockito.mock(BigQuery.class);
+    Table table = Mockito.mock(Table.class);
+    StandardTableDefinition definition = Mockito.mock(StandardTableDefinition.class);
+    StandardTableDefinition.StreamingBuffer streamingBuffer =
+      Mockito.mock(StandardTableDefinition.StreamingBuffer.class);
+    Mockito.when(bigQuery.getTable(TableId.of("proj", "dataset", "tbl"))).thenReturn(table);
+    Mockito.when(table.getNumRows()).thenReturn(BigInteger.valueOf(10L));
+    Mockito.when(table.getDefinition()).thenReturn(definition);
+
+    Assert.assertEquals(Long.valueOf(10L),
+                        BigQuerySQLEngineUtils.getNumRows(bigQuery, DatasetId.of("proj", "dataset"), "tbl"));
+
+    Mockito.when(definition.getStreamingBuffer()).thenReturn(streamingBuffer);
+    Mockito.when(streamingBuffer.getEstimatedRows()).thenReturn(5L);
+    Assert.assertEquals(Long.valueOf(15L),
+                        BigQuerySQLEngineUtils.getNumRows(bigQuery, DatasetId.of("proj", "dataset"), "tbl"));
+
+    // The streaming buffer may not have an estimate yet.
+    Mockito.when(streamingBuffer.getEstimatedRows()).thenReturn(null);
+    Assert.assertEquals(Long.valueOf(10L),
+                        BigQuerySQLEngineUtils.getNumRows(bigQuery, DatasetId.of("proj", "dataset"), "tbl"));
+  }
+
+  @Test
+  public void testGetNumBytesIncludesStreamingBuffer() {
+    BigQuery bigQuery = Mockito.mock(BigQuery.class);
+    Table table = Mockito.mock(Table.class);
+    StandardTableDefinition definition = Mockito.mock(StandardTableDefinition.class);
+    StandardTableDefinition.StreamingBuffer streamingBuffer =
+      Mockito.mock(StandardTableDefinition.StreamingBuffer.class);
+    Mockito.when(bigQuery.getTable(TableId.of("proj", "dataset", "tbl"))).thenReturn(table);
+    Mockito.when(table.getNumBytes()).thenReturn(100L);
+    Mockito.when(table.getDefinition()).thenReturn(definition);
+    Mockito.when(definition.getStreamingBuffer()).thenReturn(streamingBuffer);
+
+    Mockito.when(streamingBuffer.getEstimatedBytes()).thenReturn(50L);
+    Assert.assertEquals(Long.valueOf(150L),
+                        BigQuerySQLEngineUtils.getNumBytes(bigQuery, DatasetId.of("proj", "dataset"), "tbl"));
+
+    // The streaming buffer may not have an estimate yet.
+    Mockito.when(streamingBuffer.getEstimatedBytes()).thenReturn(null);
+    Assert.assertEquals(Long.valueOf(100L),
+                        BigQuerySQLEngineUtils.getNumBytes(bigQuery, DatasetId.of("proj", "dataset"), "tbl"));
+  }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.util;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link BigQueryJobPoller}.
+ */
+public class BigQueryJobPollerTest {
+
+  private ScheduledExecutorService scheduler;
+  private ExecutorService ioExecutor;
+  private BigQueryJobPoller poller;
+
+  @Before
+  public void setUp() {
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+    ioExecutor = Executors.newFixedThreadPool(4);
+    poller = new BigQueryJobPoller(scheduler, ioExecutor, 1, 5);
+  }
+
+  @After
+  public void tearDown() {
+    scheduler.shutdownNow();
+    ioExecutor.shutdownNow();
+  }
+
+  @Test
+  public void testPollsManyJobsUntilDone() throws Exception {
+    List<AtomicInteger> counters = new ArrayList<>();
+    List<CompletableFuture<Integer>> futures = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      AtomicInteger counter = new AtomicInteger();
+      int polls = i % 5 + 1;
+      counters.add(counter);
+      futures.add(poller.poll("job" + i, counter::incrementAndGet, count -> count >= polls, 0L));
+    }
+    for (int i = 0; i < futures.size(); i++) {
+      Assert.assertEquals(i % 5 + 1, (int) BigQueryJobPoller.await(futures.get(i)));
+      Assert.assertEquals(i % 5 + 1, counters.get(i).get());
+    }
+  }
+
+  @Test
+  public void testPollFailure() throws InterruptedException {
+    CompletableFuture<Integer> future = poller.poll("job", () -> {
+      throw new IOException("failed");
+    }, count -> true, 0L);
+    try {
+      BigQueryJobPoller.await(future);
+      Assert.fail("Expected poll to fail");
+    } catch (IOException e) {
+      Assert.assertEquals("failed", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testPollTimeout() throws InterruptedException {
+    CompletableFuture<Integer> future = poller.poll("job", () -> 0, count -> false, 20L);
+    try {
+      BigQueryJobPoller.await(future);
+      Assert.fail("Expected poll to time out");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getMessage().startsWith("Job job failed to complete after"));
+    }
+  }
+
+  @Test
+  public void testRetryableFailure() throws Exception {
+    AtomicInteger attempts = new AtomicInteger();
+    CompletableFuture<Integer> future = poller.poll("job", () -> {
+      if (attempts.incrementAndGet() < 3) {
+        throw new IOException("rate limited");
+      }
+      return attempts.get();
+    }, count -> true, t -> t instanceof IOException, 0L);
+    Assert.assertEquals(3, (int) BigQueryJobPoller.await(future));
+  }
+
+  @Test
+  public void testRetryableFailureGivesUp() throws InterruptedException {
+    CompletableFuture<Integer> future = poller.poll("job", () -> {
+      throw new IOException("rate limited");
+    }, count -> true, t -> true, 0L);
+    try {
+      BigQueryJobPoller.await(future);
+      Assert.fail("Expected poll to fail");
+    } catch (IOException e) {
+      Assert.assertEquals("rate limited", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testBlockedPollDoesNotDelayOtherJobs() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<Boolean> blocked = poller.poll("blocked", () -> release.await(10, TimeUnit.SECONDS),
+                                                     done -> true, 0L);
+    AtomicInteger counter = new AtomicInteger();
+    CompletableFuture<Integer> other = poller.poll("other", counter::incrementAndGet, count -> count >= 3, 0L);
+
+    Assert.assertEquals(3, (int) other.get(5, TimeUnit.SECONDS));
+    Assert.assertFalse(blocked.isDone());
+    release.countDown();
+    Assert.assertTrue(BigQueryJobPoller.await(blocked));
+  }
+}
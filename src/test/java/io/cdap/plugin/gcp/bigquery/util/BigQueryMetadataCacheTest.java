@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2022 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.gcp.bigquery.util;
+
+import com.google.api.services.bigquery.model.Table;
+import com.google.api.services.bigquery.model.TableReference;
+import com.google.cloud.bigquery.TableId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link BigQueryMetadataCache}.
+ */
+public class BigQueryMetadataCacheTest {
+
+  private static final TableReference TABLE_REF = new TableReference()
+    .setProjectId("project").setDatasetId("dataset").setTableId("table");
+
+  @Test
+  public void testTableIsFetchedOnceUntilInvalidated() throws IOException {
+    BigQueryMetadataCache cache = BigQueryMetadataCache.forJob(null);
+    AtomicInteger loads = new AtomicInteger();
+    BigQueryMetadataCache.Loader<Table> loader = () -> {
+      loads.incrementAndGet();
+      return new Table().setTableReference(TABLE_REF);
+    };
+
+    Assert.assertEquals(TABLE_REF, cache.getTable(TABLE_REF, loader).getTableReference());
+    // Callers get a copy, changing it does not change the cached table.
+    cache.getTable(TABLE_REF, loader).setDescription("changed");
+    Assert.assertNull(cache.getTable(TABLE_REF, loader).getDescription());
+    Assert.assertEquals(1, loads.get());
+
+    cache.invalidateTable(TableId.of("dataset", "table"));
+    cache.getTable(TABLE_REF, loader);
+    Assert.assertEquals(2, loads.get());
+  }
+
+  @Test
+  public void testMissingTableIsCached() throws IOException {
+    BigQueryMetadataCache cache = BigQueryMetadataCache.forJob(null);
+    AtomicInteger loads = new AtomicInteger();
+    BigQueryMetadataCache.Loader<Table> loader = () -> {
+      loads.incrementAndGet();
+      return null;
+    };
+
+    Assert.assertNull(cache.getTable(TABLE_REF, loader));
+    Assert.assertNull(cache.getTable(TABLE_REF, loader));
+    Assert.assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void testJobCaches() throws IOException {
+    BigQueryMetadataCache cache = BigQueryMetadataCache.forJob("job");
+    Assert.assertSame(cache, BigQueryMetadataCache.forJob("job"));
+    Assert.assertNotSame(cache, BigQueryMetadataCache.forJob(null));
+
+    AtomicInteger loads = new AtomicInteger();
+    BigQueryMetadataCache.Loader<Table> loader = () -> {
+      loads.incrementAndGet();
+      return new Table();
+    };
+    cache.getTable(TABLE_REF, loader);
+    BigQueryMetadataCache.invalidateTableForAllJobs(TableId.of("project", "dataset", "table"));
+    cache.getTable(TABLE_REF, loader);
+    Assert.assertEquals(2, loads.get());
+
+    BigQueryMetadataCache.release("job");
+    Assert.assertNotSame(cache, BigQueryMetadataCache.forJob("job"));
+    BigQueryMetadataCache.release("job");
+  }
+}